@@ -1,6 +1,7 @@
 plugins {
     id("com.android.application") // Android Application Plugin
     id("com.google.gms.google-services") // Google Services Plugin (for Firebase & Google Sign-In)
+    id("androidx.baselineprofile") // Ships the profile generated by :baselineprofile
 }
 
 android {
@@ -18,7 +19,9 @@ android {
 
     buildTypes {
         release {
-            isMinifyEnabled = false
+            // R8 shrinks and optimizes Firebase, Play Services, Glide and Material down to what is used
+            isMinifyEnabled = true
+            isShrinkResources = true
             proguardFiles(
                 getDefaultProguardFile("proguard-android-optimize.txt"),
                 "proguard-rules.pro"
@@ -26,16 +29,38 @@ android {
         }
     }
 
+    testOptions {
+        // Lets pure-Java classes that log through android.util.Log run in local unit tests
+        unitTests.isReturnDefaultValues = true
+    }
+
     compileOptions {
         sourceCompatibility = JavaVersion.VERSION_17
         targetCompatibility = JavaVersion.VERSION_17
     }
 }
 
+// ./gradlew :app:generateReleaseBaselineProfile
+// Runs the intro -> login -> profile journey from :baselineprofile on a device and writes
+// baseline-prof.txt and startup-prof.txt to src/release/generated/baselineProfiles; commit them.
+// ./gradlew :baselineprofile:connectedBenchmarkReleaseAndroidTest
+// Measures cold startup without and with the profile, see StartupBenchmark.
+baselineProfile {
+    // Profiles are regenerated on purpose after startup code changes, not on every release build
+    automaticGenerationDuringBuild = false
+    // Puts the startup profile's classes into the primary dex, so startup loads fewer pages
+    dexLayoutOptimization = true
+}
+
 dependencies {
     // 🔹 AndroidX & Material Components
     implementation("androidx.appcompat:appcompat:1.7.0")
     implementation("com.google.android.material:material:1.12.0")
+    implementation("androidx.core:core-splashscreen:1.0.1") // Splash screen API (backported below Android 12)
+    implementation("androidx.work:work-runtime:2.10.0") // Background sync jobs
+    implementation("androidx.recyclerview:recyclerview:1.3.2") // Readings feed
+    implementation("androidx.profileinstaller:profileinstaller:1.3.1") // Installs the Baseline Profile outside Play
+    baselineProfile(project(":baselineprofile"))
 
     // 🔹 Google Play Services (Google Sign-In & Google Fit API)
     implementation("com.google.android.gms:play-services-auth:21.3.0") // Google Sign-In
@@ -57,4 +82,5 @@ dependencies {
     testImplementation("junit:junit:4.13.2")
     androidTestImplementation("androidx.test.ext:junit:1.2.1")
     androidTestImplementation("androidx.test.espresso:espresso-core:3.6.1")
+    androidTestImplementation("androidx.work:work-testing:2.10.0")
 }
@@ -14,8 +14,29 @@
 
 # Uncomment this to preserve the line number information for
 # debugging stack traces.
-#-keepattributes SourceFile,LineNumberTable
+-keepattributes SourceFile,LineNumberTable
 
 # If you keep the line number information, uncomment this to
 # hide the original source file name.
-#-renamesourcefileattribute SourceFile
\ No newline at end of file
+-renamesourcefileattribute SourceFile
+
+# Firebase, Play Services, WorkManager and Glide ship their own consumer rules. Firestore only
+# gets maps and Blobs from this app, never model classes, so no fields need keeping for it.
+
+# Glide finds the class generated from HealthMonitoringGlideModule by name and calls its
+# constructor reflectively; full mode drops constructors a plain -keep class does not name.
+-keep class com.bumptech.glide.GeneratedAppGlideModuleImpl {
+    <init>(android.content.Context);
+}
+
+# Enum names are written to disk, Firestore and exports and read back with valueOf, so they must
+# stay the same from one release to the next.
+-keepclassmembers enum com.example.healthmonitoringapp.data.VitalType {
+    <fields>;
+}
+-keepclassmembers enum com.example.healthmonitoringapp.utils.UserProfile$Field {
+    <fields>;
+}
+-keepclassmembers enum com.example.healthmonitoringapp.export.FhirExportWriter$Coding {
+    <fields>;
+}
\ No newline at end of file
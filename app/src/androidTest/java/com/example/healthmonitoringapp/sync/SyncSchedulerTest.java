@@ -0,0 +1,247 @@
+package com.example.healthmonitoringapp.sync;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import androidx.work.Configuration;
+import androidx.work.ListenableWorker;
+import androidx.work.WorkInfo;
+import androidx.work.WorkManager;
+import androidx.work.WorkerFactory;
+import androidx.work.WorkerParameters;
+import androidx.work.testing.SynchronousExecutor;
+import androidx.work.testing.TestDriver;
+import androidx.work.testing.WorkManagerTestInitHelper;
+
+import com.example.healthmonitoringapp.data.SampleBatch;
+import com.example.healthmonitoringapp.data.VitalType;
+import com.example.healthmonitoringapp.fit.FitIngestionEngine;
+import com.example.healthmonitoringapp.fit.HealthHistorySource;
+import com.example.healthmonitoringapp.fit.IngestionCursorStore;
+import com.example.healthmonitoringapp.utils.UserProfile;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.UnaryOperator;
+
+import static org.junit.Assert.*;
+
+/**
+ * Drives {@link SyncScheduler}'s jobs through WorkManager's test driver, with workers built on fake
+ * Fit and Firestore backends.
+ */
+@RunWith(AndroidJUnit4.class)
+public class SyncSchedulerTest {
+    private final Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+
+    private FakeHistorySource source;
+    private int checkpoints;
+    private FakeBackend backend;
+    private FakeLocalProfile local;
+    private ProfileSyncEngine profileEngine;
+    private WorkManager workManager;
+    private TestDriver driver;
+    private SyncScheduler scheduler;
+
+    @Before
+    public void setUp() {
+        source = new FakeHistorySource();
+        FitIngestionEngine ingestion = new FitIngestionEngine(source, (type, batch) -> { }, new MemoryCursorStore());
+        backend = new FakeBackend();
+        local = new FakeLocalProfile();
+        profileEngine = new ProfileSyncEngine(backend, local, new MemoryStateStore(),
+                (task, delayMs) -> { }, System::currentTimeMillis);
+        profileEngine.start();
+
+        Configuration configuration = new Configuration.Builder()
+                .setExecutor(new SynchronousExecutor())
+                .setWorkerFactory(new WorkerFactory() {
+                    @Override
+                    public ListenableWorker createWorker(@NonNull Context appContext, @NonNull String workerClassName,
+                                                         @NonNull WorkerParameters params) {
+                        if (workerClassName.equals(VitalsSyncWorker.class.getName())) {
+                            return new VitalsSyncWorker(appContext, params, ingestion, () -> checkpoints++);
+                        }
+                        if (workerClassName.equals(ProfileSyncWorker.class.getName())) {
+                            return new ProfileSyncWorker(appContext, params, profileEngine);
+                        }
+                        return null;
+                    }
+                })
+                .build();
+        WorkManagerTestInitHelper.initializeTestWorkManager(context, configuration);
+        workManager = WorkManager.getInstance(context);
+        driver = WorkManagerTestInitHelper.getTestDriver(context);
+        scheduler = new SyncScheduler(workManager);
+    }
+
+    @Test
+    public void periodicVitals_runOnlyWhenConstraintsAreMet() throws Exception {
+        scheduler.start();
+        UUID id = onlyWork(SyncScheduler.VITALS_PERIODIC_WORK).getId();
+
+        driver.setPeriodDelayMet(id);
+        assertEquals(0, source.reads);
+
+        driver.setAllConstraintsMet(id);
+        assertTrue(source.reads > 0);
+        assertEquals(1, checkpoints);
+        // Periodic work goes back to waiting for its next period
+        assertEquals(WorkInfo.State.ENQUEUED, onlyWork(SyncScheduler.VITALS_PERIODIC_WORK).getState());
+    }
+
+    @Test
+    public void start_isIdempotent() throws Exception {
+        scheduler.start();
+        UUID id = onlyWork(SyncScheduler.VITALS_PERIODIC_WORK).getId();
+        scheduler.start();
+
+        assertEquals(id, onlyWork(SyncScheduler.VITALS_PERIODIC_WORK).getId());
+        assertEquals(1, workManager.getWorkInfosForUniqueWork(SyncScheduler.VITALS_CATCH_UP_WORK).get().size());
+    }
+
+    @Test
+    public void overlappingRequests_coalesceIntoOneRun() throws Exception {
+        scheduler.requestVitalsSync();
+        UUID id = onlyWork(SyncScheduler.VITALS_NOW_WORK).getId();
+        scheduler.requestVitalsSync();
+        scheduler.requestVitalsSync();
+        assertEquals(id, onlyWork(SyncScheduler.VITALS_NOW_WORK).getId());
+
+        driver.setAllConstraintsMet(id);
+
+        assertEquals(1, checkpoints);
+        assertEquals(WorkInfo.State.SUCCEEDED, onlyWork(SyncScheduler.VITALS_NOW_WORK).getState());
+    }
+
+    @Test
+    public void failedIngestion_isRetried() throws Exception {
+        source.failing = true;
+        scheduler.requestVitalsSync();
+        UUID id = onlyWork(SyncScheduler.VITALS_NOW_WORK).getId();
+
+        driver.setAllConstraintsMet(id);
+
+        WorkInfo info = onlyWork(SyncScheduler.VITALS_NOW_WORK);
+        assertEquals(WorkInfo.State.ENQUEUED, info.getState());
+        assertEquals(1, info.getRunAttemptCount());
+        assertEquals(0, checkpoints);
+    }
+
+    @Test
+    public void storedEdit_isPushedByBackgroundWork() throws Exception {
+        local.profile = UserProfile.EMPTY.withEmail("jane@example.com").withPhone("5550100");
+        profileEngine.onFieldsStored(EnumSet.of(UserProfile.Field.EMAIL, UserProfile.Field.PHONE));
+        scheduler.onFieldsStored(EnumSet.of(UserProfile.Field.PHONE));
+        UUID id = onlyWork(SyncScheduler.PROFILE_PUSH_WORK).getId();
+        assertEquals(0, backend.writes);
+
+        driver.setAllConstraintsMet(id);
+
+        assertEquals(1, backend.writes);
+        assertFalse(profileEngine.hasPendingChanges());
+        assertEquals(WorkInfo.State.SUCCEEDED, onlyWork(SyncScheduler.PROFILE_PUSH_WORK).getState());
+    }
+
+    private WorkInfo onlyWork(String name) throws Exception {
+        List<WorkInfo> infos = workManager.getWorkInfosForUniqueWork(name).get();
+        assertEquals(1, infos.size());
+        return infos.get(0);
+    }
+
+    private static class FakeHistorySource implements HealthHistorySource {
+        int reads;
+        boolean failing;
+
+        @Override
+        public void read(VitalType type, long startMs, long endMs, SampleBatch out) throws IOException {
+            if (failing) {
+                throw new IOException("Simulated network failure");
+            }
+            reads++;
+            out.add(startMs, 70);
+        }
+    }
+
+    private static class MemoryCursorStore implements IngestionCursorStore {
+        private final Map<VitalType, Long> cursors = new EnumMap<>(VitalType.class);
+
+        @Override
+        public long loadCursor(VitalType type) {
+            Long cursor = cursors.get(type);
+            return cursor != null ? cursor : 0;
+        }
+
+        @Override
+        public void saveCursor(VitalType type, long cursorMs) {
+            cursors.put(type, cursorMs);
+        }
+    }
+
+    private static class FakeBackend implements RemoteProfileBackend {
+        int writes;
+
+        @Override
+        public void fetch(String documentId, FetchCallback callback) {
+            callback.onFetched(null);
+        }
+
+        @Override
+        public void mergeFields(String documentId, Map<String, Object> fields, Callback callback) {
+            writes++;
+            callback.onSuccess();
+        }
+    }
+
+    private static class FakeLocalProfile implements LocalProfile {
+        UserProfile profile = UserProfile.EMPTY;
+
+        @Override
+        public synchronized UserProfile get() {
+            return profile;
+        }
+
+        @Override
+        public synchronized UserProfile update(UnaryOperator<UserProfile> change) {
+            profile = change.apply(profile);
+            return profile;
+        }
+    }
+
+    private static class MemoryStateStore implements ProfileSyncEngine.SyncStateStore {
+        private final Set<UserProfile.Field> pending = EnumSet.noneOf(UserProfile.Field.class);
+        private String synced = "";
+
+        @Override
+        public Set<UserProfile.Field> loadPendingFields() {
+            return EnumSet.copyOf(pending);
+        }
+
+        @Override
+        public void savePendingFields(Set<UserProfile.Field> fields) {
+            pending.clear();
+            pending.addAll(fields);
+        }
+
+        @Override
+        public String loadSyncedVersion() {
+            return synced;
+        }
+
+        @Override
+        public void saveSyncedVersion(String encoded) {
+            synced = encoded;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.healthmonitoringapp.ui;
+
+import android.app.Activity;
+import android.app.Instrumentation;
+import android.content.Context;
+import android.content.Intent;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.healthmonitoringapp.utils.SharedPrefManager;
+import com.example.healthmonitoringapp.utils.UserProfile;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Measures the time from launching {@link IntroActivity} to the first drawn frame of
+ * {@link HomeActivity} for a signed-in user. The process is already warm, so this times the
+ * routing path itself rather than process creation; use the "Fully drawn" line that
+ * {@link HomeActivity} reports to ActivityManager for cold-start numbers.
+ * Results are written to logcat under the "StartupRoute" tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class StartupRouteBenchmark {
+    private static final String TAG = "StartupRoute";
+    private static final int RUNS = 10;
+
+    private final Instrumentation instrumentation = InstrumentationRegistry.getInstrumentation();
+    private final Context context = instrumentation.getTargetContext();
+    private SharedPrefManager sharedPrefManager;
+    private UserProfile savedProfile;
+
+    @Before
+    public void signIn() {
+        // Written to storage directly so the profile sync does not push the fake user; waits for the write
+        sharedPrefManager = SharedPrefManager.getInstance(context);
+        savedProfile = sharedPrefManager.loadProfile();
+        Map<UserProfile.Field, String> fake = new EnumMap<>(UserProfile.Field.class);
+        for (UserProfile.Field field : UserProfile.Field.values()) {
+            fake.put(field, "");
+        }
+        fake.put(UserProfile.Field.NAME, "Jane Doe");
+        fake.put(UserProfile.Field.EMAIL, "jane@example.com");
+        sharedPrefManager.writeProfileFields(fake);
+    }
+
+    @After
+    public void restoreProfile() {
+        // Fields that were not stored before are removed again, not left as empty strings
+        Map<UserProfile.Field, String> saved = new EnumMap<>(UserProfile.Field.class);
+        for (UserProfile.Field field : UserProfile.Field.values()) {
+            saved.put(field, savedProfile.get(field));
+        }
+        sharedPrefManager.writeProfileFields(saved);
+    }
+
+    @Test
+    public void signedInUser_reachesHomeWithoutLogin() {
+        long[] elapsed = new long[RUNS];
+        for (int run = 0; run < RUNS; run++) {
+            Instrumentation.ActivityMonitor loginMonitor =
+                    instrumentation.addMonitor(LoginActivity.class.getName(), null, false);
+            Instrumentation.ActivityMonitor homeMonitor =
+                    instrumentation.addMonitor(HomeActivity.class.getName(), null, false);
+
+            long start = System.nanoTime();
+            context.startActivity(new Intent(context, IntroActivity.class).addFlags(Intent.FLAG_ACTIVITY_NEW_TASK));
+            Activity home = homeMonitor.waitForActivityWithTimeout(5_000);
+            assertNotNull("HomeActivity was not started", home);
+            // The main thread goes idle only after the first traversal has drawn
+            instrumentation.waitForIdleSync();
+            elapsed[run] = System.nanoTime() - start;
+
+            assertEquals(0, loginMonitor.getHits());
+            instrumentation.removeMonitor(loginMonitor);
+            instrumentation.removeMonitor(homeMonitor);
+            instrumentation.runOnMainSync(home::finish);
+            instrumentation.waitForIdleSync();
+        }
+
+        Arrays.sort(elapsed);
+        Log.i(TAG, "Intro -> Home first frame: median " + elapsed[RUNS / 2] / 1_000_000 + " ms, min "
+                + elapsed[0] / 1_000_000 + " ms, max " + elapsed[RUNS - 1] / 1_000_000 + " ms");
+    }
+}
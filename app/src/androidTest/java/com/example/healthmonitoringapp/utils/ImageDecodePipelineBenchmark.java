@@ -0,0 +1,180 @@
+package com.example.healthmonitoringapp.utils;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.ImageDecoder;
+import android.graphics.Paint;
+import android.os.Debug;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares full-size decoding with {@link ImageDecodePipeline} for camera-sized photos, and checks
+ * that decodes dropped from a full queue do not stay tracked. Results are written to logcat under
+ * the "DecodeBenchmark" tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ImageDecodePipelineBenchmark {
+    private static final String TAG = "DecodeBenchmark";
+    private static final int TARGET_SIZE_PX = 480;
+
+    private static File photo12mp;
+    private static File photo48mp;
+
+    @BeforeClass
+    public static void createPhotos() throws IOException {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        photo12mp = writeJpeg(new File(context.getCacheDir(), "bench_12mp.jpg"), 4000, 3000);
+        photo48mp = writeJpeg(new File(context.getCacheDir(), "bench_48mp.jpg"), 8000, 6000);
+    }
+
+    @Test
+    public void decode12mp() throws IOException {
+        compare("12MP", photo12mp);
+    }
+
+    @Test
+    public void decode48mp() throws IOException {
+        compare("48MP", photo48mp);
+    }
+
+    private void compare(String label, File photo) throws IOException {
+        ImageDecodePipeline pipeline = ImageDecodePipeline.getInstance();
+
+        NativeHeapPeak heap = NativeHeapPeak.start();
+        long start = System.nanoTime();
+        Bitmap full = BitmapFactory.decodeFile(photo.getAbsolutePath());
+        long fullPeak = heap.stop();
+        long fullMs = (System.nanoTime() - start) / 1_000_000;
+        int fullBytes = full != null ? full.getAllocationByteCount() : -1;
+        if (full != null) {
+            full.recycle();
+        }
+
+        heap = NativeHeapPeak.start();
+        start = System.nanoTime();
+        Bitmap sampled = pipeline.decode(ImageDecoder.createSource(photo), TARGET_SIZE_PX);
+        long sampledPeak = heap.stop();
+        long sampledMs = (System.nanoTime() - start) / 1_000_000;
+
+        Log.i(TAG, label + " full decode: " + fullMs + " ms, bitmap " + fullBytes / 1024 + " KB, native peak "
+                + fullPeak / 1024 + " KB");
+        Log.i(TAG, label + " pipeline decode: " + sampledMs + " ms, bitmap "
+                + sampled.getAllocationByteCount() / 1024 + " KB, native peak " + sampledPeak / 1024 + " KB");
+
+        assertTrue(Math.min(sampled.getWidth(), sampled.getHeight()) >= TARGET_SIZE_PX);
+        assertTrue(sampled.getAllocationByteCount() < fullBytes || fullBytes < 0);
+        sampled.recycle();
+    }
+
+    @Test
+    public void overflowingQueue_leavesNothingPending() throws Exception {
+        ImageDecodePipeline.Session session = ImageDecodePipeline.getInstance().new Session();
+        AtomicInteger delivered = new AtomicInteger();
+        ImageDecodePipeline.Callback callback = new ImageDecodePipeline.Callback() {
+            @Override
+            public void onDecoded(Bitmap bitmap) {
+                delivered.incrementAndGet();
+                bitmap.recycle();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                fail(e.toString());
+            }
+        };
+        // Far more than the two threads and four queue slots hold, so most are dropped
+        for (int i = 0; i < 40; i++) {
+            session.decode(photo12mp, TARGET_SIZE_PX, callback);
+        }
+        long deadline = System.nanoTime() + 60_000_000_000L;
+        while (session.pendingCount() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+
+        assertEquals(0, session.pendingCount());
+        assertTrue(delivered.get() > 0 && delivered.get() < 40);
+    }
+
+    /**
+     * Samples the native heap on a background thread, so buffers freed before the decode returns
+     * still count towards the peak.
+     */
+    private static class NativeHeapPeak implements Runnable {
+        private final long baseline = Debug.getNativeHeapAllocatedSize();
+        private final Thread thread = new Thread(this, "NativeHeapPeak");
+        private volatile boolean running = true;
+        private volatile long peak = baseline;
+
+        static NativeHeapPeak start() {
+            NativeHeapPeak sampler = new NativeHeapPeak();
+            sampler.thread.start();
+            return sampler;
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                peak = Math.max(peak, Debug.getNativeHeapAllocatedSize());
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Returns the highest native heap seen above the baseline.
+         */
+        long stop() throws IOException {
+            running = false;
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+            return Math.max(peak, Debug.getNativeHeapAllocatedSize()) - baseline;
+        }
+    }
+
+    private static File writeJpeg(File file, int width, int height) throws IOException {
+        if (file.exists()) {
+            return file;
+        }
+        // RGB_565 halves the fixture bitmap; only the JPEG on disk matters for the benchmark
+        int stripHeight = height / 10;
+        Bitmap strip = Bitmap.createBitmap(width, stripHeight, Bitmap.Config.ARGB_8888);
+        Bitmap image = Bitmap.createBitmap(width, height, Bitmap.Config.RGB_565);
+        Canvas canvas = new Canvas(image);
+        Paint paint = new Paint();
+        for (int i = 0; i < 10; i++) {
+            strip.eraseColor(Color.HSVToColor(new float[]{i * 36f, 0.6f, 0.9f}));
+            canvas.drawBitmap(strip, 0, i * stripHeight, paint);
+        }
+        strip.recycle();
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            image.compress(Bitmap.CompressFormat.JPEG, 90, out);
+        }
+        image.recycle();
+        return file;
+    }
+}
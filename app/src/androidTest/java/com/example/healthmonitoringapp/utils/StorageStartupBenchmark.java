@@ -0,0 +1,110 @@
+package com.example.healthmonitoringapp.utils;
+
+import android.app.Instrumentation;
+import android.content.Context;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Measures how long the main thread is blocked before the first frame can be drawn when user data
+ * is read through SharedPreferences versus {@link UserDataStore}.
+ * Results are written to logcat under the "StorageStartup" tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class StorageStartupBenchmark {
+    private static final String TAG = "StorageStartup";
+    private static final int RUNS = 10;
+
+    private final Instrumentation instrumentation = InstrumentationRegistry.getInstrumentation();
+    private final Context context = instrumentation.getTargetContext();
+
+    @Test
+    public void compareMainThreadBlocking() throws Exception {
+        long sharedPrefsNanos = 0;
+        long dataStoreNanos = 0;
+        long dataStoreReadyNanos = 0;
+
+        for (int run = 0; run < RUNS; run++) {
+            // A name that has not been opened in this process forces a cold XML parse
+            String prefName = "startup_bench_" + System.nanoTime();
+            writePrefsXml(new File(context.getFilesDir().getParentFile(), "shared_prefs/" + prefName + ".xml"));
+            long[] elapsed = new long[1];
+            instrumentation.runOnMainSync(() -> {
+                long start = System.nanoTime();
+                context.getSharedPreferences(prefName, Context.MODE_PRIVATE).getString("user_name", "");
+                elapsed[0] = System.nanoTime() - start;
+            });
+            sharedPrefsNanos += elapsed[0];
+            context.deleteSharedPreferences(prefName);
+
+            File storeFile = new File(context.getCacheDir(), "startup_bench.bin");
+            seedStore(storeFile);
+            CountDownLatch ready = new CountDownLatch(1);
+            long[] readyAt = new long[1];
+            long[] start = new long[1];
+            instrumentation.runOnMainSync(() -> {
+                start[0] = System.nanoTime();
+                UserDataStore store = new UserDataStore(storeFile, null, Executors.newSingleThreadExecutor(),
+                        Runnable::run);
+                elapsed[0] = System.nanoTime() - start[0];
+                store.whenReady(() -> {
+                    readyAt[0] = System.nanoTime();
+                    ready.countDown();
+                });
+            });
+            assertTrue(ready.await(5, TimeUnit.SECONDS));
+            dataStoreNanos += elapsed[0];
+            dataStoreReadyNanos += readyAt[0] - start[0];
+        }
+
+        Log.i(TAG, "SharedPreferences main-thread block: " + sharedPrefsNanos / RUNS / 1000 + " us");
+        Log.i(TAG, "UserDataStore main-thread block: " + dataStoreNanos / RUNS / 1000 + " us, data ready after "
+                + dataStoreReadyNanos / RUNS / 1000 + " us (off main thread)");
+        assertTrue(dataStoreNanos < sharedPrefsNanos);
+    }
+
+    private static Map<String, String> sampleData() {
+        Map<String, String> data = new HashMap<>();
+        data.put("user_name", "Jane Doe");
+        data.put("user_email", "jane@example.com");
+        data.put("user_profile_pic", "https://lh3.googleusercontent.com/a/photo");
+        data.put("user_dob", "1/1/1990");
+        data.put("user_phone", "5550100");
+        data.put("user_address", "221B Baker Street");
+        return data;
+    }
+
+    private static void writePrefsXml(File file) throws IOException {
+        file.getParentFile().mkdirs();
+        try (Writer writer = new FileWriter(file)) {
+            writer.write("<?xml version='1.0' encoding='utf-8' standalone='yes' ?>\n<map>\n");
+            for (Map.Entry<String, String> entry : sampleData().entrySet()) {
+                writer.write("    <string name=\"" + entry.getKey() + "\">" + entry.getValue() + "</string>\n");
+            }
+            writer.write("</map>\n");
+        }
+    }
+
+    private static void seedStore(File file) throws Exception {
+        file.delete();
+        UserDataStore seed = new UserDataStore(file, null, Executors.newSingleThreadExecutor(), Runnable::run);
+        seed.edit(data -> data.putAll(sampleData())).get();
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.healthmonitoringapp;
+
+import android.app.Application;
+
+import com.example.healthmonitoringapp.metrics.Metrics;
+import com.example.healthmonitoringapp.metrics.Timer;
+
+import com.example.healthmonitoringapp.sync.ProfileSyncEngine;
+import com.example.healthmonitoringapp.sync.SyncScheduler;
+import com.example.healthmonitoringapp.sync.VitalsUploader;
+import com.example.healthmonitoringapp.utils.ProfileRepository;
+
+/**
+ * Application entry point. Starts loading stored user data in the background before the first
+ * activity is created, so screens usually find it ready, starts pushing profile edits and
+ * registers the periodic background sync.
+ */
+public class HealthMonitoringApp extends Application {
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        Timer timer = Metrics.getInstance().timer("App.onCreate");
+        long start = timer.start();
+        try {
+            // All return immediately; the disk reads happen on their own threads
+            ProfileRepository.getInstance(this);
+            ProfileSyncEngine.getInstance(this);
+            // Listens for sign-ins, so a new account does not upload what the previous one recorded
+            VitalsUploader.getInstance(this);
+            SyncScheduler.getInstance(this).start();
+        } finally {
+            timer.stop(start);
+        }
+    }
+}
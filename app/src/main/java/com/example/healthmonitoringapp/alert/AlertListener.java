@@ -0,0 +1,16 @@
+package com.example.healthmonitoringapp.alert;
+
+/**
+ * Receives debounced alert events from {@link HeartRateAnomalyDetector}. Called on the thread that
+ * feeds the detector; events carry primitives only so the per-sample path never allocates.
+ */
+public interface AlertListener {
+    /**
+     * @param timestampMs Time of the sample that confirmed the condition.
+     * @param value       Smoothed heart rate that triggered the alert, in bpm.
+     * @param baseline    Long-term resting heart rate, or NaN while it is still being learned.
+     */
+    void onAlertRaised(AlertType type, long timestampMs, float value, float baseline);
+
+    void onAlertCleared(AlertType type, long timestampMs);
+}
@@ -0,0 +1,96 @@
+package com.example.healthmonitoringapp.alert;
+
+import android.Manifest;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.PackageManager;
+import android.os.Build;
+import android.util.Log;
+
+import androidx.core.app.NotificationCompat;
+import androidx.core.app.NotificationManagerCompat;
+import androidx.core.content.ContextCompat;
+
+import com.example.healthmonitoringapp.R;
+import com.example.healthmonitoringapp.ui.HomeActivity;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Posts one notification per active {@link AlertType} and removes it when the alert clears.
+ * Alerts confirmed by old samples, e.g. while a long history is ingested, are only logged.
+ */
+public class AlertNotifier implements AlertListener {
+    private static final String TAG = "AlertNotifier";
+    private static final String CHANNEL_ID = "heart_rate_alerts";
+    static final long MAX_ALERT_AGE_MS = TimeUnit.HOURS.toMillis(1);
+
+    private final Context context;
+
+    public AlertNotifier(Context context) {
+        this.context = context.getApplicationContext();
+        NotificationChannel channel = new NotificationChannel(CHANNEL_ID,
+                this.context.getString(R.string.alert_channel_name), NotificationManager.IMPORTANCE_HIGH);
+        this.context.getSystemService(NotificationManager.class).createNotificationChannel(channel);
+    }
+
+    @Override
+    public void onAlertRaised(AlertType type, long timestampMs, float value, float baseline) {
+        Log.i(TAG, type + " at " + timestampMs + ": " + value + " bpm, baseline " + baseline);
+        if (System.currentTimeMillis() - timestampMs > MAX_ALERT_AGE_MS || !canNotify()) {
+            return;
+        }
+        PendingIntent openApp = PendingIntent.getActivity(context, 0,
+                new Intent(context, HomeActivity.class), PendingIntent.FLAG_IMMUTABLE);
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(context, CHANNEL_ID)
+                .setSmallIcon(R.drawable.ic_launcher_foreground)
+                .setContentTitle(context.getString(titleFor(type)))
+                .setContentText(textFor(type, value, baseline))
+                .setCategory(NotificationCompat.CATEGORY_ALARM)
+                .setPriority(NotificationCompat.PRIORITY_HIGH)
+                .setWhen(timestampMs)
+                .setContentIntent(openApp)
+                .setAutoCancel(true);
+        try {
+            NotificationManagerCompat.from(context).notify(type.ordinal(), builder.build());
+        } catch (SecurityException e) {
+            Log.e(TAG, "Notification permission revoked", e);
+        }
+    }
+
+    @Override
+    public void onAlertCleared(AlertType type, long timestampMs) {
+        Log.i(TAG, type + " cleared at " + timestampMs);
+        NotificationManagerCompat.from(context).cancel(type.ordinal());
+    }
+
+    private boolean canNotify() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU
+                && ContextCompat.checkSelfPermission(context, Manifest.permission.POST_NOTIFICATIONS)
+                != PackageManager.PERMISSION_GRANTED) {
+            return false;
+        }
+        return NotificationManagerCompat.from(context).areNotificationsEnabled();
+    }
+
+    private static int titleFor(AlertType type) {
+        switch (type) {
+            case TACHYCARDIA:
+                return R.string.alert_tachycardia_title;
+            case BRADYCARDIA:
+                return R.string.alert_bradycardia_title;
+            default:
+                return R.string.alert_resting_shift_title;
+        }
+    }
+
+    private String textFor(AlertType type, float value, float baseline) {
+        if (type == AlertType.RESTING_HR_SHIFT) {
+            return context.getString(R.string.alert_resting_shift_text, Math.round(value), Math.round(baseline));
+        }
+        return context.getString(R.string.alert_rate_text, Math.round(value));
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.healthmonitoringapp.alert;
+
+/**
+ * Heart-rate conditions that {@link HeartRateAnomalyDetector} raises alerts for.
+ */
+public enum AlertType {
+    /** Heart rate sustained above the tachycardia threshold. */
+    TACHYCARDIA,
+    /** Heart rate sustained below the bradycardia threshold. */
+    BRADYCARDIA,
+    /** Resting heart rate moved away from its long-term baseline. */
+    RESTING_HR_SHIFT
+}
@@ -0,0 +1,108 @@
+package com.example.healthmonitoringapp.alert;
+
+import android.content.Context;
+
+import com.example.healthmonitoringapp.data.SampleBatch;
+import com.example.healthmonitoringapp.data.SampleSink;
+import com.example.healthmonitoringapp.data.VitalType;
+import com.example.healthmonitoringapp.data.VitalsStore;
+import com.example.healthmonitoringapp.utils.SharedPrefManager;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stores samples in another sink, then runs heart-rate samples through a
+ * {@link HeartRateAnomalyDetector}. Ingested history and live sensor readings go through the same
+ * instance, so they raise alerts the same way. Samples older than the newest one the detector has
+ * seen still get stored but are not evaluated.
+ *
+ * <p>The detector's resting averages are restored from a {@link BaselineStore} before the first
+ * sample and saved after every {@link #SAVE_INTERVAL_MS} of resting time, so the baseline survives
+ * the process being killed instead of warming up for another twelve hours.</p>
+ */
+public class AlertingSampleSink implements SampleSink {
+    /** Resting time between two saves of the resting averages. */
+    static final long SAVE_INTERVAL_MS = TimeUnit.HOURS.toMillis(1);
+
+    private static volatile AlertingSampleSink instance;
+
+    /**
+     * Keeps the detector's resting averages between runs.
+     */
+    public interface BaselineStore {
+        /** Returns the saved state, or null if none was saved. */
+        HeartRateAnomalyDetector.RestingState load();
+
+        void save(HeartRateAnomalyDetector.RestingState state);
+    }
+
+    private final SampleSink delegate;
+    private final HeartRateAnomalyDetector detector;
+    private final BaselineStore baselineStore;
+    // Guarded by detector
+    private boolean restored;
+    private long savedRestingMs = -1;
+
+    public AlertingSampleSink(SampleSink delegate, HeartRateAnomalyDetector detector) {
+        this(delegate, detector, null);
+    }
+
+    /**
+     * @param baselineStore Keeps the resting averages, or null to start from scratch every run.
+     */
+    public AlertingSampleSink(SampleSink delegate, HeartRateAnomalyDetector detector, BaselineStore baselineStore) {
+        this.delegate = delegate;
+        this.detector = detector;
+        this.baselineStore = baselineStore;
+    }
+
+    /**
+     * Returns a singleton instance storing into the {@link VitalsStore} and posting alerts as
+     * notifications.
+     */
+    public static AlertingSampleSink getInstance(Context context) {
+        if (instance == null) {
+            synchronized (AlertingSampleSink.class) {
+                if (instance == null) {
+                    Context appContext = context.getApplicationContext();
+                    instance = new AlertingSampleSink(VitalsStore.getInstance(appContext),
+                            new HeartRateAnomalyDetector(new AlertNotifier(appContext)),
+                            new StoredBaseline(SharedPrefManager.getInstance(appContext).getDeviceStore()));
+                }
+            }
+        }
+        return instance;
+    }
+
+    @Override
+    public void append(VitalType type, SampleBatch batch) throws IOException {
+        delegate.append(type, batch);
+        if (!type.isHeartRate()) {
+            return;
+        }
+        synchronized (detector) {
+            if (!restored && baselineStore != null) {
+                // Here rather than on creation, which may be on the main thread
+                HeartRateAnomalyDetector.RestingState saved = baselineStore.load();
+                if (saved != null) {
+                    detector.restoreRestingState(saved);
+                    savedRestingMs = saved.restingMs;
+                }
+            }
+            restored = true;
+            for (int i = 0; i < batch.size(); i++) {
+                detector.accept(batch.timestampAt(i), batch.valueAt(i));
+            }
+            HeartRateAnomalyDetector.RestingState state = detector.getRestingState();
+            if (baselineStore != null && state != null && state.restingMs - savedRestingMs >= SAVE_INTERVAL_MS) {
+                baselineStore.save(state);
+                savedRestingMs = state.restingMs;
+            }
+        }
+    }
+
+    public HeartRateAnomalyDetector getDetector() {
+        return detector;
+    }
+}
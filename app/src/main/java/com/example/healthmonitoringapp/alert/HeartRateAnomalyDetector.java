@@ -0,0 +1,228 @@
+package com.example.healthmonitoringapp.alert;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streaming detector for tachycardia, bradycardia and shifts of the resting heart rate.
+ *
+ * <p>Every sample updates a {@link RollingWindow} of the last {@link #WINDOW} readings. Rate
+ * alerts compare the window median with entry and exit thresholds, so single spikes never count
+ * and a rate hovering at a threshold does not flap. Windows with a small median absolute deviation
+ * are resting once they stayed calm for another window; their medians feed a fast and a slow
+ * EWMA weighted by resting time, and a resting shift is the gap between the two. Each condition must hold for a sustain period before its
+ * alert is raised or cleared.</p>
+ *
+ * <p>All state is preallocated, so {@link #accept} does constant work and never allocates. The
+ * resting averages take {@link #BASELINE_WARMUP_MS} of rest to build up, so they can be saved with
+ * {@link #getRestingState()} and restored after a restart. Not thread-safe; feed it from one
+ * thread or lock around it.</p>
+ */
+public class HeartRateAnomalyDetector {
+    static final int WINDOW = 15;
+    static final float MIN_VALID_BPM = 25;
+    static final float MAX_VALID_BPM = 250;
+    /** Longer gaps restart the window, so readings from before are not mixed in. */
+    static final long MAX_GAP_MS = TimeUnit.MINUTES.toMillis(10);
+
+    static final float TACHYCARDIA_ENTER_BPM = 120;
+    static final float TACHYCARDIA_EXIT_BPM = 110;
+    static final float BRADYCARDIA_ENTER_BPM = 40;
+    static final float BRADYCARDIA_EXIT_BPM = 45;
+    static final long RATE_SUSTAIN_MS = TimeUnit.MINUTES.toMillis(1);
+
+    static final float RESTING_MAD_BPM = 3;
+    static final long RESTING_FAST_TAU_MS = TimeUnit.HOURS.toMillis(1);
+    static final long RESTING_BASELINE_TAU_MS = TimeUnit.DAYS.toMillis(7);
+    /** Resting time needed before the baseline is trusted. */
+    static final long BASELINE_WARMUP_MS = TimeUnit.HOURS.toMillis(12);
+    static final float SHIFT_ENTER_BPM = 12;
+    static final float SHIFT_EXIT_BPM = 8;
+    static final long SHIFT_SUSTAIN_MS = TimeUnit.MINUTES.toMillis(30);
+
+    private final AlertListener listener;
+    private final RollingWindow window = new RollingWindow(WINDOW);
+    private final Trigger tachycardia = new Trigger(AlertType.TACHYCARDIA,
+            TACHYCARDIA_ENTER_BPM, TACHYCARDIA_EXIT_BPM, RATE_SUSTAIN_MS);
+    private final Trigger bradycardia = new Trigger(AlertType.BRADYCARDIA,
+            -BRADYCARDIA_ENTER_BPM, -BRADYCARDIA_EXIT_BPM, RATE_SUSTAIN_MS);
+    private final Trigger restingShift = new Trigger(AlertType.RESTING_HR_SHIFT,
+            SHIFT_ENTER_BPM, SHIFT_EXIT_BPM, SHIFT_SUSTAIN_MS);
+
+    private long lastTimestamp = Long.MIN_VALUE;
+    private int calmStreak;
+    private long restingMs = -1;
+    private float restingRecent = Float.NaN;
+    private float restingBaseline = Float.NaN;
+
+    public HeartRateAnomalyDetector(AlertListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Evaluates one sample. Samples not newer than the previous one and readings outside
+     * {@link #MIN_VALID_BPM}..{@link #MAX_VALID_BPM} are ignored.
+     */
+    public void accept(long timestampMs, float bpm) {
+        if (timestampMs <= lastTimestamp || !(bpm >= MIN_VALID_BPM && bpm <= MAX_VALID_BPM)) {
+            return;
+        }
+        long elapsed = timestampMs - lastTimestamp;
+        if (lastTimestamp != Long.MIN_VALUE && elapsed > MAX_GAP_MS) {
+            window.clear();
+            calmStreak = 0;
+            tachycardia.interrupt();
+            bradycardia.interrupt();
+        }
+        lastTimestamp = timestampMs;
+        window.add(bpm);
+        // Half a window is the least that outvotes a single artifact
+        if (window.size() <= WINDOW / 2) {
+            return;
+        }
+
+        float median = window.median();
+        if (tachycardia.update(timestampMs, median)) {
+            notify(tachycardia, timestampMs, median);
+        }
+        if (bradycardia.update(timestampMs, -median)) {
+            notify(bradycardia, timestampMs, median);
+        }
+        // Resting needs a calm window that has stayed calm for another window's worth of samples,
+        // so the odd quiet stretch during activity does not count
+        boolean calm = window.isFull() && median < TACHYCARDIA_EXIT_BPM && window.mad() <= RESTING_MAD_BPM;
+        calmStreak = calm ? calmStreak + 1 : 0;
+        if (calmStreak >= WINDOW) {
+            updateResting(timestampMs, elapsed, median);
+        }
+    }
+
+    /** Long-term resting heart rate, or NaN until {@link #BASELINE_WARMUP_MS} of rest was seen. */
+    public float getRestingBaseline() {
+        return isBaselineReady() ? restingBaseline : Float.NaN;
+    }
+
+    /**
+     * Returns the resting averages to save, or null before the first resting window.
+     */
+    public RestingState getRestingState() {
+        return restingMs < 0 ? null : new RestingState(restingMs, restingRecent, restingBaseline);
+    }
+
+    /**
+     * Continues from resting averages saved by an earlier instance. Call before the first sample.
+     */
+    public void restoreRestingState(RestingState state) {
+        restingMs = state.restingMs;
+        restingRecent = state.recent;
+        restingBaseline = state.baseline;
+    }
+
+    public boolean isActive(AlertType type) {
+        switch (type) {
+            case TACHYCARDIA:
+                return tachycardia.active;
+            case BRADYCARDIA:
+                return bradycardia.active;
+            default:
+                return restingShift.active;
+        }
+    }
+
+    /**
+     * @param elapsedMs Time since the previous sample, so only time spent resting moves the averages.
+     */
+    private void updateResting(long timestampMs, long elapsedMs, float median) {
+        if (restingMs < 0) {
+            restingMs = 0;
+            restingRecent = median;
+            restingBaseline = median;
+        } else {
+            restingMs += elapsedMs;
+            restingRecent += alpha(elapsedMs, RESTING_FAST_TAU_MS) * (median - restingRecent);
+            // A plain average until the EWMA has seen enough history, so the first value does not dominate
+            double baselineAlpha = Math.max(alpha(elapsedMs, RESTING_BASELINE_TAU_MS), (double) elapsedMs / restingMs);
+            restingBaseline += (float) (baselineAlpha * (median - restingBaseline));
+        }
+
+        if (!isBaselineReady()) {
+            return;
+        }
+        if (restingShift.update(timestampMs, Math.abs(restingRecent - restingBaseline))) {
+            notify(restingShift, timestampMs, restingRecent);
+        }
+    }
+
+    private boolean isBaselineReady() {
+        return restingMs >= BASELINE_WARMUP_MS;
+    }
+
+    private void notify(Trigger trigger, long timestampMs, float value) {
+        if (trigger.active) {
+            listener.onAlertRaised(trigger.type, timestampMs, value, getRestingBaseline());
+        } else {
+            listener.onAlertCleared(trigger.type, timestampMs);
+        }
+    }
+
+    /** Weight of a new value in an EWMA with time constant {@code tauMs}, for irregular sampling. */
+    private static double alpha(long elapsedMs, long tauMs) {
+        return 1 - Math.exp(-(double) elapsedMs / tauMs);
+    }
+
+    /**
+     * Resting time seen so far and the fast and slow resting averages.
+     */
+    public static final class RestingState {
+        public final long restingMs;
+        public final float recent;
+        public final float baseline;
+
+        public RestingState(long restingMs, float recent, float baseline) {
+            this.restingMs = restingMs;
+            this.recent = recent;
+            this.baseline = baseline;
+        }
+    }
+
+    /**
+     * Hysteresis on one signal: enters at or above {@code enter}, leaves below {@code exit}, and
+     * only after the crossing held for {@code sustainMs}. Low thresholds are passed negated.
+     */
+    private static final class Trigger {
+        final AlertType type;
+        final float enter;
+        final float exit;
+        final long sustainMs;
+        boolean active;
+        long crossingSinceMs = Long.MIN_VALUE;
+
+        Trigger(AlertType type, float enter, float exit, long sustainMs) {
+            this.type = type;
+            this.enter = enter;
+            this.exit = exit;
+            this.sustainMs = sustainMs;
+        }
+
+        /** Returns true if the state flipped. */
+        boolean update(long timestampMs, float signal) {
+            boolean crossing = active ? signal < exit : signal >= enter;
+            if (!crossing) {
+                crossingSinceMs = Long.MIN_VALUE;
+                return false;
+            }
+            if (crossingSinceMs == Long.MIN_VALUE) {
+                crossingSinceMs = timestampMs;
+            }
+            if (timestampMs - crossingSinceMs < sustainMs) {
+                return false;
+            }
+            active = !active;
+            crossingSinceMs = Long.MIN_VALUE;
+            return true;
+        }
+
+        void interrupt() {
+            crossingSinceMs = Long.MIN_VALUE;
+        }
+    }
+}
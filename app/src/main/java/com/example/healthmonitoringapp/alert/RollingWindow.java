@@ -0,0 +1,93 @@
+package com.example.healthmonitoringapp.alert;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size window over the most recent values with median and median absolute deviation.
+ *
+ * <p>Values are kept twice in preallocated arrays: in arrival order in a ring buffer, and sorted.
+ * Adding a value removes the oldest one from the sorted copy and inserts the new one, which costs
+ * O(capacity) with a small constant capacity and never allocates.</p>
+ */
+final class RollingWindow {
+    private final float[] ring;
+    private final float[] sorted;
+    private int head;
+    private int size;
+
+    RollingWindow(int capacity) {
+        ring = new float[capacity];
+        sorted = new float[capacity];
+    }
+
+    void add(float value) {
+        if (size == ring.length) {
+            remove(ring[head]);
+        }
+        ring[head] = value;
+        head = (head + 1) % ring.length;
+        insert(value);
+    }
+
+    void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isFull() {
+        return size == ring.length;
+    }
+
+    /** Median of the window, or NaN if it is empty. */
+    float median() {
+        if (size == 0) {
+            return Float.NaN;
+        }
+        return (sorted[(size - 1) / 2] + sorted[size / 2]) / 2;
+    }
+
+    /** Median absolute deviation from {@link #median()}, or NaN if the window is empty. */
+    float mad() {
+        if (size == 0) {
+            return Float.NaN;
+        }
+        // Deviations grow outwards from the middle on both sides, so merge the two runs until the
+        // middle deviation is reached
+        float median = median();
+        int below = (size - 1) / 2;
+        int above = below + 1;
+        float lower = 0;
+        float deviation = 0;
+        for (int rank = 0; rank <= size / 2; rank++) {
+            if (above >= size || (below >= 0 && median - sorted[below] <= sorted[above] - median)) {
+                deviation = median - sorted[below--];
+            } else {
+                deviation = sorted[above++] - median;
+            }
+            if (rank == (size - 1) / 2) {
+                lower = deviation;
+            }
+        }
+        return (lower + deviation) / 2;
+    }
+
+    private void insert(float value) {
+        int index = Arrays.binarySearch(sorted, 0, size, value);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        System.arraycopy(sorted, index, sorted, index + 1, size - index);
+        sorted[index] = value;
+        size++;
+    }
+
+    private void remove(float value) {
+        int index = Arrays.binarySearch(sorted, 0, size, value);
+        System.arraycopy(sorted, index + 1, sorted, index, size - index - 1);
+        size--;
+    }
+}
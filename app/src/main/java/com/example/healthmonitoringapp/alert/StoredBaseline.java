@@ -0,0 +1,44 @@
+package com.example.healthmonitoringapp.alert;
+
+import com.example.healthmonitoringapp.utils.UserDataStore;
+
+/**
+ * Keeps the resting averages of the {@link HeartRateAnomalyDetector} in the device-wide
+ * {@link UserDataStore}. Saves do not wait for the write; losing the last one costs at most
+ * {@link AlertingSampleSink#SAVE_INTERVAL_MS} of resting time.
+ */
+class StoredBaseline implements AlertingSampleSink.BaselineStore {
+    private static final String KEY_RESTING_MS = "alert_resting_ms";
+    private static final String KEY_RESTING_RECENT = "alert_resting_recent"; // bpm
+    private static final String KEY_RESTING_BASELINE = "alert_resting_baseline"; // bpm
+
+    private final UserDataStore store;
+
+    StoredBaseline(UserDataStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public HeartRateAnomalyDetector.RestingState load() {
+        if (!store.contains(KEY_RESTING_MS)) {
+            return null;
+        }
+        try {
+            return new HeartRateAnomalyDetector.RestingState(
+                    Long.parseLong(store.getString(KEY_RESTING_MS, "")),
+                    Float.parseFloat(store.getString(KEY_RESTING_RECENT, "")),
+                    Float.parseFloat(store.getString(KEY_RESTING_BASELINE, "")));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void save(HeartRateAnomalyDetector.RestingState state) {
+        store.edit(data -> {
+            data.put(KEY_RESTING_MS, Long.toString(state.restingMs));
+            data.put(KEY_RESTING_RECENT, Float.toString(state.recent));
+            data.put(KEY_RESTING_BASELINE, Float.toString(state.baseline));
+        });
+    }
+}
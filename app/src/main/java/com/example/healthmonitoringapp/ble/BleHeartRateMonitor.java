@@ -0,0 +1,353 @@
+package com.example.healthmonitoringapp.ble;
+
+import android.Manifest;
+import android.bluetooth.BluetoothAdapter;
+import android.bluetooth.BluetoothDevice;
+import android.bluetooth.BluetoothGatt;
+import android.bluetooth.BluetoothGattCallback;
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.bluetooth.BluetoothGattDescriptor;
+import android.bluetooth.BluetoothGattService;
+import android.bluetooth.BluetoothManager;
+import android.bluetooth.BluetoothProfile;
+import android.bluetooth.le.BluetoothLeScanner;
+import android.bluetooth.le.ScanCallback;
+import android.bluetooth.le.ScanFilter;
+import android.bluetooth.le.ScanResult;
+import android.bluetooth.le.ScanSettings;
+import android.content.Context;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.ParcelUuid;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.example.healthmonitoringapp.alert.AlertingSampleSink;
+import com.example.healthmonitoringapp.hrv.HrvCalculator;
+import com.example.healthmonitoringapp.hrv.HrvMetrics;
+import com.example.healthmonitoringapp.sampling.AdaptiveSamplingController;
+import com.example.healthmonitoringapp.utils.SharedPrefManager;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Connects a Bluetooth LE heart-rate strap (Heart Rate Profile, service 0x180D) and feeds its
+ * notifications into a {@link HeartRatePipeline}.
+ *
+ * <p>The strap used last is reconnected by address; otherwise the first strap advertising the
+ * service within {@link #SCAN_TIMEOUT_MS} is used and remembered. Notifications are decoded on the
+ * GATT callback thread and drained on a single background thread, so the store syncs once per
+ * drain rather than once per beat. RR intervals feed an {@link HrvCalculator} on the drain thread,
+ * published through {@link #getHrv()} after each drain. Callers must hold the Bluetooth
+ * permissions; without them {@link #start()} only logs.</p>
+ *
+ * <p>The pipeline runs every heart rate through the {@link AdaptiveSamplingController} before
+ * deciding whether to store it. The resulting {@link SamplingPolicy} also sets, while no listener
+ * shows readings live, how often the queue is drained; with a listener it is drained every
+ * {@link #DRAIN_INTERVAL_MS}.</p>
+ */
+public class BleHeartRateMonitor {
+    private static final String TAG = "BleHeartRateMonitor";
+    static final UUID HEART_RATE_SERVICE = uuid16(HeartRateMeasurementParser.SERVICE_UUID_16);
+    static final UUID HEART_RATE_MEASUREMENT = uuid16(HeartRateMeasurementParser.CHARACTERISTIC_UUID_16);
+    static final UUID CLIENT_CHARACTERISTIC_CONFIG = uuid16(0x2902);
+    static final long DRAIN_INTERVAL_MS = 1_000;
+    static final long SCAN_TIMEOUT_MS = 15_000;
+
+    private static volatile BleHeartRateMonitor instance;
+
+    private final Context context;
+    private final HeartRatePipeline pipeline;
+    private final SharedPrefManager sharedPrefManager;
+    private final AdaptiveSamplingController sampling;
+    private final ScheduledExecutorService drainExecutor = Executors.newSingleThreadScheduledExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private BluetoothGatt gatt;
+    private ScanCallback scan;
+    private ScheduledFuture<?> drainTask;
+    private int drainLoop;
+    private volatile HeartRatePipeline.Listener listener;
+    // Drain thread only
+    private final HrvCalculator hrv = new HrvCalculator();
+    private boolean hrvChanged;
+    private volatile HrvMetrics hrvMetrics;
+
+    BleHeartRateMonitor(Context context, HeartRatePipeline pipeline, SharedPrefManager sharedPrefManager,
+                        AdaptiveSamplingController sampling) {
+        this.context = context;
+        this.pipeline = pipeline;
+        this.sharedPrefManager = sharedPrefManager;
+        this.sampling = sampling;
+        pipeline.setListener(new Forwarder());
+        pipeline.setSampling(sampling);
+    }
+
+    /**
+     * Returns a singleton instance storing heart rate through the {@link AlertingSampleSink}.
+     */
+    public static BleHeartRateMonitor getInstance(Context context) {
+        if (instance == null) {
+            synchronized (BleHeartRateMonitor.class) {
+                if (instance == null) {
+                    Context appContext = context.getApplicationContext();
+                    instance = new BleHeartRateMonitor(appContext,
+                            new HeartRatePipeline(AlertingSampleSink.getInstance(appContext)),
+                            SharedPrefManager.getInstance(appContext),
+                            AdaptiveSamplingController.getInstance(appContext));
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Required runtime permissions for scanning and connecting on this API level.
+     */
+    public static String[] requiredPermissions() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
+            return new String[]{Manifest.permission.BLUETOOTH_SCAN, Manifest.permission.BLUETOOTH_CONNECT};
+        }
+        return new String[]{Manifest.permission.ACCESS_FINE_LOCATION};
+    }
+
+    /**
+     * Receives live samples on the drain thread; pass null to stop.
+     */
+    public void setListener(HeartRatePipeline.Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Heart-rate variability over the last {@link HrvCalculator#DEFAULT_WINDOW_MS} of live beats, or
+     * null until the strap delivered {@link HrvCalculator#MIN_BEATS} normal beats.
+     */
+    public HrvMetrics getHrv() {
+        return hrvMetrics;
+    }
+
+    /**
+     * Connects the remembered strap, or scans for one. Does nothing if already connected or
+     * connecting. Call on the main thread.
+     */
+    public synchronized void start() {
+        if (gatt != null || scan != null) {
+            return;
+        }
+        BluetoothAdapter adapter = context.getSystemService(BluetoothManager.class).getAdapter();
+        if (adapter == null || !adapter.isEnabled()) {
+            Log.e(TAG, "Bluetooth is unavailable or off");
+            return;
+        }
+        try {
+            String address = sharedPrefManager.getHeartRateStrapAddress();
+            if (BluetoothAdapter.checkBluetoothAddress(address)) {
+                connect(adapter.getRemoteDevice(address));
+            } else {
+                startScan(adapter.getBluetoothLeScanner());
+            }
+        } catch (SecurityException e) {
+            Log.e(TAG, "Bluetooth permission missing", e);
+        }
+    }
+
+    /**
+     * Disconnects and stops draining. Samples still queued are stored first.
+     */
+    public synchronized void stop() {
+        try {
+            stopScan();
+            if (gatt != null) {
+                gatt.close();
+                gatt = null;
+            }
+        } catch (SecurityException e) {
+            Log.e(TAG, "Bluetooth permission missing", e);
+        }
+        if (drainTask != null) {
+            drainTask.cancel(false);
+            drainTask = null;
+            drainExecutor.execute(this::drain);
+        }
+    }
+
+    private void startScan(BluetoothLeScanner scanner) {
+        if (scanner == null) {
+            return;
+        }
+        ScanFilter filter = new ScanFilter.Builder().setServiceUuid(new ParcelUuid(HEART_RATE_SERVICE)).build();
+        ScanSettings settings = new ScanSettings.Builder().setScanMode(ScanSettings.SCAN_MODE_LOW_LATENCY).build();
+        scan = new ScanCallback() {
+            @Override
+            public void onScanResult(int callbackType, ScanResult result) {
+                onStrapFound(result.getDevice());
+            }
+
+            @Override
+            public void onScanFailed(int errorCode) {
+                Log.e(TAG, "Scan failed with error " + errorCode);
+                synchronized (BleHeartRateMonitor.this) {
+                    scan = null;
+                }
+            }
+        };
+        scanner.startScan(Collections.singletonList(filter), settings, scan);
+        mainHandler.postDelayed(this::onScanTimeout, SCAN_TIMEOUT_MS);
+    }
+
+    private synchronized void onStrapFound(BluetoothDevice device) {
+        if (scan == null) {
+            return;
+        }
+        try {
+            stopScan();
+            sharedPrefManager.saveHeartRateStrapAddress(device.getAddress());
+            connect(device);
+        } catch (SecurityException e) {
+            Log.e(TAG, "Bluetooth permission missing", e);
+        }
+    }
+
+    private synchronized void onScanTimeout() {
+        if (scan != null) {
+            Log.i(TAG, "No heart-rate strap found");
+            stopScan();
+        }
+    }
+
+    private void stopScan() {
+        if (scan == null) {
+            return;
+        }
+        BluetoothLeScanner scanner = context.getSystemService(BluetoothManager.class).getAdapter().getBluetoothLeScanner();
+        if (scanner != null) {
+            scanner.stopScan(scan);
+        }
+        scan = null;
+        mainHandler.removeCallbacksAndMessages(null);
+    }
+
+    private void connect(BluetoothDevice device) {
+        // Auto-connect keeps reconnecting whenever the strap comes back in range
+        gatt = device.connectGatt(context, true, new GattCallback(), BluetoothDevice.TRANSPORT_LE);
+        if (drainTask == null) {
+            int loop = ++drainLoop;
+            drainTask = drainExecutor.schedule(() -> drainAndReschedule(loop), DRAIN_INTERVAL_MS,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void drainAndReschedule(int loop) {
+        drain();
+        long delayMs = listener != null ? DRAIN_INTERVAL_MS : sampling.getPolicy().getDrainIntervalMs();
+        synchronized (this) {
+            // Unless stopped meanwhile, or stopped and started again
+            if (drainTask != null && loop == drainLoop) {
+                drainTask = drainExecutor.schedule(() -> drainAndReschedule(loop), delayMs, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private void drain() {
+        try {
+            pipeline.drain();
+            if (hrvChanged) {
+                hrvChanged = false;
+                hrvMetrics = hrv.isReady() ? hrv.snapshot() : null;
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to store live heart rate", e);
+        }
+    }
+
+    private static UUID uuid16(int shortUuid) {
+        return new UUID(0x0000000000001000L | (long) shortUuid << 32, 0x800000805F9B34FBL);
+    }
+
+    /**
+     * Feeds RR intervals to the HRV calculator and passes every sample on to the listener.
+     */
+    private final class Forwarder implements HeartRatePipeline.Listener {
+        @Override
+        public void onHeartRate(long timestampMs, int bpm) {
+            HeartRatePipeline.Listener target = listener;
+            if (target != null) {
+                target.onHeartRate(timestampMs, bpm);
+            }
+        }
+
+        @Override
+        public void onRrInterval(long timestampMs, float rrMs) {
+            hrv.accept(timestampMs, rrMs);
+            hrvChanged = true;
+            HeartRatePipeline.Listener target = listener;
+            if (target != null) {
+                target.onRrInterval(timestampMs, rrMs);
+            }
+        }
+    }
+
+    private final class GattCallback extends BluetoothGattCallback {
+        @Override
+        public void onConnectionStateChange(BluetoothGatt gatt, int status, int newState) {
+            try {
+                if (newState == BluetoothProfile.STATE_CONNECTED) {
+                    gatt.discoverServices();
+                } else if (newState == BluetoothProfile.STATE_DISCONNECTED) {
+                    Log.i(TAG, "Strap disconnected, status " + status);
+                }
+            } catch (SecurityException e) {
+                Log.e(TAG, "Bluetooth permission missing", e);
+            }
+        }
+
+        @Override
+        public void onServicesDiscovered(BluetoothGatt gatt, int status) {
+            BluetoothGattService service = gatt.getService(HEART_RATE_SERVICE);
+            BluetoothGattCharacteristic measurement =
+                    service != null ? service.getCharacteristic(HEART_RATE_MEASUREMENT) : null;
+            if (status != BluetoothGatt.GATT_SUCCESS || measurement == null) {
+                Log.e(TAG, "No heart-rate measurement characteristic, status " + status);
+                return;
+            }
+            try {
+                gatt.setCharacteristicNotification(measurement, true);
+                BluetoothGattDescriptor config = measurement.getDescriptor(CLIENT_CHARACTERISTIC_CONFIG);
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+                    gatt.writeDescriptor(config, BluetoothGattDescriptor.ENABLE_NOTIFICATION_VALUE);
+                } else {
+                    config.setValue(BluetoothGattDescriptor.ENABLE_NOTIFICATION_VALUE);
+                    gatt.writeDescriptor(config);
+                }
+            } catch (SecurityException e) {
+                Log.e(TAG, "Bluetooth permission missing", e);
+            }
+        }
+
+        @Override
+        public void onCharacteristicChanged(@NonNull BluetoothGatt gatt,
+                                            @NonNull BluetoothGattCharacteristic characteristic,
+                                            @NonNull byte[] value) {
+            if (HEART_RATE_MEASUREMENT.equals(characteristic.getUuid())) {
+                pipeline.onNotification(value, System.currentTimeMillis());
+            }
+        }
+
+        // Called instead of the variant above below Android 13
+        @Override
+        @SuppressWarnings("deprecation")
+        public void onCharacteristicChanged(BluetoothGatt gatt, BluetoothGattCharacteristic characteristic) {
+            if (Build.VERSION.SDK_INT < Build.VERSION_CODES.TIRAMISU
+                    && HEART_RATE_MEASUREMENT.equals(characteristic.getUuid())) {
+                pipeline.onNotification(characteristic.getValue(), System.currentTimeMillis());
+            }
+        }
+    }
+}
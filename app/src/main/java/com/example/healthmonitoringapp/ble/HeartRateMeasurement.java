@@ -0,0 +1,57 @@
+package com.example.healthmonitoringapp.ble;
+
+/**
+ * One decoded Heart Rate Measurement notification. Mutable and reused by
+ * {@link HeartRateMeasurementParser} so parsing on the GATT thread does not allocate.
+ */
+public final class HeartRateMeasurement {
+    /** The sensor does not report skin contact. */
+    public static final int CONTACT_UNSUPPORTED = 0;
+    /** The sensor reports that it has lost skin contact; the heart rate is not reliable. */
+    public static final int CONTACT_LOST = 1;
+    public static final int CONTACT_DETECTED = 2;
+
+    /** Energy expended is absent from most notifications. */
+    public static final int NO_ENERGY = -1;
+
+    // A 512-byte attribute holds at most (512 - 2) / 2 intervals
+    static final int MAX_RR_INTERVALS = 255;
+
+    int heartRate;
+    int contact;
+    int energyExpendedKj = NO_ENERGY;
+    final float[] rrIntervalsMs = new float[MAX_RR_INTERVALS];
+    int rrCount;
+
+    /** Heart rate in beats per minute. */
+    public int getHeartRate() {
+        return heartRate;
+    }
+
+    public int getContact() {
+        return contact;
+    }
+
+    /** Accumulated energy in kilojoules, or {@link #NO_ENERGY}. */
+    public int getEnergyExpendedKj() {
+        return energyExpendedKj;
+    }
+
+    /** Number of RR intervals in this notification, oldest first. */
+    public int getRrCount() {
+        return rrCount;
+    }
+
+    /** RR interval in milliseconds. */
+    public float getRrIntervalMs(int index) {
+        if (index < 0 || index >= rrCount) {
+            throw new IndexOutOfBoundsException("RR interval " + index + " of " + rrCount);
+        }
+        return rrIntervalsMs[index];
+    }
+
+    /** False if the sensor reports lost contact or sends 0 bpm while searching for a pulse. */
+    public boolean isHeartRateValid() {
+        return heartRate > 0 && contact != CONTACT_LOST;
+    }
+}
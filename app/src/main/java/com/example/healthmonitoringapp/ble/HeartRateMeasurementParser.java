@@ -0,0 +1,82 @@
+package com.example.healthmonitoringapp.ble;
+
+/**
+ * Decodes the Heart Rate Measurement characteristic (0x2A37) of the Bluetooth Heart Rate Profile.
+ *
+ * <p>Layout: a flags byte, the heart rate as uint8 or uint16, optional energy expended (uint16,
+ * kJ) and optional RR intervals (uint16 each, in 1/1024 s), all little endian. Flags:</p>
+ * <ul>
+ *     <li>bit 0: heart rate is uint16</li>
+ *     <li>bits 1-2: sensor contact status (bit 2 supported, bit 1 detected)</li>
+ *     <li>bit 3: energy expended present</li>
+ *     <li>bit 4: RR intervals present</li>
+ * </ul>
+ */
+public final class HeartRateMeasurementParser {
+    public static final int SERVICE_UUID_16 = 0x180D;
+    public static final int CHARACTERISTIC_UUID_16 = 0x2A37;
+
+    private static final int FLAG_HEART_RATE_UINT16 = 0x01;
+    private static final int FLAG_CONTACT_DETECTED = 0x02;
+    private static final int FLAG_CONTACT_SUPPORTED = 0x04;
+    private static final int FLAG_ENERGY_EXPENDED = 0x08;
+    private static final int FLAG_RR_INTERVALS = 0x10;
+
+    private HeartRateMeasurementParser() {
+    }
+
+    /**
+     * Decodes a notification into {@code out}.
+     *
+     * @return False if the value is too short for the fields its flags announce; {@code out} is
+     *         then undefined.
+     */
+    public static boolean parse(byte[] value, HeartRateMeasurement out) {
+        if (value == null || value.length < 2) {
+            return false;
+        }
+        int flags = value[0] & 0xFF;
+        int offset = 1;
+        if ((flags & FLAG_HEART_RATE_UINT16) != 0) {
+            if (value.length < offset + 2) {
+                return false;
+            }
+            out.heartRate = uint16(value, offset);
+            offset += 2;
+        } else {
+            out.heartRate = value[offset] & 0xFF;
+            offset += 1;
+        }
+
+        if ((flags & FLAG_CONTACT_SUPPORTED) == 0) {
+            out.contact = HeartRateMeasurement.CONTACT_UNSUPPORTED;
+        } else if ((flags & FLAG_CONTACT_DETECTED) != 0) {
+            out.contact = HeartRateMeasurement.CONTACT_DETECTED;
+        } else {
+            out.contact = HeartRateMeasurement.CONTACT_LOST;
+        }
+
+        out.energyExpendedKj = HeartRateMeasurement.NO_ENERGY;
+        if ((flags & FLAG_ENERGY_EXPENDED) != 0) {
+            if (value.length < offset + 2) {
+                return false;
+            }
+            out.energyExpendedKj = uint16(value, offset);
+            offset += 2;
+        }
+
+        out.rrCount = 0;
+        if ((flags & FLAG_RR_INTERVALS) != 0) {
+            // A trailing odd byte is ignored, as sensors pad to their MTU
+            while (offset + 1 < value.length && out.rrCount < HeartRateMeasurement.MAX_RR_INTERVALS) {
+                out.rrIntervalsMs[out.rrCount++] = uint16(value, offset) * 1000f / 1024f;
+                offset += 2;
+            }
+        }
+        return true;
+    }
+
+    private static int uint16(byte[] value, int offset) {
+        return (value[offset] & 0xFF) | (value[offset + 1] & 0xFF) << 8;
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.healthmonitoringapp.ble;
+
+import com.example.healthmonitoringapp.data.SampleBatch;
+import com.example.healthmonitoringapp.data.SampleSink;
+import com.example.healthmonitoringapp.data.VitalType;
+import com.example.healthmonitoringapp.sampling.AdaptiveSamplingController;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Moves live heart-rate readings from the GATT callback thread to their consumers.
+ *
+ * <p>{@link #onNotification} runs on the GATT thread: it decodes the notification into a reused
+ * {@link HeartRateMeasurement} and offers heart rate and RR intervals to an {@link SpscSampleRing},
+ * never blocking or allocating. {@link #drain} runs on one consumer thread: it appends the heart
+ * rates to the {@link SampleSink} as one {@link VitalType#STRAP_HEART_RATE} batch and passes every
+ * sample to the {@link Listener}.
+ * With {@link #setHeartRateIntervalMs} only some heart rates are stored, e.g. at rest; the
+ * listener still gets every one. With {@link #setSampling}, every heart rate goes through the
+ * {@link AdaptiveSamplingController} before it is stored or skipped, so the reading that starts a
+ * burst and all that follow are kept even when the interval was long at the start of the drain.</p>
+ */
+public class HeartRatePipeline {
+    public static final int KIND_HEART_RATE = 0;
+    public static final int KIND_RR_INTERVAL = 1;
+    /** About a minute of 1 Hz notifications carrying a few beats each. */
+    static final int RING_CAPACITY = 1024;
+    /** Notifications arrive about once a second, give or take; jitter should not skip one more. */
+    static final long HEART_RATE_SLACK_MS = 500;
+
+    /**
+     * Receives live samples on the drain thread.
+     */
+    public interface Listener {
+        void onHeartRate(long timestampMs, int bpm);
+
+        /**
+         * @param timestampMs Estimated time of the beat that ends the interval.
+         */
+        void onRrInterval(long timestampMs, float rrMs);
+    }
+
+    private final SpscSampleRing ring;
+    private final SampleSink sink;
+    private volatile Listener listener;
+    private volatile long heartRateIntervalMs;
+    private volatile AdaptiveSamplingController sampling;
+    private final AtomicLong malformed = new AtomicLong();
+
+    // Producer side
+    private final HeartRateMeasurement measurement = new HeartRateMeasurement();
+    // Consumer side
+    private final SampleBatch heartRates = new SampleBatch(RING_CAPACITY);
+    private final SpscSampleRing.Consumer dispatcher = this::dispatch;
+    private Listener drainListener;
+    private long drainHeartRateIntervalMs;
+    private AdaptiveSamplingController drainSampling;
+    private long lastStoredMs = Long.MIN_VALUE;
+
+    public HeartRatePipeline(SampleSink sink) {
+        this(sink, RING_CAPACITY);
+    }
+
+    HeartRatePipeline(SampleSink sink, int ringCapacity) {
+        this.sink = sink;
+        this.ring = new SpscSampleRing(ringCapacity);
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Sets the shortest time between two stored heart rates; 0, the default, stores every one.
+     * Ignored while a controller is set.
+     */
+    public void setHeartRateIntervalMs(long intervalMs) {
+        this.heartRateIntervalMs = intervalMs;
+    }
+
+    /**
+     * Passes every heart rate to {@code sampling} on the drain thread and stores it according to
+     * the policy returned for it; null to go back to {@link #setHeartRateIntervalMs}.
+     */
+    public void setSampling(AdaptiveSamplingController sampling) {
+        this.sampling = sampling;
+    }
+
+    /**
+     * Decodes a Heart Rate Measurement notification and queues its samples. Producer thread only.
+     *
+     * @param receivedAtMs Wall-clock time the notification arrived.
+     * @return False if the notification was malformed.
+     */
+    public boolean onNotification(byte[] value, long receivedAtMs) {
+        if (!HeartRateMeasurementParser.parse(value, measurement)) {
+            malformed.lazySet(malformed.get() + 1);
+            return false;
+        }
+        if (measurement.isHeartRateValid()) {
+            ring.offer(KIND_HEART_RATE, receivedAtMs, measurement.heartRate);
+        }
+        // Intervals are listed oldest first and the newest one ended just before the notification,
+        // so walk back from the arrival time to date the earlier beats
+        float elapsedMs = 0;
+        for (int i = measurement.rrCount - 1; i > 0; i--) {
+            elapsedMs += measurement.rrIntervalsMs[i];
+        }
+        for (int i = 0; i < measurement.rrCount; i++) {
+            ring.offer(KIND_RR_INTERVAL, receivedAtMs - Math.round(elapsedMs), measurement.rrIntervalsMs[i]);
+            if (i + 1 < measurement.rrCount) {
+                elapsedMs -= measurement.rrIntervalsMs[i + 1];
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Hands queued samples to the sink and listener. Consumer thread only.
+     *
+     * @return Number of samples drained.
+     */
+    public int drain() throws IOException {
+        heartRates.clear();
+        drainListener = listener;
+        drainHeartRateIntervalMs = heartRateIntervalMs;
+        drainSampling = sampling;
+        int drained = ring.drain(dispatcher);
+        if (heartRates.size() > 0) {
+            sink.append(VitalType.STRAP_HEART_RATE, heartRates);
+        }
+        return drained;
+    }
+
+    /** Samples dropped because the consumer fell behind. */
+    public long getDropped() {
+        return ring.getDropped();
+    }
+
+    /** Notifications that could not be decoded. */
+    public long getMalformed() {
+        return malformed.get();
+    }
+
+    private void dispatch(int kind, long timestampMs, float value) {
+        if (kind == KIND_HEART_RATE) {
+            long intervalMs = drainSampling != null
+                    ? drainSampling.onHeartRate(timestampMs, value).getHeartRateIntervalMs()
+                    : drainHeartRateIntervalMs;
+            if (lastStoredMs == Long.MIN_VALUE
+                    || timestampMs - lastStoredMs >= intervalMs - HEART_RATE_SLACK_MS) {
+                heartRates.add(timestampMs, value);
+                lastStoredMs = timestampMs;
+            }
+            if (drainListener != null) {
+                drainListener.onHeartRate(timestampMs, (int) value);
+            }
+        } else if (drainListener != null) {
+            drainListener.onRrInterval(timestampMs, value);
+        }
+    }
+}
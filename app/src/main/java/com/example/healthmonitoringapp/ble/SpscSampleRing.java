@@ -0,0 +1,109 @@
+package com.example.healthmonitoringapp.ble;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free ring buffer of typed samples between exactly one producer thread and one consumer
+ * thread, e.g. the GATT callback thread and a drain thread.
+ *
+ * <p>Samples live in preallocated primitive arrays, so neither side allocates. The producer
+ * publishes a slot by advancing {@code tail} with a release store after writing it; the consumer
+ * frees slots the same way through {@code head}. Each side caches the other side's index and only
+ * re-reads it when the cached value says the ring is full or empty. When the consumer falls behind
+ * and the ring is full, new samples are dropped and counted rather than blocking the producer.</p>
+ */
+public final class SpscSampleRing {
+    /**
+     * Receives drained samples on the consumer thread.
+     */
+    public interface Consumer {
+        void accept(int kind, long timestampMs, float value);
+    }
+
+    private final int mask;
+    private final int[] kinds;
+    private final long[] timestamps;
+    private final float[] values;
+
+    // Next slot to read; written by the consumer only
+    private final AtomicLong head = new AtomicLong();
+    // Next slot to write; written by the producer only
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private long producerHeadCache;
+    private long consumerTailCache;
+
+    /**
+     * @param capacity Rounded up to a power of two.
+     */
+    public SpscSampleRing(int capacity) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Invalid capacity " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        size = Math.max(size, 1);
+        mask = size - 1;
+        kinds = new int[size];
+        timestamps = new long[size];
+        values = new float[size];
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Adds a sample. Producer thread only.
+     *
+     * @return False if the ring was full and the sample was dropped.
+     */
+    public boolean offer(int kind, long timestampMs, float value) {
+        long position = tail.get();
+        if (position - producerHeadCache > mask) {
+            producerHeadCache = head.get();
+            if (position - producerHeadCache > mask) {
+                dropped.lazySet(dropped.get() + 1);
+                return false;
+            }
+        }
+        int slot = (int) position & mask;
+        kinds[slot] = kind;
+        timestamps[slot] = timestampMs;
+        values[slot] = value;
+        tail.lazySet(position + 1);
+        return true;
+    }
+
+    /**
+     * Hands every available sample to the consumer, then frees their slots at once. Consumer
+     * thread only.
+     *
+     * @return Number of samples drained.
+     */
+    public int drain(Consumer consumer) {
+        long position = head.get();
+        if (position >= consumerTailCache) {
+            consumerTailCache = tail.get();
+            if (position >= consumerTailCache) {
+                return 0;
+            }
+        }
+        long end = consumerTailCache;
+        for (long next = position; next < end; next++) {
+            int slot = (int) next & mask;
+            consumer.accept(kinds[slot], timestamps[slot], values[slot]);
+        }
+        head.lazySet(end);
+        return (int) (end - position);
+    }
+
+    /** Number of samples waiting; approximate while the other thread is active. */
+    public int size() {
+        return (int) (tail.get() - head.get());
+    }
+
+    /** Number of samples dropped because the ring was full. */
+    public long getDropped() {
+        return dropped.get();
+    }
+}
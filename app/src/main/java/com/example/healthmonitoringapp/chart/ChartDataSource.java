@@ -0,0 +1,16 @@
+package com.example.healthmonitoringapp.chart;
+
+import com.example.healthmonitoringapp.data.SampleBatch;
+
+import java.io.IOException;
+
+/**
+ * Supplies the points a {@link VitalsChartView} plots for a time range.
+ */
+public interface ChartDataSource {
+    /**
+     * Adds the points in {@code [fromMs, toMs)} to the batch in time order, at a resolution suited
+     * to the length of the range. Called on a background thread.
+     */
+    void load(long fromMs, long toMs, SampleBatch out) throws IOException;
+}
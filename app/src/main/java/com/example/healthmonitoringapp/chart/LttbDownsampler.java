@@ -0,0 +1,95 @@
+package com.example.healthmonitoringapp.chart;
+
+import com.example.healthmonitoringapp.data.SampleBatch;
+
+/**
+ * Largest-Triangle-Three-Buckets downsampling (Steinarsson, 2013): reduces a time series to a
+ * given number of points while keeping its visual shape, including single peaks that averaging
+ * would flatten.
+ *
+ * <p>The first and last points are always kept. The points between them are split into equal
+ * buckets, and from each bucket the point forming the largest triangle with the point kept from the
+ * previous bucket and the average of the next bucket is kept. One pass over the input, no
+ * allocation.</p>
+ */
+public final class LttbDownsampler {
+    private LttbDownsampler() {
+    }
+
+    /**
+     * Downsamples the samples {@code [from, to)} of the batch into the output arrays, which must
+     * hold at least {@code threshold} points. A range of at most {@code threshold} points is copied
+     * unchanged.
+     *
+     * @param threshold Number of points to keep; at least 3.
+     * @return Number of points written.
+     */
+    public static int downsample(SampleBatch input, int from, int to, int threshold,
+                                 long[] outTimestamps, float[] outValues) {
+        int length = to - from;
+        if (length <= threshold) {
+            for (int i = 0; i < length; i++) {
+                outTimestamps[i] = input.timestampAt(from + i);
+                outValues[i] = input.valueAt(from + i);
+            }
+            return Math.max(length, 0);
+        }
+        if (threshold < 3) {
+            throw new IllegalArgumentException("Threshold must be at least 3: " + threshold);
+        }
+
+        // Relative timestamps keep the products below well within double precision
+        long origin = input.timestampAt(from);
+        int buckets = threshold - 2;
+        int kept = from;
+        int written = 0;
+        outTimestamps[written] = origin;
+        outValues[written++] = input.valueAt(from);
+
+        int start = bucketStart(from, length, buckets, 0);
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            int next = bucketStart(from, length, buckets, bucket + 1);
+            // The bucket after the last one is the final point
+            int nextEnd = bucket + 2 <= buckets ? bucketStart(from, length, buckets, bucket + 2) : to;
+
+            double averageX = 0;
+            double averageY = 0;
+            for (int i = next; i < nextEnd; i++) {
+                averageX += input.timestampAt(i) - origin;
+                averageY += input.valueAt(i);
+            }
+            averageX /= nextEnd - next;
+            averageY /= nextEnd - next;
+
+            double keptX = input.timestampAt(kept) - origin;
+            double keptY = input.valueAt(kept);
+            double largestArea = -1;
+            int picked = start;
+            for (int i = start; i < next; i++) {
+                // Twice the triangle area; only the comparison matters
+                double area = Math.abs((keptX - averageX) * (input.valueAt(i) - keptY)
+                        - (keptX - (input.timestampAt(i) - origin)) * (averageY - keptY));
+                if (area > largestArea) {
+                    largestArea = area;
+                    picked = i;
+                }
+            }
+            outTimestamps[written] = input.timestampAt(picked);
+            outValues[written++] = input.valueAt(picked);
+            kept = picked;
+            start = next;
+        }
+
+        outTimestamps[written] = input.timestampAt(to - 1);
+        outValues[written++] = input.valueAt(to - 1);
+        return written;
+    }
+
+    /**
+     * Index of the first point of a bucket. Integer arithmetic makes the last bucket end exactly
+     * before the final point.
+     */
+    private static int bucketStart(int from, int length, int buckets, int bucket) {
+        return from + 1 + (int) ((long) bucket * (length - 2) / buckets);
+    }
+}
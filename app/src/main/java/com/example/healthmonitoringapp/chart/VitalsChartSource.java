@@ -0,0 +1,56 @@
+package com.example.healthmonitoringapp.chart;
+
+import com.example.healthmonitoringapp.data.Resolution;
+import com.example.healthmonitoringapp.data.RollupSeries;
+import com.example.healthmonitoringapp.data.SampleBatch;
+import com.example.healthmonitoringapp.data.Summary;
+import com.example.healthmonitoringapp.data.VitalType;
+import com.example.healthmonitoringapp.data.VitalsStore;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chart points for one vital type from the {@link VitalsStore}: raw samples for short ranges, and
+ * the finest rollup that keeps a range under {@link #MAX_POINTS} buckets otherwise, so even a
+ * year loads a few thousand points.
+ */
+public class VitalsChartSource implements ChartDataSource {
+    /** Longest range loaded as raw samples; about 21k samples at 1 Hz. */
+    static final long RAW_MAX_SPAN_MS = TimeUnit.HOURS.toMillis(6);
+    static final int MAX_POINTS = 20_000;
+
+    private final VitalsStore store;
+    private final VitalType type;
+
+    public VitalsChartSource(VitalsStore store, VitalType type) {
+        this.store = store;
+        this.type = type;
+    }
+
+    @Override
+    public void load(long fromMs, long toMs, SampleBatch out) throws IOException {
+        long spanMs = toMs - fromMs;
+        if (spanMs <= RAW_MAX_SPAN_MS) {
+            store.get(type).query(fromMs, toMs, out);
+            return;
+        }
+        RollupSeries rollups = store.getRollups(type);
+        boolean minutesRetained = fromMs >= rollups.lastTimestamp() - RollupSeries.MINUTE_RETENTION_MS;
+        for (Summary bucket : rollups.series(resolutionFor(spanMs, minutesRetained), fromMs, toMs)) {
+            // Plot each bucket at its middle; steps add up, the other vitals average
+            double value = type == VitalType.STEPS ? bucket.getSum() : bucket.getMean();
+            out.add(bucket.getStartMs() + (bucket.getEndMs() - bucket.getStartMs()) / 2, (float) value);
+        }
+    }
+
+    static Resolution resolutionFor(long spanMs, boolean minutesRetained) {
+        if (minutesRetained && spanMs / Resolution.MINUTE.millis() <= MAX_POINTS) {
+            return Resolution.MINUTE;
+        }
+        if (spanMs / Resolution.HOUR.millis() <= MAX_POINTS) {
+            return Resolution.HOUR;
+        }
+        return Resolution.DAY;
+    }
+}
@@ -0,0 +1,351 @@
+package com.example.healthmonitoringapp.chart;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.util.AttributeSet;
+import android.util.Log;
+import android.util.TypedValue;
+import android.view.GestureDetector;
+import android.view.MotionEvent;
+import android.view.ScaleGestureDetector;
+import android.view.View;
+import android.widget.OverScroller;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.content.ContextCompat;
+
+import com.example.healthmonitoringapp.R;
+import com.example.healthmonitoringapp.data.SampleBatch;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Line chart of one vital series that pans and zooms through months of history.
+ *
+ * <p>Only the visible range, plus one visible span on each side, is loaded from the
+ * {@link ChartDataSource}, on a background thread. The newest request wins and older ones are
+ * skipped. Each frame takes the loaded points in view, reduces them to one point per pixel with
+ * {@link LttbDownsampler} and draws them with a single {@link Canvas#drawLines} call. All of this
+ * works in arrays sized to the view width, so drawing does not allocate.</p>
+ */
+public class VitalsChartView extends View {
+    private static final String TAG = "VitalsChartView";
+    static final long MIN_SPAN_MS = TimeUnit.MINUTES.toMillis(5);
+    static final long MAX_SPAN_MS = TimeUnit.DAYS.toMillis(730);
+    /** Loaded beyond each edge of the view, in visible spans, so panning draws from memory. */
+    private static final int PREFETCH_SPANS = 1;
+    private static final ExecutorService LOADER = Executors.newSingleThreadExecutor();
+
+    private final Paint linePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint gridPaint = new Paint();
+    private final Paint labelPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final GestureDetector gestures;
+    private final ScaleGestureDetector scaleGestures;
+    private final OverScroller scroller;
+    private int lastFlingX;
+
+    private ChartDataSource source;
+    private long visibleFromMs;
+    private long visibleToMs;
+
+    // Drawn on the main thread; the loader fills a spare batch that is swapped in on the main thread
+    private SampleBatch loaded = new SampleBatch(0);
+    private long loadedFromMs;
+    private long loadedToMs;
+    private final AtomicReference<SampleBatch> spare = new AtomicReference<>();
+    private final AtomicInteger generation = new AtomicInteger();
+    private boolean requestPending;
+    private long requestedFromMs;
+    private long requestedToMs;
+
+    // Per-frame buffers, sized to the view width
+    private long[] frameTimestamps = new long[0];
+    private float[] frameValues = new float[0];
+    private float[] lines = new float[0];
+    private int labelMin = Integer.MIN_VALUE;
+    private int labelMax = Integer.MIN_VALUE;
+    private String labelMinText = "";
+    private String labelMaxText = "";
+
+    public VitalsChartView(Context context) {
+        this(context, null);
+    }
+
+    public VitalsChartView(Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+        float density = getResources().getDisplayMetrics().density;
+        linePaint.setColor(ContextCompat.getColor(context, R.color.red));
+        linePaint.setStrokeWidth(2 * density);
+        linePaint.setStrokeCap(Paint.Cap.ROUND);
+        gridPaint.setColor(ContextCompat.getColor(context, R.color.gray));
+        gridPaint.setStrokeWidth(density);
+        labelPaint.setColor(ContextCompat.getColor(context, R.color.gray));
+        labelPaint.setTextSize(TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, 12,
+                getResources().getDisplayMetrics()));
+        gestures = new GestureDetector(context, new PanListener());
+        scaleGestures = new ScaleGestureDetector(context, new ZoomListener());
+        scroller = new OverScroller(context);
+
+        long now = System.currentTimeMillis();
+        visibleFromMs = now - TimeUnit.DAYS.toMillis(1);
+        visibleToMs = now;
+    }
+
+    /**
+     * Sets where points come from and loads the visible range.
+     */
+    public void setSource(ChartDataSource source) {
+        this.source = source;
+        reload();
+    }
+
+    /**
+     * Shows {@code [fromMs, toMs)}, loading it if needed.
+     */
+    public void setVisibleRange(long fromMs, long toMs) {
+        long span = Math.max(MIN_SPAN_MS, Math.min(MAX_SPAN_MS, toMs - fromMs));
+        visibleFromMs = fromMs;
+        visibleToMs = fromMs + span;
+        onVisibleRangeChanged();
+    }
+
+    /**
+     * Loads the visible range again, e.g. after new samples were stored.
+     */
+    public void reload() {
+        loadedFromMs = 0;
+        loadedToMs = 0;
+        requestPending = false;
+        onVisibleRangeChanged();
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        int points = Math.max(3, w - getPaddingLeft() - getPaddingRight());
+        frameTimestamps = new long[points];
+        frameValues = new float[points];
+        lines = new float[4 * points];
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        boolean handled = scaleGestures.onTouchEvent(event);
+        if (!scaleGestures.isInProgress()) {
+            handled |= gestures.onTouchEvent(event);
+        }
+        return handled || super.onTouchEvent(event);
+    }
+
+    @Override
+    public void computeScroll() {
+        if (scroller.computeScrollOffset()) {
+            int x = scroller.getCurrX();
+            panByPixels(x - lastFlingX);
+            lastFlingX = x;
+        }
+    }
+
+    @Override
+    protected void onDraw(@NonNull Canvas canvas) {
+        super.onDraw(canvas);
+        int left = getPaddingLeft();
+        int top = getPaddingTop();
+        int width = getWidth() - left - getPaddingRight();
+        int height = getHeight() - top - getPaddingBottom();
+        if (width <= 0 || height <= 0 || loaded.size() < 2) {
+            return;
+        }
+
+        // One point beyond each edge so lines run off the view instead of stopping short
+        int from = Math.max(0, indexAtOrAfter(loaded, visibleFromMs) - 1);
+        int to = Math.min(loaded.size(), indexAtOrAfter(loaded, visibleToMs) + 1);
+        int count = to - from >= 2
+                ? LttbDownsampler.downsample(loaded, from, to, frameTimestamps.length, frameTimestamps, frameValues)
+                : 0;
+        if (count < 2) {
+            return;
+        }
+
+        float min = Float.POSITIVE_INFINITY;
+        float max = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < count; i++) {
+            min = Math.min(min, frameValues[i]);
+            max = Math.max(max, frameValues[i]);
+        }
+        float padding = Math.max((max - min) * 0.1f, 1);
+        min -= padding;
+        max += padding;
+
+        double xScale = (double) width / (visibleToMs - visibleFromMs);
+        float yScale = height / (max - min);
+        int lineFloats = 0;
+        float previousX = 0;
+        float previousY = 0;
+        for (int i = 0; i < count; i++) {
+            float x = left + (float) ((frameTimestamps[i] - visibleFromMs) * xScale);
+            float y = top + height - (frameValues[i] - min) * yScale;
+            if (i > 0) {
+                lines[lineFloats++] = previousX;
+                lines[lineFloats++] = previousY;
+                lines[lineFloats++] = x;
+                lines[lineFloats++] = y;
+            }
+            previousX = x;
+            previousY = y;
+        }
+
+        canvas.drawLine(left, top, left + width, top, gridPaint);
+        canvas.drawLine(left, top + height, left + width, top + height, gridPaint);
+        canvas.drawLines(lines, 0, lineFloats, linePaint);
+        drawLabels(canvas, left, top, height, Math.round(min), Math.round(max));
+    }
+
+    private void drawLabels(Canvas canvas, int left, int top, int height, int min, int max) {
+        // Formatting allocates, so only when the bounds change
+        if (min != labelMin) {
+            labelMin = min;
+            labelMinText = Integer.toString(min);
+        }
+        if (max != labelMax) {
+            labelMax = max;
+            labelMaxText = Integer.toString(max);
+        }
+        canvas.drawText(labelMaxText, left, top - labelPaint.ascent(), labelPaint);
+        canvas.drawText(labelMinText, left, top + height - labelPaint.descent(), labelPaint);
+    }
+
+    private void panByPixels(float dx) {
+        int width = getWidth() - getPaddingLeft() - getPaddingRight();
+        if (width <= 0) {
+            return;
+        }
+        long shift = (long) ((double) dx * (visibleToMs - visibleFromMs) / width);
+        visibleFromMs += shift;
+        visibleToMs += shift;
+        onVisibleRangeChanged();
+    }
+
+    private void zoom(float focusX, float scale) {
+        int width = getWidth() - getPaddingLeft() - getPaddingRight();
+        if (width <= 0 || scale <= 0) {
+            return;
+        }
+        double focusFraction = Math.max(0, Math.min(1, (focusX - getPaddingLeft()) / width));
+        long span = visibleToMs - visibleFromMs;
+        long focusMs = visibleFromMs + (long) (focusFraction * span);
+        long newSpan = Math.max(MIN_SPAN_MS, Math.min(MAX_SPAN_MS, (long) (span / scale)));
+        // Keep the time under the fingers in place
+        visibleFromMs = focusMs - (long) (focusFraction * newSpan);
+        visibleToMs = visibleFromMs + newSpan;
+        onVisibleRangeChanged();
+    }
+
+    private void onVisibleRangeChanged() {
+        long span = visibleToMs - visibleFromMs;
+        if (source != null && !isSuitable(loadedFromMs, loadedToMs, span)
+                && !(requestPending && isSuitable(requestedFromMs, requestedToMs, span))) {
+            requestLoad(visibleFromMs - PREFETCH_SPANS * span, visibleToMs + PREFETCH_SPANS * span);
+        }
+        postInvalidateOnAnimation();
+    }
+
+    /**
+     * True if the range covers the visible one and was loaded at a resolution fine enough for it.
+     */
+    private boolean isSuitable(long fromMs, long toMs, long visibleSpan) {
+        return fromMs <= visibleFromMs && toMs >= visibleToMs
+                && toMs - fromMs <= 2 * (1 + 2 * PREFETCH_SPANS) * visibleSpan;
+    }
+
+    private void requestLoad(long fromMs, long toMs) {
+        int request = generation.incrementAndGet();
+        ChartDataSource target = source;
+        requestPending = true;
+        requestedFromMs = fromMs;
+        requestedToMs = toMs;
+        LOADER.execute(() -> {
+            if (generation.get() != request) {
+                // Superseded while queued
+                return;
+            }
+            SampleBatch batch = spare.getAndSet(null);
+            if (batch == null) {
+                batch = new SampleBatch(1024);
+            }
+            batch.clear();
+            try {
+                target.load(fromMs, toMs, batch);
+            } catch (IOException e) {
+                Log.e(TAG, "Unable to load chart data", e);
+                batch.clear();
+            }
+            SampleBatch result = batch;
+            post(() -> onLoaded(request, fromMs, toMs, result));
+        });
+    }
+
+    private void onLoaded(int request, long fromMs, long toMs, SampleBatch batch) {
+        if (request != generation.get()) {
+            spare.set(batch);
+            return;
+        }
+        spare.set(loaded);
+        loaded = batch;
+        loadedFromMs = fromMs;
+        loadedToMs = toMs;
+        requestPending = false;
+        invalidate();
+    }
+
+    private static int indexAtOrAfter(SampleBatch batch, long timestampMs) {
+        int low = 0;
+        int high = batch.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (batch.timestampAt(mid) < timestampMs) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private final class PanListener extends GestureDetector.SimpleOnGestureListener {
+        @Override
+        public boolean onDown(@NonNull MotionEvent e) {
+            scroller.forceFinished(true);
+            return true;
+        }
+
+        @Override
+        public boolean onScroll(@Nullable MotionEvent e1, @NonNull MotionEvent e2, float distanceX, float distanceY) {
+            panByPixels(distanceX);
+            return true;
+        }
+
+        @Override
+        public boolean onFling(@Nullable MotionEvent e1, @NonNull MotionEvent e2, float velocityX, float velocityY) {
+            lastFlingX = 0;
+            scroller.fling(0, 0, (int) -velocityX, 0, Integer.MIN_VALUE, Integer.MAX_VALUE, 0, 0);
+            postInvalidateOnAnimation();
+            return true;
+        }
+    }
+
+    private final class ZoomListener extends ScaleGestureDetector.SimpleOnScaleGestureListener {
+        @Override
+        public boolean onScale(@NonNull ScaleGestureDetector detector) {
+            zoom(detector.getFocusX(), detector.getScaleFactor());
+            return true;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.healthmonitoringapp.data;
+
+/**
+ * Reads bit fields written by {@link BitWriter}.
+ */
+final class BitReader {
+    private byte[] buffer;
+    private int position;
+
+    void reset(byte[] buffer, int startBit) {
+        this.buffer = buffer;
+        this.position = startBit;
+    }
+
+    boolean readBit() {
+        boolean bit = (buffer[position >>> 3] & (0x80 >>> (position & 7))) != 0;
+        position++;
+        return bit;
+    }
+
+    /**
+     * Reads an unsigned field of 1 to 64 bits.
+     */
+    long read(int bits) {
+        long result = 0;
+        while (bits > 0) {
+            int available = 8 - (position & 7);
+            int n = Math.min(available, bits);
+            int chunk = ((buffer[position >>> 3] & 0xFF) >>> (available - n)) & ((1 << n) - 1);
+            result = (result << n) | chunk;
+            bits -= n;
+            position += n;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.healthmonitoringapp.data;
+
+/**
+ * Writes bit fields MSB-first into a zeroed byte array.
+ */
+final class BitWriter {
+    private byte[] buffer;
+    private int position;
+
+    void reset(byte[] buffer, int startBit) {
+        this.buffer = buffer;
+        this.position = startBit;
+    }
+
+    /** Returns the index of the next bit to be written. */
+    int position() {
+        return position;
+    }
+
+    /**
+     * Writes the lowest {@code bits} bits of the value, 1 to 64.
+     */
+    void write(long value, int bits) {
+        while (bits > 0) {
+            int free = 8 - (position & 7);
+            int n = Math.min(free, bits);
+            int chunk = (int) (value >>> (bits - n)) & ((1 << n) - 1);
+            buffer[position >>> 3] |= (byte) (chunk << (free - n));
+            bits -= n;
+            position += n;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.healthmonitoringapp.data;
+
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+/**
+ * Layout of the fixed-size blocks a {@link TimeSeriesStore} file is made of.
+ *
+ * <pre>
+ *  0  int   magic
+ *  4  int   sample count
+ *  8  long  first timestamp
+ * 16  long  last timestamp
+ * 24  int   payload length in bits
+ * 28  int   CRC32 of bytes 4..27 and the payload
+ * 32  ...   bit stream: first value raw, then per sample a delta-of-delta timestamp and an XOR value
+ * </pre>
+ */
+final class Block {
+    static final int SIZE = 4096;
+    static final int MAGIC = 0x54534231; // "TSB1"
+    static final int HEADER_SIZE = 32;
+    static final int PAYLOAD_START_BIT = HEADER_SIZE * 8;
+    static final int CAPACITY_BITS = SIZE * 8;
+
+    private static final int COUNT_OFFSET = 4;
+    private static final int FIRST_OFFSET = 8;
+    private static final int LAST_OFFSET = 16;
+    private static final int BITS_OFFSET = 24;
+    private static final int CRC_OFFSET = 28;
+
+    private Block() {
+    }
+
+    static void writeHeader(byte[] block, int count, long firstTimestamp, long lastTimestamp, int payloadBits) {
+        ByteBuffer buffer = ByteBuffer.wrap(block);
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(COUNT_OFFSET, count);
+        buffer.putLong(FIRST_OFFSET, firstTimestamp);
+        buffer.putLong(LAST_OFFSET, lastTimestamp);
+        buffer.putInt(BITS_OFFSET, payloadBits);
+        buffer.putInt(CRC_OFFSET, crc(block, payloadBits));
+    }
+
+    static boolean hasMagic(byte[] block) {
+        return ByteBuffer.wrap(block).getInt(0) == MAGIC;
+    }
+
+    static int count(byte[] block) {
+        return ByteBuffer.wrap(block).getInt(COUNT_OFFSET);
+    }
+
+    static long firstTimestamp(byte[] block) {
+        return ByteBuffer.wrap(block).getLong(FIRST_OFFSET);
+    }
+
+    static long lastTimestamp(byte[] block) {
+        return ByteBuffer.wrap(block).getLong(LAST_OFFSET);
+    }
+
+    /**
+     * Number of leading bytes in use: the header and the payload written so far.
+     */
+    static int usedBytes(byte[] block) {
+        int payloadBits = Math.max(0, Math.min(ByteBuffer.wrap(block).getInt(BITS_OFFSET), CAPACITY_BITS - PAYLOAD_START_BIT));
+        return HEADER_SIZE + (payloadBits + 7) / 8;
+    }
+
+    /**
+     * Returns true if the header and payload are intact.
+     */
+    static boolean isValid(byte[] block) {
+        ByteBuffer buffer = ByteBuffer.wrap(block);
+        int payloadBits = buffer.getInt(BITS_OFFSET);
+        if (buffer.getInt(0) != MAGIC || payloadBits < 0 || payloadBits > CAPACITY_BITS - PAYLOAD_START_BIT) {
+            return false;
+        }
+        return buffer.getInt(CRC_OFFSET) == crc(block, payloadBits);
+    }
+
+    private static int crc(byte[] block, int payloadBits) {
+        CRC32 crc = new CRC32();
+        crc.update(block, COUNT_OFFSET, CRC_OFFSET - COUNT_OFFSET);
+        crc.update(block, HEADER_SIZE, (payloadBits + 7) / 8);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.healthmonitoringapp.data;
+
+/**
+ * Decodes the samples of a block written by {@link BlockWriter}, one at a time and without allocating.
+ */
+final class BlockReader {
+    private final BitReader bits = new BitReader();
+    private int count;
+    private int index;
+    private long timestamp;
+    private long delta;
+    private int valueBits;
+    private int leading;
+    private int trailing;
+
+    void reset(byte[] block) {
+        bits.reset(block, Block.PAYLOAD_START_BIT);
+        count = Block.count(block);
+        timestamp = Block.firstTimestamp(block);
+        index = 0;
+        delta = 0;
+    }
+
+    /**
+     * Advances to the next sample.
+     *
+     * @return False once all samples have been read.
+     */
+    boolean next() {
+        if (index == count) {
+            return false;
+        }
+        if (index == 0) {
+            valueBits = (int) bits.read(32);
+        } else {
+            delta += readDeltaOfDelta();
+            timestamp += delta;
+            valueBits ^= readXor();
+        }
+        index++;
+        return true;
+    }
+
+    long timestamp() {
+        return timestamp;
+    }
+
+    float value() {
+        return Float.intBitsToFloat(valueBits);
+    }
+
+    private long readDeltaOfDelta() {
+        if (!bits.readBit()) {
+            return 0;
+        }
+        if (!bits.readBit()) {
+            return bits.read(7) - 63;
+        }
+        if (!bits.readBit()) {
+            return bits.read(9) - 255;
+        }
+        if (!bits.readBit()) {
+            return bits.read(12) - 2047;
+        }
+        return bits.read(64);
+    }
+
+    private int readXor() {
+        if (!bits.readBit()) {
+            return 0;
+        }
+        if (bits.readBit()) {
+            leading = (int) bits.read(5);
+            int length = (int) bits.read(5) + 1;
+            trailing = 32 - leading - length;
+        }
+        return (int) bits.read(32 - leading - trailing) << trailing;
+    }
+}
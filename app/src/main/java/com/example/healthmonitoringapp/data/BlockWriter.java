@@ -0,0 +1,124 @@
+package com.example.healthmonitoringapp.data;
+
+import java.util.Arrays;
+
+/**
+ * Encodes samples into one {@link Block}.
+ *
+ * <p>Timestamps are stored as the difference between consecutive deltas, which is zero for a
+ * steady sampling rate and fits in a few bits when it jitters. Values are XORed with the previous
+ * value and only the meaningful bits are stored, reusing the previous bit window when it fits.
+ * Both schemes are lossless.</p>
+ */
+final class BlockWriter {
+    /** Upper bound for one encoded sample: 4 + 64 timestamp bits, 2 + 5 + 5 + 32 value bits. */
+    private static final int MAX_SAMPLE_BITS = 112;
+
+    final byte[] block = new byte[Block.SIZE];
+    private final BitWriter bits = new BitWriter();
+    private int count;
+    private long firstTimestamp;
+    private long lastTimestamp;
+    private long previousDelta;
+    private int previousValueBits;
+    private int previousLeading;
+    private int previousTrailing;
+
+    BlockWriter() {
+        reset();
+    }
+
+    void reset() {
+        Arrays.fill(block, (byte) 0);
+        bits.reset(block, Block.PAYLOAD_START_BIT);
+        count = 0;
+        previousDelta = 0;
+        previousLeading = -1;
+    }
+
+    int count() {
+        return count;
+    }
+
+    long firstTimestamp() {
+        return firstTimestamp;
+    }
+
+    long lastTimestamp() {
+        return lastTimestamp;
+    }
+
+    /**
+     * Appends a sample with a timestamp greater than the last one.
+     *
+     * @return False if the block is full; the sample is not added.
+     */
+    boolean append(long timestamp, float value) {
+        if (bits.position() + MAX_SAMPLE_BITS > Block.CAPACITY_BITS) {
+            return false;
+        }
+        int valueBits = Float.floatToRawIntBits(value);
+        if (count == 0) {
+            firstTimestamp = timestamp;
+            bits.write(valueBits, 32);
+        } else {
+            long delta = timestamp - lastTimestamp;
+            writeDeltaOfDelta(delta - previousDelta);
+            previousDelta = delta;
+            writeXor(valueBits ^ previousValueBits);
+        }
+        previousValueBits = valueBits;
+        lastTimestamp = timestamp;
+        count++;
+        return true;
+    }
+
+    /**
+     * Writes the header so {@link #block} can be stored or decoded. Appending may continue afterwards.
+     */
+    byte[] finish() {
+        Block.writeHeader(block, count, firstTimestamp, lastTimestamp, bits.position() - Block.PAYLOAD_START_BIT);
+        return block;
+    }
+
+    private void writeDeltaOfDelta(long deltaOfDelta) {
+        if (deltaOfDelta == 0) {
+            bits.write(0, 1);
+        } else if (deltaOfDelta >= -63 && deltaOfDelta <= 64) {
+            bits.write(0b10, 2);
+            bits.write(deltaOfDelta + 63, 7);
+        } else if (deltaOfDelta >= -255 && deltaOfDelta <= 256) {
+            bits.write(0b110, 3);
+            bits.write(deltaOfDelta + 255, 9);
+        } else if (deltaOfDelta >= -2047 && deltaOfDelta <= 2048) {
+            bits.write(0b1110, 4);
+            bits.write(deltaOfDelta + 2047, 12);
+        } else {
+            bits.write(0b1111, 4);
+            bits.write(deltaOfDelta, 64);
+        }
+    }
+
+    private void writeXor(int xor) {
+        if (xor == 0) {
+            bits.write(0, 1);
+            return;
+        }
+        int leading = Integer.numberOfLeadingZeros(xor);
+        int trailing = Integer.numberOfTrailingZeros(xor);
+        if (previousLeading >= 0 && leading >= previousLeading && trailing >= previousTrailing) {
+            // Fits in the previous window
+            int length = 32 - previousLeading - previousTrailing;
+            bits.write(0b10, 2);
+            bits.write(xor >>> previousTrailing, length);
+        } else {
+            int length = 32 - leading - trailing;
+            bits.write(0b11, 2);
+            bits.write(leading, 5);
+            bits.write(length - 1, 5);
+            bits.write(xor >>> trailing, length);
+            previousLeading = leading;
+            previousTrailing = trailing;
+        }
+    }
+}
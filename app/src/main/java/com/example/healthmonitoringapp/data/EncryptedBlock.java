@@ -0,0 +1,71 @@
+package com.example.healthmonitoringapp.data;
+
+import com.example.healthmonitoringapp.security.DataCipher;
+
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+
+/**
+ * Layout of the slots an encrypted {@link TimeSeriesStore} file is made of: one {@link Block},
+ * sealed with AES-GCM.
+ *
+ * <pre>
+ *  0  int   magic
+ *  4  int   sample count
+ *  8  long  first timestamp
+ * 16  long  last timestamp
+ * 24  int   length of the encrypted part of the block
+ * 28  ...   IV, the used bytes of the block encrypted, tag; bytes 0..27 are authenticated
+ * </pre>
+ *
+ * <p>Count and time bounds stay readable, at the same offsets as in a plain block, so opening a
+ * store and locating a range read headers only; values and the timestamps inside a block are
+ * encrypted. Only the used part of the block is encrypted, so appends to a young block are cheap.</p>
+ */
+final class EncryptedBlock {
+    static final int MAGIC = 0x54534531; // "TSE1"
+    static final int HEADER_SIZE = 28;
+    static final int SIZE = HEADER_SIZE + Block.SIZE + DataCipher.OVERHEAD;
+
+    private static final int LENGTH_OFFSET = 24;
+
+    private EncryptedBlock() {
+    }
+
+    static boolean hasMagic(byte[] slot) {
+        return ByteBuffer.wrap(slot).getInt(0) == MAGIC;
+    }
+
+    /**
+     * Seals a finished plain block into the slot.
+     */
+    static void seal(DataCipher cipher, byte[] block, byte[] slot) throws GeneralSecurityException {
+        int length = Block.usedBytes(block);
+        ByteBuffer header = ByteBuffer.wrap(slot);
+        header.putInt(0, MAGIC);
+        header.putInt(4, Block.count(block));
+        header.putLong(8, Block.firstTimestamp(block));
+        header.putLong(16, Block.lastTimestamp(block));
+        header.putInt(LENGTH_OFFSET, length);
+        cipher.encrypt(slot, HEADER_SIZE, block, 0, length, slot, HEADER_SIZE);
+    }
+
+    /**
+     * Decrypts the slot into a plain block.
+     *
+     * @return False if the slot is not an encrypted block or fails authentication.
+     */
+    static boolean open(DataCipher cipher, byte[] slot, byte[] block) {
+        ByteBuffer header = ByteBuffer.wrap(slot);
+        int length = header.getInt(LENGTH_OFFSET);
+        if (header.getInt(0) != MAGIC || length < Block.HEADER_SIZE || length > Block.SIZE) {
+            return false;
+        }
+        try {
+            cipher.decrypt(slot, HEADER_SIZE, slot, HEADER_SIZE, length + DataCipher.OVERHEAD, block, 0);
+            return true;
+        } catch (GeneralSecurityException e) {
+            return false;
+        }
+    }
+}
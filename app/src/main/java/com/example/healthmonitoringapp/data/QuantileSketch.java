@@ -0,0 +1,131 @@
+package com.example.healthmonitoringapp.data;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Mergeable percentile sketch with bounded relative error.
+ *
+ * <p>Positive values are counted in logarithmic bins, so any quantile is returned within
+ * {@link #RELATIVE_ACCURACY} of a value of the right rank. Only the bins between the smallest and
+ * largest value seen are allocated; an hour of heart rate needs a few dozen. Values at or below
+ * {@link #MIN_POSITIVE} are counted as zero, and NaN is ignored.</p>
+ */
+public final class QuantileSketch {
+    public static final double RELATIVE_ACCURACY = 0.02;
+    static final double MIN_POSITIVE = 1e-3;
+
+    private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+    private static final int[] NO_BINS = new int[0];
+
+    private int offset;
+    private int[] bins = NO_BINS;
+    private long zeroCount;
+    private long count;
+
+    public QuantileSketch() {
+    }
+
+    public QuantileSketch(QuantileSketch other) {
+        offset = other.offset;
+        bins = other.bins.length == 0 ? NO_BINS : other.bins.clone();
+        zeroCount = other.zeroCount;
+        count = other.count;
+    }
+
+    public void add(float value) {
+        if (Float.isNaN(value)) {
+            return;
+        }
+        if (value <= MIN_POSITIVE) {
+            zeroCount++;
+        } else {
+            int index = (int) Math.ceil(Math.log(value) / LOG_GAMMA);
+            ensureCovers(index, index);
+            bins[index - offset]++;
+        }
+        count++;
+    }
+
+    public void merge(QuantileSketch other) {
+        if (other.bins.length > 0) {
+            ensureCovers(other.offset, other.offset + other.bins.length - 1);
+            for (int i = 0; i < other.bins.length; i++) {
+                bins[other.offset + i - offset] += other.bins[i];
+            }
+        }
+        zeroCount += other.zeroCount;
+        count += other.count;
+    }
+
+    public long count() {
+        return count;
+    }
+
+    /**
+     * Returns the value at quantile {@code q} in [0, 1], or NaN if the sketch is empty.
+     */
+    public double quantile(double q) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        long rank = (long) Math.floor(q * (count - 1));
+        if (rank < zeroCount) {
+            return 0;
+        }
+        long seen = zeroCount;
+        for (int i = 0; i < bins.length; i++) {
+            seen += bins[i];
+            if (seen > rank) {
+                // Midpoint of the bin in relative terms
+                return 2 * Math.pow(GAMMA, offset + i) / (GAMMA + 1);
+            }
+        }
+        return 2 * Math.pow(GAMMA, offset + bins.length - 1) / (GAMMA + 1);
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+        out.writeLong(count);
+        out.writeLong(zeroCount);
+        out.writeInt(offset);
+        out.writeInt(bins.length);
+        for (int bin : bins) {
+            out.writeInt(bin);
+        }
+    }
+
+    static QuantileSketch readFrom(DataInput in) throws IOException {
+        QuantileSketch sketch = new QuantileSketch();
+        sketch.count = in.readLong();
+        sketch.zeroCount = in.readLong();
+        sketch.offset = in.readInt();
+        int length = in.readInt();
+        if (length < 0 || length > 100_000) {
+            throw new IOException("Invalid sketch size " + length);
+        }
+        sketch.bins = length == 0 ? NO_BINS : new int[length];
+        for (int i = 0; i < length; i++) {
+            sketch.bins[i] = in.readInt();
+        }
+        return sketch;
+    }
+
+    private void ensureCovers(int low, int high) {
+        if (bins.length == 0) {
+            offset = low;
+            bins = new int[high - low + 1];
+            return;
+        }
+        int newLow = Math.min(low, offset);
+        int newHigh = Math.max(high, offset + bins.length - 1);
+        if (newLow == offset && newHigh == offset + bins.length - 1) {
+            return;
+        }
+        int[] grown = new int[newHigh - newLow + 1];
+        System.arraycopy(bins, 0, grown, offset - newLow, bins.length);
+        bins = grown;
+        offset = newLow;
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.healthmonitoringapp.data;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bucket sizes that samples are rolled up into.
+ */
+public enum Resolution {
+    MINUTE(TimeUnit.MINUTES.toMillis(1)),
+    HOUR(TimeUnit.HOURS.toMillis(1)),
+    DAY(TimeUnit.DAYS.toMillis(1));
+
+    private final long millis;
+
+    Resolution(long millis) {
+        this.millis = millis;
+    }
+
+    public long millis() {
+        return millis;
+    }
+}
@@ -0,0 +1,245 @@
+package com.example.healthmonitoringapp.data;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pre-aggregated minute, hour and day buckets of one sample series, updated as samples arrive.
+ *
+ * <p>{@link #summarize} answers a range query by merging the coarsest buckets that tile it, so a
+ * year takes about 365 day buckets plus a few hour and minute buckets at the edges instead of a
+ * scan of the raw samples. Minute buckets are kept for {@link #MINUTE_RETENTION_MS}; hour and day
+ * buckets are kept forever. Buckets follow local time through a fixed UTC offset.</p>
+ */
+public class RollupSeries {
+    public static final long MINUTE_RETENTION_MS = TimeUnit.DAYS.toMillis(7);
+
+    private final long zoneOffsetMs;
+    private final Level[] levels = new Level[Resolution.values().length];
+    private long lastTimestamp = Long.MIN_VALUE;
+    // Start of the oldest minute bucket still held, once minute buckets have been pruned; always on an hour
+    private long minuteHorizon = Long.MIN_VALUE;
+
+    /**
+     * @param zoneOffsetMs Offset from UTC that day and hour boundaries follow.
+     */
+    public RollupSeries(long zoneOffsetMs) {
+        this.zoneOffsetMs = zoneOffsetMs;
+        for (Resolution resolution : Resolution.values()) {
+            levels[resolution.ordinal()] = new Level(resolution);
+        }
+    }
+
+    public long getZoneOffsetMs() {
+        return zoneOffsetMs;
+    }
+
+    /** Timestamp of the newest sample added, or {@link Long#MIN_VALUE}. */
+    public synchronized long lastTimestamp() {
+        return lastTimestamp;
+    }
+
+    /**
+     * Adds a sample newer than all previous ones. Older samples and NaN are ignored, matching
+     * what {@link TimeSeriesStore} keeps.
+     */
+    public synchronized void add(long timestampMs, float value) {
+        if (timestampMs <= lastTimestamp || Float.isNaN(value)) {
+            return;
+        }
+        lastTimestamp = timestampMs;
+        // Prune before adding, so a long gap never grows the minute level; whole hours keep the
+        // retained minutes starting on an hour boundary
+        long horizon = bucketIndex(timestampMs - MINUTE_RETENTION_MS, Resolution.HOUR) * 60;
+        if (levels[Resolution.MINUTE.ordinal()].dropBefore(horizon)) {
+            minuteHorizon = horizon * Resolution.MINUTE.millis() - zoneOffsetMs;
+        }
+        for (Level level : levels) {
+            level.bucketFor(bucketIndex(timestampMs, level.resolution)).add(value);
+        }
+    }
+
+    /**
+     * Summarizes the samples in {@code [fromMs, toMs)}. The range is widened to whole minutes, or
+     * to whole hours where minute buckets have expired; {@link Summary#getStartMs()} and
+     * {@link Summary#getEndMs()} report the range actually covered.
+     */
+    public synchronized Summary summarize(long fromMs, long toMs) {
+        long start = alignDown(fromMs, Resolution.MINUTE);
+        long end = alignUp(toMs, Resolution.MINUTE);
+        if (start < minuteHorizon) {
+            start = alignDown(start, Resolution.HOUR);
+        }
+        if (end < minuteHorizon) {
+            end = alignUp(end, Resolution.HOUR);
+        }
+
+        Summary result = new Summary(start, end);
+        if (lastTimestamp == Long.MIN_VALUE) {
+            return result;
+        }
+        // Only walk the days that can hold data; day boundaries keep the cursor aligned
+        Level days = levels[Resolution.DAY.ordinal()];
+        long cursor = Math.max(start, days.firstIndex * Resolution.DAY.millis() - zoneOffsetMs);
+        end = Math.min(end, alignUp(lastTimestamp + 1, Resolution.DAY));
+        while (cursor < end) {
+            Resolution resolution = coarsestFitting(cursor, end, minuteHorizon);
+            Summary bucket = levels[resolution.ordinal()].get(bucketIndex(cursor, resolution));
+            if (bucket != null) {
+                result.merge(bucket);
+            }
+            cursor += resolution.millis();
+        }
+        return result;
+    }
+
+    /**
+     * Returns the non-empty buckets of the given resolution that overlap {@code [fromMs, toMs)},
+     * e.g. one point per hour for a daily chart.
+     */
+    public synchronized List<Summary> series(Resolution resolution, long fromMs, long toMs) {
+        Level level = levels[resolution.ordinal()];
+        List<Summary> result = new ArrayList<>();
+        long last = bucketIndex(toMs - 1, resolution);
+        for (long index = bucketIndex(fromMs, resolution); index <= last; index++) {
+            Summary bucket = level.get(index);
+            if (bucket != null) {
+                Summary copy = new Summary(bucket.getStartMs(), bucket.getEndMs());
+                copy.merge(bucket);
+                result.add(copy);
+            }
+        }
+        return result;
+    }
+
+    synchronized void writeTo(DataOutput out) throws IOException {
+        out.writeLong(zoneOffsetMs);
+        out.writeLong(lastTimestamp);
+        out.writeLong(minuteHorizon);
+        for (Level level : levels) {
+            level.writeTo(out);
+        }
+    }
+
+    static RollupSeries readFrom(DataInput in) throws IOException {
+        RollupSeries series = new RollupSeries(in.readLong());
+        series.lastTimestamp = in.readLong();
+        series.minuteHorizon = in.readLong();
+        for (Level level : series.levels) {
+            level.readFrom(in);
+        }
+        return series;
+    }
+
+    private Resolution coarsestFitting(long cursor, long end, long minuteHorizon) {
+        if (isAligned(cursor, Resolution.DAY) && cursor + Resolution.DAY.millis() <= end) {
+            return Resolution.DAY;
+        }
+        if (cursor < minuteHorizon
+                || (isAligned(cursor, Resolution.HOUR) && cursor + Resolution.HOUR.millis() <= end)) {
+            return Resolution.HOUR;
+        }
+        return Resolution.MINUTE;
+    }
+
+    private long bucketIndex(long timestampMs, Resolution resolution) {
+        return Math.floorDiv(timestampMs + zoneOffsetMs, resolution.millis());
+    }
+
+    private boolean isAligned(long timestampMs, Resolution resolution) {
+        return Math.floorMod(timestampMs + zoneOffsetMs, resolution.millis()) == 0;
+    }
+
+    private long alignDown(long timestampMs, Resolution resolution) {
+        return bucketIndex(timestampMs, resolution) * resolution.millis() - zoneOffsetMs;
+    }
+
+    private long alignUp(long timestampMs, Resolution resolution) {
+        long down = alignDown(timestampMs, resolution);
+        return down == timestampMs ? down : down + resolution.millis();
+    }
+
+    /**
+     * Buckets of one resolution, stored densely from the oldest retained index.
+     */
+    private final class Level {
+        final Resolution resolution;
+        long firstIndex;
+        Summary[] buckets = new Summary[0];
+        int size;
+
+        Level(Resolution resolution) {
+            this.resolution = resolution;
+        }
+
+        Summary get(long index) {
+            long offset = index - firstIndex;
+            return offset >= 0 && offset < size ? buckets[(int) offset] : null;
+        }
+
+        Summary bucketFor(long index) {
+            if (size == 0) {
+                firstIndex = index;
+            }
+            int offset = (int) (index - firstIndex);
+            if (offset >= buckets.length) {
+                buckets = Arrays.copyOf(buckets, Math.max(offset + 1, buckets.length * 2));
+            }
+            size = Math.max(size, offset + 1);
+            Summary bucket = buckets[offset];
+            if (bucket == null) {
+                long start = index * resolution.millis() - zoneOffsetMs;
+                bucket = new Summary(start, start + resolution.millis());
+                buckets[offset] = bucket;
+            }
+            return bucket;
+        }
+
+        /**
+         * Drops the buckets before the index. Returns true if any were dropped.
+         */
+        boolean dropBefore(long index) {
+            int drop = (int) Math.min(Math.max(index - firstIndex, 0), size);
+            // Compact in large steps so pruning stays amortized O(1) per sample
+            if (drop > 0 && (drop >= size / 2 || drop >= 1024)) {
+                System.arraycopy(buckets, drop, buckets, 0, size - drop);
+                Arrays.fill(buckets, size - drop, size, null);
+                size -= drop;
+                firstIndex += drop;
+                return true;
+            }
+            return false;
+        }
+
+        void writeTo(DataOutput out) throws IOException {
+            out.writeLong(firstIndex);
+            out.writeInt(size);
+            for (int i = 0; i < size; i++) {
+                out.writeBoolean(buckets[i] != null);
+                if (buckets[i] != null) {
+                    buckets[i].writeTo(out);
+                }
+            }
+        }
+
+        void readFrom(DataInput in) throws IOException {
+            firstIndex = in.readLong();
+            size = in.readInt();
+            if (size < 0) {
+                throw new IOException("Invalid bucket count " + size);
+            }
+            buckets = new Summary[size];
+            for (int i = 0; i < size; i++) {
+                if (in.readBoolean()) {
+                    long start = (firstIndex + i) * resolution.millis() - zoneOffsetMs;
+                    buckets[i] = Summary.readFrom(in, start, start + resolution.millis());
+                }
+            }
+        }
+    }
+}
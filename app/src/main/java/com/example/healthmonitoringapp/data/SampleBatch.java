@@ -0,0 +1,97 @@
+package com.example.healthmonitoringapp.data;
+
+import java.util.Arrays;
+
+/**
+ * Growable batch of samples held in primitive arrays, so large reads do not box every value.
+ * Not thread-safe; a batch is filled by one reader and then handed on.
+ */
+public final class SampleBatch {
+    private long[] timestamps;
+    private float[] values;
+    private int size;
+
+    public SampleBatch(int initialCapacity) {
+        timestamps = new long[Math.max(initialCapacity, 16)];
+        values = new float[timestamps.length];
+    }
+
+    public void add(long timestampMs, float value) {
+        if (size == timestamps.length) {
+            timestamps = Arrays.copyOf(timestamps, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        timestamps[size] = timestampMs;
+        values[size] = value;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long timestampAt(int index) {
+        return timestamps[index];
+    }
+
+    public float valueAt(int index) {
+        return values[index];
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Orders the samples by timestamp, keeping samples with equal timestamps in order. Cheap if
+     * they already are, which is the usual case; otherwise O(n log n).
+     */
+    public void sortByTime() {
+        for (int i = 1; i < size; i++) {
+            if (timestamps[i] < timestamps[i - 1]) {
+                sortFrom(i);
+                return;
+            }
+        }
+    }
+
+    private void sortFrom(int start) {
+        // The samples before start are ordered: sort the rest, then merge the two runs
+        long[] timestampBuffer = new long[size];
+        float[] valueBuffer = new float[size];
+        mergeSort(start, size, timestampBuffer, valueBuffer);
+        merge(0, start, size, timestampBuffer, valueBuffer);
+    }
+
+    private void mergeSort(int from, int to, long[] timestampBuffer, float[] valueBuffer) {
+        if (to - from < 2) {
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        mergeSort(from, mid, timestampBuffer, valueBuffer);
+        mergeSort(mid, to, timestampBuffer, valueBuffer);
+        merge(from, mid, to, timestampBuffer, valueBuffer);
+    }
+
+    /**
+     * Merges the ordered runs [from, mid) and [mid, to).
+     */
+    private void merge(int from, int mid, int to, long[] timestampBuffer, float[] valueBuffer) {
+        if (from == mid || timestamps[mid - 1] <= timestamps[mid]) {
+            return;
+        }
+        System.arraycopy(timestamps, from, timestampBuffer, from, to - from);
+        System.arraycopy(values, from, valueBuffer, from, to - from);
+        int left = from;
+        int right = mid;
+        for (int i = from; i < to; i++) {
+            if (right == to || (left < mid && timestampBuffer[left] <= timestampBuffer[right])) {
+                timestamps[i] = timestampBuffer[left];
+                values[i] = valueBuffer[left++];
+            } else {
+                timestamps[i] = timestampBuffer[right];
+                values[i] = valueBuffer[right++];
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.healthmonitoringapp.data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * The byte-aligned sample encoding shared by health archives and remote vitals documents.
+ * Timestamps are written as zigzag varints of the change in delta, which is zero at a steady rate,
+ * and values as varints of the bit-reversed XOR with the previous value's bits, which is small
+ * when only the high mantissa bits change.
+ */
+public final class SampleCodec {
+    /** Longest varint of a 64-bit value. */
+    public static final int MAX_VARINT_BYTES = 10;
+    /** Longest encoded value: a varint of 32 bits. */
+    public static final int MAX_VALUE_BYTES = 5;
+
+    private SampleCodec() {
+    }
+
+    /**
+     * Writes the value as an unsigned LEB128 varint.
+     */
+    public static void putVarint(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    /**
+     * Reads a varint written by {@link #putVarint}.
+     */
+    public static long getVarint(ByteBuffer buffer) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (!buffer.hasRemaining()) {
+                throw new IOException("Truncated varint");
+            }
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Varint too long");
+    }
+
+    /**
+     * Maps signed values to unsigned ones with small magnitudes staying small.
+     */
+    public static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    public static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Writes the bits of a value against the bits of the one before, 0 for the first.
+     */
+    public static void putValue(ByteBuffer buffer, int valueBits, int previousBits) {
+        putVarint(buffer, Integer.toUnsignedLong(Integer.reverse(valueBits ^ previousBits)));
+    }
+
+    /**
+     * Reads a value written by {@link #putValue}, returning its bits.
+     */
+    public static int getValue(ByteBuffer buffer, int previousBits) throws IOException {
+        return previousBits ^ Integer.reverse((int) getVarint(buffer));
+    }
+}
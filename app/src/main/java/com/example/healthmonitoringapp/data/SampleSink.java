@@ -0,0 +1,15 @@
+package com.example.healthmonitoringapp.data;
+
+import java.io.IOException;
+
+/**
+ * Destination for ingested samples, e.g. the local time-series store.
+ */
+public interface SampleSink {
+    /**
+     * Appends a time-ordered batch. Samples not newer than the last stored sample of the same type
+     * are dropped, so replaying an overlapping window does not duplicate data.
+     * The samples are durable when this returns.
+     */
+    void append(VitalType type, SampleBatch batch) throws IOException;
+}
@@ -0,0 +1,11 @@
+package com.example.healthmonitoringapp.data;
+
+import java.io.IOException;
+
+/**
+ * Where the samples of each vital type are stored; {@code VitalsStore::get} in the app, plain
+ * {@link TimeSeriesStore}s in tests.
+ */
+public interface SeriesProvider {
+    TimeSeriesStore get(VitalType type) throws IOException;
+}
@@ -0,0 +1,99 @@
+package com.example.healthmonitoringapp.data;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Aggregate of the samples in a time range: count, min, max, mean and approximate percentiles.
+ * Built by merging rollup buckets; see {@link RollupSeries}.
+ */
+public final class Summary {
+    private final long startMs;
+    private final long endMs;
+    private long count;
+    private float min = Float.POSITIVE_INFINITY;
+    private float max = Float.NEGATIVE_INFINITY;
+    private double sum;
+    private final QuantileSketch sketch = new QuantileSketch();
+
+    Summary(long startMs, long endMs) {
+        this.startMs = startMs;
+        this.endMs = endMs;
+    }
+
+    void add(float value) {
+        count++;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+        sum += value;
+        sketch.add(value);
+    }
+
+    void merge(Summary other) {
+        count += other.count;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        sum += other.sum;
+        sketch.merge(other.sketch);
+    }
+
+    /** Start of the covered range, inclusive. May be earlier than requested; see {@link RollupSeries#summarize}. */
+    public long getStartMs() {
+        return startMs;
+    }
+
+    /** End of the covered range, exclusive. */
+    public long getEndMs() {
+        return endMs;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /** Smallest value, or NaN if there are no samples. */
+    public float getMin() {
+        return count > 0 ? min : Float.NaN;
+    }
+
+    /** Largest value, or NaN if there are no samples. */
+    public float getMax() {
+        return count > 0 ? max : Float.NaN;
+    }
+
+    /** Mean value, or NaN if there are no samples. */
+    public double getMean() {
+        return count > 0 ? sum / count : Double.NaN;
+    }
+
+    /** Sum of all values, e.g. total steps. */
+    public double getSum() {
+        return sum;
+    }
+
+    /**
+     * Returns the value at the given percentile (0-100), within {@link QuantileSketch#RELATIVE_ACCURACY}.
+     */
+    public double getPercentile(double percentile) {
+        return sketch.quantile(percentile / 100);
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+        out.writeLong(count);
+        out.writeFloat(min);
+        out.writeFloat(max);
+        out.writeDouble(sum);
+        sketch.writeTo(out);
+    }
+
+    static Summary readFrom(DataInput in, long startMs, long endMs) throws IOException {
+        Summary summary = new Summary(startMs, endMs);
+        summary.count = in.readLong();
+        summary.min = in.readFloat();
+        summary.max = in.readFloat();
+        summary.sum = in.readDouble();
+        summary.sketch.merge(QuantileSketch.readFrom(in));
+        return summary;
+    }
+}
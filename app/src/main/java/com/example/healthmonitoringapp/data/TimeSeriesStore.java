@@ -0,0 +1,505 @@
+package com.example.healthmonitoringapp.data;
+
+import android.util.Log;
+
+import com.example.healthmonitoringapp.metrics.Counter;
+import com.example.healthmonitoringapp.metrics.Metrics;
+import com.example.healthmonitoringapp.security.DataCipher;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+
+/**
+ * Append-only, file-backed store for one series of timestamped float samples.
+ *
+ * <p>Samples are compressed into fixed-size blocks (see {@link Block} and {@link BlockWriter});
+ * 1 Hz heart rate takes a little over one byte per sample. Only the first and last timestamp of
+ * each block are kept in memory, so a range query reads and decodes just the blocks it overlaps.
+ * Full blocks are appended to the file and never written again. The block still being filled is
+ * kept in a companion {@code .tail} file with two slots, written alternately and synced before an
+ * append returns, so a write torn by a crash leaves the previous version of the block intact.
+ * A sealed block that is corrupt is skipped when the file is opened or scanned, rather than
+ * making the rest of the series unreadable.</p>
+ *
+ * <p>Opened with a {@link DataCipher}, every block is sealed on its own (see {@link EncryptedBlock}),
+ * so a range query decrypts only the blocks it reads. A plain file from an older version is
+ * rewritten encrypted when it is first opened with a cipher. The encrypted copy replaces the file
+ * and its tail only once it is complete and a marker file records that, so a crash between the two
+ * replacements is finished on the next open instead of leaving one of them plain.</p>
+ */
+public class TimeSeriesStore implements Closeable {
+    private static final String TAG = "TimeSeriesStore";
+    private static final int COPY_BATCH = 8192;
+    // Samples not newer than the last stored one, e.g. late Fit data
+    private static final Counter LATE_SAMPLES = Metrics.getInstance().counter("TimeSeriesStore.lateSamples");
+    private static final Counter CORRUPT_BLOCKS = Metrics.getInstance().counter("TimeSeriesStore.corruptBlocks");
+    private static final String TAIL_SUFFIX = ".tail";
+    private static final String COPY_SUFFIX = ".tmp";
+    private static final String ENCRYPTING_SUFFIX = ".encrypting";
+
+    /**
+     * Receives samples from {@link #scan} in time order.
+     */
+    public interface SampleVisitor {
+        void visit(long timestampMs, float value);
+    }
+
+    private final File file;
+    private final FileChannel channel;
+    private final FileChannel tailChannel;
+    private final DataCipher cipher;
+    // Bytes per block on disk
+    private final int slotSize;
+    private final BlockWriter tail = new BlockWriter();
+    private final BlockReader reader = new BlockReader();
+    private final byte[] readBlock = new byte[Block.SIZE];
+    // A block as stored; the same array as readBlock when not encrypted
+    private final byte[] slot;
+    private final ByteBuffer slotBuffer;
+    // First and last timestamps of the full blocks before the tail, and where they are in the file
+    private long[] blockFirst = new long[64];
+    private long[] blockLast = new long[64];
+    private int[] blockSlot = new int[64];
+    private int sealedBlocks;
+    private long sealedSamples;
+    // Slots in the file, including skipped corrupt ones
+    private int fileSlots;
+    // Slot of the tail file holding the newest version of the tail
+    private int tailSlot = 1;
+
+    private TimeSeriesStore(File file, FileChannel channel, FileChannel tailChannel, DataCipher cipher) {
+        this.file = file;
+        this.channel = channel;
+        this.tailChannel = tailChannel;
+        this.cipher = cipher;
+        slotSize = cipher != null ? EncryptedBlock.SIZE : Block.SIZE;
+        slot = cipher != null ? new byte[EncryptedBlock.SIZE] : readBlock;
+        slotBuffer = ByteBuffer.wrap(slot);
+    }
+
+    /**
+     * Opens or creates an unencrypted store. Reads one header per block, so call it off the main thread.
+     */
+    public static TimeSeriesStore open(File file) throws IOException {
+        return open(file, null);
+    }
+
+    /**
+     * Opens or creates the store, encrypting it with the cipher unless it is null. Reads one
+     * header per block, so call it off the main thread.
+     */
+    public static TimeSeriesStore open(File file, DataCipher cipher) throws IOException {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Unable to create " + parent);
+        }
+        if (encryptingMarker(file).exists()) {
+            finishEncryption(file);
+        }
+        if (cipher != null && isPlain(file)) {
+            encryptFile(file, cipher);
+        }
+        File tailFile = tailFile(file);
+        // Versions before the tail file kept the tail as the last block of the file
+        boolean tailInFile = !tailFile.exists();
+        FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        FileChannel tailChannel = null;
+        try {
+            tailChannel = FileChannel.open(tailFile.toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            TimeSeriesStore store = new TimeSeriesStore(file, channel, tailChannel, cipher);
+            store.load(tailInFile);
+            return store;
+        } catch (IOException e) {
+            channel.close();
+            if (tailChannel != null) {
+                tailChannel.close();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the companion file holding the block a store is still filling.
+     */
+    static File tailFile(File file) {
+        return new File(file.getPath() + TAIL_SUFFIX);
+    }
+
+    /**
+     * Returns where a plain store is copied while it is encrypted.
+     */
+    static File encryptionCopy(File file) {
+        return new File(file.getPath() + COPY_SUFFIX);
+    }
+
+    /**
+     * Returns the file whose presence means the encrypted copy is complete and replacing the plain
+     * files with it may not have finished.
+     */
+    static File encryptingMarker(File file) {
+        return new File(file.getPath() + ENCRYPTING_SUFFIX);
+    }
+
+    private void load(boolean tailInFile) throws IOException {
+        int slots = (int) (channel.size() / slotSize);
+        int sealedSlots = tailInFile ? Math.max(slots - 1, 0) : slots;
+        ByteBuffer header = ByteBuffer.wrap(slot, 0, Block.HEADER_SIZE);
+        for (int i = 0; i < sealedSlots; i++) {
+            header.clear();
+            readFully(channel, header, (long) i * slotSize);
+            // Encrypted slots keep these fields readable at the same offsets
+            long first = Block.firstTimestamp(slot);
+            long last = Block.lastTimestamp(slot);
+            int count = Block.count(slot);
+            boolean valid = (cipher != null ? EncryptedBlock.hasMagic(slot) : Block.hasMagic(slot))
+                    && count > 0 && first <= last && (sealedBlocks == 0 || first > blockLast[sealedBlocks - 1]);
+            if (valid && i == slots - 1) {
+                // The last block may have been torn while it was sealed
+                valid = readSlot(channel, i) && Block.isValid(readBlock);
+            }
+            if (valid) {
+                addSealed(first, last, count, i);
+            } else {
+                CORRUPT_BLOCKS.increment();
+                Log.e(TAG, "Skipping corrupt block " + i + " of " + file);
+            }
+        }
+        fileSlots = sealedSlots;
+
+        if (tailInFile) {
+            if (slots > 0) {
+                if (readSlot(channel, slots - 1) && Block.isValid(readBlock)) {
+                    resumeTail();
+                } else {
+                    Log.e(TAG, "Dropping torn last block of " + file);
+                }
+            }
+            if (tail.count() > 0) {
+                writeTail();
+            }
+        } else {
+            long lastSealed = sealedBlocks > 0 ? blockLast[sealedBlocks - 1] : Long.MIN_VALUE;
+            int newest = -1;
+            int newestCount = 0;
+            for (int i = 0; i < 2; i++) {
+                // A slot holding a block that was sealed since is stale
+                if (tailChannel.size() >= (long) (i + 1) * slotSize && readSlot(tailChannel, i)
+                        && Block.isValid(readBlock) && Block.firstTimestamp(readBlock) > lastSealed
+                        && Block.count(readBlock) > newestCount) {
+                    newest = i;
+                    newestCount = Block.count(readBlock);
+                }
+            }
+            if (newest >= 0) {
+                readSlot(tailChannel, newest);
+                resumeTail();
+                tailSlot = newest;
+            }
+        }
+        channel.truncate((long) fileSlots * slotSize);
+    }
+
+    /**
+     * Resumes appending to the block in {@link #readBlock}.
+     */
+    private void resumeTail() {
+        reader.reset(readBlock);
+        while (reader.next()) {
+            tail.append(reader.timestamp(), reader.value());
+        }
+    }
+
+    /**
+     * Appends one sample and syncs it to disk.
+     *
+     * @return False if the sample was dropped because it is not newer than the last stored sample.
+     *         Dropped samples are counted as {@code TimeSeriesStore.lateSamples}.
+     */
+    public synchronized boolean append(long timestampMs, float value) throws IOException {
+        boolean added = appendInMemory(timestampMs, value);
+        if (added) {
+            writeTail();
+        }
+        return added;
+    }
+
+    /**
+     * Appends a time-ordered batch with one sync at the end. Samples not newer than the last stored
+     * sample are dropped and counted as {@code TimeSeriesStore.lateSamples}.
+     *
+     * @return Number of samples added.
+     */
+    public synchronized int append(SampleBatch batch) throws IOException {
+        int added = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            if (appendInMemory(batch.timestampAt(i), batch.valueAt(i))) {
+                added++;
+            }
+        }
+        if (added > 0) {
+            writeTail();
+        }
+        return added;
+    }
+
+    /**
+     * Visits the samples with {@code fromMs <= timestamp < toMs}. Blocks that fail their checksum
+     * or authentication are skipped and counted as {@code TimeSeriesStore.corruptBlocks}.
+     *
+     * @return Number of samples visited.
+     */
+    public synchronized int scan(long fromMs, long toMs, SampleVisitor visitor) throws IOException {
+        int visited = 0;
+        for (int i = firstBlockEndingAtOrAfter(fromMs); i < sealedBlocks && blockFirst[i] < toMs; i++) {
+            if (!readSlot(channel, blockSlot[i]) || !Block.isValid(readBlock)) {
+                CORRUPT_BLOCKS.increment();
+                Log.e(TAG, "Skipping corrupt block " + blockSlot[i] + " of " + file);
+                continue;
+            }
+            visited += scanBlock(readBlock, fromMs, toMs, visitor);
+        }
+        if (tail.count() > 0 && tail.lastTimestamp() >= fromMs && tail.firstTimestamp() < toMs) {
+            visited += scanBlock(tail.finish(), fromMs, toMs, visitor);
+        }
+        return visited;
+    }
+
+    /**
+     * Adds the samples with {@code fromMs <= timestamp < toMs} to the batch.
+     */
+    public int query(long fromMs, long toMs, SampleBatch out) throws IOException {
+        return scan(fromMs, toMs, out::add);
+    }
+
+    /** Number of stored samples. */
+    public synchronized long size() {
+        return sealedSamples + tail.count();
+    }
+
+    /** Timestamp of the newest sample, or {@link Long#MIN_VALUE} if the store is empty. */
+    public synchronized long lastTimestamp() {
+        if (tail.count() > 0) {
+            return tail.lastTimestamp();
+        }
+        return sealedBlocks > 0 ? blockLast[sealedBlocks - 1] : Long.MIN_VALUE;
+    }
+
+    /** Timestamp of the oldest sample, or {@link Long#MAX_VALUE} if the store is empty. */
+    public synchronized long firstTimestamp() {
+        if (sealedBlocks > 0) {
+            return blockFirst[0];
+        }
+        return tail.count() > 0 ? tail.firstTimestamp() : Long.MAX_VALUE;
+    }
+
+    /** Size of the backing files in bytes. */
+    public synchronized long sizeOnDisk() throws IOException {
+        return channel.size() + tailChannel.size();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            channel.close();
+        } finally {
+            tailChannel.close();
+        }
+    }
+
+    private boolean appendInMemory(long timestampMs, float value) throws IOException {
+        if (size() > 0 && timestampMs <= lastTimestamp()) {
+            LATE_SAMPLES.increment();
+            return false;
+        }
+        if (!tail.append(timestampMs, value)) {
+            sealTail();
+            tail.reset();
+            tail.append(timestampMs, value);
+        }
+        return true;
+    }
+
+    /**
+     * Appends the full tail to the file. Until it is synced, the tail file still holds the
+     * samples written before.
+     */
+    private void sealTail() throws IOException {
+        writeFully(channel, encodeTail(), (long) fileSlots * slotSize);
+        channel.force(false);
+        addSealed(tail.firstTimestamp(), tail.lastTimestamp(), tail.count(), fileSlots);
+        fileSlots++;
+    }
+
+    /**
+     * Writes the tail over the older of the two versions in the tail file.
+     */
+    private void writeTail() throws IOException {
+        int next = tailSlot ^ 1;
+        writeFully(tailChannel, encodeTail(), (long) next * slotSize);
+        tailChannel.force(false);
+        tailSlot = next;
+    }
+
+    private ByteBuffer encodeTail() throws IOException {
+        if (cipher == null) {
+            return ByteBuffer.wrap(tail.finish());
+        }
+        try {
+            EncryptedBlock.seal(cipher, tail.finish(), slot);
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Unable to encrypt block of " + file, e);
+        }
+        return ByteBuffer.wrap(slot);
+    }
+
+    private void addSealed(long first, long last, int count, int fileSlot) {
+        if (sealedBlocks == blockFirst.length) {
+            blockFirst = Arrays.copyOf(blockFirst, sealedBlocks * 2);
+            blockLast = Arrays.copyOf(blockLast, sealedBlocks * 2);
+            blockSlot = Arrays.copyOf(blockSlot, sealedBlocks * 2);
+        }
+        blockFirst[sealedBlocks] = first;
+        blockLast[sealedBlocks] = last;
+        blockSlot[sealedBlocks] = fileSlot;
+        sealedBlocks++;
+        sealedSamples += count;
+    }
+
+    private int firstBlockEndingAtOrAfter(long timestampMs) {
+        int low = 0;
+        int high = sealedBlocks;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (blockLast[mid] < timestampMs) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int scanBlock(byte[] block, long fromMs, long toMs, SampleVisitor visitor) {
+        int visited = 0;
+        reader.reset(block);
+        while (reader.next()) {
+            long timestamp = reader.timestamp();
+            if (timestamp >= toMs) {
+                break;
+            }
+            if (timestamp >= fromMs) {
+                visitor.visit(timestamp, reader.value());
+                visited++;
+            }
+        }
+        return visited;
+    }
+
+    /**
+     * Reads a slot of the file or tail file into {@link #readBlock}, decrypting it if needed.
+     *
+     * @return False if an encrypted block failed authentication.
+     */
+    private boolean readSlot(FileChannel from, long index) throws IOException {
+        slotBuffer.clear();
+        readFully(from, slotBuffer, index * slotSize);
+        return cipher == null || EncryptedBlock.open(cipher, slot, readBlock);
+    }
+
+    private static boolean isPlain(File file) throws IOException {
+        File tailFile = tailFile(file);
+        // Encrypted slots are a different size, so two plain tail slots are recognised by length
+        return hasPlainBlockAt(file, 0) || hasPlainBlockAt(tailFile, 0)
+                || (tailFile.length() == 2L * Block.SIZE && hasPlainBlockAt(tailFile, Block.SIZE));
+    }
+
+    private static boolean hasPlainBlockAt(File file, long position) throws IOException {
+        if (file.length() < position + Block.SIZE) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(4);
+            channel.read(magic, position);
+            return magic.getInt(0) == Block.MAGIC;
+        }
+    }
+
+    /**
+     * Rewrites a plain store encrypted, replacing the file once all samples are copied.
+     */
+    private static void encryptFile(File file, DataCipher cipher) throws IOException {
+        File tmp = encryptionCopy(file);
+        File tmpTail = tailFile(tmp);
+        if ((tmp.exists() && !tmp.delete()) || (tmpTail.exists() && !tmpTail.delete())) {
+            throw new IOException("Unable to delete " + tmp);
+        }
+        try (TimeSeriesStore plain = open(file, null);
+             TimeSeriesStore encrypted = open(tmp, cipher)) {
+            SampleBatch batch = new SampleBatch(COPY_BATCH);
+            plain.scan(Long.MIN_VALUE, Long.MAX_VALUE, (timestampMs, value) -> {
+                batch.add(timestampMs, value);
+                if (batch.size() == COPY_BATCH) {
+                    appendAndClear(encrypted, batch);
+                }
+            });
+            appendAndClear(encrypted, batch);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        // From here on the copy is what the store holds, even if a crash stops the renames
+        try (FileChannel marker = FileChannel.open(encryptingMarker(file).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            marker.force(true);
+        }
+        finishEncryption(file);
+    }
+
+    /**
+     * Replaces the plain file and tail with their complete encrypted copies, skipping a copy that
+     * already replaced its file, then removes the marker.
+     */
+    private static void finishEncryption(File file) throws IOException {
+        File tmp = encryptionCopy(file);
+        File tmpTail = tailFile(tmp);
+        if ((tmpTail.exists() && !tmpTail.renameTo(tailFile(file))) || (tmp.exists() && !tmp.renameTo(file))) {
+            throw new IOException("Unable to replace " + file);
+        }
+        if (!encryptingMarker(file).delete()) {
+            throw new IOException("Unable to delete " + encryptingMarker(file));
+        }
+    }
+
+    private static void appendAndClear(TimeSeriesStore store, SampleBatch batch) {
+        try {
+            store.append(batch);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        batch.clear();
+    }
+
+    private static void writeFully(FileChannel to, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += to.write(buffer, position);
+        }
+    }
+
+    private void readFully(FileChannel from, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = from.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of " + file);
+            }
+            position += read;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.healthmonitoringapp.data;
+
+/**
+ * Kinds of vital-sign samples the app records.
+ */
+public enum VitalType {
+    /** Heart rate in beats per minute. */
+    HEART_RATE,
+    /** Steps taken in the interval ending at the sample time. */
+    STEPS,
+    /** Blood oxygen saturation in percent. */
+    OXYGEN_SATURATION,
+    /**
+     * Heart rate in beats per minute from a Bluetooth strap. Kept apart from {@link #HEART_RATE},
+     * which Fit fills up to hours late: in one series, those samples would be older than the live
+     * ones and dropped.
+     */
+    STRAP_HEART_RATE;
+
+    /** Whether the type is read from Google Fit; the others are recorded on the phone. */
+    public boolean isFromFit() {
+        return this != STRAP_HEART_RATE;
+    }
+
+    /** Whether the type is a heart rate, from any source. */
+    public boolean isHeartRate() {
+        return this == HEART_RATE || this == STRAP_HEART_RATE;
+    }
+}
@@ -0,0 +1,293 @@
+package com.example.healthmonitoringapp.data;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.example.healthmonitoringapp.security.CipherProvider;
+import com.example.healthmonitoringapp.security.DataCipher;
+import com.example.healthmonitoringapp.security.KeystoreCipherProvider;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.GeneralSecurityException;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Local store for all vital-sign series, one {@link TimeSeriesStore} file per {@link VitalType}.
+ *
+ * <p>Each series also has a {@link RollupSeries} that is updated as samples are appended, so
+ * dashboards never aggregate raw samples. Rollups are saved to a snapshot file at most every
+ * {@link #SNAPSHOT_INTERVAL_MS} and on {@link #checkpoint()}; on open, only the samples newer than
+ * the snapshot are rolled up again. Series are opened on first use, so the first access to each
+ * type reads from disk.</p>
+ *
+ * <p>With a {@link CipherProvider}, samples are encrypted per block and rollup snapshots as a
+ * whole; plain files from older versions are encrypted when first opened. The id of the key is
+ * kept next to the files, and if the key changed, e.g. because the Keystore lost it, the files are
+ * moved aside before any series is opened instead of failing block by block.</p>
+ */
+public class VitalsStore implements SampleSink {
+    private static final String TAG = "VitalsStore";
+    private static final String DIRECTORY = "vitals";
+    static final String KEY_ID_FILE = "key_id";
+    private static final int ROLLUP_MAGIC = 0x524F4C31; // "ROL1"
+    private static final int ROLLUP_VERSION = 1;
+    private static final int ENCRYPTED_ROLLUP_MAGIC = 0x524F4531; // "ROE1"
+    static final long SNAPSHOT_INTERVAL_MS = TimeUnit.MINUTES.toMillis(15);
+
+    private static volatile VitalsStore instance;
+
+    private final File directory;
+    private final long zoneOffsetMs;
+    private final CipherProvider cipherProvider;
+    private final Map<VitalType, Series> series = new EnumMap<>(VitalType.class);
+    private boolean keyChecked;
+
+    VitalsStore(File directory, long zoneOffsetMs) {
+        this(directory, zoneOffsetMs, null);
+    }
+
+    /**
+     * @param cipherProvider Encrypts the files, or null to store them in plain.
+     */
+    VitalsStore(File directory, long zoneOffsetMs, CipherProvider cipherProvider) {
+        this.directory = directory;
+        this.zoneOffsetMs = zoneOffsetMs;
+        this.cipherProvider = cipherProvider;
+    }
+
+    /**
+     * Returns a singleton instance storing its files encrypted under the app's files directory,
+     * with day boundaries at local midnight.
+     */
+    public static VitalsStore getInstance(Context context) {
+        if (instance == null) {
+            synchronized (VitalsStore.class) {
+                if (instance == null) {
+                    long zoneOffsetMs = TimeZone.getDefault().getOffset(System.currentTimeMillis());
+                    Context appContext = context.getApplicationContext();
+                    instance = new VitalsStore(new File(appContext.getFilesDir(), DIRECTORY), zoneOffsetMs,
+                            KeystoreCipherProvider.getInstance(appContext));
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Returns the raw samples of a vital type, opening the series if needed. Call off the main thread.
+     */
+    public TimeSeriesStore get(VitalType type) throws IOException {
+        return open(type).samples;
+    }
+
+    /**
+     * Returns the rollups of a vital type, opening the series if needed. Call off the main thread.
+     */
+    public RollupSeries getRollups(VitalType type) throws IOException {
+        return open(type).rollups;
+    }
+
+    @Override
+    public void append(VitalType type, SampleBatch batch) throws IOException {
+        Series target = open(type);
+        synchronized (target) {
+            target.samples.append(batch);
+            for (int i = 0; i < batch.size(); i++) {
+                target.rollups.add(batch.timestampAt(i), batch.valueAt(i));
+            }
+            target.dirty = true;
+            if (System.currentTimeMillis() - target.savedAtMs >= SNAPSHOT_INTERVAL_MS) {
+                saveRollups(type, target);
+            }
+        }
+    }
+
+    /**
+     * Saves all rollups that changed since they were last saved.
+     */
+    public void checkpoint() throws IOException {
+        Map<VitalType, Series> opened;
+        synchronized (this) {
+            opened = new EnumMap<>(series);
+        }
+        for (Map.Entry<VitalType, Series> entry : opened.entrySet()) {
+            synchronized (entry.getValue()) {
+                if (entry.getValue().dirty) {
+                    saveRollups(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+    }
+
+    private synchronized Series open(VitalType type) throws IOException {
+        Series opened = series.get(type);
+        if (opened == null) {
+            String name = type.name().toLowerCase(Locale.ROOT);
+            DataCipher cipher = cipherProvider != null ? cipherProvider.getCipher() : null;
+            if (cipher != null && !keyChecked) {
+                checkKey(cipher);
+                keyChecked = true;
+            }
+            TimeSeriesStore samples = TimeSeriesStore.open(new File(directory, name + ".ts"), cipher);
+            RollupSeries rollups = loadRollups(new File(directory, name + ".rollup"), samples, cipher);
+            // Roll up what was appended after the snapshot was saved
+            long from = rollups.lastTimestamp() == Long.MIN_VALUE ? Long.MIN_VALUE : rollups.lastTimestamp() + 1;
+            int caughtUp = samples.scan(from, Long.MAX_VALUE, rollups::add);
+            opened = new Series(samples, rollups);
+            opened.dirty = caughtUp > 0;
+            series.put(type, opened);
+        }
+        return opened;
+    }
+
+    /**
+     * Moves the directory aside if its files were sealed with another key, then records the id of
+     * the current one. Files without a recorded id are taken to use the current key.
+     */
+    private void checkKey(DataCipher cipher) throws IOException {
+        String keyId;
+        try {
+            keyId = cipher.keyId();
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Unable to identify the data key", e);
+        }
+        File keyIdFile = new File(directory, KEY_ID_FILE);
+        if (keyIdFile.exists()) {
+            String storedId = new String(Files.readAllBytes(keyIdFile.toPath()), StandardCharsets.US_ASCII).trim();
+            if (storedId.equals(keyId)) {
+                return;
+            }
+            File aside = new File(directory.getParentFile(),
+                    directory.getName() + "-" + storedId + "-" + System.currentTimeMillis());
+            if (!directory.renameTo(aside)) {
+                throw new IOException("Unable to move " + directory + " aside");
+            }
+            Log.e(TAG, "Vitals were sealed with another key, moved them to " + aside);
+        }
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Unable to create " + directory);
+        }
+        File tmp = new File(keyIdFile.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            out.write(keyId.getBytes(StandardCharsets.US_ASCII));
+            out.getFD().sync();
+        }
+        if (!tmp.renameTo(keyIdFile)) {
+            tmp.delete();
+            throw new IOException("Unable to replace " + keyIdFile);
+        }
+    }
+
+    private RollupSeries loadRollups(File file, TimeSeriesStore samples, DataCipher cipher) {
+        RollupSeries rollups = null;
+        if (file.exists()) {
+            try {
+                rollups = readRollups(file, cipher);
+            } catch (IOException e) {
+                Log.e(TAG, "Unable to read " + file + ", rebuilding rollups", e);
+            }
+        }
+        if (rollups == null || rollups.getZoneOffsetMs() != zoneOffsetMs
+                || rollups.lastTimestamp() > samples.lastTimestamp()) {
+            // Missing, from another time zone, or ahead of samples lost in a crash
+            rollups = new RollupSeries(zoneOffsetMs);
+        }
+        return rollups;
+    }
+
+    private static RollupSeries readRollups(File file, DataCipher cipher) throws IOException {
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        if (bytes.length >= 4 && ByteBuffer.wrap(bytes).getInt(0) == ENCRYPTED_ROLLUP_MAGIC) {
+            if (cipher == null) {
+                throw new IOException("Encrypted rollups without a key");
+            }
+            try {
+                bytes = cipher.decrypt(bytes, 4, bytes.length - 4);
+            } catch (GeneralSecurityException e) {
+                throw new IOException("Unable to decrypt " + file, e);
+            }
+        }
+        try (CheckedInputStream checked = new CheckedInputStream(new ByteArrayInputStream(bytes), new CRC32());
+             DataInputStream in = new DataInputStream(checked)) {
+            if (in.readInt() != ROLLUP_MAGIC) {
+                throw new IOException("Not a rollup file");
+            }
+            int version = in.readInt();
+            if (version != ROLLUP_VERSION) {
+                throw new IOException("Unsupported version " + version);
+            }
+            RollupSeries rollups = RollupSeries.readFrom(in);
+            long expectedCrc = checked.getChecksum().getValue();
+            if (in.readLong() != expectedCrc) {
+                throw new IOException("Checksum mismatch");
+            }
+            return rollups;
+        }
+    }
+
+    private void saveRollups(VitalType type, Series target) throws IOException {
+        File file = new File(directory, type.name().toLowerCase(Locale.ROOT) + ".rollup");
+        File tmp = new File(file.getPath() + ".tmp");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CheckedOutputStream checked = new CheckedOutputStream(bytes, new CRC32());
+        DataOutputStream out = new DataOutputStream(checked);
+        out.writeInt(ROLLUP_MAGIC);
+        out.writeInt(ROLLUP_VERSION);
+        target.rollups.writeTo(out);
+        out.flush();
+        out.writeLong(checked.getChecksum().getValue());
+        out.flush();
+
+        try (FileOutputStream fileOut = new FileOutputStream(tmp)) {
+            if (cipherProvider != null) {
+                DataOutputStream header = new DataOutputStream(fileOut);
+                header.writeInt(ENCRYPTED_ROLLUP_MAGIC);
+                try {
+                    fileOut.write(cipherProvider.getCipher().encrypt(bytes.toByteArray()));
+                } catch (GeneralSecurityException e) {
+                    throw new IOException("Unable to encrypt " + file, e);
+                }
+            } else {
+                bytes.writeTo(fileOut);
+            }
+            fileOut.getFD().sync();
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            throw new IOException("Unable to replace " + file);
+        }
+        target.dirty = false;
+        target.savedAtMs = System.currentTimeMillis();
+    }
+
+    /**
+     * Raw samples and rollups of one vital type. Appends lock the instance.
+     */
+    private static final class Series {
+        final TimeSeriesStore samples;
+        final RollupSeries rollups;
+        boolean dirty;
+        long savedAtMs = System.currentTimeMillis();
+
+        Series(TimeSeriesStore samples, RollupSeries rollups) {
+            this.samples = samples;
+            this.rollups = rollups;
+        }
+    }
+}
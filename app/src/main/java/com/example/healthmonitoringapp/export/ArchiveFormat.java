@@ -0,0 +1,42 @@
+package com.example.healthmonitoringapp.export;
+
+import com.example.healthmonitoringapp.data.SampleCodec;
+
+/**
+ * Layout of a health archive, written by {@link HealthArchiveWriter} and read by
+ * {@link HealthArchiveReader}. All numbers are big-endian.
+ *
+ * <pre>
+ * header   := magic:i32 version:u16 flags:u16 createdAtMs:i64 crc32:i32
+ * body     := section* end      (gzip-compressed if flags has FLAG_GZIP)
+ * section  := type:u8 length:i32 payload[length] crc32:i32   (CRC over type, length and payload)
+ * profile  := count:u16 (name:utf8 value:utf8)*              (utf8 := length:u16 bytes)
+ * chunk    := vitalType:u8 count:i32 firstTimestamp:i64 timestampBytes:i32 timestamps values
+ * end      := sectionCount:i32 sampleCount:i64
+ * </pre>
+ *
+ * A chunk holds up to {@link #CHUNK_SAMPLES} samples of one vital type, column by column, each
+ * column encoded with {@link SampleCodec}. Readers skip section types they do not know, so later versions can
+ * add sections without a version bump.
+ */
+final class ArchiveFormat {
+    static final int MAGIC = 0x50475831; // "PGX1"
+    static final int VERSION = 1;
+    static final int FLAG_GZIP = 1;
+    static final int HEADER_SIZE = 4 + 2 + 2 + 8 + 4;
+
+    static final int SECTION_END = 0;
+    static final int SECTION_PROFILE = 1;
+    static final int SECTION_CHUNK = 2;
+    /** Type and length before the payload. */
+    static final int SECTION_HEADER_SIZE = 1 + 4;
+
+    static final int CHUNK_SAMPLES = 4096;
+    static final int CHUNK_HEADER_SIZE = 1 + 4 + 8 + 4;
+    /** Upper bound for any section payload; longer lengths mean a corrupt file. */
+    static final int MAX_PAYLOAD = CHUNK_HEADER_SIZE + CHUNK_SAMPLES
+            * (SampleCodec.MAX_VARINT_BYTES + SampleCodec.MAX_VALUE_BYTES);
+
+    private ArchiveFormat() {
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.healthmonitoringapp.export;
+
+import com.example.healthmonitoringapp.data.SampleBatch;
+import com.example.healthmonitoringapp.data.VitalType;
+import com.example.healthmonitoringapp.utils.UserProfile;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * Writes samples as CSV with the columns {@code timestamp,type,value}, one row per sample, for
+ * spreadsheets. Timestamps are ISO-8601 in UTC. The profile is left out, so the file can be shared
+ * without personal details.
+ */
+public class CsvExportWriter implements ExportSink {
+    private final Writer out;
+    private final StringBuilder row = new StringBuilder(64);
+
+    public CsvExportWriter(WritableByteChannel channel) throws IOException {
+        out = Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), 64 * 1024);
+        out.write("timestamp,type,value\n");
+    }
+
+    @Override
+    public void writeProfile(UserProfile profile) {
+    }
+
+    @Override
+    public void writeSamples(VitalType type, SampleBatch batch) throws IOException {
+        for (int i = 0; i < batch.size(); i++) {
+            row.setLength(0);
+            row.append(Instant.ofEpochMilli(batch.timestampAt(i))).append(',')
+                    .append(type.name()).append(',');
+            appendValue(row, batch.valueAt(i));
+            row.append('\n');
+            out.append(row);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    /**
+     * Appends whole numbers such as heart rate and steps without a trailing ".0".
+     */
+    static void appendValue(StringBuilder out, float value) {
+        if (value == (long) value) {
+            out.append((long) value);
+        } else {
+            out.append(value);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.healthmonitoringapp.export;
+
+import com.example.healthmonitoringapp.data.SampleBatch;
+import com.example.healthmonitoringapp.data.VitalType;
+import com.example.healthmonitoringapp.utils.UserProfile;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Receives a user's health history from {@link HealthArchives#export}, one format per
+ * implementation. Closing it finishes the output and closes the channel it writes to.
+ */
+public interface ExportSink extends Closeable {
+    void writeProfile(UserProfile profile) throws IOException;
+
+    /**
+     * Writes a time-ordered batch of one vital type. The batch may be reused once this returns.
+     */
+    void writeSamples(VitalType type, SampleBatch batch) throws IOException;
+}
@@ -0,0 +1,205 @@
+package com.example.healthmonitoringapp.export;
+
+import com.example.healthmonitoringapp.data.SampleBatch;
+import com.example.healthmonitoringapp.data.VitalType;
+import com.example.healthmonitoringapp.utils.UserProfile;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * Writes a FHIR R4 collection Bundle in JSON for doctors' systems: a Patient built from the
+ * profile and one Observation per sample, coded with LOINC and UCUM units, or with a data-absent
+ * reason for samples that are not finite numbers. The JSON is written as it goes instead of being
+ * built as a tree, so any amount of history fits in memory. Write the profile first; every
+ * Observation refers to the Patient.
+ */
+public class FhirExportWriter implements ExportSink {
+    private final Writer out;
+    private final String patientUrl = "urn:uuid:" + UUID.randomUUID();
+    private final StringBuilder entry = new StringBuilder(512);
+    private boolean hasEntries;
+
+    public FhirExportWriter(WritableByteChannel channel, long createdAtMs) throws IOException {
+        out = Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), 64 * 1024);
+        out.write("{\"resourceType\":\"Bundle\",\"type\":\"collection\",\"timestamp\":\""
+                + Instant.ofEpochMilli(createdAtMs) + "\",\"entry\":[");
+    }
+
+    @Override
+    public void writeProfile(UserProfile profile) throws IOException {
+        beginEntry();
+        entry.append("{\"fullUrl\":\"").append(patientUrl)
+                .append("\",\"resource\":{\"resourceType\":\"Patient\"");
+        String name = profile.get(UserProfile.Field.NAME);
+        if (!name.isEmpty()) {
+            entry.append(",\"name\":[{\"text\":");
+            appendString(entry, name);
+            entry.append("}]");
+        }
+        String email = profile.get(UserProfile.Field.EMAIL);
+        String phone = profile.get(UserProfile.Field.PHONE);
+        if (!email.isEmpty() || !phone.isEmpty()) {
+            entry.append(",\"telecom\":[");
+            if (!email.isEmpty()) {
+                entry.append("{\"system\":\"email\",\"value\":");
+                appendString(entry, email);
+                entry.append('}');
+            }
+            if (!phone.isEmpty()) {
+                if (!email.isEmpty()) {
+                    entry.append(',');
+                }
+                entry.append("{\"system\":\"phone\",\"value\":");
+                appendString(entry, phone);
+                entry.append('}');
+            }
+            entry.append(']');
+        }
+        String birthDate = toFhirDate(profile.get(UserProfile.Field.DOB));
+        if (birthDate != null) {
+            entry.append(",\"birthDate\":\"").append(birthDate).append('"');
+        }
+        String address = profile.get(UserProfile.Field.ADDRESS);
+        if (!address.isEmpty()) {
+            entry.append(",\"address\":[{\"text\":");
+            appendString(entry, address);
+            entry.append("}]");
+        }
+        entry.append("}}");
+        out.append(entry);
+    }
+
+    @Override
+    public void writeSamples(VitalType type, SampleBatch batch) throws IOException {
+        Coding coding = Coding.of(type);
+        for (int i = 0; i < batch.size(); i++) {
+            beginEntry();
+            entry.append("{\"resource\":{\"resourceType\":\"Observation\",\"status\":\"final\",")
+                    .append("\"category\":[{\"coding\":[{\"system\":")
+                    .append("\"http://terminology.hl7.org/CodeSystem/observation-category\",\"code\":\"")
+                    .append(coding.category).append("\"}]}],")
+                    .append("\"code\":{\"coding\":[{\"system\":\"http://loinc.org\",\"code\":\"")
+                    .append(coding.loinc).append("\",\"display\":\"").append(coding.display).append("\"}]},")
+                    .append("\"subject\":{\"reference\":\"").append(patientUrl).append("\"},")
+                    .append("\"effectiveDateTime\":\"").append(Instant.ofEpochMilli(batch.timestampAt(i)))
+                    .append('"');
+            float value = batch.valueAt(i);
+            if (Float.isFinite(value)) {
+                entry.append(",\"valueQuantity\":{\"value\":");
+                CsvExportWriter.appendValue(entry, value);
+                entry.append(",\"system\":\"http://unitsofmeasure.org\",\"code\":\"").append(coding.unit)
+                        .append("\"}}}");
+            } else {
+                // JSON has no NaN or infinity; a sensor fault is recorded as a reason instead
+                String reason = Float.isNaN(value) ? "not-a-number"
+                        : value > 0 ? "positive-infinity" : "negative-infinity";
+                entry.append(",\"dataAbsentReason\":{\"coding\":[{\"system\":")
+                        .append("\"http://terminology.hl7.org/CodeSystem/data-absent-reason\",\"code\":\"")
+                        .append(reason).append("\"}]}}}");
+            }
+            out.append(entry);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            out.write("\n]}\n");
+        } finally {
+            out.close();
+        }
+    }
+
+    private void beginEntry() {
+        entry.setLength(0);
+        entry.append(hasEntries ? ",\n" : "\n");
+        hasEntries = true;
+    }
+
+    /**
+     * Converts the profile's d/M/yyyy date of birth to yyyy-MM-dd, or returns null if it is
+     * missing, not in that form or not a day of the calendar.
+     */
+    static String toFhirDate(String dob) {
+        String[] parts = dob.split("/");
+        if (parts.length != 3) {
+            return null;
+        }
+        try {
+            int day = Integer.parseInt(parts[0].trim());
+            int month = Integer.parseInt(parts[1].trim());
+            int year = Integer.parseInt(parts[2].trim());
+            if (year < 1000 || year > 9999) {
+                return null;
+            }
+            return LocalDate.of(year, month, day).toString();
+        } catch (NumberFormatException | DateTimeException e) {
+            return null;
+        }
+    }
+
+    static void appendString(StringBuilder out, String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+
+    /**
+     * How each vital type is coded in an Observation.
+     */
+    private enum Coding {
+        HEART_RATE("vital-signs", "8867-4", "Heart rate", "/min"),
+        STEPS("activity", "55423-8", "Number of steps", "{steps}"),
+        OXYGEN_SATURATION("vital-signs", "59408-5", "Oxygen saturation by Pulse oximetry", "%");
+
+        final String category;
+        final String loinc;
+        final String display;
+        final String unit;
+
+        Coding(String category, String loinc, String display, String unit) {
+            this.category = category;
+            this.loinc = loinc;
+            this.display = display;
+            this.unit = unit;
+        }
+
+        static Coding of(VitalType type) {
+            return type.isHeartRate() ? HEART_RATE : valueOf(type.name());
+        }
+    }
+}
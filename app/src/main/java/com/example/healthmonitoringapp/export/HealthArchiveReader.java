@@ -0,0 +1,216 @@
+package com.example.healthmonitoringapp.export;
+
+import com.example.healthmonitoringapp.data.SampleBatch;
+import com.example.healthmonitoringapp.data.SampleCodec;
+import com.example.healthmonitoringapp.data.VitalType;
+import com.example.healthmonitoringapp.utils.UserProfile;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Streams a health archive written by {@link HealthArchiveWriter} back in, one chunk at a time.
+ * Every section is checked against its checksum before any of it is handed out, and the archive
+ * must end with the end marker and the section and sample counts it records, so a truncated or
+ * corrupted file fails with an {@link IOException}. Samples handed out before the failure are
+ * not taken back; {@link HealthArchives#importArchive} verifies the whole file first.
+ */
+public class HealthArchiveReader {
+    private static final int GZIP_BUFFER = 64 * 1024;
+
+    /**
+     * Receives the archive contents in file order.
+     */
+    public interface Handler {
+        void onProfile(UserProfile profile) throws IOException;
+
+        /**
+         * Receives up to {@link ArchiveFormat#CHUNK_SAMPLES} time-ordered samples of one type.
+         * The batch is reused for the next chunk once this returns.
+         */
+        void onSamples(VitalType type, SampleBatch batch) throws IOException;
+    }
+
+    private final ReadableByteChannel body;
+    private final long createdAtMs;
+    private final ByteBuffer section = ByteBuffer.allocate(
+            ArchiveFormat.SECTION_HEADER_SIZE + ArchiveFormat.MAX_PAYLOAD + 4);
+    private final SampleBatch batch = new SampleBatch(ArchiveFormat.CHUNK_SAMPLES);
+    private final CRC32 crc = new CRC32();
+
+    /**
+     * Reads and checks the header.
+     */
+    public HealthArchiveReader(ReadableByteChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(ArchiveFormat.HEADER_SIZE);
+        readFully(channel, header);
+        crc.reset();
+        crc.update(header.array(), 0, ArchiveFormat.HEADER_SIZE - 4);
+        if (header.getInt(0) != ArchiveFormat.MAGIC) {
+            throw new IOException("Not a health archive");
+        }
+        if (header.getInt(ArchiveFormat.HEADER_SIZE - 4) != (int) crc.getValue()) {
+            throw new IOException("Corrupt archive header");
+        }
+        int version = header.getShort(4) & 0xFFFF;
+        if (version > ArchiveFormat.VERSION) {
+            throw new IOException("Unsupported archive version " + version);
+        }
+        int flags = header.getShort(6) & 0xFFFF;
+        createdAtMs = header.getLong(8);
+        body = (flags & ArchiveFormat.FLAG_GZIP) != 0
+                ? Channels.newChannel(new GZIPInputStream(Channels.newInputStream(channel), GZIP_BUFFER))
+                : channel;
+    }
+
+    public long getCreatedAtMs() {
+        return createdAtMs;
+    }
+
+    /**
+     * Reads the rest of the archive into the handler. Does not close the channel.
+     *
+     * @return Number of samples in the archive.
+     */
+    public long read(Handler handler) throws IOException {
+        int sections = 0;
+        long samples = 0;
+        while (true) {
+            int type = readSection();
+            if (type == ArchiveFormat.SECTION_END) {
+                if (section.remaining() != 4 + 8
+                        || section.getInt() != sections || section.getLong() != samples) {
+                    throw new IOException("Archive does not match its end marker");
+                }
+                return samples;
+            }
+            if (type == ArchiveFormat.SECTION_PROFILE) {
+                handler.onProfile(readProfile());
+            } else if (type == ArchiveFormat.SECTION_CHUNK) {
+                samples += readChunk(handler);
+            }
+            // Unknown sections are skipped
+            sections++;
+        }
+    }
+
+    /**
+     * Reads one section and checks its checksum.
+     *
+     * @return The section type, with {@link #section} positioned at the start of the payload and
+     *         limited to its end.
+     */
+    private int readSection() throws IOException {
+        section.clear().limit(ArchiveFormat.SECTION_HEADER_SIZE);
+        readFully(body, section);
+        int type = section.get(0) & 0xFF;
+        int length = section.getInt(1);
+        if (length < 0 || length > ArchiveFormat.MAX_PAYLOAD) {
+            throw new IOException("Corrupt section length " + length);
+        }
+        int end = ArchiveFormat.SECTION_HEADER_SIZE + length;
+        section.limit(end + 4);
+        readFully(body, section);
+        crc.reset();
+        crc.update(section.array(), 0, end);
+        if (section.getInt(end) != (int) crc.getValue()) {
+            throw new IOException("Checksum mismatch in section " + type);
+        }
+        section.position(ArchiveFormat.SECTION_HEADER_SIZE).limit(end);
+        return type;
+    }
+
+    private UserProfile readProfile() throws IOException {
+        UserProfile profile = UserProfile.EMPTY;
+        int count = getUnsignedShort();
+        for (int i = 0; i < count; i++) {
+            String name = getString();
+            String value = getString();
+            UserProfile.Field field = fieldNamed(name);
+            // Fields added by later versions are dropped
+            if (field != null) {
+                profile = profile.with(field, value);
+            }
+        }
+        return profile;
+    }
+
+    private int readChunk(Handler handler) throws IOException {
+        if (section.remaining() < ArchiveFormat.CHUNK_HEADER_SIZE) {
+            throw new IOException("Corrupt chunk");
+        }
+        int typeIndex = section.get() & 0xFF;
+        int count = section.getInt();
+        long timestamp = section.getLong();
+        int timestampBytes = section.getInt();
+        if (count <= 0 || count > ArchiveFormat.CHUNK_SAMPLES
+                || timestampBytes < 0 || timestampBytes > section.remaining()) {
+            throw new IOException("Corrupt chunk");
+        }
+        VitalType[] types = VitalType.values();
+        if (typeIndex >= types.length) {
+            // A vital type added by a later version; counted but not read
+            return count;
+        }
+
+        ByteBuffer timestamps = section.slice();
+        timestamps.limit(timestampBytes);
+        section.position(section.position() + timestampBytes);
+        long delta = 0;
+        int valueBits = 0;
+        batch.clear();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                delta += SampleCodec.unzigzag(SampleCodec.getVarint(timestamps));
+                timestamp += delta;
+            }
+            valueBits = SampleCodec.getValue(section, valueBits);
+            batch.add(timestamp, Float.intBitsToFloat(valueBits));
+        }
+        if (timestamps.hasRemaining() || section.hasRemaining()) {
+            throw new IOException("Corrupt chunk");
+        }
+        handler.onSamples(types[typeIndex], batch);
+        return count;
+    }
+
+    private int getUnsignedShort() throws IOException {
+        if (section.remaining() < 2) {
+            throw new IOException("Corrupt profile");
+        }
+        return section.getShort() & 0xFFFF;
+    }
+
+    private String getString() throws IOException {
+        int length = getUnsignedShort();
+        if (length > section.remaining()) {
+            throw new IOException("Corrupt profile");
+        }
+        String value = new String(section.array(), section.position(), length, StandardCharsets.UTF_8);
+        section.position(section.position() + length);
+        return value;
+    }
+
+    private static UserProfile.Field fieldNamed(String name) {
+        for (UserProfile.Field field : UserProfile.Field.values()) {
+            if (field.name().equals(name)) {
+                return field;
+            }
+        }
+        return null;
+    }
+
+    private static void readFully(ReadableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Truncated archive");
+            }
+        }
+    }
+}
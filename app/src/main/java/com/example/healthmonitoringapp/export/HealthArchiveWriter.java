@@ -0,0 +1,186 @@
+package com.example.healthmonitoringapp.export;
+
+import com.example.healthmonitoringapp.data.SampleBatch;
+import com.example.healthmonitoringapp.data.SampleCodec;
+import com.example.healthmonitoringapp.data.VitalType;
+import com.example.healthmonitoringapp.utils.UserProfile;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes the compact binary archive described in {@link ArchiveFormat}. Samples are buffered one
+ * chunk at a time, so memory use does not depend on how much history is written.
+ */
+public class HealthArchiveWriter implements ExportSink {
+    private static final int GZIP_BUFFER = 64 * 1024;
+
+    private final WritableByteChannel body;
+    private final ByteBuffer section = ByteBuffer.allocate(
+            ArchiveFormat.SECTION_HEADER_SIZE + ArchiveFormat.MAX_PAYLOAD + 4);
+    private final ByteBuffer timestamps = ByteBuffer.allocate(ArchiveFormat.CHUNK_SAMPLES * 10);
+    private final ByteBuffer values = ByteBuffer.allocate(ArchiveFormat.CHUNK_SAMPLES * 5);
+    private final CRC32 crc = new CRC32();
+    private int sections;
+    private long samples;
+    private boolean closed;
+
+    // The chunk being filled
+    private VitalType chunkType;
+    private int chunkCount;
+    private long firstTimestamp;
+    private long previousTimestamp;
+    private long previousDelta;
+    private int previousValueBits;
+
+    /**
+     * Writes the header right away.
+     *
+     * @param compress Compresses everything after the header with gzip.
+     */
+    public HealthArchiveWriter(WritableByteChannel channel, boolean compress, long createdAtMs) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(ArchiveFormat.HEADER_SIZE);
+        header.putInt(ArchiveFormat.MAGIC)
+                .putShort((short) ArchiveFormat.VERSION)
+                .putShort((short) (compress ? ArchiveFormat.FLAG_GZIP : 0))
+                .putLong(createdAtMs);
+        crc.reset();
+        crc.update(header.array(), 0, header.position());
+        header.putInt((int) crc.getValue());
+        header.flip();
+        writeFully(channel, header);
+        body = compress
+                ? Channels.newChannel(new GZIPOutputStream(Channels.newOutputStream(channel), GZIP_BUFFER))
+                : channel;
+    }
+
+    /**
+     * @throws IOException If a value is longer than 65,535 bytes in UTF-8 or the whole profile
+     *                     does not fit in one section; nothing is written then.
+     */
+    @Override
+    public void writeProfile(UserProfile profile) throws IOException {
+        UserProfile.Field[] fields = UserProfile.Field.values();
+        byte[][] strings = new byte[fields.length * 2][];
+        int length = 2;
+        for (int i = 0; i < fields.length; i++) {
+            strings[2 * i] = fields[i].name().getBytes(StandardCharsets.UTF_8);
+            strings[2 * i + 1] = profile.get(fields[i]).getBytes(StandardCharsets.UTF_8);
+            if (strings[2 * i + 1].length > 0xFFFF) {
+                throw new IOException("Profile field " + fields[i] + " is " + strings[2 * i + 1].length
+                        + " bytes, more than an archive holds");
+            }
+            length += 2 + strings[2 * i].length + 2 + strings[2 * i + 1].length;
+        }
+        if (length > ArchiveFormat.MAX_PAYLOAD) {
+            throw new IOException("Profile is " + length + " bytes, more than the "
+                    + ArchiveFormat.MAX_PAYLOAD + " an archive holds");
+        }
+
+        flushChunk();
+        ByteBuffer payload = beginSection(ArchiveFormat.SECTION_PROFILE);
+        payload.putShort((short) fields.length);
+        for (byte[] string : strings) {
+            payload.putShort((short) string.length).put(string);
+        }
+        endSection();
+    }
+
+    @Override
+    public void writeSamples(VitalType type, SampleBatch batch) throws IOException {
+        if (type != chunkType) {
+            flushChunk();
+            chunkType = type;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            if (chunkCount == ArchiveFormat.CHUNK_SAMPLES) {
+                flushChunk();
+            }
+            append(batch.timestampAt(i), batch.valueAt(i));
+        }
+    }
+
+    /**
+     * Writes the remaining samples and the end marker, then closes the channel.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            flushChunk();
+            ByteBuffer payload = beginSection(ArchiveFormat.SECTION_END);
+            payload.putInt(sections).putLong(samples);
+            endSection();
+        } finally {
+            // Also finishes the gzip stream
+            body.close();
+        }
+    }
+
+    private void append(long timestamp, float value) {
+        int valueBits = Float.floatToRawIntBits(value);
+        if (chunkCount == 0) {
+            firstTimestamp = timestamp;
+            previousDelta = 0;
+            previousValueBits = 0;
+        } else {
+            long delta = timestamp - previousTimestamp;
+            SampleCodec.putVarint(timestamps, SampleCodec.zigzag(delta - previousDelta));
+            previousDelta = delta;
+        }
+        SampleCodec.putValue(values, valueBits, previousValueBits);
+        previousTimestamp = timestamp;
+        previousValueBits = valueBits;
+        chunkCount++;
+    }
+
+    private void flushChunk() throws IOException {
+        if (chunkCount == 0) {
+            return;
+        }
+        ByteBuffer payload = beginSection(ArchiveFormat.SECTION_CHUNK);
+        timestamps.flip();
+        values.flip();
+        payload.put((byte) chunkType.ordinal())
+                .putInt(chunkCount)
+                .putLong(firstTimestamp)
+                .putInt(timestamps.remaining())
+                .put(timestamps)
+                .put(values);
+        endSection();
+        samples += chunkCount;
+        chunkCount = 0;
+        timestamps.clear();
+        values.clear();
+    }
+
+    private ByteBuffer beginSection(int type) {
+        section.clear();
+        section.put((byte) type).putInt(0);
+        return section;
+    }
+
+    private void endSection() throws IOException {
+        section.putInt(1, section.position() - ArchiveFormat.SECTION_HEADER_SIZE);
+        crc.reset();
+        crc.update(section.array(), 0, section.position());
+        section.putInt((int) crc.getValue());
+        section.flip();
+        writeFully(body, section);
+        sections++;
+    }
+
+    private static void writeFully(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
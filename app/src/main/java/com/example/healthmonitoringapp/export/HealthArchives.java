@@ -0,0 +1,98 @@
+package com.example.healthmonitoringapp.export;
+
+import com.example.healthmonitoringapp.data.SampleBatch;
+import com.example.healthmonitoringapp.data.SampleSink;
+import com.example.healthmonitoringapp.data.SeriesProvider;
+import com.example.healthmonitoringapp.data.TimeSeriesStore;
+import com.example.healthmonitoringapp.data.VitalType;
+import com.example.healthmonitoringapp.utils.UserProfile;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exports a user's health history for sharing or backup, and imports a backup again. Both
+ * directions stream: the stores are read one window at a time and archives one chunk at a time,
+ * so memory use stays flat however much history there is. Both block, so call them off the main
+ * thread.
+ */
+public final class HealthArchives {
+    /**
+     * Span read from a store at once. The store is locked while a window is read, so recording
+     * continues between windows.
+     */
+    static final long WINDOW_MS = TimeUnit.HOURS.toMillis(1);
+
+    private HealthArchives() {
+    }
+
+    /**
+     * Writes the profile and the samples with {@code fromMs <= timestamp < toMs} to the sink, one
+     * vital type after the other, then closes the sink.
+     *
+     * @return Number of samples written.
+     */
+    public static long export(SeriesProvider series, UserProfile profile, long fromMs, long toMs,
+                              ExportSink sink) throws IOException {
+        long written = 0;
+        try (ExportSink out = sink) {
+            out.writeProfile(profile);
+            SampleBatch batch = new SampleBatch(4096);
+            for (VitalType type : VitalType.values()) {
+                TimeSeriesStore store = series.get(type);
+                // Skip the empty stretches before the first and after the last sample
+                long start = Math.max(fromMs, store.firstTimestamp());
+                long end = Math.min(toMs, store.lastTimestamp() + 1);
+                for (long windowStart = start; windowStart < end; windowStart += WINDOW_MS) {
+                    batch.clear();
+                    store.query(windowStart, Math.min(windowStart + WINDOW_MS, end), batch);
+                    if (batch.size() > 0) {
+                        out.writeSamples(type, batch);
+                        written += batch.size();
+                    }
+                }
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Checks the whole archive first, then appends its samples to the sink, so a damaged file
+     * imports nothing. Samples not newer than what the sink already holds are dropped by the sink,
+     * so a backup is meant to be restored onto an empty store.
+     *
+     * @return The profile stored in the archive, or {@link UserProfile#EMPTY} if it has none.
+     */
+    public static UserProfile importArchive(File file, SampleSink sink) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            new HealthArchiveReader(channel).read(new HealthArchiveReader.Handler() {
+                @Override
+                public void onProfile(UserProfile profile) {
+                }
+
+                @Override
+                public void onSamples(VitalType type, SampleBatch batch) {
+                }
+            });
+        }
+
+        UserProfile[] profile = {UserProfile.EMPTY};
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            new HealthArchiveReader(channel).read(new HealthArchiveReader.Handler() {
+                @Override
+                public void onProfile(UserProfile stored) {
+                    profile[0] = stored;
+                }
+
+                @Override
+                public void onSamples(VitalType type, SampleBatch batch) throws IOException {
+                    sink.append(type, batch);
+                }
+            });
+        }
+        return profile[0];
+    }
+}
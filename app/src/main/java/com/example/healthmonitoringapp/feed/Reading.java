@@ -0,0 +1,25 @@
+package com.example.healthmonitoringapp.feed;
+
+import com.example.healthmonitoringapp.data.VitalType;
+
+/**
+ * One row of the readings feed. Mutable and reused by {@link ReadingPager#get} so binding rows
+ * does not allocate.
+ */
+public final class Reading {
+    long timestampMs;
+    float value;
+    VitalType type;
+
+    public long getTimestampMs() {
+        return timestampMs;
+    }
+
+    public float getValue() {
+        return value;
+    }
+
+    public VitalType getType() {
+        return type;
+    }
+}
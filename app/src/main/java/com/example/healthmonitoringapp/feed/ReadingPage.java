@@ -0,0 +1,72 @@
+package com.example.healthmonitoringapp.feed;
+
+import com.example.healthmonitoringapp.data.VitalType;
+
+/**
+ * Fixed-capacity run of readings in feed order, newest first, held in primitive arrays. Pages are
+ * pooled by {@link ReadingPager}, so scrolling through any amount of history reuses the same few.
+ */
+public final class ReadingPage {
+    private final long[] timestamps;
+    private final float[] values;
+    private final VitalType[] types;
+    private int size;
+
+    public ReadingPage(int capacity) {
+        timestamps = new long[capacity];
+        values = new float[capacity];
+        types = new VitalType[capacity];
+    }
+
+    public void add(long timestampMs, float value, VitalType type) {
+        timestamps[size] = timestampMs;
+        values[size] = value;
+        types[size] = type;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return timestamps.length;
+    }
+
+    public boolean isFull() {
+        return size == timestamps.length;
+    }
+
+    public long timestampAt(int index) {
+        return timestamps[index];
+    }
+
+    public float valueAt(int index) {
+        return values[index];
+    }
+
+    public VitalType typeAt(int index) {
+        return types[index];
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Reverses the order, for sources that collect oldest first.
+     */
+    public void reverse() {
+        for (int i = 0, j = size - 1; i < j; i++, j--) {
+            long timestamp = timestamps[i];
+            timestamps[i] = timestamps[j];
+            timestamps[j] = timestamp;
+            float value = values[i];
+            values[i] = values[j];
+            values[j] = value;
+            VitalType type = types[i];
+            types[i] = types[j];
+            types[j] = type;
+        }
+    }
+}
@@ -0,0 +1,369 @@
+package com.example.healthmonitoringapp.feed;
+
+import android.util.Log;
+
+import androidx.recyclerview.widget.ListUpdateCallback;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Pages readings from a {@link ReadingSource} into a list of every reading ever stored, newest
+ * first, holding only a window of a few pages around the rows being shown.
+ *
+ * <p>The list has its full size from the first load: rows outside the window are placeholders.
+ * Binding a row within {@link #PREFETCH_DISTANCE} of either edge of the window loads the next page
+ * on that side, keyed by the reading at the edge, and once the window exceeds {@link #MAX_PAGES}
+ * the page farthest away is dropped back to placeholders. Pages are pooled, so scrolling through
+ * any number of rows allocates nothing that stays reachable.</p>
+ *
+ * <p>Readings stored later, e.g. live samples, are counted by {@link #refresh()} and inserted at
+ * the top as one range. Every change is reported to the {@link ListUpdateCallback} as the exact
+ * rows inserted, removed or filled in, so nothing else is rebound and no list is diffed.</p>
+ *
+ * <p>Not thread-safe: call it on the thread behind the main executor. Loads run one at a time on
+ * the loader executor, by default a thread of the pager's own that {@link #close()} stops.</p>
+ */
+public class ReadingPager {
+    private static final String TAG = "ReadingPager";
+    static final int PAGE_SIZE = 50;
+    static final int PREFETCH_DISTANCE = PAGE_SIZE;
+    /** Pages held at most; a few screens of rows. */
+    static final int MAX_PAGES = 8;
+    /** Key above every reading. */
+    private static final long NEWEST = Long.MAX_VALUE;
+    private static final int NO_TYPE = -1;
+
+    private final ReadingSource source;
+    private final Executor loader;
+    private final Executor main;
+    // Shut down on close; null if the loader was passed in
+    private final ExecutorService ownLoader;
+    private ListUpdateCallback callback;
+
+    private final ArrayDeque<ReadingPage> pages = new ArrayDeque<>();
+    private final ArrayDeque<ReadingPage> pool = new ArrayDeque<>();
+    private boolean started;
+    private int count;
+    // Position of the first row in the window, i.e. the number of placeholders before it
+    private int windowStart;
+    private int windowSize;
+    // Key of the newest reading counted, so a refresh counts only what is newer
+    private long newestTimestampMs = Long.MIN_VALUE;
+    private int newestType = NO_TYPE;
+    private int lastAccessed;
+    private boolean loading;
+    private boolean refreshPending;
+    private boolean failed;
+    private boolean closed;
+
+    /**
+     * Loads on a background thread of its own until {@link #close()}.
+     *
+     * @param main Runs updates on the thread the pager is used on.
+     */
+    public ReadingPager(ReadingSource source, Executor main) {
+        this(source, Executors.newSingleThreadExecutor(), main, true);
+    }
+
+    ReadingPager(ReadingSource source, Executor loader, Executor main) {
+        this(source, loader, main, false);
+    }
+
+    private ReadingPager(ReadingSource source, Executor loader, Executor main, boolean ownsLoader) {
+        this.source = source;
+        this.loader = loader;
+        this.main = main;
+        this.ownLoader = ownsLoader ? (ExecutorService) loader : null;
+        for (int i = 0; i <= MAX_PAGES; i++) {
+            pool.add(new ReadingPage(PAGE_SIZE));
+        }
+    }
+
+    public void setUpdateCallback(ListUpdateCallback callback) {
+        this.callback = callback;
+    }
+
+    /**
+     * Number of rows, loaded or not.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Fills {@code out} with the reading at the position if it is loaded, and loads the pages
+     * around the position if needed.
+     *
+     * @return False if the row is a placeholder for now.
+     */
+    public boolean get(int position, Reading out) {
+        lastAccessed = position;
+        loadAround();
+        if (position < windowStart || position >= windowStart + windowSize) {
+            return false;
+        }
+        int index = position - windowStart;
+        for (ReadingPage page : pages) {
+            if (index < page.size()) {
+                out.timestampMs = page.timestampAt(index);
+                out.value = page.valueAt(index);
+                out.type = page.typeAt(index);
+                return true;
+            }
+            index -= page.size();
+        }
+        return false;
+    }
+
+    /**
+     * Loads the first page on the first call; afterwards inserts the readings stored since the
+     * last refresh at the top. Also retries after a failed load.
+     */
+    public void refresh() {
+        failed = false;
+        if (closed) {
+            return;
+        }
+        if (loading) {
+            refreshPending = true;
+            return;
+        }
+        loading = true;
+        ReadingPage page = takePage();
+        long afterTimestampMs = newestTimestampMs;
+        int afterType = newestType;
+        loader.execute(() -> {
+            long added;
+            try {
+                // The newest page first, so the count cannot include readings stored after it
+                source.loadOlder(NEWEST, Integer.MAX_VALUE, page);
+                added = page.size() == 0 ? 0 : source.countBetween(afterTimestampMs, afterType,
+                        page.timestampAt(0), page.typeAt(0).ordinal());
+            } catch (IOException e) {
+                Log.e(TAG, "Unable to refresh readings", e);
+                page.clear();
+                added = -1;
+            }
+            long result = added;
+            main.execute(() -> onRefreshed(page, result));
+        });
+    }
+
+    private void onRefreshed(ReadingPage newest, long added) {
+        loading = false;
+        if (closed || added < 0) {
+            failed = true;
+            release(newest);
+            return;
+        }
+        if (added > 0) {
+            // The first refresh inserts every row, later ones the rows stored since
+            int inserted = (int) Math.min(added, Integer.MAX_VALUE - count);
+            newestTimestampMs = newest.timestampAt(0);
+            newestType = newest.typeAt(0).ordinal();
+            count += inserted;
+            windowStart += inserted;
+            dispatchInserted(0, inserted);
+        }
+        started = true;
+        if (windowSize == 0 && newest.size() > 0) {
+            // Nothing loaded yet, e.g. the store was empty before: show the newest page
+            pages.add(newest);
+            windowStart = 0;
+            windowSize = newest.size();
+            dispatchChanged(0, windowSize);
+        } else {
+            release(newest);
+        }
+        loadAround();
+    }
+
+    /**
+     * Starts loading the page next to the window on the side of the last accessed row, if that
+     * row is near or beyond the edge.
+     */
+    private void loadAround() {
+        if (loading || closed) {
+            return;
+        }
+        if (refreshPending) {
+            refreshPending = false;
+            refresh();
+            return;
+        }
+        if (failed || !started || windowSize == 0) {
+            return;
+        }
+        int windowEnd = windowStart + windowSize;
+        if (lastAccessed >= windowEnd - PREFETCH_DISTANCE && windowEnd < count) {
+            loadOlder();
+        } else if (lastAccessed < windowStart + PREFETCH_DISTANCE && windowStart > 0) {
+            loadNewer();
+        }
+    }
+
+    private void loadOlder() {
+        loading = true;
+        ReadingPage last = pages.getLast();
+        long timestampMs = last.timestampAt(last.size() - 1);
+        int type = last.typeAt(last.size() - 1).ordinal();
+        ReadingPage page = takePage();
+        loader.execute(() -> {
+            boolean loaded = load(page, timestampMs, type, true);
+            main.execute(() -> onOlderLoaded(page, loaded));
+        });
+    }
+
+    private void loadNewer() {
+        loading = true;
+        ReadingPage first = pages.getFirst();
+        long timestampMs = first.timestampAt(0);
+        int type = first.typeAt(0).ordinal();
+        ReadingPage page = takePage();
+        loader.execute(() -> {
+            boolean loaded = load(page, timestampMs, type, false);
+            main.execute(() -> onNewerLoaded(page, loaded));
+        });
+    }
+
+    /**
+     * Runs on the loader thread.
+     */
+    private boolean load(ReadingPage page, long timestampMs, int type, boolean older) {
+        try {
+            if (older) {
+                source.loadOlder(timestampMs, type, page);
+            } else {
+                source.loadNewer(timestampMs, type, page);
+            }
+            return true;
+        } catch (IOException e) {
+            Log.e(TAG, "Unable to load readings", e);
+            page.clear();
+            return false;
+        }
+    }
+
+    private void onOlderLoaded(ReadingPage page, boolean loaded) {
+        loading = false;
+        if (closed || !loaded) {
+            failed = true;
+            release(page);
+            return;
+        }
+        int windowEnd = windowStart + windowSize;
+        int size = page.size();
+        if (size == 0) {
+            release(page);
+            if (windowEnd < count) {
+                // Counted more than there are; only if readings were removed behind our back
+                dispatchRemoved(windowEnd, count - windowEnd);
+                count = windowEnd;
+            }
+        } else {
+            int placeholders = Math.min(size, count - windowEnd);
+            pages.addLast(page);
+            windowSize += size;
+            dispatchChanged(windowEnd, placeholders);
+            if (placeholders < size) {
+                count += size - placeholders;
+                dispatchInserted(windowEnd + placeholders, size - placeholders);
+            }
+            while (pages.size() > MAX_PAGES) {
+                ReadingPage dropped = pages.removeFirst();
+                windowStart += dropped.size();
+                windowSize -= dropped.size();
+                dispatchChanged(windowStart - dropped.size(), dropped.size());
+                release(dropped);
+            }
+        }
+        loadAround();
+    }
+
+    private void onNewerLoaded(ReadingPage page, boolean loaded) {
+        loading = false;
+        if (closed || !loaded) {
+            failed = true;
+            release(page);
+            return;
+        }
+        int size = page.size();
+        if (size == 0) {
+            release(page);
+            if (windowStart > 0) {
+                dispatchRemoved(0, windowStart);
+                count -= windowStart;
+                windowStart = 0;
+            }
+        } else {
+            int placeholders = Math.min(size, windowStart);
+            if (placeholders < size) {
+                // Newer than the last refresh counted; goes in above the placeholders
+                count += size - placeholders;
+                windowStart += size - placeholders;
+                dispatchInserted(0, size - placeholders);
+            }
+            pages.addFirst(page);
+            windowStart -= size;
+            windowSize += size;
+            dispatchChanged(windowStart + size - placeholders, placeholders);
+            while (pages.size() > MAX_PAGES) {
+                ReadingPage dropped = pages.removeLast();
+                windowSize -= dropped.size();
+                dispatchChanged(windowStart + windowSize, dropped.size());
+                release(dropped);
+            }
+        }
+        loadAround();
+    }
+
+    /**
+     * Stops loading, e.g. when the screen showing the list is destroyed. A load in progress still
+     * finishes but changes nothing; rows loaded so far stay readable.
+     */
+    public void close() {
+        closed = true;
+        if (ownLoader != null) {
+            ownLoader.shutdown();
+        }
+    }
+
+    private ReadingPage takePage() {
+        ReadingPage page = pool.poll();
+        return page != null ? page : new ReadingPage(PAGE_SIZE);
+    }
+
+    private void release(ReadingPage page) {
+        page.clear();
+        if (pool.size() <= MAX_PAGES) {
+            pool.add(page);
+        }
+    }
+
+    /** Number of pages held, for tests. */
+    int pagesHeld() {
+        return pages.size();
+    }
+
+    private void dispatchInserted(int position, int rows) {
+        if (callback != null && rows > 0) {
+            callback.onInserted(position, rows);
+        }
+    }
+
+    private void dispatchRemoved(int position, int rows) {
+        if (callback != null && rows > 0) {
+            callback.onRemoved(position, rows);
+        }
+    }
+
+    private void dispatchChanged(int position, int rows) {
+        if (callback != null && rows > 0) {
+            callback.onChanged(position, rows, null);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.healthmonitoringapp.feed;
+
+import java.io.IOException;
+
+/**
+ * Keyset-paged access to the readings shown in the feed. Readings are ordered by the key
+ * (timestamp, type ordinal), newest first; the key of a reading is unique because a series never
+ * holds two samples with the same timestamp. Pages are addressed by the key of the reading next to
+ * them rather than by offset, so loading page n does not skip over n pages, and readings appended
+ * meanwhile do not shift what a key refers to. Called on one background thread.
+ */
+public interface ReadingSource {
+    /**
+     * Fills the page with the newest readings whose key is below the given one, newest first.
+     * Pass {@link Long#MAX_VALUE} to start from the newest reading.
+     */
+    void loadOlder(long timestampMs, int typeOrdinal, ReadingPage out) throws IOException;
+
+    /**
+     * Fills the page with the oldest readings whose key is above the given one, newest first, so
+     * the page goes right before the reading with the given key.
+     */
+    void loadNewer(long timestampMs, int typeOrdinal, ReadingPage out) throws IOException;
+
+    /**
+     * Counts the readings with a key above {@code after} and at most {@code upTo}. Pass
+     * {@link Long#MIN_VALUE} as {@code afterTimestampMs} to count from the oldest reading.
+     */
+    long countBetween(long afterTimestampMs, int afterTypeOrdinal, long upToTimestampMs, int upToTypeOrdinal)
+            throws IOException;
+}
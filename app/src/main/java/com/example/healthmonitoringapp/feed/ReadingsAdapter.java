@@ -0,0 +1,78 @@
+package com.example.healthmonitoringapp.feed;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AdapterListUpdateCallback;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.healthmonitoringapp.R;
+
+import java.text.DateFormat;
+import java.util.Date;
+
+/**
+ * Shows the rows of a {@link ReadingPager}; rows not loaded yet are bound blank and rebound when
+ * their page arrives.
+ */
+public class ReadingsAdapter extends RecyclerView.Adapter<ReadingsAdapter.ViewHolder> {
+    private final ReadingPager pager;
+    private final Reading reading = new Reading();
+    private final DateFormat timeFormat = DateFormat.getDateTimeInstance(DateFormat.MEDIUM, DateFormat.SHORT);
+    private final Date date = new Date();
+
+    public ReadingsAdapter(ReadingPager pager) {
+        this.pager = pager;
+        pager.setUpdateCallback(new AdapterListUpdateCallback(this));
+    }
+
+    @Override
+    public int getItemCount() {
+        return pager.getCount();
+    }
+
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_reading, parent, false);
+        return new ViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        if (!pager.get(position, reading)) {
+            holder.time.setText(null);
+            holder.value.setText(null);
+            return;
+        }
+        date.setTime(reading.getTimestampMs());
+        holder.time.setText(timeFormat.format(date));
+        holder.value.setText(holder.itemView.getContext().getString(valueText(reading),
+                Math.round(reading.getValue())));
+    }
+
+    private static int valueText(Reading reading) {
+        switch (reading.getType()) {
+            case STEPS:
+                return R.string.reading_steps;
+            case OXYGEN_SATURATION:
+                return R.string.reading_oxygen_saturation;
+            default:
+                return R.string.reading_heart_rate;
+        }
+    }
+
+    static final class ViewHolder extends RecyclerView.ViewHolder {
+        final TextView time;
+        final TextView value;
+
+        ViewHolder(View itemView) {
+            super(itemView);
+            time = itemView.findViewById(R.id.reading_time);
+            value = itemView.findViewById(R.id.reading_value);
+        }
+    }
+}
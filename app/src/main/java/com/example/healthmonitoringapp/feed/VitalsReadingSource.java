@@ -0,0 +1,243 @@
+package com.example.healthmonitoringapp.feed;
+
+import com.example.healthmonitoringapp.data.SeriesProvider;
+import com.example.healthmonitoringapp.data.TimeSeriesStore;
+import com.example.healthmonitoringapp.data.VitalType;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Readings of every vital type from the local stores, merged into one feed.
+ *
+ * <p>A store can only scan forward over a time range, so a page is found by scanning a window next
+ * to the key in each store, sized from the store's average sample rate, and widening it fourfold
+ * until it holds a page of samples or reaches the end of the store. Only one page per type is
+ * kept while scanning, however many samples a window holds, so memory use is fixed by the page
+ * size. Not thread-safe; the pager calls it on its loader thread.</p>
+ */
+public class VitalsReadingSource implements ReadingSource {
+    private static final long MIN_WINDOW_MS = TimeUnit.MINUTES.toMillis(1);
+    /** Beyond this the whole rest of the store is scanned. */
+    private static final long MAX_WINDOW_MS = Long.MAX_VALUE / 8;
+    private static final TimeSeriesStore.SampleVisitor IGNORE = (timestampMs, value) -> { };
+
+    private final SeriesProvider series;
+    private final VitalType[] types = VitalType.values();
+    private final Run[] runs = new Run[types.length];
+    private final int[] cursors = new int[types.length];
+
+    public VitalsReadingSource(SeriesProvider series) {
+        this.series = series;
+        for (int i = 0; i < runs.length; i++) {
+            runs[i] = new Run();
+        }
+    }
+
+    @Override
+    public void loadOlder(long timestampMs, int typeOrdinal, ReadingPage out) throws IOException {
+        out.clear();
+        for (VitalType type : types) {
+            // Same timestamp counts as older for types ordered before the key's type
+            long toMs = type.ordinal() < typeOrdinal ? plusOne(timestampMs) : timestampMs;
+            Run run = runs[type.ordinal()];
+            run.reset(out.capacity(), true);
+            collectBefore(series.get(type), toMs, run);
+            cursors[type.ordinal()] = run.size - 1;
+        }
+        // Merge, newest key first
+        while (!out.isFull()) {
+            int next = -1;
+            for (int t = 0; t < types.length; t++) {
+                if (cursors[t] >= 0 && (next < 0
+                        || runs[t].timestamps[cursors[t]] >= runs[next].timestamps[cursors[next]])) {
+                    next = t;
+                }
+            }
+            if (next < 0) {
+                return;
+            }
+            out.add(runs[next].timestamps[cursors[next]], runs[next].values[cursors[next]], types[next]);
+            cursors[next]--;
+        }
+    }
+
+    @Override
+    public void loadNewer(long timestampMs, int typeOrdinal, ReadingPage out) throws IOException {
+        out.clear();
+        for (VitalType type : types) {
+            // Same timestamp counts as newer for types ordered after the key's type
+            long fromMs = type.ordinal() > typeOrdinal ? timestampMs : plusOne(timestampMs);
+            Run run = runs[type.ordinal()];
+            run.reset(out.capacity(), false);
+            collectFrom(series.get(type), fromMs, run);
+            cursors[type.ordinal()] = 0;
+        }
+        // Merge, oldest key first, then turn around
+        while (!out.isFull()) {
+            int next = -1;
+            for (int t = 0; t < types.length; t++) {
+                if (cursors[t] < runs[t].size && (next < 0
+                        || runs[t].timestamps[cursors[t]] < runs[next].timestamps[cursors[next]])) {
+                    next = t;
+                }
+            }
+            if (next < 0) {
+                break;
+            }
+            out.add(runs[next].timestamps[cursors[next]], runs[next].values[cursors[next]], types[next]);
+            cursors[next]++;
+        }
+        out.reverse();
+    }
+
+    @Override
+    public long countBetween(long afterTimestampMs, int afterTypeOrdinal, long upToTimestampMs, int upToTypeOrdinal)
+            throws IOException {
+        long count = 0;
+        for (VitalType type : types) {
+            long fromMs = type.ordinal() > afterTypeOrdinal ? afterTimestampMs : plusOne(afterTimestampMs);
+            long toMs = type.ordinal() <= upToTypeOrdinal ? plusOne(upToTimestampMs) : upToTimestampMs;
+            if (fromMs >= toMs) {
+                continue;
+            }
+            TimeSeriesStore store = series.get(type);
+            synchronized (store) {
+                if (fromMs <= store.firstTimestamp()) {
+                    // Counting from the start: subtract the few newer samples instead of scanning all
+                    count += store.size() - store.scan(toMs, Long.MAX_VALUE, IGNORE);
+                } else {
+                    count += store.scan(fromMs, toMs, IGNORE);
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Collects the newest samples before {@code toMs} into the run.
+     */
+    private static void collectBefore(TimeSeriesStore store, long toMs, Run run) throws IOException {
+        long first = store.firstTimestamp();
+        if (first >= toMs) {
+            return;
+        }
+        toMs = Math.min(toMs, plusOne(store.lastTimestamp()));
+        long window = initialWindow(store, run.capacity);
+        while (true) {
+            long fromMs = window >= MAX_WINDOW_MS || toMs - window <= first ? first : toMs - window;
+            run.clear();
+            int visited = store.scan(fromMs, toMs, run);
+            if (visited >= run.capacity || fromMs == first) {
+                run.finish();
+                return;
+            }
+            window = widen(window);
+        }
+    }
+
+    /**
+     * Collects the oldest samples at or after {@code fromMs} into the run.
+     */
+    private static void collectFrom(TimeSeriesStore store, long fromMs, Run run) throws IOException {
+        long last = store.lastTimestamp();
+        if (last < fromMs) {
+            return;
+        }
+        fromMs = Math.max(fromMs, store.firstTimestamp());
+        long window = initialWindow(store, run.capacity);
+        while (true) {
+            long toMs = window >= MAX_WINDOW_MS || fromMs + window > last ? plusOne(last) : fromMs + window;
+            run.clear();
+            int visited = store.scan(fromMs, toMs, run);
+            if (visited >= run.capacity || toMs > last) {
+                return;
+            }
+            window = widen(window);
+        }
+    }
+
+    /**
+     * Returns a span expected to hold about twice the wanted samples at the store's average rate.
+     */
+    private static long initialWindow(TimeSeriesStore store, int samples) {
+        long count = store.size();
+        long span = store.lastTimestamp() - store.firstTimestamp();
+        if (count < 2 || span <= 0) {
+            return MIN_WINDOW_MS;
+        }
+        double window = (double) span / (count - 1) * samples * 2;
+        return (long) Math.max(MIN_WINDOW_MS, Math.min(window, MAX_WINDOW_MS));
+    }
+
+    private static long widen(long window) {
+        return Math.min(window * 4, MAX_WINDOW_MS);
+    }
+
+    private static long plusOne(long timestampMs) {
+        return timestampMs == Long.MAX_VALUE ? timestampMs : timestampMs + 1;
+    }
+
+    /**
+     * Up to one page of one type's samples in time order: either the first ones visited, or the
+     * last ones, kept in a ring that {@link #finish()} puts back in order.
+     */
+    private static final class Run implements TimeSeriesStore.SampleVisitor {
+        long[] timestamps = new long[0];
+        float[] values = new float[0];
+        int capacity;
+        int size;
+        private boolean keepLast;
+        // Slot holding the oldest sample once the ring is full
+        private int oldest;
+
+        void reset(int capacity, boolean keepLast) {
+            if (timestamps.length < capacity) {
+                timestamps = new long[capacity];
+                values = new float[capacity];
+            }
+            this.capacity = capacity;
+            this.keepLast = keepLast;
+            clear();
+        }
+
+        void clear() {
+            size = 0;
+            oldest = 0;
+        }
+
+        @Override
+        public void visit(long timestampMs, float value) {
+            if (size < capacity) {
+                timestamps[size] = timestampMs;
+                values[size] = value;
+                size++;
+            } else if (keepLast) {
+                timestamps[oldest] = timestampMs;
+                values[oldest] = value;
+                oldest = oldest + 1 == capacity ? 0 : oldest + 1;
+            }
+        }
+
+        void finish() {
+            if (oldest != 0) {
+                // Rotate left by three reversals
+                reverse(0, oldest);
+                reverse(oldest, size);
+                reverse(0, size);
+                oldest = 0;
+            }
+        }
+
+        private void reverse(int from, int to) {
+            for (int i = from, j = to - 1; i < j; i++, j--) {
+                long timestamp = timestamps[i];
+                timestamps[i] = timestamps[j];
+                timestamps[j] = timestamp;
+                float value = values[i];
+                values[i] = values[j];
+                values[j] = value;
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.healthmonitoringapp.fit;
+
+import android.content.Context;
+
+import com.example.healthmonitoringapp.alert.AlertingSampleSink;
+import com.example.healthmonitoringapp.data.SampleBatch;
+import com.example.healthmonitoringapp.data.SampleSink;
+import com.example.healthmonitoringapp.data.VitalType;
+import com.example.healthmonitoringapp.data.VitalsStore;
+import com.example.healthmonitoringapp.sync.AdaptiveBatchSizer;
+import com.example.healthmonitoringapp.utils.SharedPrefManager;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Copies heart-rate, step and oxygen-saturation samples from a {@link HealthHistorySource} into the
+ * local store.
+ *
+ * <p>Each run only reads the window since the per-type cursor, split into chunks of at most
+ * {@link #CHUNK_MS} so a long gap never turns into one huge request. An {@link AdaptiveBatchSizer}
+ * shrinks the chunks when reading and storing one takes longer than {@link #TARGET_CHUNK_TIME_MS}. The cursor is advanced after
+ * every stored chunk, so a run that fails halfway resumes where it stopped. The newest
+ * {@link #SETTLE_DELAY_MS} are left for the next run because wearables upload to Fit with a delay.</p>
+ */
+public class FitIngestionEngine {
+    static final long CHUNK_MS = TimeUnit.HOURS.toMillis(6);
+    static final long INITIAL_LOOKBACK_MS = TimeUnit.DAYS.toMillis(30);
+    static final long SETTLE_DELAY_MS = TimeUnit.MINUTES.toMillis(10);
+    static final long MIN_CHUNK_MS = TimeUnit.MINUTES.toMillis(15);
+    static final long TARGET_CHUNK_TIME_MS = 3_000;
+
+    private static volatile FitIngestionEngine instance;
+
+    private final HealthHistorySource source;
+    private final SampleSink sink;
+    private final IngestionCursorStore cursors;
+    private final AdaptiveBatchSizer chunkSizer;
+    private final LongSupplier elapsedClock;
+    private final SampleBatch batch = new SampleBatch(4096);
+
+    public FitIngestionEngine(HealthHistorySource source, SampleSink sink, IngestionCursorStore cursors) {
+        this(source, sink, cursors,
+                new AdaptiveBatchSizer(CHUNK_MS, MIN_CHUNK_MS, CHUNK_MS, TARGET_CHUNK_TIME_MS),
+                () -> TimeUnit.NANOSECONDS.toMillis(System.nanoTime()));
+    }
+
+    FitIngestionEngine(HealthHistorySource source, SampleSink sink, IngestionCursorStore cursors,
+                       AdaptiveBatchSizer chunkSizer, LongSupplier elapsedClock) {
+        this.source = source;
+        this.sink = sink;
+        this.cursors = cursors;
+        this.chunkSizer = chunkSizer;
+        this.elapsedClock = elapsedClock;
+    }
+
+    /**
+     * Returns a singleton instance reading from Google Fit into the {@link VitalsStore}, raising
+     * heart-rate alerts on the way.
+     */
+    public static FitIngestionEngine getInstance(Context context) {
+        if (instance == null) {
+            synchronized (FitIngestionEngine.class) {
+                if (instance == null) {
+                    Context appContext = context.getApplicationContext();
+                    instance = new FitIngestionEngine(new GoogleFitHistorySource(appContext),
+                            AlertingSampleSink.getInstance(appContext),
+                            new StoredIngestionCursors(SharedPrefManager.getInstance(appContext).getDeviceStore()));
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Ingests everything that is new for every vital type. Blocks; call from a background thread.
+     *
+     * @return Number of samples read.
+     * @throws IOException if a read or write fails. Chunks stored before the failure are kept.
+     */
+    public int ingest(long nowMs) throws IOException {
+        return ingest(nowMs, () -> false);
+    }
+
+    /**
+     * Like {@link #ingest(long)}, but checks {@code shouldStop} between chunks and returns early
+     * when it is true. The next run resumes from the stored cursors.
+     */
+    public synchronized int ingest(long nowMs, BooleanSupplier shouldStop) throws IOException {
+        int total = 0;
+        for (VitalType type : VitalType.values()) {
+            if (type.isFromFit()) {
+                total += ingest(type, nowMs, shouldStop);
+            }
+        }
+        return total;
+    }
+
+    /** Span of the next chunk requested from the source. */
+    public long getChunkMs() {
+        return chunkSizer.size();
+    }
+
+    private int ingest(VitalType type, long nowMs, BooleanSupplier shouldStop) throws IOException {
+        long until = nowMs - SETTLE_DELAY_MS;
+        long from = Math.max(cursors.loadCursor(type), nowMs - INITIAL_LOOKBACK_MS);
+        int total = 0;
+        while (from < until && !shouldStop.getAsBoolean()) {
+            long to = Math.min(from + chunkSizer.size(), until);
+            long started = elapsedClock.getAsLong();
+            batch.clear();
+            source.read(type, from, to, batch);
+            batch.sortByTime();
+            if (batch.size() > 0) {
+                sink.append(type, batch);
+                total += batch.size();
+            }
+            cursors.saveCursor(type, to);
+            chunkSizer.record(to - from, elapsedClock.getAsLong() - started);
+            from = to;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.healthmonitoringapp.fit;
+
+import android.content.Context;
+
+import com.example.healthmonitoringapp.data.SampleBatch;
+import com.example.healthmonitoringapp.data.VitalType;
+import com.google.android.gms.auth.api.signin.GoogleSignIn;
+import com.google.android.gms.auth.api.signin.GoogleSignInAccount;
+import com.google.android.gms.fitness.Fitness;
+import com.google.android.gms.fitness.FitnessOptions;
+import com.google.android.gms.fitness.data.DataPoint;
+import com.google.android.gms.fitness.data.DataSet;
+import com.google.android.gms.fitness.data.DataType;
+import com.google.android.gms.fitness.data.Field;
+import com.google.android.gms.fitness.data.HealthDataTypes;
+import com.google.android.gms.fitness.data.HealthFields;
+import com.google.android.gms.fitness.request.DataReadRequest;
+import com.google.android.gms.fitness.result.DataReadResponse;
+import com.google.android.gms.tasks.Tasks;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * {@link HealthHistorySource} backed by the Google Fit History API.
+ * Reads fail until the user has granted the {@link #FITNESS_OPTIONS} scopes.
+ */
+public class GoogleFitHistorySource implements HealthHistorySource {
+    private static final long READ_TIMEOUT_SECONDS = 60;
+
+    public static final FitnessOptions FITNESS_OPTIONS = FitnessOptions.builder()
+            .addDataType(DataType.TYPE_HEART_RATE_BPM, FitnessOptions.ACCESS_READ)
+            .addDataType(DataType.TYPE_STEP_COUNT_DELTA, FitnessOptions.ACCESS_READ)
+            .addDataType(HealthDataTypes.TYPE_OXYGEN_SATURATION, FitnessOptions.ACCESS_READ)
+            .build();
+
+    private final Context context;
+
+    public GoogleFitHistorySource(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    @Override
+    public void read(VitalType type, long startMs, long endMs, SampleBatch out) throws IOException {
+        GoogleSignInAccount account = GoogleSignIn.getAccountForExtension(context, FITNESS_OPTIONS);
+        if (!GoogleSignIn.hasPermissions(account, FITNESS_OPTIONS)) {
+            throw new IOException("Google Fit access has not been granted");
+        }
+        DataType dataType = dataTypeFor(type);
+        DataReadRequest request = new DataReadRequest.Builder()
+                .read(dataType)
+                .setTimeRange(startMs, endMs, TimeUnit.MILLISECONDS)
+                .build();
+
+        DataReadResponse response;
+        try {
+            response = Tasks.await(Fitness.getHistoryClient(context, account).readData(request),
+                    READ_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading " + type);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IOException("Unable to read " + type + " from Google Fit", e);
+        }
+
+        DataSet dataSet = response.getDataSet(dataType);
+        for (DataPoint point : dataSet.getDataPoints()) {
+            // Instantaneous points have start == end; step deltas are attributed to the interval end
+            out.add(point.getEndTime(TimeUnit.MILLISECONDS), valueOf(type, point));
+        }
+    }
+
+    private static DataType dataTypeFor(VitalType type) {
+        switch (type) {
+            case HEART_RATE:
+                return DataType.TYPE_HEART_RATE_BPM;
+            case STEPS:
+                return DataType.TYPE_STEP_COUNT_DELTA;
+            case OXYGEN_SATURATION:
+                return HealthDataTypes.TYPE_OXYGEN_SATURATION;
+            default:
+                throw new IllegalArgumentException("Unknown type " + type);
+        }
+    }
+
+    private static float valueOf(VitalType type, DataPoint point) {
+        switch (type) {
+            case HEART_RATE:
+                return point.getValue(Field.FIELD_BPM).asFloat();
+            case STEPS:
+                return point.getValue(Field.FIELD_STEPS).asInt();
+            case OXYGEN_SATURATION:
+                return point.getValue(HealthFields.FIELD_OXYGEN_SATURATION).asFloat();
+            default:
+                throw new IllegalArgumentException("Unknown type " + type);
+        }
+    }
+}
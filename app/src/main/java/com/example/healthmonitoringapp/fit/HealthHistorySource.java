@@ -0,0 +1,17 @@
+package com.example.healthmonitoringapp.fit;
+
+import com.example.healthmonitoringapp.data.SampleBatch;
+import com.example.healthmonitoringapp.data.VitalType;
+
+import java.io.IOException;
+
+/**
+ * Read access to historical health data, e.g. the Google Fit History API.
+ */
+public interface HealthHistorySource {
+    /**
+     * Adds the samples of the given type whose time lies in {@code [startMs, endMs)} to the batch.
+     * Blocks until the read completes, so it must not be called on the main thread.
+     */
+    void read(VitalType type, long startMs, long endMs, SampleBatch out) throws IOException;
+}
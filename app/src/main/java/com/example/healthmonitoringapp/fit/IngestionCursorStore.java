@@ -0,0 +1,14 @@
+package com.example.healthmonitoringapp.fit;
+
+import com.example.healthmonitoringapp.data.VitalType;
+
+/**
+ * Persists how far each vital type has been ingested.
+ */
+public interface IngestionCursorStore {
+    /** Returns the end of the last ingested window, or 0 if nothing was ingested yet. */
+    long loadCursor(VitalType type);
+
+    /** Stores the cursor and waits until it is durable. */
+    void saveCursor(VitalType type, long syncedUntilMs);
+}
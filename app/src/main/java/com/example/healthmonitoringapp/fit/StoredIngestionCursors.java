@@ -0,0 +1,42 @@
+package com.example.healthmonitoringapp.fit;
+
+import android.util.Log;
+
+import com.example.healthmonitoringapp.data.VitalType;
+import com.example.healthmonitoringapp.utils.UserDataStore;
+
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Keeps the ingestion cursors in the device-wide {@link UserDataStore}.
+ */
+class StoredIngestionCursors implements IngestionCursorStore {
+    private static final String TAG = "StoredIngestionCursors";
+    private static final String KEY_CURSOR_PREFIX = "fit_cursor_"; // + VitalType name, epoch millis
+
+    private final UserDataStore store;
+
+    StoredIngestionCursors(UserDataStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public long loadCursor(VitalType type) {
+        try {
+            return Long.parseLong(store.getString(KEY_CURSOR_PREFIX + type.name(), "0"));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    @Override
+    public void saveCursor(VitalType type, long syncedUntilMs) {
+        try {
+            store.edit(data -> data.put(KEY_CURSOR_PREFIX + type.name(), Long.toString(syncedUntilMs))).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            Log.e(TAG, "Failed to save ingestion cursor", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.example.healthmonitoringapp.hrv;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Short-term heart-rate variability (SDNN, RMSSD and pNN50) over a sliding window of RR intervals,
+ * e.g. from a chest strap or an exported recording.
+ *
+ * <p>Each interval first passes an artifact filter: it must be physiologically possible and within
+ * {@link #MAX_DEVIATION} of the median of the last few normal intervals, which rejects missed or
+ * doubled detections and the short/long pair around an ectopic beat. A successive difference only
+ * counts when both of its intervals are normal and adjacent, so a rejected beat or a gap in the
+ * stream never produces a spurious jump.</p>
+ *
+ * <p>Normal intervals are kept in preallocated ring arrays together with running sums, so each
+ * {@link #accept} updates the metrics in amortized constant time and never allocates. Not
+ * thread-safe; feed it from one thread.</p>
+ */
+public class HrvCalculator {
+    /** Standard length of a short-term recording. */
+    public static final long DEFAULT_WINDOW_MS = TimeUnit.MINUTES.toMillis(5);
+    /** Fewer normal beats than this give unreliable metrics. */
+    public static final int MIN_BEATS = 30;
+
+    static final double MIN_RR_MS = 300;
+    static final double MAX_RR_MS = 2000;
+    static final double MAX_DEVIATION = 0.2;
+    static final int REFERENCE_BEATS = 5;
+    /** Rejections in a row after which the reference restarts, so a genuine change of rate is followed. */
+    static final int MAX_CONSECUTIVE_REJECTS = 5;
+    static final double NN50_MS = 50;
+
+    private final long windowMs;
+    private final long[] timestamps;
+    private final double[] intervals;
+    // Difference to the previous interval, NaN if that one was not a normal adjacent beat
+    private final double[] differences;
+    private int head;
+    private int size;
+
+    // Sums over the window; intervals are offset by the first one to keep the variance exact
+    private double offset;
+    private double sum;
+    private double sumSquares;
+    private int differenceCount;
+    private double differenceSquares;
+    private int nn50Count;
+
+    private final double[] reference = new double[REFERENCE_BEATS];
+    private final double[] sortedReference = new double[REFERENCE_BEATS];
+    private int referenceCount;
+    private int referenceNext;
+    private int consecutiveRejects;
+
+    private long lastTimestamp = Long.MIN_VALUE;
+    private boolean lastNormal;
+    private long artifacts;
+
+    public HrvCalculator() {
+        this(DEFAULT_WINDOW_MS);
+    }
+
+    public HrvCalculator(long windowMs) {
+        this.windowMs = windowMs;
+        // The window can hold at most one interval per MIN_RR_MS
+        int capacity = (int) (windowMs / MIN_RR_MS) + 1;
+        timestamps = new long[capacity];
+        intervals = new double[capacity];
+        differences = new double[capacity];
+    }
+
+    /**
+     * Adds the interval ending at the given time. Intervals not newer than the previous one are
+     * ignored.
+     *
+     * @return True if the interval was a normal beat, false if it was ignored or rejected.
+     */
+    public boolean accept(long timestampMs, double rrMs) {
+        if (timestampMs <= lastTimestamp) {
+            return false;
+        }
+        // A longer gap than one more beat means intervals are missing from the stream
+        boolean adjacent = lastNormal && timestampMs - lastTimestamp <= rrMs * 1.5;
+        lastTimestamp = timestampMs;
+        evictBefore(timestampMs - windowMs);
+
+        boolean plausible = rrMs >= MIN_RR_MS && rrMs <= MAX_RR_MS;
+        if (!plausible || !isNearReference(rrMs)) {
+            artifacts++;
+            lastNormal = false;
+            // Only plausible intervals can be a genuine change of rate
+            if (plausible && ++consecutiveRejects >= MAX_CONSECUTIVE_REJECTS) {
+                referenceCount = 0;
+                referenceNext = 0;
+                consecutiveRejects = 0;
+                addReference(rrMs);
+            }
+            return false;
+        }
+        consecutiveRejects = 0;
+        lastNormal = true;
+        addReference(rrMs);
+
+        if (size == intervals.length) {
+            evictHead();
+        }
+        double difference = Double.NaN;
+        if (adjacent && size > 0) {
+            difference = rrMs - intervals[index(size - 1)];
+            addDifference(difference);
+        }
+        if (size == 0) {
+            offset = rrMs;
+            sum = 0;
+            sumSquares = 0;
+        }
+        int tail = index(size);
+        timestamps[tail] = timestampMs;
+        intervals[tail] = rrMs;
+        differences[tail] = difference;
+        size++;
+        double shifted = rrMs - offset;
+        sum += shifted;
+        sumSquares += shifted * shifted;
+        return true;
+    }
+
+    /** Number of normal beats in the window. */
+    public int getBeats() {
+        return size;
+    }
+
+    /** True once the window holds {@link #MIN_BEATS} normal beats. */
+    public boolean isReady() {
+        return size >= MIN_BEATS;
+    }
+
+    /** Intervals rejected as artifacts since the calculator was created. */
+    public long getArtifacts() {
+        return artifacts;
+    }
+
+    /** Mean normal interval, or NaN if the window is empty. */
+    public double getMeanRrMs() {
+        return size > 0 ? offset + sum / size : Double.NaN;
+    }
+
+    /** Sample standard deviation of the normal intervals, or NaN with fewer than two. */
+    public double getSdnnMs() {
+        if (size < 2) {
+            return Double.NaN;
+        }
+        return Math.sqrt(Math.max(0, (sumSquares - sum * sum / size) / (size - 1)));
+    }
+
+    /** Root mean square of successive differences, or NaN if there are none. */
+    public double getRmssdMs() {
+        return differenceCount > 0 ? Math.sqrt(Math.max(0, differenceSquares / differenceCount)) : Double.NaN;
+    }
+
+    /** Percentage of successive differences over 50 ms, or NaN if there are none. */
+    public double getPnn50() {
+        return differenceCount > 0 ? 100.0 * nn50Count / differenceCount : Double.NaN;
+    }
+
+    /**
+     * Returns the current metrics as a value that can be handed to another thread.
+     */
+    public HrvMetrics snapshot() {
+        long newest = size > 0 ? timestamps[index(size - 1)] : lastTimestamp;
+        return new HrvMetrics(newest, size, artifacts, getMeanRrMs(), getSdnnMs(), getRmssdMs(), getPnn50());
+    }
+
+    private boolean isNearReference(double rrMs) {
+        if (referenceCount == 0) {
+            return true;
+        }
+        double median = referenceMedian();
+        return Math.abs(rrMs - median) <= MAX_DEVIATION * median;
+    }
+
+    private void addReference(double rrMs) {
+        reference[referenceNext] = rrMs;
+        referenceNext = (referenceNext + 1) % REFERENCE_BEATS;
+        referenceCount = Math.min(referenceCount + 1, REFERENCE_BEATS);
+    }
+
+    private double referenceMedian() {
+        // Insertion sort of at most five values
+        for (int i = 0; i < referenceCount; i++) {
+            double value = reference[i];
+            int j = i;
+            while (j > 0 && sortedReference[j - 1] > value) {
+                sortedReference[j] = sortedReference[j - 1];
+                j--;
+            }
+            sortedReference[j] = value;
+        }
+        return (sortedReference[(referenceCount - 1) / 2] + sortedReference[referenceCount / 2]) / 2;
+    }
+
+    private void evictBefore(long cutoffMs) {
+        while (size > 0 && timestamps[head] <= cutoffMs) {
+            evictHead();
+        }
+    }
+
+    private void evictHead() {
+        double shifted = intervals[head] - offset;
+        sum -= shifted;
+        sumSquares -= shifted * shifted;
+        head = index(1);
+        size--;
+        if (size == 0) {
+            differenceCount = 0;
+            differenceSquares = 0;
+            nn50Count = 0;
+        } else if (!Double.isNaN(differences[head])) {
+            // Its predecessor just left the window
+            removeDifference(differences[head]);
+            differences[head] = Double.NaN;
+        }
+    }
+
+    private void addDifference(double difference) {
+        differenceCount++;
+        differenceSquares += difference * difference;
+        if (Math.abs(difference) > NN50_MS) {
+            nn50Count++;
+        }
+    }
+
+    private void removeDifference(double difference) {
+        differenceCount--;
+        differenceSquares -= difference * difference;
+        if (Math.abs(difference) > NN50_MS) {
+            nn50Count--;
+        }
+    }
+
+    private int index(int position) {
+        int index = head + position;
+        return index < intervals.length ? index : index - intervals.length;
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.healthmonitoringapp.hrv;
+
+/**
+ * Heart-rate variability of the normal beats in one window, as computed by {@link HrvCalculator}.
+ * Values are NaN when the window holds too few beats to compute them.
+ */
+public final class HrvMetrics {
+    private final long timestampMs;
+    private final int beats;
+    private final long artifacts;
+    private final double meanRrMs;
+    private final double sdnnMs;
+    private final double rmssdMs;
+    private final double pnn50;
+
+    HrvMetrics(long timestampMs, int beats, long artifacts, double meanRrMs, double sdnnMs, double rmssdMs,
+               double pnn50) {
+        this.timestampMs = timestampMs;
+        this.beats = beats;
+        this.artifacts = artifacts;
+        this.meanRrMs = meanRrMs;
+        this.sdnnMs = sdnnMs;
+        this.rmssdMs = rmssdMs;
+        this.pnn50 = pnn50;
+    }
+
+    /** Time of the newest beat in the window. */
+    public long getTimestampMs() {
+        return timestampMs;
+    }
+
+    /** Number of normal beats in the window. */
+    public int getBeats() {
+        return beats;
+    }
+
+    /** Intervals rejected as artifacts or ectopic beats since the calculator was created. */
+    public long getArtifacts() {
+        return artifacts;
+    }
+
+    public double getMeanRrMs() {
+        return meanRrMs;
+    }
+
+    /** Standard deviation of the normal intervals. */
+    public double getSdnnMs() {
+        return sdnnMs;
+    }
+
+    /** Root mean square of the differences between successive normal intervals. */
+    public double getRmssdMs() {
+        return rmssdMs;
+    }
+
+    /** Percentage (0-100) of successive differences larger than 50 ms. */
+    public double getPnn50() {
+        return pnn50;
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.healthmonitoringapp.image;
+
+import android.content.Context;
+import android.graphics.drawable.Drawable;
+import android.widget.ImageView;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.RequestManager;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.engine.DiskCacheStrategy;
+import com.bumptech.glide.load.engine.GlideException;
+import com.bumptech.glide.request.RequestListener;
+import com.bumptech.glide.request.target.Target;
+import com.example.healthmonitoringapp.R;
+import com.example.healthmonitoringapp.metrics.Counter;
+import com.example.healthmonitoringapp.metrics.Metrics;
+
+import java.io.File;
+
+/**
+ * Builds the one avatar request every screen uses. Glide's memory cache key covers the model, the
+ * size and the transformation, so only identical requests share an entry; building them in one
+ * place keeps a prefetched avatar a memory hit wherever it is shown.
+ */
+public final class AvatarImages {
+    private static final Counter MEMORY_HITS = Metrics.getInstance().counter("AvatarImages.memoryCacheHits");
+    private static final Counter DISK_HITS = Metrics.getInstance().counter("AvatarImages.diskCacheHits");
+    private static final Counter DECODES = Metrics.getInstance().counter("AvatarImages.storedDecodes");
+    private static final Counter DOWNLOADS = Metrics.getInstance().counter("AvatarImages.downloads");
+    private static final Counter FAILURES = Metrics.getInstance().counter("AvatarImages.failures");
+
+    /**
+     * Counts where each avatar came from. Shared by all requests, so it adds no allocation.
+     */
+    private static final RequestListener<Drawable> SOURCE_COUNTER = new RequestListener<Drawable>() {
+        @Override
+        public boolean onLoadFailed(@Nullable GlideException e, @Nullable Object model,
+                                    @NonNull Target<Drawable> target, boolean isFirstResource) {
+            FAILURES.increment();
+            return false;
+        }
+
+        @Override
+        public boolean onResourceReady(@NonNull Drawable resource, @NonNull Object model, Target<Drawable> target,
+                                       @NonNull DataSource dataSource, boolean isFirstResource) {
+            switch (dataSource) {
+                case MEMORY_CACHE:
+                    MEMORY_HITS.increment();
+                    break;
+                case RESOURCE_DISK_CACHE:
+                case DATA_DISK_CACHE:
+                    DISK_HITS.increment();
+                    break;
+                case LOCAL:
+                    DECODES.increment();
+                    break;
+                default:
+                    DOWNLOADS.increment();
+                    break;
+            }
+            return false;
+        }
+    };
+
+    private AvatarImages() {
+    }
+
+    /**
+     * Returns the model for the user's avatar: the stored picture if there is one, otherwise the
+     * remote photo URL, or null if there is neither.
+     */
+    public static Object modelFor(File storedAvatar, String photoUrl) {
+        if (storedAvatar != null) {
+            return new StoredAvatar(storedAvatar);
+        }
+        return photoUrl != null && !photoUrl.isEmpty() ? photoUrl : null;
+    }
+
+    /**
+     * Shows the avatar at the given size, or the default picture if the model is null.
+     */
+    public static void into(ImageView view, Object model, int sizePx) {
+        request(Glide.with(view), model, sizePx)
+                .placeholder(R.drawable.default_profile)
+                .error(R.drawable.default_profile)
+                .into(view);
+    }
+
+    /**
+     * Decodes the avatar into the memory cache, e.g. right after sign-in.
+     */
+    public static void prefetch(Context context, Object model, int sizePx) {
+        if (model != null) {
+            request(Glide.with(context.getApplicationContext()), model, sizePx).preload();
+        }
+    }
+
+    private static RequestBuilder<Drawable> request(RequestManager glide, Object model, int sizePx) {
+        RequestBuilder<Drawable> request = glide.load(model)
+                .listener(SOURCE_COUNTER)
+                .override(sizePx)
+                .centerCrop();
+        if (model instanceof StoredAvatar) {
+            // Already stored at display size; a second copy in the disk cache would save nothing
+            request = request.diskCacheStrategy(DiskCacheStrategy.NONE);
+        }
+        return request;
+    }
+}
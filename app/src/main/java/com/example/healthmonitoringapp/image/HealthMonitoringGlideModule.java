@@ -0,0 +1,57 @@
+package com.example.healthmonitoringapp.image;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.GlideBuilder;
+import com.bumptech.glide.Registry;
+import com.bumptech.glide.annotation.GlideModule;
+import com.bumptech.glide.load.engine.bitmap_recycle.LruBitmapPool;
+import com.bumptech.glide.load.engine.cache.InternalCacheDiskCacheFactory;
+import com.bumptech.glide.load.engine.cache.LruResourceCache;
+import com.bumptech.glide.load.engine.cache.MemorySizeCalculator;
+import com.bumptech.glide.module.AppGlideModule;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Configures Glide for the app's few, small images: avatars and the Google account photo.
+ *
+ * <p>The memory cache holds about one screen of bitmaps instead of Glide's default two, which is
+ * still room for dozens of avatars at display size. Downloaded photos go to a small disk cache
+ * in the cache directory, so the system may reclaim it. Stored avatars are served through
+ * {@link StoredAvatarLoader}.</p>
+ */
+@GlideModule
+public class HealthMonitoringGlideModule extends AppGlideModule {
+    static final String DISK_CACHE_DIR = "image_cache";
+    static final long DISK_CACHE_BYTES = 20L * 1024 * 1024;
+    private static final float MEMORY_CACHE_SCREENS = 1;
+    private static final float BITMAP_POOL_SCREENS = 1;
+
+    @Override
+    public void applyOptions(@NonNull Context context, @NonNull GlideBuilder builder) {
+        MemorySizeCalculator calculator = new MemorySizeCalculator.Builder(context)
+                .setMemoryCacheScreens(MEMORY_CACHE_SCREENS)
+                .setBitmapPoolScreens(BITMAP_POOL_SCREENS)
+                .build();
+        builder.setMemoryCache(new LruResourceCache(calculator.getMemoryCacheSize()));
+        builder.setBitmapPool(new LruBitmapPool(calculator.getBitmapPoolSize()));
+        builder.setDiskCache(new InternalCacheDiskCacheFactory(context, DISK_CACHE_DIR, DISK_CACHE_BYTES));
+        builder.setLogLevel(Log.ERROR);
+    }
+
+    @Override
+    public void registerComponents(@NonNull Context context, @NonNull Glide glide, @NonNull Registry registry) {
+        registry.prepend(StoredAvatar.class, ByteBuffer.class, new StoredAvatarLoader.Factory());
+    }
+
+    @Override
+    public boolean isManifestParsingEnabled() {
+        // No library registers a module in its manifest; skipping the scan speeds up the first load
+        return false;
+    }
+}
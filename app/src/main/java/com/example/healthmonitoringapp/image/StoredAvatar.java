@@ -0,0 +1,43 @@
+package com.example.healthmonitoringapp.image;
+
+import java.io.File;
+
+/**
+ * Glide model for an avatar stored by {@link com.example.healthmonitoringapp.utils.AvatarStore}.
+ *
+ * <p>Avatar files are named after a hash of their contents, so the name alone identifies the image:
+ * two models for the same name share cache entries, and a new picture never hits a stale one.</p>
+ */
+public final class StoredAvatar {
+    private final File file;
+
+    public StoredAvatar(File file) {
+        this.file = file;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Returns the key the decoded avatar is cached under.
+     */
+    public String getCacheKey() {
+        return "avatar:" + file.getName();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof StoredAvatar && ((StoredAvatar) o).file.getName().equals(file.getName());
+    }
+
+    @Override
+    public int hashCode() {
+        return file.getName().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return getCacheKey();
+    }
+}
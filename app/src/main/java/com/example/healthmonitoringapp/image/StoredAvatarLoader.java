@@ -0,0 +1,88 @@
+package com.example.healthmonitoringapp.image;
+
+import androidx.annotation.NonNull;
+
+import com.bumptech.glide.Priority;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.data.DataFetcher;
+import com.bumptech.glide.load.model.ModelLoader;
+import com.bumptech.glide.load.model.ModelLoaderFactory;
+import com.bumptech.glide.load.model.MultiModelLoaderFactory;
+import com.bumptech.glide.signature.ObjectKey;
+import com.bumptech.glide.util.ByteBufferUtil;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Serves {@link StoredAvatar}s to Glide by memory-mapping the avatar file, keyed by its content
+ * hash instead of its path.
+ */
+public class StoredAvatarLoader implements ModelLoader<StoredAvatar, ByteBuffer> {
+
+    @Override
+    public LoadData<ByteBuffer> buildLoadData(@NonNull StoredAvatar model, int width, int height,
+                                              @NonNull Options options) {
+        return new LoadData<>(new ObjectKey(model.getCacheKey()), new Fetcher(model));
+    }
+
+    @Override
+    public boolean handles(@NonNull StoredAvatar model) {
+        return true;
+    }
+
+    private static final class Fetcher implements DataFetcher<ByteBuffer> {
+        private final StoredAvatar model;
+
+        Fetcher(StoredAvatar model) {
+            this.model = model;
+        }
+
+        @Override
+        public void loadData(@NonNull Priority priority, @NonNull DataCallback<? super ByteBuffer> callback) {
+            try {
+                callback.onDataReady(ByteBufferUtil.fromFile(model.getFile()));
+            } catch (IOException e) {
+                callback.onLoadFailed(e);
+            }
+        }
+
+        @Override
+        public void cleanup() {
+            // Mapped buffers are released by the garbage collector
+        }
+
+        @Override
+        public void cancel() {
+            // Mapping a small local file is not worth interrupting
+        }
+
+        @NonNull
+        @Override
+        public Class<ByteBuffer> getDataClass() {
+            return ByteBuffer.class;
+        }
+
+        @NonNull
+        @Override
+        public DataSource getDataSource() {
+            return DataSource.LOCAL;
+        }
+    }
+
+    /**
+     * Registered by {@link HealthMonitoringGlideModule}.
+     */
+    public static class Factory implements ModelLoaderFactory<StoredAvatar, ByteBuffer> {
+        @NonNull
+        @Override
+        public ModelLoader<StoredAvatar, ByteBuffer> build(@NonNull MultiModelLoaderFactory multiFactory) {
+            return new StoredAvatarLoader();
+        }
+
+        @Override
+        public void teardown() {
+        }
+    }
+}
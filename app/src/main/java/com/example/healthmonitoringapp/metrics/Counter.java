@@ -0,0 +1,23 @@
+package com.example.healthmonitoringapp.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Monotonic event count, e.g. Firestore writes or cache hits. Increments allocate nothing and
+ * do not contend between threads.
+ */
+public final class Counter {
+    private final LongAdder count = new LongAdder();
+
+    public void increment() {
+        count.increment();
+    }
+
+    public void add(long delta) {
+        count.add(delta);
+    }
+
+    public long get() {
+        return count.sum();
+    }
+}
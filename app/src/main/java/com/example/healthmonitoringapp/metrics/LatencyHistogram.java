@@ -0,0 +1,108 @@
+package com.example.healthmonitoringapp.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size histogram of durations in microseconds, laid out like HdrHistogram: each power of two
+ * is split into 32 linear sub-buckets, so a recorded value is reported at most 1/32 (about 3%) too
+ * high, from 1 microsecond up to about 19 hours.
+ *
+ * <p>Recording is one array increment plus two atomic updates, allocates nothing and is safe from
+ * any thread, so hot paths can record unconditionally. Reads walk all buckets and are meant for
+ * dumps; taken while other threads record, they may be off by the values recorded meanwhile.</p>
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 36;
+    /** Longer durations are recorded as this value. */
+    static final long MAX_MICROS = (1L << MAX_EXPONENT) - 1;
+    static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong totalMicros = new AtomicLong();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    /**
+     * Records a duration measured with {@link System#nanoTime()}. Negative durations count as zero.
+     */
+    public void recordNanos(long nanos) {
+        recordMicros(nanos / 1000);
+    }
+
+    public void recordMicros(long micros) {
+        long value = Math.max(0, Math.min(micros, MAX_MICROS));
+        counts.incrementAndGet(indexOf(value));
+        totalMicros.addAndGet(value);
+        long max = maxMicros.get();
+        while (value > max && !maxMicros.compareAndSet(max, value)) {
+            max = maxMicros.get();
+        }
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    public double getMeanMicros() {
+        long count = getCount();
+        return count == 0 ? 0 : (double) totalMicros.get() / count;
+    }
+
+    /**
+     * Returns the largest recorded value, exactly.
+     */
+    public long getMaxMicros() {
+        return maxMicros.get();
+    }
+
+    /**
+     * Returns the smallest value that at least the given percentage of recorded values do not
+     * exceed, rounded up to the end of its bucket, or 0 if nothing was recorded.
+     *
+     * @param percentile Between 0 and 100.
+     */
+    public long getPercentileMicros(double percentile) {
+        long count = getCount();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                // Never report more than was actually recorded
+                return Math.min(highestValueIn(i), maxMicros.get());
+            }
+        }
+        return maxMicros.get();
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        // The top sub-bucket bit is implied by the power of two
+        return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    static long lowestValueIn(int index) {
+        int shift = index / SUB_BUCKETS - 1;
+        if (shift <= 0) {
+            return index;
+        }
+        return (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+    }
+
+    static long highestValueIn(int index) {
+        int shift = Math.max(0, index / SUB_BUCKETS - 1);
+        return lowestValueIn(index) + (1L << shift) - 1;
+    }
+}
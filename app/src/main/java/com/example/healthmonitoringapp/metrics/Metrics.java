@@ -0,0 +1,125 @@
+package com.example.healthmonitoringapp.metrics;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Process-wide registry of named {@link Timer}s, {@link Counter}s and gauges, dumped on demand to
+ * logcat or a file, see {@link MetricsDumpReceiver}.
+ *
+ * <p>Lookups go through a map, so call sites keep the returned metric in a static field and only
+ * the record itself runs on the hot path. Recording stays enabled in release builds.</p>
+ */
+public class Metrics {
+    private static final String TAG = "Metrics";
+
+    private static volatile Metrics instance;
+
+    private final ConcurrentHashMap<String, Timer> timers = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Counter> counters = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+    Metrics() {
+    }
+
+    /**
+     * Returns a singleton instance of Metrics.
+     */
+    public static Metrics getInstance() {
+        if (instance == null) {
+            synchronized (Metrics.class) {
+                if (instance == null) {
+                    instance = new Metrics();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Returns the timer with the given name, creating it on first use. The name is also the trace
+     * section name, so it must be at most 127 characters.
+     */
+    public Timer timer(String name) {
+        return timers.computeIfAbsent(name, Timer::new);
+    }
+
+    /**
+     * Returns the counter with the given name, creating it on first use.
+     */
+    public Counter counter(String name) {
+        return counters.computeIfAbsent(name, key -> new Counter());
+    }
+
+    /**
+     * Reports a value owned elsewhere, such as a component's own statistics, read at dump time.
+     * Replaces an earlier gauge of the same name.
+     */
+    public void gauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    /**
+     * Writes every metric, sorted by name, with timer percentiles in milliseconds.
+     */
+    public void dump(PrintWriter out) {
+        if (!timers.isEmpty()) {
+            out.printf(Locale.US, "%-32s %8s %9s %9s %9s %9s %9s%n",
+                    "timer (ms)", "count", "mean", "p50", "p90", "p99", "max");
+            for (Timer timer : new TreeMap<>(timers).values()) {
+                LatencyHistogram histogram = timer.getHistogram();
+                out.printf(Locale.US, "%-32s %8d %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                        timer.getName(), histogram.getCount(), histogram.getMeanMicros() / 1000,
+                        histogram.getPercentileMicros(50) / 1000.0, histogram.getPercentileMicros(90) / 1000.0,
+                        histogram.getPercentileMicros(99) / 1000.0, histogram.getMaxMicros() / 1000.0);
+            }
+        }
+        Map<String, Long> values = new TreeMap<>();
+        for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+            values.put(entry.getKey(), entry.getValue().get());
+        }
+        for (Map.Entry<String, LongSupplier> entry : gauges.entrySet()) {
+            values.put(entry.getKey(), entry.getValue().getAsLong());
+        }
+        if (!values.isEmpty()) {
+            out.printf(Locale.US, "%-32s %8s%n", "counter", "value");
+            for (Map.Entry<String, Long> entry : values.entrySet()) {
+                out.printf(Locale.US, "%-32s %8d%n", entry.getKey(), entry.getValue());
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Logs the dump one line per entry, since logcat truncates long messages.
+     */
+    public void dumpToLog() {
+        StringWriter text = new StringWriter();
+        dump(new PrintWriter(text));
+        for (String line : text.toString().split("\n")) {
+            Log.i(TAG, line);
+        }
+    }
+
+    /**
+     * Writes the dump to a file, replacing its contents.
+     */
+    public void dumpToFile(File file) throws IOException {
+        try (PrintWriter out = new PrintWriter(new FileWriter(file))) {
+            dump(out);
+            if (out.checkError()) {
+                throw new IOException("Unable to write " + file);
+            }
+        }
+    }
+}
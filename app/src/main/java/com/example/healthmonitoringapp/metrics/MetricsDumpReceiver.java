@@ -0,0 +1,43 @@
+package com.example.healthmonitoringapp.metrics;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Dumps {@link Metrics} when sent an explicit broadcast from a shell:
+ *
+ * <pre>
+ * adb shell am broadcast -n com.example.healthmonitoringapp/.metrics.MetricsDumpReceiver [--ez to_file true]
+ * </pre>
+ *
+ * The dump goes to logcat under the {@code Metrics} tag and, with {@code to_file}, to
+ * {@code metrics.txt} in the app's external files directory, where {@code adb pull} can reach it
+ * in release builds too. Only callers holding the DUMP permission, such as the shell, can send it.
+ */
+public class MetricsDumpReceiver extends BroadcastReceiver {
+    private static final String TAG = "MetricsDumpReceiver";
+    private static final String EXTRA_TO_FILE = "to_file";
+    private static final String DUMP_FILE = "metrics.txt";
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        Metrics metrics = Metrics.getInstance();
+        metrics.dumpToLog();
+        if (intent.getBooleanExtra(EXTRA_TO_FILE, false)) {
+            File dir = context.getExternalFilesDir(null);
+            File file = new File(dir != null ? dir : context.getFilesDir(), DUMP_FILE);
+            try {
+                // A few kilobytes; not worth leaving the main thread for
+                metrics.dumpToFile(file);
+                Log.i(TAG, "Metrics written to " + file);
+            } catch (IOException e) {
+                Log.e(TAG, "Unable to write metrics", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.healthmonitoringapp.metrics;
+
+import android.os.Trace;
+
+/**
+ * Times a section of code into a {@link LatencyHistogram} and marks it as a trace section of the
+ * same name, so it shows up in systrace and Perfetto captures as well as in metric dumps.
+ *
+ * <pre>
+ * long start = TIMER.start();
+ * try {
+ *     ...
+ * } finally {
+ *     TIMER.stop(start);
+ * }
+ * </pre>
+ *
+ * Work that continues in a callback on another thread, or later on the same one, uses
+ * {@link #startAsync} and {@link #stopAsync}, which trace as an async section instead.
+ */
+public final class Timer {
+    private final String name;
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    Timer(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public LatencyHistogram getHistogram() {
+        return histogram;
+    }
+
+    /**
+     * Begins a trace section on the calling thread.
+     *
+     * @return Start time to pass to {@link #stop}.
+     */
+    public long start() {
+        Trace.beginSection(name);
+        return System.nanoTime();
+    }
+
+    /**
+     * Ends the section begun by {@link #start} on the same thread and records its duration.
+     */
+    public void stop(long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        Trace.endSection();
+        histogram.recordNanos(elapsed);
+    }
+
+    /**
+     * Begins an async trace section, which may end on any thread.
+     *
+     * @param cookie Tells apart sections of this timer that overlap.
+     * @return Start time to pass to {@link #stopAsync}.
+     */
+    public long startAsync(int cookie) {
+        Trace.beginAsyncSection(name, cookie);
+        return System.nanoTime();
+    }
+
+    public void stopAsync(int cookie, long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        Trace.endAsyncSection(name, cookie);
+        histogram.recordNanos(elapsed);
+    }
+
+    /**
+     * Ends an async section without recording it, e.g. when the user backed out.
+     */
+    public void cancelAsync(int cookie) {
+        Trace.endAsyncSection(name, cookie);
+    }
+
+    /**
+     * Records a duration measured elsewhere, without a trace section.
+     */
+    public void record(long nanos) {
+        histogram.recordNanos(nanos);
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.healthmonitoringapp.sampling;
+
+import android.content.Context;
+
+import com.example.healthmonitoringapp.data.VitalsStore;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides how often vitals are collected, so monitoring can run for days on one charge.
+ *
+ * <p>Every live heart-rate reading is checked: one outside {@link #LOW_BPM}..{@link #HIGH_BPM},
+ * or a gap of {@link #FAST_CHANGE_BPM} between a fast and a slow moving average, switches to
+ * {@link SamplingPolicy#BURST} for at least {@link #BURST_HOLD_MS}. Otherwise the rate follows the
+ * {@link DeviceConditions}: low battery while not charging beats sleep, which beats rest. Only a
+ * critically low battery suppresses bursts. The conditions are read at most once per
+ * {@link #CONDITIONS_INTERVAL_MS}, so a reading costs two exponentials.</p>
+ *
+ * <p>Collectors read {@link #getPolicy()} or register a {@link Listener}. Time is taken from the
+ * readings and {@link #evaluate} calls, never from a clock, so a recorded day replays the same
+ * way. Thread-safe; listeners are called on the thread that caused the change.</p>
+ */
+public class AdaptiveSamplingController {
+    static final float HIGH_BPM = 110;
+    static final float LOW_BPM = 45;
+    static final float FAST_CHANGE_BPM = 10;
+    static final long FAST_TAU_MS = TimeUnit.SECONDS.toMillis(10);
+    static final long SLOW_TAU_MS = TimeUnit.MINUTES.toMillis(2);
+    /** Longer gaps restart the averages, so readings from before are not mixed in. */
+    static final long MAX_GAP_MS = TimeUnit.MINUTES.toMillis(10);
+    static final long BURST_HOLD_MS = TimeUnit.MINUTES.toMillis(5);
+    static final long CONDITIONS_INTERVAL_MS = TimeUnit.MINUTES.toMillis(1);
+    static final int LOW_BATTERY_PERCENT = 15;
+    static final int CRITICAL_BATTERY_PERCENT = 5;
+
+    private static volatile AdaptiveSamplingController instance;
+
+    /**
+     * Told about every change of the policy.
+     */
+    public interface Listener {
+        void onPolicyChanged(SamplingPolicy policy);
+    }
+
+    private final DeviceConditions conditions;
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+    private volatile SamplingPolicy policy = SamplingPolicy.ACTIVE;
+
+    private long lastReadingMs = Long.MIN_VALUE;
+    private float fastBpm;
+    private float slowBpm;
+    private long burstUntilMs = Long.MIN_VALUE;
+    private long conditionsReadMs = Long.MIN_VALUE;
+    private int batteryPercent = 100;
+    private boolean charging;
+    private DeviceConditions.Activity activity = DeviceConditions.Activity.ACTIVE;
+
+    public AdaptiveSamplingController(DeviceConditions conditions) {
+        this.conditions = conditions;
+    }
+
+    /**
+     * Returns a singleton instance reading the battery, the screen and the {@link VitalsStore}.
+     */
+    public static AdaptiveSamplingController getInstance(Context context) {
+        if (instance == null) {
+            synchronized (AdaptiveSamplingController.class) {
+                if (instance == null) {
+                    Context appContext = context.getApplicationContext();
+                    instance = new AdaptiveSamplingController(new SystemDeviceConditions(appContext,
+                            VitalsStore.getInstance(appContext)::get));
+                }
+            }
+        }
+        return instance;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * The policy collectors should follow now.
+     */
+    public SamplingPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Checks a live heart-rate reading and updates the policy.
+     *
+     * @return The policy after the reading.
+     */
+    public SamplingPolicy onHeartRate(long timestampMs, float bpm) {
+        SamplingPolicy changed;
+        synchronized (this) {
+            if (timestampMs <= lastReadingMs) {
+                return policy;
+            }
+            if (lastReadingMs == Long.MIN_VALUE || timestampMs - lastReadingMs > MAX_GAP_MS) {
+                fastBpm = bpm;
+                slowBpm = bpm;
+            } else {
+                long elapsedMs = timestampMs - lastReadingMs;
+                fastBpm += (bpm - fastBpm) * (1 - (float) Math.exp(-(double) elapsedMs / FAST_TAU_MS));
+                slowBpm += (bpm - slowBpm) * (1 - (float) Math.exp(-(double) elapsedMs / SLOW_TAU_MS));
+            }
+            lastReadingMs = timestampMs;
+            if (bpm > HIGH_BPM || bpm < LOW_BPM || Math.abs(fastBpm - slowBpm) >= FAST_CHANGE_BPM) {
+                burstUntilMs = timestampMs + BURST_HOLD_MS;
+            }
+            changed = decide(timestampMs);
+        }
+        notifyChanged(changed);
+        return policy;
+    }
+
+    /**
+     * Updates the policy without a reading, e.g. from periodic work while no strap is connected.
+     *
+     * @return The policy now.
+     */
+    public SamplingPolicy evaluate(long nowMs) {
+        SamplingPolicy changed;
+        synchronized (this) {
+            changed = decide(nowMs);
+        }
+        notifyChanged(changed);
+        return policy;
+    }
+
+    /**
+     * Returns the new policy if it changed, or null.
+     */
+    private SamplingPolicy decide(long nowMs) {
+        if (conditionsReadMs == Long.MIN_VALUE || nowMs - conditionsReadMs >= CONDITIONS_INTERVAL_MS) {
+            conditionsReadMs = nowMs;
+            batteryPercent = conditions.getBatteryPercent();
+            charging = conditions.isCharging();
+            activity = conditions.getActivity(nowMs);
+        }
+        SamplingPolicy next;
+        if (nowMs < burstUntilMs && (charging || batteryPercent > CRITICAL_BATTERY_PERCENT)) {
+            next = SamplingPolicy.BURST;
+        } else if (!charging && batteryPercent <= LOW_BATTERY_PERCENT) {
+            next = SamplingPolicy.LOW_BATTERY;
+        } else if (activity == DeviceConditions.Activity.ASLEEP) {
+            next = SamplingPolicy.SLEEP;
+        } else if (activity == DeviceConditions.Activity.RESTING) {
+            next = SamplingPolicy.RESTING;
+        } else {
+            next = SamplingPolicy.ACTIVE;
+        }
+        if (next == policy) {
+            return null;
+        }
+        policy = next;
+        return next;
+    }
+
+    private void notifyChanged(SamplingPolicy changed) {
+        if (changed == null) {
+            return;
+        }
+        for (Listener listener : listeners) {
+            listener.onPolicyChanged(changed);
+        }
+    }
+}
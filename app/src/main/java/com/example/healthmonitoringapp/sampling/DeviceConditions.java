@@ -0,0 +1,22 @@
+package com.example.healthmonitoringapp.sampling;
+
+/**
+ * Battery and activity state the sampling rate depends on.
+ */
+public interface DeviceConditions {
+    /**
+     * What the wearer is doing.
+     */
+    enum Activity {
+        ACTIVE,
+        RESTING,
+        ASLEEP
+    }
+
+    /** Returns the battery level from 0 to 100. */
+    int getBatteryPercent();
+
+    boolean isCharging();
+
+    Activity getActivity(long nowMs);
+}
@@ -0,0 +1,48 @@
+package com.example.healthmonitoringapp.sampling;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How often collectors take and keep vitals, as decided by the {@link AdaptiveSamplingController}.
+ * Ordered from the highest rate to the lowest.
+ */
+public enum SamplingPolicy {
+    /** Readings are abnormal or changing fast: keep every live reading. */
+    BURST(0, TimeUnit.SECONDS.toMillis(1), TimeUnit.MINUTES.toMillis(15)),
+    /** Moving about. */
+    ACTIVE(TimeUnit.SECONDS.toMillis(5), TimeUnit.SECONDS.toMillis(5), TimeUnit.HOURS.toMillis(1)),
+    /** Awake and at rest. */
+    RESTING(TimeUnit.SECONDS.toMillis(15), TimeUnit.SECONDS.toMillis(30), TimeUnit.HOURS.toMillis(2)),
+    /** Asleep. */
+    SLEEP(TimeUnit.SECONDS.toMillis(60), TimeUnit.SECONDS.toMillis(60), TimeUnit.HOURS.toMillis(6)),
+    /** Battery low and not charging. */
+    LOW_BATTERY(TimeUnit.SECONDS.toMillis(60), TimeUnit.SECONDS.toMillis(60), TimeUnit.HOURS.toMillis(6));
+
+    private final long heartRateIntervalMs;
+    private final long drainIntervalMs;
+    private final long syncIntervalMs;
+
+    SamplingPolicy(long heartRateIntervalMs, long drainIntervalMs, long syncIntervalMs) {
+        this.heartRateIntervalMs = heartRateIntervalMs;
+        this.drainIntervalMs = drainIntervalMs;
+        this.syncIntervalMs = syncIntervalMs;
+    }
+
+    /**
+     * Shortest time between two stored live heart-rate readings; readings in between still reach
+     * the listeners.
+     */
+    public long getHeartRateIntervalMs() {
+        return heartRateIntervalMs;
+    }
+
+    /** How often queued live readings are handed over while nothing is shown live. */
+    public long getDrainIntervalMs() {
+        return drainIntervalMs;
+    }
+
+    /** How often Google Fit is polled for new vitals; WorkManager runs periodic work at most every 15 min. */
+    public long getSyncIntervalMs() {
+        return syncIntervalMs;
+    }
+}
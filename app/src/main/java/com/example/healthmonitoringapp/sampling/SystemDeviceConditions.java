@@ -0,0 +1,68 @@
+package com.example.healthmonitoringapp.sampling;
+
+import android.content.Context;
+import android.os.BatteryManager;
+import android.os.PowerManager;
+import android.util.Log;
+
+import com.example.healthmonitoringapp.data.SeriesProvider;
+import com.example.healthmonitoringapp.data.VitalType;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link DeviceConditions} read from the system and the stored step counts.
+ *
+ * <p>The wearer counts as asleep while the screen is off during the night hours, and as active when
+ * at least {@link #ACTIVE_STEPS} steps were stored within the last {@link #ACTIVE_WINDOW_MS}. Steps
+ * arrive with Google Fit ingestion, so activity is noticed late; fast heart-rate changes are caught
+ * from the live readings instead, see {@link AdaptiveSamplingController}.</p>
+ */
+public class SystemDeviceConditions implements DeviceConditions {
+    private static final String TAG = "SystemDeviceConditions";
+    static final int NIGHT_START_HOUR = 22;
+    static final int NIGHT_END_HOUR = 7;
+    static final int ACTIVE_STEPS = 100;
+    static final long ACTIVE_WINDOW_MS = TimeUnit.MINUTES.toMillis(15);
+
+    private final BatteryManager battery;
+    private final PowerManager power;
+    private final SeriesProvider series;
+
+    public SystemDeviceConditions(Context context, SeriesProvider series) {
+        this.battery = context.getSystemService(BatteryManager.class);
+        this.power = context.getSystemService(PowerManager.class);
+        this.series = series;
+    }
+
+    @Override
+    public int getBatteryPercent() {
+        int percent = battery.getIntProperty(BatteryManager.BATTERY_PROPERTY_CAPACITY);
+        // Unknown on some emulators and devices without a battery
+        return percent <= 0 || percent > 100 ? 100 : percent;
+    }
+
+    @Override
+    public boolean isCharging() {
+        return battery.isCharging();
+    }
+
+    @Override
+    public Activity getActivity(long nowMs) {
+        int hour = Instant.ofEpochMilli(nowMs).atZone(ZoneId.systemDefault()).getHour();
+        if (!power.isInteractive() && (hour >= NIGHT_START_HOUR || hour < NIGHT_END_HOUR)) {
+            return Activity.ASLEEP;
+        }
+        float[] steps = {0};
+        try {
+            series.get(VitalType.STEPS).scan(nowMs - ACTIVE_WINDOW_MS, Long.MAX_VALUE,
+                    (timestampMs, value) -> steps[0] += value);
+        } catch (IOException e) {
+            Log.e(TAG, "Unable to read recent steps", e);
+        }
+        return steps[0] >= ACTIVE_STEPS ? Activity.ACTIVE : Activity.RESTING;
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.healthmonitoringapp.security;
+
+import java.io.IOException;
+
+/**
+ * Supplies the {@link DataCipher} that local stores encrypt with.
+ */
+public interface CipherProvider {
+    /**
+     * Returns the cipher, loading or creating its key on first use. May block on disk and Keystore
+     * access, so call it off the main thread.
+     */
+    DataCipher getCipher() throws IOException;
+}
@@ -0,0 +1,133 @@
+package com.example.healthmonitoringapp.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * AES-GCM encryption of stored records with an in-memory data key.
+ *
+ * <p>Every call draws a fresh random 96-bit IV and writes it in front of the ciphertext, so a
+ * sealed record is {@code IV || ciphertext || tag}, {@link #OVERHEAD} bytes longer than its
+ * plaintext. Associated data is authenticated but not stored. The data key is kept in memory and
+ * used through the regular JCA provider, so each call costs a hardware AES pass rather than a
+ * round trip to the Keystore; see {@link KeystoreCipherProvider}. Thread-safe.</p>
+ */
+public final class DataCipher {
+    public static final int IV_SIZE = 12;
+    public static final int TAG_SIZE = 16;
+    public static final int OVERHEAD = IV_SIZE + TAG_SIZE;
+    static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final byte[] KEY_ID_LABEL = "pulseguard key id".getBytes(StandardCharsets.US_ASCII);
+
+    private final SecretKey key;
+    private final SecureRandom random = new SecureRandom();
+    // Cipher instances are costly to create and not thread-safe
+    private final ThreadLocal<Cipher> ciphers = new ThreadLocal<>();
+    private volatile String keyId;
+
+    public DataCipher(SecretKey key) {
+        this.key = key;
+    }
+
+    /**
+     * Encrypts {@code input[offset, offset + length)} into {@code output} at {@code outputOffset}.
+     *
+     * @param aad Associated data to authenticate, read from index 0; may be null.
+     * @return Number of bytes written, {@code length + OVERHEAD}.
+     */
+    public int encrypt(byte[] aad, int aadLength, byte[] input, int offset, int length,
+                       byte[] output, int outputOffset) throws GeneralSecurityException {
+        byte[] iv = new byte[IV_SIZE];
+        random.nextBytes(iv);
+        Cipher cipher = cipher();
+        cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_SIZE * 8, iv));
+        if (aad != null) {
+            cipher.updateAAD(aad, 0, aadLength);
+        }
+        System.arraycopy(iv, 0, output, outputOffset, IV_SIZE);
+        return IV_SIZE + cipher.doFinal(input, offset, length, output, outputOffset + IV_SIZE);
+    }
+
+    /**
+     * Decrypts a record written by {@link #encrypt} into {@code output} at {@code outputOffset}.
+     *
+     * @return Number of plaintext bytes written, {@code length - OVERHEAD}.
+     * @throws AEADBadTagException If the record or its associated data was modified, or was
+     *                             sealed with another key.
+     */
+    public int decrypt(byte[] aad, int aadLength, byte[] input, int offset, int length,
+                       byte[] output, int outputOffset) throws GeneralSecurityException {
+        if (length < OVERHEAD) {
+            throw new AEADBadTagException("Record too short: " + length);
+        }
+        Cipher cipher = cipher();
+        cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_SIZE * 8, input, offset, IV_SIZE));
+        if (aad != null) {
+            cipher.updateAAD(aad, 0, aadLength);
+        }
+        return cipher.doFinal(input, offset + IV_SIZE, length - IV_SIZE, output, outputOffset);
+    }
+
+    /**
+     * Encrypts a whole record without associated data.
+     */
+    public byte[] encrypt(byte[] plaintext) throws GeneralSecurityException {
+        byte[] sealed = new byte[plaintext.length + OVERHEAD];
+        encrypt(null, 0, plaintext, 0, plaintext.length, sealed, 0);
+        return sealed;
+    }
+
+    /**
+     * Decrypts {@code input[offset, offset + length)}, written by {@link #encrypt(byte[])}.
+     */
+    public byte[] decrypt(byte[] input, int offset, int length) throws GeneralSecurityException {
+        byte[] plaintext = new byte[Math.max(length - OVERHEAD, 0)];
+        int written = decrypt(null, 0, input, offset, length, plaintext, 0);
+        return written == plaintext.length ? plaintext : Arrays.copyOf(plaintext, written);
+    }
+
+    /**
+     * Returns a fingerprint of the key, the same for every cipher with this key and different for
+     * any other, so stores can tell that their files were sealed with another key before trying to
+     * read them. It is a MAC over a fixed label and reveals nothing about the key.
+     */
+    public String keyId() throws GeneralSecurityException {
+        String id = keyId;
+        if (id == null) {
+            byte[] encoded = key.getEncoded();
+            if (encoded == null) {
+                throw new GeneralSecurityException("Key is not extractable");
+            }
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(encoded, "HmacSHA256"));
+            Arrays.fill(encoded, (byte) 0);
+            byte[] digest = mac.doFinal(KEY_ID_LABEL);
+            StringBuilder hex = new StringBuilder(16);
+            for (int i = 0; i < 8; i++) {
+                hex.append(Character.forDigit((digest[i] >> 4) & 0xF, 16))
+                        .append(Character.forDigit(digest[i] & 0xF, 16));
+            }
+            id = hex.toString();
+            keyId = id;
+        }
+        return id;
+    }
+
+    private Cipher cipher() throws GeneralSecurityException {
+        Cipher cipher = ciphers.get();
+        if (cipher == null) {
+            cipher = Cipher.getInstance(TRANSFORMATION);
+            ciphers.set(cipher);
+        }
+        return cipher;
+    }
+}
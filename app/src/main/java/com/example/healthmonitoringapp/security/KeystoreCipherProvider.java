@@ -0,0 +1,176 @@
+package com.example.healthmonitoringapp.security;
+
+import android.content.Context;
+import android.security.keystore.KeyGenParameterSpec;
+import android.security.keystore.KeyProperties;
+import android.util.Log;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Provides the app's {@link DataCipher} with a data key protected by the Android Keystore.
+ *
+ * <p>Operations with a Keystore key go through a system service, which is far too slow for every
+ * block of the time-series store. So the Keystore holds only a non-exportable wrapping key, which
+ * encrypts a random AES-256 data key stored under the no-backup files directory. The data key is
+ * unwrapped once per process and then used in memory. If the wrapping key is gone, e.g. after the
+ * app data was restored on another device, or can no longer unwrap the data key, the old key file
+ * is moved aside and a new data key is created. Data sealed with the old key can no longer be read;
+ * stores notice through {@link DataCipher#keyId()} and move their files aside too.</p>
+ */
+public class KeystoreCipherProvider implements CipherProvider {
+    private static final String TAG = "KeystoreCipherProvider";
+    private static final String KEYSTORE = "AndroidKeyStore";
+    private static final String WRAPPING_KEY_ALIAS = "pulseguard_data_key_wrapper";
+    private static final String KEY_FILE = "data_key.bin";
+    private static final int KEY_FILE_MAGIC = 0x50474B31; // "PGK1"
+    private static final int DATA_KEY_BYTES = 32;
+
+    private static volatile KeystoreCipherProvider instance;
+
+    private final File keyFile;
+    private DataCipher cipher;
+
+    KeystoreCipherProvider(File keyFile) {
+        this.keyFile = keyFile;
+    }
+
+    /**
+     * Returns a singleton instance keeping its wrapped key in the no-backup files directory.
+     */
+    public static KeystoreCipherProvider getInstance(Context context) {
+        if (instance == null) {
+            synchronized (KeystoreCipherProvider.class) {
+                if (instance == null) {
+                    instance = new KeystoreCipherProvider(
+                            new File(context.getApplicationContext().getNoBackupFilesDir(), KEY_FILE));
+                }
+            }
+        }
+        return instance;
+    }
+
+    @Override
+    public synchronized DataCipher getCipher() throws IOException {
+        if (cipher == null) {
+            try {
+                cipher = new DataCipher(loadOrCreateDataKey());
+            } catch (GeneralSecurityException e) {
+                throw new IOException("Unable to load the data key", e);
+            }
+        }
+        return cipher;
+    }
+
+    private SecretKey loadOrCreateDataKey() throws GeneralSecurityException, IOException {
+        KeyStore keyStore = KeyStore.getInstance(KEYSTORE);
+        keyStore.load(null);
+        SecretKey wrappingKey = (SecretKey) keyStore.getKey(WRAPPING_KEY_ALIAS, null);
+        if (wrappingKey != null && keyFile.exists()) {
+            try {
+                return unwrap(wrappingKey);
+            } catch (AEADBadTagException e) {
+                // Another wrapping key under the same alias, the old one is gone for good
+                Log.e(TAG, "Wrapping key no longer unwraps the data key", e);
+            }
+        } else if (keyFile.exists()) {
+            Log.e(TAG, "Wrapping key missing");
+        }
+        if (keyFile.exists()) {
+            // Kept rather than deleted in case the old wrapping key ever comes back
+            File lost = new File(keyFile.getPath() + ".lost");
+            if (!lost.delete() && lost.exists() || !keyFile.renameTo(lost)) {
+                throw new IOException("Unable to move " + keyFile + " aside");
+            }
+            Log.e(TAG, "Creating a new data key, data sealed with the previous one is unreadable");
+        }
+        if (wrappingKey == null) {
+            wrappingKey = createWrappingKey();
+        }
+        byte[] dataKey = new byte[DATA_KEY_BYTES];
+        new SecureRandom().nextBytes(dataKey);
+        try {
+            wrap(wrappingKey, dataKey);
+            return new SecretKeySpec(dataKey, "AES");
+        } finally {
+            Arrays.fill(dataKey, (byte) 0);
+        }
+    }
+
+    private static SecretKey createWrappingKey() throws GeneralSecurityException {
+        KeyGenerator generator = KeyGenerator.getInstance(KeyProperties.KEY_ALGORITHM_AES, KEYSTORE);
+        generator.init(new KeyGenParameterSpec.Builder(WRAPPING_KEY_ALIAS,
+                KeyProperties.PURPOSE_ENCRYPT | KeyProperties.PURPOSE_DECRYPT)
+                .setBlockModes(KeyProperties.BLOCK_MODE_GCM)
+                .setEncryptionPaddings(KeyProperties.ENCRYPTION_PADDING_NONE)
+                .setKeySize(256)
+                .build());
+        return generator.generateKey();
+    }
+
+    private SecretKey unwrap(SecretKey wrappingKey) throws GeneralSecurityException, IOException {
+        byte[] iv;
+        byte[] wrapped;
+        try (DataInputStream in = new DataInputStream(new FileInputStream(keyFile))) {
+            if (in.readInt() != KEY_FILE_MAGIC) {
+                throw new IOException("Not a key file");
+            }
+            iv = new byte[in.readUnsignedByte()];
+            in.readFully(iv);
+            wrapped = new byte[in.readUnsignedShort()];
+            in.readFully(wrapped);
+        }
+        Cipher cipher = Cipher.getInstance(DataCipher.TRANSFORMATION);
+        cipher.init(Cipher.DECRYPT_MODE, wrappingKey, new GCMParameterSpec(DataCipher.TAG_SIZE * 8, iv));
+        byte[] dataKey = cipher.doFinal(wrapped);
+        try {
+            return new SecretKeySpec(dataKey, "AES");
+        } finally {
+            Arrays.fill(dataKey, (byte) 0);
+        }
+    }
+
+    private void wrap(SecretKey wrappingKey, byte[] dataKey) throws GeneralSecurityException, IOException {
+        // Keystore keys pick their own IV
+        Cipher cipher = Cipher.getInstance(DataCipher.TRANSFORMATION);
+        cipher.init(Cipher.ENCRYPT_MODE, wrappingKey);
+        byte[] wrapped = cipher.doFinal(dataKey);
+        byte[] iv = cipher.getIV();
+
+        File parent = keyFile.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Unable to create " + parent);
+        }
+        File tmp = new File(keyFile.getPath() + ".tmp");
+        try (FileOutputStream fileOut = new FileOutputStream(tmp);
+             DataOutputStream out = new DataOutputStream(fileOut)) {
+            out.writeInt(KEY_FILE_MAGIC);
+            out.writeByte(iv.length);
+            out.write(iv);
+            out.writeShort(wrapped.length);
+            out.write(wrapped);
+            out.flush();
+            fileOut.getFD().sync();
+        }
+        if (!tmp.renameTo(keyFile)) {
+            tmp.delete();
+            throw new IOException("Unable to replace " + keyFile);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.healthmonitoringapp.sync;
+
+/**
+ * Picks the size of the next batch of background work from how long the last batch took, so a
+ * slow network or a busy device gets smaller batches and a fast one gets fewer, larger ones.
+ *
+ * <p>The size is scaled by {@code target / elapsed}, by at most a factor of two per batch so a
+ * single outlier does not swing it, and kept within {@code [min, max]}. A batch that was cut short
+ * (e.g. the last one of a window) only ever grows the size if it ran fast and only ever shrinks it
+ * if it ran slow. The unit of size is up to the caller: items, bytes or a span of time.</p>
+ */
+public class AdaptiveBatchSizer {
+    static final double MAX_STEP = 2;
+
+    private final long min;
+    private final long max;
+    private final long targetMs;
+    private long size;
+
+    public AdaptiveBatchSizer(long initial, long min, long max, long targetMs) {
+        if (min <= 0 || min > max || targetMs <= 0) {
+            throw new IllegalArgumentException("Invalid bounds " + min + ".." + max + " or target " + targetMs);
+        }
+        this.min = min;
+        this.max = max;
+        this.targetMs = targetMs;
+        this.size = clamp(initial);
+    }
+
+    /** Size of the next batch. */
+    public synchronized long size() {
+        return size;
+    }
+
+    /**
+     * Records that a batch of {@code batchSize} took {@code elapsedMs} to process.
+     */
+    public synchronized void record(long batchSize, long elapsedMs) {
+        if (batchSize <= 0) {
+            return;
+        }
+        double ratio = elapsedMs <= 0 ? MAX_STEP : (double) targetMs / elapsedMs;
+        ratio = Math.max(1 / MAX_STEP, Math.min(MAX_STEP, ratio));
+        long scaled = clamp(Math.round(batchSize * ratio));
+        size = ratio >= 1 ? Math.max(size, scaled) : Math.min(size, scaled);
+    }
+
+    private long clamp(long value) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
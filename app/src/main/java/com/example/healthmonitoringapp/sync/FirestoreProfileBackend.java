@@ -0,0 +1,79 @@
+package com.example.healthmonitoringapp.sync;
+
+import com.example.healthmonitoringapp.metrics.Counter;
+import com.example.healthmonitoringapp.metrics.Metrics;
+import com.example.healthmonitoringapp.metrics.Timer;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.SetOptions;
+
+import java.util.Map;
+
+/**
+ * {@link RemoteProfileBackend} for the Firestore {@code users} collection.
+ * Firestore is only initialized when the first request is made. Every request is counted and timed
+ * until its result arrives.
+ */
+public class FirestoreProfileBackend implements RemoteProfileBackend {
+    static final String COLLECTION_USERS = "users";
+    private static final Timer READ_TIMER = Metrics.getInstance().timer("Firestore.read");
+    private static final Timer WRITE_TIMER = Metrics.getInstance().timer("Firestore.write");
+    private static final Timer DELETE_TIMER = Metrics.getInstance().timer("Firestore.delete");
+    private static final Counter FAILURES = Metrics.getInstance().counter("Firestore.failures");
+
+    private FirebaseFirestore db;
+
+    private synchronized FirebaseFirestore db() {
+        if (db == null) {
+            db = FirebaseFirestore.getInstance();
+        }
+        return db;
+    }
+
+    @Override
+    public void fetch(String documentId, FetchCallback callback) {
+        long start = System.nanoTime();
+        db().collection(COLLECTION_USERS)
+                .document(documentId)
+                .get()
+                .addOnSuccessListener(document -> {
+                    READ_TIMER.record(System.nanoTime() - start);
+                    callback.onFetched(document.exists() ? document.getData() : null);
+                })
+                .addOnFailureListener(e -> {
+                    FAILURES.increment();
+                    callback.onFailure(e);
+                });
+    }
+
+    @Override
+    public void mergeFields(String documentId, Map<String, Object> fields, Callback callback) {
+        long start = System.nanoTime();
+        db().collection(COLLECTION_USERS)
+                .document(documentId)
+                .set(fields, SetOptions.merge())
+                .addOnSuccessListener(unused -> {
+                    WRITE_TIMER.record(System.nanoTime() - start);
+                    callback.onSuccess();
+                })
+                .addOnFailureListener(e -> {
+                    FAILURES.increment();
+                    callback.onFailure(e);
+                });
+    }
+
+    @Override
+    public void delete(String documentId, Callback callback) {
+        long start = System.nanoTime();
+        db().collection(COLLECTION_USERS)
+                .document(documentId)
+                .delete()
+                .addOnSuccessListener(unused -> {
+                    DELETE_TIMER.record(System.nanoTime() - start);
+                    callback.onSuccess();
+                })
+                .addOnFailureListener(e -> {
+                    FAILURES.increment();
+                    callback.onFailure(e);
+                });
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.healthmonitoringapp.sync;
+
+import com.example.healthmonitoringapp.metrics.Counter;
+import com.example.healthmonitoringapp.metrics.Metrics;
+import com.example.healthmonitoringapp.metrics.Timer;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.Blob;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * {@link RemoteVitalsBackend} writing to {@code users/{accountId}/vitals}, one document per vital
+ * type and day. Hours are stored as blobs in the document's {@code hours} map and merged into it,
+ * so hours written before are kept. Firestore is only initialized when the first batch is
+ * committed. Every commit is timed and every document write counted.
+ */
+public class FirestoreVitalsBackend implements RemoteVitalsBackend {
+    static final String COLLECTION_VITALS = "vitals";
+    static final String FIELD_TYPE = "type";
+    static final String FIELD_DAY = "day";
+    static final String FIELD_HOURS = "hours";
+    private static final long COMMIT_TIMEOUT_SECONDS = 60;
+    private static final Timer COMMIT_TIMER = Metrics.getInstance().timer("Firestore.commit");
+    private static final Counter WRITES = Metrics.getInstance().counter("Firestore.vitalsWrites");
+    private static final Counter FAILURES = Metrics.getInstance().counter("Firestore.failures");
+
+    private FirebaseFirestore db;
+
+    private synchronized FirebaseFirestore db() {
+        if (db == null) {
+            db = FirebaseFirestore.getInstance();
+        }
+        return db;
+    }
+
+    @Override
+    public void commit(String accountId, List<VitalsDayWrite> writes) throws IOException {
+        WriteBatch batch = db().batch();
+        for (VitalsDayWrite write : writes) {
+            Map<String, Object> hours = new HashMap<>();
+            for (Map.Entry<String, byte[]> hour : write.getHours().entrySet()) {
+                hours.put(hour.getKey(), Blob.fromBytes(hour.getValue()));
+            }
+            Map<String, Object> fields = new HashMap<>();
+            fields.put(FIELD_TYPE, write.getType().name());
+            fields.put(FIELD_DAY, write.getDay());
+            fields.put(FIELD_HOURS, hours);
+            batch.set(db().collection(FirestoreProfileBackend.COLLECTION_USERS)
+                    .document(accountId)
+                    .collection(COLLECTION_VITALS)
+                    .document(write.getDocumentId()), fields, SetOptions.merge());
+        }
+        long start = System.nanoTime();
+        try {
+            Tasks.await(batch.commit(), COMMIT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while writing vitals");
+        } catch (ExecutionException | TimeoutException e) {
+            FAILURES.increment();
+            throw new IOException("Unable to write " + writes.size() + " vitals documents", e);
+        }
+        COMMIT_TIMER.record(System.nanoTime() - start);
+        WRITES.add(writes.size());
+    }
+}
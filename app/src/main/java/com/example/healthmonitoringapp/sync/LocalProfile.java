@@ -0,0 +1,43 @@
+package com.example.healthmonitoringapp.sync;
+
+import com.example.healthmonitoringapp.utils.ProfileRepository;
+import com.example.healthmonitoringapp.utils.UserProfile;
+
+import java.util.function.UnaryOperator;
+
+/**
+ * Read and write access to the locally stored profile, e.g. the ProfileRepository.
+ */
+public interface LocalProfile {
+    /** Returns the id of the account the profile belongs to, or an empty string when signed out. */
+    String getAccountId();
+
+    UserProfile get();
+
+    /**
+     * Atomically applies a change to the profile and returns the result.
+     */
+    UserProfile update(UnaryOperator<UserProfile> change);
+
+    /**
+     * Returns a view of the given repository.
+     */
+    static LocalProfile of(ProfileRepository repository) {
+        return new LocalProfile() {
+            @Override
+            public String getAccountId() {
+                return repository.getAccountId();
+            }
+
+            @Override
+            public UserProfile get() {
+                return repository.get();
+            }
+
+            @Override
+            public UserProfile update(UnaryOperator<UserProfile> change) {
+                return repository.update(change);
+            }
+        };
+    }
+}
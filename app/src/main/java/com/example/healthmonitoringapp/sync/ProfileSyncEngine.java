@@ -0,0 +1,616 @@
+package com.example.healthmonitoringapp.sync;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+
+import androidx.annotation.NonNull;
+
+import com.example.healthmonitoringapp.metrics.Metrics;
+import com.example.healthmonitoringapp.utils.ProfileRepository;
+import com.example.healthmonitoringapp.utils.SharedPrefManager;
+import com.example.healthmonitoringapp.utils.UserProfile;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Pushes local profile edits to the remote {@code users} document of the signed-in account.
+ *
+ * <p>The local profile is the source of truth: the engine only remembers which fields are dirty and
+ * reads their current values when it sends. Edits arriving within {@link #BATCH_DELAY_MS} are merged
+ * into one write, and only the dirty fields are sent. The dirty set is persisted, so edits made
+ * offline survive a restart; failed or unacknowledged writes are retried with exponential backoff.</p>
+ *
+ * <p>The engine also keeps a {@link SyncedVersion}: a cached copy of the field values the remote
+ * document is known to hold and when it was last read. Fields whose value matches the copy are not
+ * sent again, and signing in to the same account restores the profile from the copy without
+ * reading the document while it is fresh.</p>
+ *
+ * <p>Documents are keyed by Firebase UID. Versions before that keyed them by email address; the
+ * first sign-in that finds no document under the UID copies the email-keyed one over and deletes
+ * it. All state is kept per account, so switching accounts picks up the other account's unsent
+ * edits where they were left.</p>
+ */
+public class ProfileSyncEngine implements ProfileRepository.Listener {
+    static final long BATCH_DELAY_MS = 2_000;
+    static final long ACK_TIMEOUT_MS = 30_000;
+    static final long MIN_BACKOFF_MS = 5_000;
+    static final long MAX_BACKOFF_MS = 15 * 60_000;
+    /** How long a read of the remote document is trusted before sign-in reads it again. */
+    static final long FETCH_FRESHNESS_MS = 24 * 60 * 60_000L;
+
+    static final String FIELD_UPDATED_AT = "updatedAt";
+
+    private static final Set<UserProfile.Field> IDENTITY_FIELDS =
+            EnumSet.of(UserProfile.Field.NAME, UserProfile.Field.EMAIL, UserProfile.Field.PROFILE_PIC);
+    private static final Set<UserProfile.Field> USER_ENTERED_FIELDS =
+            EnumSet.of(UserProfile.Field.DOB, UserProfile.Field.PHONE, UserProfile.Field.ADDRESS);
+
+    private static volatile ProfileSyncEngine instance;
+
+    private static final RemoteProfileBackend.Callback IGNORE_RESULT = new RemoteProfileBackend.Callback() {
+        @Override
+        public void onSuccess() {
+        }
+
+        @Override
+        public void onFailure(Exception e) {
+            // A leftover copy is harmless; documents are no longer read by email
+        }
+    };
+
+    /**
+     * Persists the engine's state between process restarts, separately for each account.
+     */
+    public interface SyncStateStore {
+        Set<UserProfile.Field> loadPendingFields(String accountId);
+
+        void savePendingFields(String accountId, Set<UserProfile.Field> fields);
+
+        /** Returns the value last passed to {@link #saveSyncedVersion}, or an empty string. */
+        String loadSyncedVersion(String accountId);
+
+        void saveSyncedVersion(String accountId, String encoded);
+    }
+
+    private final RemoteProfileBackend backend;
+    private final LocalProfile local;
+    private final SyncStateStore stateStore;
+    private final TaskScheduler scheduler;
+    private final LongSupplier clock;
+
+    private final EnumSet<UserProfile.Field> pending = EnumSet.noneOf(UserProfile.Field.class);
+    private final EnumSet<UserProfile.Field> inFlight = EnumSet.noneOf(UserProfile.Field.class);
+    private final Map<UserProfile.Field, String> inFlightValues = new EnumMap<>(UserProfile.Field.class);
+    private String accountId = "";
+    private SyncedVersion synced = new SyncedVersion("");
+    private boolean started;
+    private boolean flushScheduled;
+    private int failedAttempts;
+    private long requestId;
+
+    private final AtomicLong remoteReads = new AtomicLong();
+    private final AtomicLong remoteReadsAvoided = new AtomicLong();
+    private final AtomicLong remoteWrites = new AtomicLong();
+    private final AtomicLong remoteWritesAvoided = new AtomicLong();
+    private final AtomicLong documentsMigrated = new AtomicLong();
+
+    ProfileSyncEngine(RemoteProfileBackend backend, LocalProfile local, SyncStateStore stateStore,
+                      TaskScheduler scheduler, LongSupplier clock) {
+        this.backend = backend;
+        this.local = local;
+        this.stateStore = stateStore;
+        this.scheduler = scheduler;
+        this.clock = clock;
+    }
+
+    /**
+     * Returns a singleton instance syncing the {@link ProfileRepository} to Firestore.
+     */
+    public static ProfileSyncEngine getInstance(Context context) {
+        if (instance == null) {
+            synchronized (ProfileSyncEngine.class) {
+                if (instance == null) {
+                    Context appContext = context.getApplicationContext();
+                    ProfileRepository repository = ProfileRepository.getInstance(appContext);
+                    ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+                    ProfileSyncEngine engine = new ProfileSyncEngine(
+                            new FirestoreProfileBackend(),
+                            LocalProfile.of(repository),
+                            new StoredSyncState(SharedPrefManager.getInstance(appContext)::getAccountStore),
+                            (task, delayMs) -> executor.schedule(task, delayMs, TimeUnit.MILLISECONDS),
+                            System::currentTimeMillis);
+                    executor.execute(engine::start);
+                    repository.addListener(engine);
+                    appContext.getSystemService(ConnectivityManager.class)
+                            .registerDefaultNetworkCallback(new ConnectivityManager.NetworkCallback() {
+                                @Override
+                                public void onAvailable(@NonNull Network network) {
+                                    engine.onNetworkAvailable();
+                                }
+                            });
+                    Metrics metrics = Metrics.getInstance();
+                    metrics.gauge("ProfileSyncEngine.remoteReads", engine::getRemoteReads);
+                    metrics.gauge("ProfileSyncEngine.remoteReadsAvoided", engine::getRemoteReadsAvoided);
+                    metrics.gauge("ProfileSyncEngine.remoteWrites", engine::getRemoteWrites);
+                    metrics.gauge("ProfileSyncEngine.remoteWritesAvoided", engine::getRemoteWritesAvoided);
+                    instance = engine;
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Restores state left by a previous process and sends unsent fields.
+     */
+    synchronized void start() {
+        accountId = local.getAccountId();
+        synced = SyncedVersion.decode(stateStore.loadSyncedVersion(accountId));
+        pending.addAll(stateStore.loadPendingFields(accountId));
+        started = true;
+        notifyAll();
+        scheduleFlush(0);
+    }
+
+    /**
+     * Records a successful sign-in, once the local profile has been switched to the account. The
+     * identity from the auth provider is stored locally and only sent if the document does not
+     * hold it already; the document is only read if the cached copy is missing or stale. Safe to
+     * call from the main thread.
+     *
+     * @param accountId Firebase UID, which keys the remote document.
+     */
+    public void onSignedIn(String accountId, String name, String email, String photoUrl) {
+        scheduler.schedule(() -> handleSignIn(accountId, name, email, photoUrl), 0);
+    }
+
+    private void handleSignIn(String signedInId, String name, String email, String photoUrl) {
+        synchronized (this) {
+            if (!signedInId.equals(accountId)) {
+                // Switched to another account meanwhile
+                return;
+            }
+        }
+        local.update(profile -> profile.withName(name).withEmail(email).withProfilePicUrl(photoUrl));
+
+        Map<UserProfile.Field, String> cached;
+        synchronized (this) {
+            // Recheck the identity against the document; fields it already holds are skipped in flush()
+            pending.addAll(IDENTITY_FIELDS);
+            persistPending();
+            scheduleFlush(BATCH_DELAY_MS);
+
+            boolean fresh = signedInId.equals(synced.documentId) && synced.fetchedAtMs != SyncedVersion.NEVER
+                    && clock.getAsLong() - synced.fetchedAtMs < FETCH_FRESHNESS_MS;
+            if (!fresh) {
+                if (!signedInId.equals(synced.documentId)) {
+                    synced = new SyncedVersion(signedInId);
+                    persistSynced();
+                }
+                cached = null;
+            } else {
+                remoteReadsAvoided.incrementAndGet();
+                cached = remoteValuesToAdopt();
+            }
+        }
+        if (cached != null) {
+            adopt(cached);
+            return;
+        }
+
+        remoteReads.incrementAndGet();
+        backend.fetch(signedInId, new RemoteProfileBackend.FetchCallback() {
+            @Override
+            public void onFetched(Map<String, Object> fields) {
+                if (fields == null && email != null && !email.isEmpty()) {
+                    migrateLegacyDocument(signedInId, email);
+                } else {
+                    onDocumentFetched(signedInId, fields);
+                }
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                // Nothing to merge; the next sign-in will try again
+            }
+        });
+    }
+
+    /**
+     * Copies the document older versions keyed by email address to the account's document, then
+     * deletes it. The copy is only recorded as read once written, so a failure is retried on the
+     * next sign-in.
+     */
+    private void migrateLegacyDocument(String documentId, String email) {
+        remoteReads.incrementAndGet();
+        backend.fetch(email, new RemoteProfileBackend.FetchCallback() {
+            @Override
+            public void onFetched(Map<String, Object> fields) {
+                if (fields == null) {
+                    onDocumentFetched(documentId, null);
+                    return;
+                }
+                backend.mergeFields(documentId, fields, new RemoteProfileBackend.Callback() {
+                    @Override
+                    public void onSuccess() {
+                        documentsMigrated.incrementAndGet();
+                        onDocumentFetched(documentId, fields);
+                        backend.delete(email, IGNORE_RESULT);
+                    }
+
+                    @Override
+                    public void onFailure(Exception e) {
+                        // The next sign-in will try again
+                    }
+                });
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                // Nothing to merge; the next sign-in will try again
+            }
+        });
+    }
+
+    @Override
+    public synchronized void onFieldsStored(Set<UserProfile.Field> fields) {
+        if (pending.addAll(fields)) {
+            persistPending();
+        }
+        scheduleFlush(BATCH_DELAY_MS);
+    }
+
+    @Override
+    public synchronized void onAccountChanged(String accountId) {
+        if (!started || accountId.equals(this.accountId)) {
+            // start() reads the account from the local profile
+            return;
+        }
+        // Unsent and unacknowledged edits are persisted for the previous account and sent when
+        // it is selected again
+        pending.clear();
+        inFlight.clear();
+        inFlightValues.clear();
+        requestId++;
+        failedAttempts = 0;
+        this.accountId = accountId;
+        synced = SyncedVersion.decode(stateStore.loadSyncedVersion(accountId));
+        pending.addAll(stateStore.loadPendingFields(accountId));
+        notifyAll();
+        scheduleFlush(0);
+    }
+
+    @Override
+    public synchronized void onCleared() {
+        // The signed-out user's edits can no longer be attributed to a document.
+        // The synced version still describes the remote document, so it is kept.
+        pending.clear();
+        inFlight.clear();
+        inFlightValues.clear();
+        requestId++;
+        failedAttempts = 0;
+        persistPending();
+        notifyAll();
+    }
+
+    /**
+     * Retries immediately instead of waiting out the backoff.
+     */
+    public synchronized void onNetworkAvailable() {
+        if (failedAttempts > 0) {
+            failedAttempts = 0;
+            flushScheduled = false;
+            flush();
+        }
+    }
+
+    /**
+     * Sends unsent edits now, without waiting for the batch delay or backoff, and blocks until the
+     * backend has acknowledged all of them. Used by background work that must not end while edits
+     * are still unsent.
+     *
+     * @return False if edits are still unsent after the timeout, e.g. while offline. True if
+     *         there is nothing to send, including while no one is signed in.
+     */
+    public synchronized boolean flushAndWait(long timeoutMs) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        // Edits left by a previous process are only known once start() has run
+        while (!started) {
+            long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remainingMs <= 0) {
+                return false;
+            }
+            wait(remainingMs);
+        }
+        if (accountId.isEmpty()) {
+            return true;
+        }
+        failedAttempts = 0;
+        flush();
+        while (hasPendingChanges()) {
+            long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remainingMs <= 0) {
+                return false;
+            }
+            // Woken by every change that can empty the queue
+            wait(remainingMs);
+        }
+        return true;
+    }
+
+    /**
+     * Returns true if there are edits that have not been acknowledged by the backend.
+     */
+    public synchronized boolean hasPendingChanges() {
+        return !pending.isEmpty() || !inFlight.isEmpty();
+    }
+
+    /** Number of remote document reads issued. */
+    public long getRemoteReads() {
+        return remoteReads.get();
+    }
+
+    /** Number of sign-ins that skipped reading the document because the cached copy was fresh. */
+    public long getRemoteReadsAvoided() {
+        return remoteReadsAvoided.get();
+    }
+
+    /** Number of remote merge writes acknowledged. */
+    public long getRemoteWrites() {
+        return remoteWrites.get();
+    }
+
+    /** Number of flushes that sent nothing because the document already held every value. */
+    public long getRemoteWritesAvoided() {
+        return remoteWritesAvoided.get();
+    }
+
+    /** Number of email-keyed documents copied to a UID-keyed one. */
+    public long getDocumentsMigrated() {
+        return documentsMigrated.get();
+    }
+
+    synchronized void flush() {
+        flushScheduled = false;
+        if (!inFlight.isEmpty() || pending.isEmpty()) {
+            return;
+        }
+        String documentId = accountId;
+        if (documentId.isEmpty()) {
+            // Not signed in; the fields are sent once an account is selected
+            return;
+        }
+        UserProfile profile = local.get();
+        if (!documentId.equals(synced.documentId)) {
+            synced = new SyncedVersion(documentId);
+            persistSynced();
+        }
+
+        Map<String, Object> delta = new HashMap<>();
+        for (UserProfile.Field field : pending) {
+            String value = profile.get(field);
+            if (!value.equals(synced.values.get(field))) {
+                delta.put(remoteName(field), value);
+                inFlight.add(field);
+                inFlightValues.put(field, value);
+            }
+        }
+        pending.clear();
+        if (delta.isEmpty()) {
+            remoteWritesAvoided.incrementAndGet();
+            persistPending();
+            notifyAll();
+            return;
+        }
+        long updatedAt = clock.getAsLong();
+        delta.put(FIELD_UPDATED_AT, updatedAt);
+
+        long id = ++requestId;
+        scheduler.schedule(() -> onResult(id, updatedAt, new IllegalStateException("No acknowledgement")),
+                ACK_TIMEOUT_MS);
+        backend.mergeFields(documentId, delta, new RemoteProfileBackend.Callback() {
+            @Override
+            public void onSuccess() {
+                onResult(id, updatedAt, null);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                onResult(id, updatedAt, e);
+            }
+        });
+    }
+
+    private void onDocumentFetched(String documentId, Map<String, Object> fields) {
+        Map<UserProfile.Field, String> remoteValues;
+        synchronized (this) {
+            if (!documentId.equals(synced.documentId)) {
+                // Switched to another account meanwhile
+                return;
+            }
+            synced.fetchedAtMs = clock.getAsLong();
+            if (fields != null) {
+                Object updatedAt = fields.get(FIELD_UPDATED_AT);
+                if (updatedAt instanceof Long) {
+                    synced.updatedAtMs = (Long) updatedAt;
+                }
+                for (UserProfile.Field field : UserProfile.Field.values()) {
+                    Object value = fields.get(remoteName(field));
+                    if (value instanceof String) {
+                        synced.values.put(field, (String) value);
+                    }
+                }
+            }
+            persistSynced();
+            remoteValues = remoteValuesToAdopt();
+        }
+        adopt(remoteValues);
+    }
+
+    /**
+     * Returns the cached remote values of user-entered fields that have no unsent local edits.
+     */
+    private Map<UserProfile.Field, String> remoteValuesToAdopt() {
+        Map<UserProfile.Field, String> remoteValues = new EnumMap<>(UserProfile.Field.class);
+        for (UserProfile.Field field : USER_ENTERED_FIELDS) {
+            String value = synced.values.get(field);
+            if (value != null && !value.isEmpty() && !pending.contains(field) && !inFlight.contains(field)) {
+                remoteValues.put(field, value);
+            }
+        }
+        return remoteValues;
+    }
+
+    private void adopt(Map<UserProfile.Field, String> remoteValues) {
+        if (remoteValues.isEmpty()) {
+            return;
+        }
+        // Stored values come back through onFieldsStored() and are skipped by flush()
+        local.update(profile -> {
+            UserProfile updated = profile;
+            for (Map.Entry<UserProfile.Field, String> value : remoteValues.entrySet()) {
+                updated = updated.with(value.getKey(), value.getValue());
+            }
+            return updated;
+        });
+    }
+
+    private synchronized void onResult(long id, long updatedAt, Exception error) {
+        if (id != requestId || inFlight.isEmpty()) {
+            // Stale callback: already timed out, answered, or cleared
+            return;
+        }
+        requestId++;
+        if (error == null) {
+            remoteWrites.incrementAndGet();
+            synced.values.putAll(inFlightValues);
+            synced.updatedAtMs = updatedAt;
+            inFlight.clear();
+            inFlightValues.clear();
+            failedAttempts = 0;
+            persistSynced();
+            persistPending();
+            notifyAll();
+            scheduleFlush(BATCH_DELAY_MS);
+        } else {
+            pending.addAll(inFlight);
+            inFlight.clear();
+            inFlightValues.clear();
+            failedAttempts++;
+            scheduleFlush(backoffDelayMs(failedAttempts));
+        }
+    }
+
+    private void scheduleFlush(long delayMs) {
+        if (flushScheduled || pending.isEmpty()) {
+            return;
+        }
+        flushScheduled = true;
+        scheduler.schedule(this::flush, delayMs);
+    }
+
+    private void persistPending() {
+        EnumSet<UserProfile.Field> unsent = EnumSet.copyOf(pending);
+        unsent.addAll(inFlight);
+        stateStore.savePendingFields(accountId, unsent);
+    }
+
+    private void persistSynced() {
+        stateStore.saveSyncedVersion(accountId, synced.encode());
+    }
+
+    /**
+     * Returns the retry delay after the given number of consecutive failures.
+     */
+    static long backoffDelayMs(int failedAttempts) {
+        long delay = MIN_BACKOFF_MS << Math.min(failedAttempts - 1, 20);
+        return Math.min(delay, MAX_BACKOFF_MS);
+    }
+
+    /**
+     * Returns the Firestore field name used by LoginActivity for a profile field.
+     */
+    static String remoteName(UserProfile.Field field) {
+        switch (field) {
+            case NAME:
+                return "name";
+            case EMAIL:
+                return "email";
+            case PROFILE_PIC:
+                return "profilePic";
+            case DOB:
+                return "dob";
+            case PHONE:
+                return "phone";
+            case ADDRESS:
+                return "address";
+            default:
+                throw new IllegalArgumentException("Unknown field " + field);
+        }
+    }
+
+    /**
+     * What the engine knows about the remote document: the field values it holds, when it was
+     * last read and the {@code updatedAt} of the last write seen.
+     */
+    static final class SyncedVersion {
+        static final long NEVER = Long.MIN_VALUE;
+
+        final String documentId;
+        final Map<UserProfile.Field, String> values = new EnumMap<>(UserProfile.Field.class);
+        long fetchedAtMs = NEVER;
+        long updatedAtMs;
+
+        SyncedVersion(String documentId) {
+            this.documentId = documentId;
+        }
+
+        String encode() {
+            StringBuilder builder = new StringBuilder()
+                    .append(documentId).append('\n')
+                    .append(fetchedAtMs).append('\n')
+                    .append(updatedAtMs);
+            Base64.Encoder encoder = Base64.getEncoder();
+            for (Map.Entry<UserProfile.Field, String> entry : values.entrySet()) {
+                // Values may contain line breaks, e.g. addresses
+                builder.append('\n').append(entry.getKey().name()).append('=')
+                        .append(encoder.encodeToString(entry.getValue().getBytes(StandardCharsets.UTF_8)));
+            }
+            return builder.toString();
+        }
+
+        static SyncedVersion decode(String encoded) {
+            String[] lines = encoded.split("\n");
+            if (lines.length < 3) {
+                return new SyncedVersion("");
+            }
+            SyncedVersion version = new SyncedVersion(lines[0]);
+            try {
+                version.fetchedAtMs = Long.parseLong(lines[1]);
+                version.updatedAtMs = Long.parseLong(lines[2]);
+                Base64.Decoder decoder = Base64.getDecoder();
+                for (int i = 3; i < lines.length; i++) {
+                    int separator = lines[i].indexOf('=');
+                    version.values.put(UserProfile.Field.valueOf(lines[i].substring(0, separator)),
+                            new String(decoder.decode(lines[i].substring(separator + 1)), StandardCharsets.UTF_8));
+                }
+            } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+                // Unreadable state only costs an extra read and write
+                return new SyncedVersion(lines[0]);
+            }
+            return version;
+        }
+    }
+}
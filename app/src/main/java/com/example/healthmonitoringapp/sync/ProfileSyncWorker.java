@@ -0,0 +1,54 @@
+package com.example.healthmonitoringapp.sync;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.ForegroundInfo;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+/**
+ * Background job that keeps the process alive until unsent profile edits have been acknowledged by
+ * Firestore. The {@link ProfileSyncEngine} does the sending; this only makes sure it gets the chance
+ * when the user has left the app.
+ */
+public class ProfileSyncWorker extends Worker {
+    private static final String TAG = "ProfileSyncWorker";
+    static final long FLUSH_TIMEOUT_MS = 60_000;
+    static final int MAX_ATTEMPTS = 5;
+
+    private final ProfileSyncEngine engine;
+
+    /**
+     * Called by WorkManager's default worker factory.
+     */
+    public ProfileSyncWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        this(context, params, ProfileSyncEngine.getInstance(context));
+    }
+
+    public ProfileSyncWorker(@NonNull Context context, @NonNull WorkerParameters params, ProfileSyncEngine engine) {
+        super(context, params);
+        this.engine = engine;
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        try {
+            if (engine.flushAndWait(FLUSH_TIMEOUT_MS)) {
+                return Result.success();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Log.e(TAG, "Profile edits still unsent, attempt " + (getRunAttemptCount() + 1));
+        return getRunAttemptCount() + 1 < MAX_ATTEMPTS ? Result.retry() : Result.failure();
+    }
+
+    @NonNull
+    @Override
+    public ForegroundInfo getForegroundInfo() {
+        return SyncScheduler.foregroundInfo(getApplicationContext());
+    }
+}
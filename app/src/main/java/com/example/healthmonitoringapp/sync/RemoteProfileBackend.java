@@ -0,0 +1,43 @@
+package com.example.healthmonitoringapp.sync;
+
+import java.util.Map;
+
+/**
+ * Remote store for user profile documents, e.g. the Firestore {@code users} collection.
+ */
+public interface RemoteProfileBackend {
+
+    /**
+     * Completion callback for remote operations. May be called on any thread.
+     */
+    interface Callback {
+        void onSuccess();
+
+        void onFailure(Exception e);
+    }
+
+    /**
+     * Receives the fields of a fetched document. May be called on any thread.
+     */
+    interface FetchCallback {
+        /** Called with the document's fields, or null if the document does not exist. */
+        void onFetched(Map<String, Object> fields);
+
+        void onFailure(Exception e);
+    }
+
+    /**
+     * Reads the whole document.
+     */
+    void fetch(String documentId, FetchCallback callback);
+
+    /**
+     * Merges the given fields into the document, leaving other fields untouched.
+     */
+    void mergeFields(String documentId, Map<String, Object> fields, Callback callback);
+
+    /**
+     * Deletes the document.
+     */
+    void delete(String documentId, Callback callback);
+}
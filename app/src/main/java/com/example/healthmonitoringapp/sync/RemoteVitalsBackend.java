@@ -0,0 +1,22 @@
+package com.example.healthmonitoringapp.sync;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Remote store for the daily vitals documents of each account, e.g. a Firestore subcollection of
+ * the user's document.
+ */
+public interface RemoteVitalsBackend {
+    /** Most writes one {@link #commit} may hold, Firestore's limit for a batched write. */
+    int MAX_BATCH_WRITES = 500;
+
+    /**
+     * Merges every write into its document in one atomic request. Blocks until the request is
+     * acknowledged; call from a background thread.
+     *
+     * @throws IOException if the request failed or was not acknowledged. It may still have been
+     *                     applied.
+     */
+    void commit(String accountId, List<VitalsDayWrite> writes) throws IOException;
+}
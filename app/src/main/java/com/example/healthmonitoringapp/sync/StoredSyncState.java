@@ -0,0 +1,140 @@
+package com.example.healthmonitoringapp.sync;
+
+import android.util.Log;
+
+import com.example.healthmonitoringapp.data.VitalType;
+import com.example.healthmonitoringapp.utils.UserDataStore;
+import com.example.healthmonitoringapp.utils.UserProfile;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+/**
+ * Keeps the state of {@link ProfileSyncEngine} and {@link VitalsUploader} in each account's
+ * {@link UserDataStore}. Accounts the device no longer retains read as having no state, and writes
+ * for them are dropped.
+ */
+class StoredSyncState implements ProfileSyncEngine.SyncStateStore, VitalsUploader.UploadStateStore {
+    private static final String TAG = "StoredSyncState";
+
+    // Also listed by SharedPrefManager, which moves them into the account stores
+    private static final String KEY_SYNC_PENDING = "sync_pending_fields"; // Comma-separated UserProfile.Field names
+    private static final String KEY_SYNC_VERSION = "sync_remote_version"; // Encoded by ProfileSyncEngine
+    private static final String KEY_UPLOAD_CURSOR_PREFIX = "vitals_uploaded_"; // + VitalType name, epoch millis
+    private static final String KEY_UPLOAD_FLOOR_PREFIX = "vitals_floor_"; // + VitalType name, epoch millis
+    private static final String KEY_VITALS_OWNER = "vitals_owner"; // Account id, in the device-wide store
+
+    private final Function<String, UserDataStore> accountStores;
+
+    /**
+     * @param accountStores Returns the store of an account, the device-wide store for an empty
+     *                      account id, or null if the account is no longer retained.
+     */
+    StoredSyncState(Function<String, UserDataStore> accountStores) {
+        this.accountStores = accountStores;
+    }
+
+    @Override
+    public Set<UserProfile.Field> loadPendingFields(String accountId) {
+        EnumSet<UserProfile.Field> fields = EnumSet.noneOf(UserProfile.Field.class);
+        UserDataStore store = accountStores.apply(accountId);
+        if (store == null) {
+            return fields;
+        }
+        for (String name : store.getString(KEY_SYNC_PENDING, "").split(",")) {
+            if (!name.isEmpty()) {
+                fields.add(UserProfile.Field.valueOf(name));
+            }
+        }
+        return fields;
+    }
+
+    @Override
+    public void savePendingFields(String accountId, Set<UserProfile.Field> fields) {
+        StringBuilder names = new StringBuilder();
+        for (UserProfile.Field field : fields) {
+            if (names.length() > 0) {
+                names.append(',');
+            }
+            names.append(field.name());
+        }
+        edit(accountId, data -> data.put(KEY_SYNC_PENDING, names.toString()));
+    }
+
+    @Override
+    public String loadSyncedVersion(String accountId) {
+        UserDataStore store = accountStores.apply(accountId);
+        return store != null ? store.getString(KEY_SYNC_VERSION, "") : "";
+    }
+
+    @Override
+    public void saveSyncedVersion(String accountId, String encoded) {
+        edit(accountId, data -> data.put(KEY_SYNC_VERSION, encoded));
+    }
+
+    @Override
+    public long loadUploadedUntil(String accountId, VitalType type) {
+        return loadLong(accountId, KEY_UPLOAD_CURSOR_PREFIX + type.name(), VitalsUploader.NOTHING_UPLOADED);
+    }
+
+    @Override
+    public void saveUploadedUntil(String accountId, VitalType type, long timestampMs) {
+        editAndWait(accountId, KEY_UPLOAD_CURSOR_PREFIX + type.name(), Long.toString(timestampMs));
+    }
+
+    @Override
+    public long loadUploadFloor(String accountId, VitalType type) {
+        return loadLong(accountId, KEY_UPLOAD_FLOOR_PREFIX + type.name(), Long.MIN_VALUE);
+    }
+
+    @Override
+    public void saveUploadFloor(String accountId, VitalType type, long timestampMs) {
+        editAndWait(accountId, KEY_UPLOAD_FLOOR_PREFIX + type.name(), Long.toString(timestampMs));
+    }
+
+    @Override
+    public String loadVitalsOwner() {
+        UserDataStore store = accountStores.apply("");
+        return store != null ? store.getString(KEY_VITALS_OWNER, "") : "";
+    }
+
+    @Override
+    public void saveVitalsOwner(String accountId) {
+        editAndWait("", KEY_VITALS_OWNER, accountId);
+    }
+
+    private long loadLong(String accountId, String key, long defaultValue) {
+        UserDataStore store = accountStores.apply(accountId);
+        if (store == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(store.getString(key, Long.toString(defaultValue)));
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    private void editAndWait(String accountId, String key, String value) {
+        UserDataStore store = accountStores.apply(accountId);
+        if (store == null) {
+            return;
+        }
+        try {
+            store.edit(data -> data.put(key, value)).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            Log.e(TAG, "Failed to save " + key, e.getCause());
+        }
+    }
+
+    private void edit(String accountId, UserDataStore.Transaction transaction) {
+        UserDataStore store = accountStores.apply(accountId);
+        if (store != null) {
+            store.edit(transaction);
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.healthmonitoringapp.sync;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.content.Context;
+import android.content.pm.ServiceInfo;
+
+import androidx.core.app.NotificationCompat;
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.Data;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.ForegroundInfo;
+import androidx.work.ListenableWorker;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.OutOfQuotaPolicy;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+
+import com.example.healthmonitoringapp.R;
+import com.example.healthmonitoringapp.sampling.AdaptiveSamplingController;
+import com.example.healthmonitoringapp.sampling.SamplingPolicy;
+import com.example.healthmonitoringapp.utils.ProfileRepository;
+import com.example.healthmonitoringapp.utils.UserProfile;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Schedules the background work that moves data between the device, Google Fit and Firestore, so it
+ * does not depend on an activity or even the process staying alive.
+ *
+ * <ul>
+ *     <li>Every {@link SamplingPolicy#getSyncIntervalMs()} of the current sampling policy, hourly
+ *     until one is known, on any network with the battery not low: ingest new vitals for at most
+ *     {@link #VITALS_BUDGET_MS}.</li>
+ *     <li>Daily, while charging on an unmetered network: ingest without a time budget, catching
+ *     up on long backlogs such as the first sync after sign-in.</li>
+ *     <li>On demand, expedited: a vitals refresh when a dashboard opens, and a profile push after
+ *     every stored edit.</li>
+ * </ul>
+ *
+ * <p>Vitals jobs also upload what they stored, see {@link VitalsUploader}. Every job has a unique
+ * name and on-demand requests keep the one already queued, so overlapping requests coalesce into a
+ * single run.</p>
+ */
+public class SyncScheduler implements ProfileRepository.Listener, AdaptiveSamplingController.Listener {
+    static final String VITALS_PERIODIC_WORK = "vitals_periodic";
+    static final String VITALS_CATCH_UP_WORK = "vitals_catch_up";
+    static final String VITALS_NOW_WORK = "vitals_now";
+    static final String PROFILE_PUSH_WORK = "profile_push";
+
+    static final long VITALS_INTERVAL_MS = TimeUnit.HOURS.toMillis(1);
+    static final long CATCH_UP_INTERVAL_MS = TimeUnit.DAYS.toMillis(1);
+    static final long VITALS_BUDGET_MS = TimeUnit.SECONDS.toMillis(30);
+    static final long MIN_BACKOFF_MS = TimeUnit.SECONDS.toMillis(30);
+
+    private static final String CHANNEL_ID = "background_sync";
+    private static final int FOREGROUND_NOTIFICATION_ID = 1_000;
+
+    private static volatile SyncScheduler instance;
+
+    private final WorkManager workManager;
+    private long vitalsIntervalMs = VITALS_INTERVAL_MS;
+    private boolean started;
+
+    public SyncScheduler(WorkManager workManager) {
+        this.workManager = workManager;
+    }
+
+    /**
+     * Returns a singleton instance that also requests a profile push whenever an edit is stored, and
+     * follows the sync interval of the sampling policy.
+     */
+    public static SyncScheduler getInstance(Context context) {
+        if (instance == null) {
+            synchronized (SyncScheduler.class) {
+                if (instance == null) {
+                    Context appContext = context.getApplicationContext();
+                    SyncScheduler scheduler = new SyncScheduler(WorkManager.getInstance(appContext));
+                    ProfileRepository.getInstance(appContext).addListener(scheduler);
+                    AdaptiveSamplingController sampling = AdaptiveSamplingController.getInstance(appContext);
+                    scheduler.vitalsIntervalMs = sampling.getPolicy().getSyncIntervalMs();
+                    sampling.addListener(scheduler);
+                    instance = scheduler;
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Registers the periodic jobs. Safe to call on every app start: existing schedules are kept,
+     * only their parameters are updated.
+     */
+    public synchronized void start() {
+        started = true;
+        schedulePeriodicVitals();
+
+        Constraints charging = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.UNMETERED)
+                .setRequiresCharging(true)
+                .build();
+        PeriodicWorkRequest daily = new PeriodicWorkRequest.Builder(VitalsSyncWorker.class,
+                CATCH_UP_INTERVAL_MS, TimeUnit.MILLISECONDS)
+                .setConstraints(charging)
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, MIN_BACKOFF_MS, TimeUnit.MILLISECONDS)
+                .build();
+        workManager.enqueueUniquePeriodicWork(VITALS_CATCH_UP_WORK, ExistingPeriodicWorkPolicy.UPDATE, daily);
+    }
+
+    @Override
+    public synchronized void onPolicyChanged(SamplingPolicy policy) {
+        if (policy.getSyncIntervalMs() == vitalsIntervalMs) {
+            return;
+        }
+        vitalsIntervalMs = policy.getSyncIntervalMs();
+        if (started) {
+            schedulePeriodicVitals();
+        }
+    }
+
+    private void schedulePeriodicVitals() {
+        Constraints online = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .setRequiresBatteryNotLow(true)
+                .build();
+        PeriodicWorkRequest periodic = new PeriodicWorkRequest.Builder(VitalsSyncWorker.class,
+                vitalsIntervalMs, TimeUnit.MILLISECONDS)
+                .setConstraints(online)
+                .setInputData(budget(VITALS_BUDGET_MS))
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, MIN_BACKOFF_MS, TimeUnit.MILLISECONDS)
+                .build();
+        // UPDATE keeps the time of the last run, so a shorter interval brings the next one forward
+        workManager.enqueueUniquePeriodicWork(VITALS_PERIODIC_WORK, ExistingPeriodicWorkPolicy.UPDATE, periodic);
+    }
+
+    /**
+     * Ingests new vitals as soon as there is a network, e.g. when a dashboard is opened.
+     */
+    public void requestVitalsSync() {
+        workManager.enqueueUniqueWork(VITALS_NOW_WORK, ExistingWorkPolicy.KEEP,
+                expedited(VitalsSyncWorker.class).setInputData(budget(VITALS_BUDGET_MS)).build());
+    }
+
+    /**
+     * Makes sure unsent profile edits reach Firestore even if the app is closed meanwhile.
+     */
+    public void requestProfilePush() {
+        workManager.enqueueUniqueWork(PROFILE_PUSH_WORK, ExistingWorkPolicy.KEEP,
+                expedited(ProfileSyncWorker.class).build());
+    }
+
+    @Override
+    public void onFieldsStored(Set<UserProfile.Field> fields) {
+        requestProfilePush();
+    }
+
+    @Override
+    public void onCleared() {
+        // Signed out; the engine has dropped the edits too
+        workManager.cancelUniqueWork(PROFILE_PUSH_WORK);
+    }
+
+    /**
+     * Notification shown while an expedited job runs as a foreground service, which WorkManager
+     * does below Android 12 instead of using an expedited job.
+     */
+    static ForegroundInfo foregroundInfo(Context context) {
+        NotificationManager manager = context.getSystemService(NotificationManager.class);
+        manager.createNotificationChannel(new NotificationChannel(CHANNEL_ID,
+                context.getString(R.string.sync_channel_name), NotificationManager.IMPORTANCE_MIN));
+        Notification notification = new NotificationCompat.Builder(context, CHANNEL_ID)
+                .setSmallIcon(R.drawable.ic_launcher_foreground)
+                .setContentTitle(context.getString(R.string.sync_in_progress))
+                .setPriority(NotificationCompat.PRIORITY_MIN)
+                .setOngoing(true)
+                .build();
+        return new ForegroundInfo(FOREGROUND_NOTIFICATION_ID, notification,
+                ServiceInfo.FOREGROUND_SERVICE_TYPE_DATA_SYNC);
+    }
+
+    private static OneTimeWorkRequest.Builder expedited(Class<? extends ListenableWorker> worker) {
+        return new OneTimeWorkRequest.Builder(worker)
+                .setExpedited(OutOfQuotaPolicy.RUN_AS_NON_EXPEDITED_WORK_REQUEST)
+                .setConstraints(new Constraints.Builder().setRequiredNetworkType(NetworkType.CONNECTED).build())
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, MIN_BACKOFF_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private static Data budget(long budgetMs) {
+        return new Data.Builder().putLong(VitalsSyncWorker.KEY_BUDGET_MS, budgetMs).build();
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.healthmonitoringapp.sync;
+
+/**
+ * Runs a task after a delay. Lets sync code be driven by a manual clock in tests.
+ */
+public interface TaskScheduler {
+    void schedule(Runnable task, long delayMs);
+}
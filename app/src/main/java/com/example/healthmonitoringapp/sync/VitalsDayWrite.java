@@ -0,0 +1,91 @@
+package com.example.healthmonitoringapp.sync;
+
+import com.example.healthmonitoringapp.data.VitalType;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hours of one vital type's samples to merge into the remote document for one UTC day, see
+ * {@link VitalsUploader}. Each hour replaces the stored one as a whole, so writing the same hours
+ * twice leaves the document as it was.
+ */
+public final class VitalsDayWrite {
+    static final long DAY_MS = TimeUnit.DAYS.toMillis(1);
+    static final long HOUR_MS = TimeUnit.HOURS.toMillis(1);
+
+    private final VitalType type;
+    private final long dayStartMs;
+    private final Map<String, byte[]> hours = new TreeMap<>();
+    private int bytes;
+    private int samples;
+    private long lastTimestampMs = Long.MIN_VALUE;
+
+    VitalsDayWrite(VitalType type, long dayStartMs) {
+        this.type = type;
+        this.dayStartMs = dayStartMs;
+    }
+
+    /**
+     * Returns the id of the document, e.g. {@code HEART_RATE_2024-03-01}. Days are UTC, so the id
+     * of a sample does not change with the time zone.
+     */
+    public String getDocumentId() {
+        return type.name() + '_' + getDay();
+    }
+
+    public VitalType getType() {
+        return type;
+    }
+
+    /** Returns the day as {@code yyyy-MM-dd}. */
+    public String getDay() {
+        long day = Math.floorDiv(dayStartMs, DAY_MS);
+        return LocalDate.ofEpochDay(day).toString();
+    }
+
+    public long getDayStartMs() {
+        return dayStartMs;
+    }
+
+    /**
+     * Returns the packed samples by two-digit UTC hour, {@code "00"} to {@code "23"}.
+     */
+    public Map<String, byte[]> getHours() {
+        return Collections.unmodifiableMap(hours);
+    }
+
+    /** Total size of the packed hours. */
+    public int getBytes() {
+        return bytes;
+    }
+
+    /** Number of samples in the packed hours. */
+    int getSamples() {
+        return samples;
+    }
+
+    /** Timestamp of the newest sample written. */
+    long getLastTimestampMs() {
+        return lastTimestampMs;
+    }
+
+    /**
+     * Adds an hour; each hour is only added once.
+     */
+    void putHour(long hourStartMs, byte[] packed, int samples, long lastTimestampMs) {
+        hours.put(hourKey(hourStartMs), packed);
+        bytes += packed.length;
+        this.samples += samples;
+        this.lastTimestampMs = Math.max(this.lastTimestampMs, lastTimestampMs);
+    }
+
+    /** Returns the key of the hour starting at the given time within its day. */
+    static String hourKey(long hourStartMs) {
+        return String.format(Locale.ROOT, "%02d", Math.floorMod(hourStartMs, DAY_MS) / HOUR_MS);
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.healthmonitoringapp.sync;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.ForegroundInfo;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.example.healthmonitoringapp.data.VitalsStore;
+import com.example.healthmonitoringapp.fit.FitIngestionEngine;
+import com.example.healthmonitoringapp.sampling.AdaptiveSamplingController;
+
+import java.io.Flushable;
+import java.io.IOException;
+
+/**
+ * Background job that ingests new vitals from Google Fit, saves the rollups and then uploads the
+ * vitals if enough are pending, see {@link VitalsUploader}.
+ *
+ * <p>An optional {@link #KEY_BUDGET_MS} in the input data bounds how long the run may keep
+ * requesting chunks; whatever is left is picked up by the next run, since the ingestion cursors
+ * advance after every chunk.</p>
+ *
+ * <p>Each run also re-evaluates the {@link AdaptiveSamplingController}, so the sampling policy
+ * follows the battery and activity while no strap is streaming readings.</p>
+ */
+public class VitalsSyncWorker extends Worker {
+    private static final String TAG = "VitalsSyncWorker";
+    static final String KEY_BUDGET_MS = "budget_ms";
+    static final int MAX_ATTEMPTS = 3;
+
+    private final FitIngestionEngine ingestion;
+    private final Flushable rollups;
+    private final VitalsUploader uploader;
+    private final AdaptiveSamplingController sampling;
+
+    /**
+     * Called by WorkManager's default worker factory.
+     */
+    public VitalsSyncWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        this(context, params, FitIngestionEngine.getInstance(context), VitalsStore.getInstance(context)::checkpoint,
+                VitalsUploader.getInstance(context), AdaptiveSamplingController.getInstance(context));
+    }
+
+    /**
+     * Ingests without uploading or re-evaluating the sampling policy.
+     */
+    public VitalsSyncWorker(@NonNull Context context, @NonNull WorkerParameters params,
+                            FitIngestionEngine ingestion, Flushable rollups) {
+        this(context, params, ingestion, rollups, null, null);
+    }
+
+    public VitalsSyncWorker(@NonNull Context context, @NonNull WorkerParameters params,
+                            FitIngestionEngine ingestion, Flushable rollups, VitalsUploader uploader,
+                            AdaptiveSamplingController sampling) {
+        super(context, params);
+        this.ingestion = ingestion;
+        this.rollups = rollups;
+        this.uploader = uploader;
+        this.sampling = sampling;
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        long budgetMs = getInputData().getLong(KEY_BUDGET_MS, Long.MAX_VALUE);
+        long started = SystemClock.elapsedRealtime();
+        if (sampling != null) {
+            sampling.evaluate(System.currentTimeMillis());
+        }
+        try {
+            int read = ingestion.ingest(System.currentTimeMillis(),
+                    () -> isStopped() || SystemClock.elapsedRealtime() - started >= budgetMs);
+            rollups.flush();
+            int written = uploader != null && !isStopped() ? uploader.upload(System.currentTimeMillis()) : 0;
+            Log.i(TAG, "Ingested " + read + " samples and wrote " + written + " documents in "
+                    + (SystemClock.elapsedRealtime() - started) + " ms, next chunk " + ingestion.getChunkMs() + " ms");
+            return Result.success();
+        } catch (IOException e) {
+            Log.e(TAG, "Vitals sync failed, attempt " + (getRunAttemptCount() + 1), e);
+            return getRunAttemptCount() + 1 < MAX_ATTEMPTS ? Result.retry() : Result.failure();
+        }
+    }
+
+    @NonNull
+    @Override
+    public ForegroundInfo getForegroundInfo() {
+        return SyncScheduler.foregroundInfo(getApplicationContext());
+    }
+}
@@ -0,0 +1,314 @@
+package com.example.healthmonitoringapp.sync;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.example.healthmonitoringapp.data.SampleBatch;
+import com.example.healthmonitoringapp.data.SeriesProvider;
+import com.example.healthmonitoringapp.data.TimeSeriesStore;
+import com.example.healthmonitoringapp.data.VitalType;
+import com.example.healthmonitoringapp.data.VitalsStore;
+import com.example.healthmonitoringapp.metrics.Metrics;
+import com.example.healthmonitoringapp.utils.ProfileRepository;
+import com.example.healthmonitoringapp.utils.SharedPrefManager;
+import com.example.healthmonitoringapp.utils.UserProfile;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Uploads the locally stored vitals of the signed-in account to a {@link RemoteVitalsBackend}.
+ *
+ * <p>Samples are not written one document each but packed by hour into one document per vital
+ * type and UTC day, see {@link VitalsDayWrite} and {@link PackedSamples}; a day of 1 Hz heart rate
+ * is a few hundred KB, well below Firestore's 1 MiB document limit. Writes go out in batches of
+ * at most {@link RemoteVitalsBackend#MAX_BATCH_WRITES} documents and {@link #MAX_BATCH_BYTES}, so
+ * a week of backlog is a single request.</p>
+ *
+ * <p>Uploads are coalesced: nothing is sent until {@link #FLUSH_SAMPLES} samples are pending or
+ * the oldest has waited {@link #FLUSH_DELAY_MS}. A per-account cursor holds the timestamp of the
+ * newest uploaded sample of each type and only advances once a batch is acknowledged. Every hour
+ * is written whole, read again from the store, so the hour a cursor stops in is completed by the
+ * next upload, and a retried batch, or one the backend applied without acknowledging it, writes
+ * the same bytes again rather than duplicate samples.</p>
+ *
+ * <p>The vitals store is shared by every account that signs in on the device, so the uploader
+ * records which account owns the samples. When another account signs in, the samples stored so
+ * far are left to the previous owner: the new account's cursor and upload floor move past them,
+ * and it never writes an hour holding samples from before it signed in.</p>
+ */
+public class VitalsUploader {
+    /** Pending samples that trigger an upload: an hour of 1 Hz heart rate. */
+    static final int FLUSH_SAMPLES = 3_600;
+    /** Longest a sample waits for more to be sent with it. */
+    static final long FLUSH_DELAY_MS = TimeUnit.HOURS.toMillis(4);
+    /** Payload of one batch, below Firestore's 10 MiB request limit. */
+    static final int MAX_BATCH_BYTES = 8 << 20;
+    /** Cursor of a type nothing was uploaded of yet. */
+    public static final long NOTHING_UPLOADED = Long.MIN_VALUE;
+
+    private static final String TAG = "VitalsUploader";
+
+    private static volatile VitalsUploader instance;
+
+    /**
+     * Persists the upload cursors, separately for each account.
+     */
+    public interface UploadStateStore {
+        /** Returns the timestamp of the newest uploaded sample, or {@link VitalsUploader#NOTHING_UPLOADED}. */
+        long loadUploadedUntil(String accountId, VitalType type);
+
+        /** Stores the cursor and waits until it is durable. */
+        void saveUploadedUntil(String accountId, VitalType type, long timestampMs);
+
+        /** Returns the oldest timestamp the account may upload, or {@link Long#MIN_VALUE}. */
+        long loadUploadFloor(String accountId, VitalType type);
+
+        /** Stores the floor and waits until it is durable. */
+        void saveUploadFloor(String accountId, VitalType type, long timestampMs);
+
+        /** Returns the account the stored samples were recorded for, or an empty string. */
+        String loadVitalsOwner();
+
+        /** Stores the owner and waits until it is durable. */
+        void saveVitalsOwner(String accountId);
+    }
+
+    private final SeriesProvider series;
+    private final RemoteVitalsBackend backend;
+    private final UploadStateStore state;
+    private final Supplier<String> accountId;
+
+    private final SampleBatch hour = new SampleBatch(4096);
+    private final List<VitalsDayWrite> batch = new ArrayList<>();
+    private final Map<VitalType, Long> batchUploadedUntil = new EnumMap<>(VitalType.class);
+    private int batchBytes;
+
+    private final AtomicLong documentWrites = new AtomicLong();
+    private final AtomicLong samplesUploaded = new AtomicLong();
+
+    /**
+     * @param accountId Returns the id keying the remote documents, or an empty string when signed out.
+     */
+    public VitalsUploader(SeriesProvider series, RemoteVitalsBackend backend, UploadStateStore state,
+                          Supplier<String> accountId) {
+        this.series = series;
+        this.backend = backend;
+        this.state = state;
+        this.accountId = accountId;
+    }
+
+    /**
+     * Returns a singleton instance uploading the {@link VitalsStore} to Firestore.
+     */
+    public static VitalsUploader getInstance(Context context) {
+        if (instance == null) {
+            synchronized (VitalsUploader.class) {
+                if (instance == null) {
+                    Context appContext = context.getApplicationContext();
+                    ProfileRepository repository = ProfileRepository.getInstance(appContext);
+                    VitalsUploader uploader = new VitalsUploader(VitalsStore.getInstance(appContext)::get,
+                            new FirestoreVitalsBackend(),
+                            new StoredSyncState(SharedPrefManager.getInstance(appContext)::getAccountStore),
+                            repository::getAccountId);
+                    repository.addListener(new ProfileRepository.Listener() {
+                        @Override
+                        public void onFieldsStored(Set<UserProfile.Field> fields) {
+                        }
+
+                        @Override
+                        public void onCleared() {
+                        }
+
+                        @Override
+                        public void onAccountChanged(String accountId) {
+                            try {
+                                uploader.onAccountSelected(accountId);
+                            } catch (IOException e) {
+                                Log.e(TAG, "Failed to hand over the stored vitals", e);
+                            }
+                        }
+                    });
+                    Metrics metrics = Metrics.getInstance();
+                    metrics.gauge("VitalsUploader.documentWrites", uploader::getDocumentWrites);
+                    metrics.gauge("VitalsUploader.samplesUploaded", uploader::getSamplesUploaded);
+                    instance = uploader;
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Uploads every pending sample if enough are pending or the oldest has waited long enough.
+     * Blocks; call from a background thread.
+     *
+     * @return Number of documents written.
+     * @throws IOException if reading the store or a batch failed. Batches acknowledged before the
+     *                     failure are not sent again.
+     */
+    public int upload(long nowMs) throws IOException {
+        return upload(nowMs, false);
+    }
+
+    /**
+     * Like {@link #upload(long)}, but with {@code force} uploads whatever is pending.
+     */
+    public synchronized int upload(long nowMs, boolean force) throws IOException {
+        String account = accountId.get();
+        if (account.isEmpty()) {
+            return 0;
+        }
+        // In case the account was selected while no uploader was listening
+        onAccountSelected(account);
+        Map<VitalType, Long> cursors = new EnumMap<>(VitalType.class);
+        PendingCounter pending = new PendingCounter();
+        for (VitalType type : VitalType.values()) {
+            long cursor = state.loadUploadedUntil(account, type);
+            cursors.put(type, cursor);
+            series.get(type).scan(after(cursor), Long.MAX_VALUE, pending);
+        }
+        if (pending.count == 0 || !force && pending.count < FLUSH_SAMPLES
+                && nowMs - pending.oldestMs < FLUSH_DELAY_MS) {
+            return 0;
+        }
+
+        long writesBefore = documentWrites.get();
+        for (VitalType type : VitalType.values()) {
+            upload(account, type, series.get(type), cursors.get(type));
+        }
+        commit(account);
+        return (int) (documentWrites.get() - writesBefore);
+    }
+
+    /**
+     * Makes the account the owner of samples stored from now on. If another account owned them,
+     * the samples stored so far are left to it. Call off the main thread whenever an account signs
+     * in; signing out keeps the owner, so the same account signing in again picks up where it was.
+     */
+    public synchronized void onAccountSelected(String account) throws IOException {
+        if (account.isEmpty()) {
+            return;
+        }
+        String owner = state.loadVitalsOwner();
+        if (owner.equals(account)) {
+            return;
+        }
+        if (!owner.isEmpty()) {
+            for (VitalType type : VitalType.values()) {
+                TimeSeriesStore store = series.get(type);
+                if (store.size() > 0 && store.lastTimestamp() > state.loadUploadedUntil(account, type)) {
+                    state.saveUploadFloor(account, type, store.lastTimestamp() + 1);
+                    state.saveUploadedUntil(account, type, store.lastTimestamp());
+                }
+            }
+        }
+        // The first owner, e.g. the account signed in when uploading was added, owns everything
+        state.saveVitalsOwner(account);
+    }
+
+    /** Number of documents written since the process started. */
+    public long getDocumentWrites() {
+        return documentWrites.get();
+    }
+
+    /** Number of samples written since the process started, counting those written again with their hour. */
+    public long getSamplesUploaded() {
+        return samplesUploaded.get();
+    }
+
+    /**
+     * Adds the hours holding samples newer than the cursor to the batch, one write per day.
+     */
+    private void upload(String account, VitalType type, TimeSeriesStore store, long cursor) throws IOException {
+        long lastMs = store.lastTimestamp();
+        if (store.size() == 0 || lastMs <= cursor) {
+            return;
+        }
+        long floorMs = state.loadUploadFloor(account, type);
+        long fromMs = Math.max(Math.max(after(cursor), store.firstTimestamp()), floorMs);
+        VitalsDayWrite day = null;
+        for (long hourStart = floor(fromMs, VitalsDayWrite.HOUR_MS); hourStart <= lastMs;
+             hourStart += VitalsDayWrite.HOUR_MS) {
+            long dayStart = floor(hourStart, VitalsDayWrite.DAY_MS);
+            if (day != null && day.getDayStartMs() != dayStart) {
+                add(account, day);
+                day = null;
+            }
+            hour.clear();
+            // The whole hour, including samples sent before, since the hour is replaced; but
+            // nothing another account recorded
+            store.query(Math.max(hourStart, floorMs), hourStart + VitalsDayWrite.HOUR_MS, hour);
+            if (hour.size() == 0 || hour.timestampAt(hour.size() - 1) <= cursor) {
+                // Nothing new, e.g. the cursor's hour when the samples after it fall in later hours
+                continue;
+            }
+            if (day == null) {
+                day = new VitalsDayWrite(type, dayStart);
+            }
+            day.putHour(hourStart, PackedSamples.pack(hour, 0, hour.size(), hourStart), hour.size(),
+                    hour.timestampAt(hour.size() - 1));
+        }
+        if (day != null) {
+            add(account, day);
+        }
+    }
+
+    private void add(String account, VitalsDayWrite write) throws IOException {
+        if (batch.size() == RemoteVitalsBackend.MAX_BATCH_WRITES || batchBytes + write.getBytes() > MAX_BATCH_BYTES) {
+            commit(account);
+        }
+        batch.add(write);
+        batchBytes += write.getBytes();
+        batchUploadedUntil.merge(write.getType(), write.getLastTimestampMs(), Math::max);
+    }
+
+    private void commit(String account) throws IOException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            backend.commit(account, batch);
+            documentWrites.addAndGet(batch.size());
+            for (VitalsDayWrite write : batch) {
+                samplesUploaded.addAndGet(write.getSamples());
+            }
+            for (Map.Entry<VitalType, Long> uploaded : batchUploadedUntil.entrySet()) {
+                state.saveUploadedUntil(account, uploaded.getKey(), uploaded.getValue());
+            }
+        } finally {
+            batch.clear();
+            batchUploadedUntil.clear();
+            batchBytes = 0;
+        }
+    }
+
+    private static long after(long cursor) {
+        return cursor == NOTHING_UPLOADED ? Long.MIN_VALUE : cursor + 1;
+    }
+
+    private static long floor(long timestampMs, long unitMs) {
+        return Math.floorDiv(timestampMs, unitMs) * unitMs;
+    }
+
+    /**
+     * Counts samples and remembers the oldest of them.
+     */
+    private static final class PendingCounter implements TimeSeriesStore.SampleVisitor {
+        int count;
+        long oldestMs = Long.MAX_VALUE;
+
+        @Override
+        public void visit(long timestampMs, float value) {
+            count++;
+            oldestMs = Math.min(oldestMs, timestampMs);
+        }
+    }
+}
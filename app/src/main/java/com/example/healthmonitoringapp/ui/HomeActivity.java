@@ -1,13 +1,202 @@
 package com.example.healthmonitoringapp.ui;
 
+import android.Manifest;
+import android.content.pm.PackageManager;
+import android.os.Build;
 import android.os.Bundle;
+import android.os.SystemClock;
+import android.view.View;
+import android.widget.TextView;
+
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
 import com.example.healthmonitoringapp.R;
+import com.example.healthmonitoringapp.ble.BleHeartRateMonitor;
+import com.example.healthmonitoringapp.ble.HeartRatePipeline;
+import com.example.healthmonitoringapp.chart.VitalsChartSource;
+import com.example.healthmonitoringapp.chart.VitalsChartView;
+import com.example.healthmonitoringapp.data.VitalType;
+import com.example.healthmonitoringapp.data.VitalsStore;
+import com.example.healthmonitoringapp.feed.ReadingPager;
+import com.example.healthmonitoringapp.feed.ReadingsAdapter;
+import com.example.healthmonitoringapp.feed.VitalsReadingSource;
+import com.example.healthmonitoringapp.hrv.HrvMetrics;
+import com.example.healthmonitoringapp.sync.SyncScheduler;
+import com.example.healthmonitoringapp.utils.ProfileRepository;
+import com.example.healthmonitoringapp.utils.SharedPrefManager;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+public class HomeActivity extends AppCompatActivity implements HeartRatePipeline.Listener {
+    /** Shortest time between two refreshes of the readings list for live beats. */
+    static final long READINGS_REFRESH_MS = TimeUnit.SECONDS.toMillis(5);
+
+    private TextView liveHeartRate;
+    private TextView liveHrv;
+    private VitalsChartView heartRateChart;
+    private ReadingPager readings;
+    private BleHeartRateMonitor heartRateMonitor;
+    private boolean permissionsRequested;
+    private boolean notificationsRequested;
+    // Main thread only
+    private long readingsRefreshedAtMs = -READINGS_REFRESH_MS;
+
+    private final ActivityResultLauncher<String[]> bluetoothPermissions =
+            registerForActivityResult(new ActivityResultContracts.RequestMultiplePermissions(), this::onPermissionsResult);
+    // Without it alerts are only logged, see AlertNotifier
+    private final ActivityResultLauncher<String> notificationPermission =
+            registerForActivityResult(new ActivityResultContracts.RequestPermission(), granted -> { });
 
-public class HomeActivity extends AppCompatActivity {
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_home);
+        liveHeartRate = findViewById(R.id.live_heart_rate);
+        liveHrv = findViewById(R.id.live_hrv);
+        heartRateChart = findViewById(R.id.heart_rate_chart);
+        heartRateChart.setSource(new VitalsChartSource(VitalsStore.getInstance(this), VitalType.HEART_RATE));
+        setUpReadingsList();
+        heartRateMonitor = BleHeartRateMonitor.getInstance(this);
+        // Fetch what the wearable uploaded since the last periodic run
+        SyncScheduler.getInstance(this).requestVitalsSync();
+        adoptLegacyAccount();
+
+        // Runs after the first traversal; marks time to full display for startup measurements
+        getWindow().getDecorView().post(this::reportFullyDrawn);
+    }
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+        // Pick up samples stored while the screen was away
+        heartRateChart.reload();
+        readings.refresh();
+        heartRateMonitor.setListener(this);
+        if (hasBluetoothPermissions()) {
+            heartRateMonitor.start();
+            requestNotificationPermission();
+        } else if (!permissionsRequested) {
+            // Ask once per screen, not on every return to it
+            permissionsRequested = true;
+            bluetoothPermissions.launch(BleHeartRateMonitor.requiredPermissions());
+        } else {
+            requestNotificationPermission();
+        }
+    }
+
+    @Override
+    protected void onStop() {
+        heartRateMonitor.setListener(null);
+        // Nothing keeps the process alive in the background, so do not hold the strap and a
+        // drain thread for a screen nobody sees; a rotation reconnects at once and is spared
+        if (!isChangingConfigurations()) {
+            heartRateMonitor.stop();
+        }
+        super.onStop();
+    }
+
+    @Override
+    protected void onDestroy() {
+        readings.close();
+        super.onDestroy();
+    }
+
+    @Override
+    public void onHeartRate(long timestampMs, int bpm) {
+        // Updated after each drain, so at most one drain behind the rate
+        HrvMetrics hrv = heartRateMonitor.getHrv();
+        runOnUiThread(() -> {
+            // Counts what is stored by now; a sample still being stored comes with a later one.
+            // Not per beat: each refresh reads a page and counts on the loader thread
+            long nowMs = SystemClock.elapsedRealtime();
+            if (nowMs - readingsRefreshedAtMs >= READINGS_REFRESH_MS) {
+                readingsRefreshedAtMs = nowMs;
+                readings.refresh();
+            }
+            liveHeartRate.setText(getString(R.string.live_heart_rate, bpm));
+            liveHeartRate.setVisibility(View.VISIBLE);
+            if (hrv != null) {
+                liveHrv.setText(getString(R.string.live_hrv, Math.round(hrv.getRmssdMs()),
+                        Math.round(hrv.getSdnnMs()), Math.round(hrv.getPnn50())));
+                liveHrv.setVisibility(View.VISIBLE);
+            }
+        });
+    }
+
+    @Override
+    public void onRrInterval(long timestampMs, float rrMs) {
+        // Not shown yet
+    }
+
+    private void setUpReadingsList() {
+        RecyclerView list = findViewById(R.id.readings_list);
+        LinearLayoutManager layout = new LinearLayoutManager(this);
+        list.setLayoutManager(layout);
+        // The list is sized by the layout, not by its rows
+        list.setHasFixedSize(true);
+        readings = new ReadingPager(new VitalsReadingSource(VitalsStore.getInstance(this)::get),
+                ContextCompat.getMainExecutor(this));
+        ReadingsAdapter adapter = new ReadingsAdapter(readings);
+        adapter.registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
+            @Override
+            public void onItemRangeInserted(int positionStart, int itemCount) {
+                // Follow new readings while the newest is in view, instead of pushing them above it
+                if (positionStart == 0 && layout.findFirstVisibleItemPosition() <= 0) {
+                    list.scrollToPosition(0);
+                }
+            }
+        });
+        list.setAdapter(adapter);
+    }
+
+    /**
+     * Moves a profile stored before profiles were kept per account to the signed-in account, so
+     * users routed here straight from the launcher do not have to sign in again.
+     */
+    private void adoptLegacyAccount() {
+        if (SharedPrefManager.getInstance(this).hasLegacyAccount()) {
+            FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+            if (user != null) {
+                ProfileRepository.getInstance(this).switchAccount(user.getUid(), user.getEmail(), null);
+            }
+        }
+    }
+
+    private boolean hasBluetoothPermissions() {
+        for (String permission : BleHeartRateMonitor.requiredPermissions()) {
+            if (ContextCompat.checkSelfPermission(this, permission) != PackageManager.PERMISSION_GRANTED) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void onPermissionsResult(Map<String, Boolean> results) {
+        if (!results.containsValue(false) && hasBluetoothPermissions()) {
+            heartRateMonitor.start();
+        }
+        // One dialog at a time
+        requestNotificationPermission();
+    }
+
+    /**
+     * Asks once per screen for the permission to post alerts, which Android 13 and later do not
+     * grant by default.
+     */
+    private void requestNotificationPermission() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU && !notificationsRequested
+                && ContextCompat.checkSelfPermission(this, Manifest.permission.POST_NOTIFICATIONS)
+                != PackageManager.PERMISSION_GRANTED) {
+            notificationsRequested = true;
+            notificationPermission.launch(Manifest.permission.POST_NOTIFICATIONS);
+        }
     }
 }
@@ -4,16 +4,49 @@ import android.content.Intent;
 import android.os.Bundle;
 import android.view.View;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.splashscreen.SplashScreen;
 import com.example.healthmonitoringapp.R;
+import com.example.healthmonitoringapp.metrics.Metrics;
+import com.example.healthmonitoringapp.metrics.Timer;
+import com.example.healthmonitoringapp.utils.ProfileRepository;
 import com.google.android.material.button.MaterialButton;
 
+/**
+ * Launcher activity. Returning users are routed straight to {@link HomeActivity} from the cached
+ * session flag, without inflating this screen or initializing Google Sign-In and Firebase.
+ * The splash screen stays up until the stored user data has loaded.
+ */
 public class IntroActivity extends AppCompatActivity {
+    // Time the splash screen is held for the stored data
+    private static final Timer SPLASH_TIMER = Metrics.getInstance().timer("IntroActivity.splash");
 
     private MaterialButton btnGoogleSignIn;
+    private boolean routed;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        SplashScreen splashScreen = SplashScreen.installSplashScreen(this);
         super.onCreate(savedInstanceState);
+        splashScreen.setKeepOnScreenCondition(() -> !routed);
+
+        ProfileRepository profileRepository = ProfileRepository.getInstance(this);
+        long splashStart = SPLASH_TIMER.startAsync(0);
+        profileRepository.whenReady(() -> {
+            SPLASH_TIMER.stopAsync(0, splashStart);
+            if (isDestroyed()) {
+                return;
+            }
+            if (!profileRepository.get().getEmail().isEmpty()) {
+                startActivity(new Intent(this, HomeActivity.class));
+                finish();
+            } else {
+                showIntro();
+            }
+            routed = true;
+        });
+    }
+
+    private void showIntro() {
         setContentView(R.layout.activity_intro);
 
         btnGoogleSignIn = findViewById(R.id.btnGoogleSignIn);
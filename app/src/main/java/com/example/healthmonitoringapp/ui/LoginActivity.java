@@ -13,9 +13,16 @@ import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 
-import com.bumptech.glide.Glide;
 import com.example.healthmonitoringapp.R;
+import com.example.healthmonitoringapp.ble.BleHeartRateMonitor;
+import com.example.healthmonitoringapp.image.AvatarImages;
+import com.example.healthmonitoringapp.metrics.Metrics;
+import com.example.healthmonitoringapp.metrics.Timer;
+import com.example.healthmonitoringapp.sync.ProfileSyncEngine;
+import com.example.healthmonitoringapp.utils.AccountStore;
+import com.example.healthmonitoringapp.utils.ProfileRepository;
 import com.example.healthmonitoringapp.utils.SharedPrefManager;
+import com.example.healthmonitoringapp.utils.UserDataStore;
 import com.google.android.gms.auth.api.signin.GoogleSignIn;
 import com.google.android.gms.auth.api.signin.GoogleSignInAccount;
 import com.google.android.gms.auth.api.signin.GoogleSignInClient;
@@ -28,16 +35,15 @@ import com.google.firebase.auth.AuthCredential;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.auth.GoogleAuthProvider;
-import com.google.firebase.firestore.DocumentReference;
-import com.google.firebase.firestore.DocumentSnapshot;
-import com.google.firebase.firestore.FirebaseFirestore;
-
-import java.util.HashMap;
-import java.util.Map;
 
 public class LoginActivity extends AppCompatActivity {
 
     private static final String TAG = "LoginActivity";
+    // From the button to the account's profile being served; only one sign-in runs at a time
+    private static final Timer SIGN_IN_TIMER = Metrics.getInstance().timer("SignIn.total");
+    private static final Timer GOOGLE_SIGN_IN_TIMER = Metrics.getInstance().timer("SignIn.google");
+    private static final Timer FIREBASE_AUTH_TIMER = Metrics.getInstance().timer("SignIn.firebaseAuth");
+    private static final int TRACE_COOKIE = 0;
 
     private MaterialButton btnSignIn, btnLogout, btnEditProfile;
     private TextView txtWelcome, txtUserName, txtUserEmail;
@@ -45,13 +51,18 @@ public class LoginActivity extends AppCompatActivity {
 
     private GoogleSignInClient googleSignInClient;
     private FirebaseAuth mAuth;
-    private FirebaseFirestore db;
-    private SharedPrefManager sharedPrefManager;
+    private ProfileRepository profileRepository;
+    // Zero unless a sign-in started on this screen is running
+    private long signInStart;
+    private long stageStart;
 
     private final ActivityResultLauncher<Intent> signInLauncher =
             registerForActivityResult(new ActivityResultContracts.StartActivityForResult(), result -> {
+                endStage(GOOGLE_SIGN_IN_TIMER);
                 if (result.getResultCode() == RESULT_OK && result.getData() != null) {
                     handleSignInResult(result.getData());
+                } else {
+                    cancelSignIn();
                 }
             });
 
@@ -60,10 +71,9 @@ public class LoginActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_login);
 
-        // Initialize Firebase Auth and Firestore
+        // Initialize Firebase Auth
         mAuth = FirebaseAuth.getInstance();
-        db = FirebaseFirestore.getInstance();
-        sharedPrefManager = SharedPrefManager.getInstance(this);
+        profileRepository = ProfileRepository.getInstance(this);
 
         // Initialize UI elements
         btnSignIn = findViewById(R.id.btnSignIn);
@@ -74,14 +84,6 @@ public class LoginActivity extends AppCompatActivity {
         txtUserEmail = findViewById(R.id.txtUserEmail);
         imgUserProfile = findViewById(R.id.imgUserProfile);
 
-        // Configure Google Sign-In
-        GoogleSignInOptions gso = new GoogleSignInOptions.Builder(GoogleSignInOptions.DEFAULT_SIGN_IN)
-                .requestIdToken(getString(R.string.default_web_client_id))
-                .requestEmail()
-                .build();
-
-        googleSignInClient = GoogleSignIn.getClient(this, gso);
-
         // Set click listeners
         btnSignIn.setOnClickListener(v -> signIn());
         btnLogout.setOnClickListener(v -> signOut());
@@ -90,25 +92,61 @@ public class LoginActivity extends AppCompatActivity {
         // Check if user is already signed in
         FirebaseUser currentUser = mAuth.getCurrentUser();
         if (currentUser != null) {
-            updateUI(currentUser);
+            // Render once the profile has been read in the background; until then offer no sign-in
+            btnSignIn.setVisibility(View.GONE);
+            profileRepository.whenReady(() -> {
+                if (isDestroyed()) {
+                    return;
+                }
+                // No-op unless the profile is still stored the way versions before per-account storage did
+                if (!currentUser.getUid().equals(profileRepository.getAccountId())) {
+                    profileRepository.switchAccount(currentUser.getUid(), currentUser.getEmail(), () -> {
+                        if (!isDestroyed()) {
+                            showSignedIn(currentUser);
+                        }
+                    });
+                } else {
+                    showSignedIn(currentUser);
+                }
+            });
         } else {
             showSignInButton();
         }
     }
 
     private void signIn() {
-        Intent signInIntent = googleSignInClient.getSignInIntent();
+        cancelSignIn();
+        signInStart = SIGN_IN_TIMER.startAsync(TRACE_COOKIE);
+        stageStart = GOOGLE_SIGN_IN_TIMER.startAsync(TRACE_COOKIE);
+        Intent signInIntent = getGoogleSignInClient().getSignInIntent();
         signInLauncher.launch(signInIntent);
     }
 
+    /**
+     * Builds the Google Sign-In client on first use; it is only needed to sign in or out.
+     */
+    private GoogleSignInClient getGoogleSignInClient() {
+        if (googleSignInClient == null) {
+            GoogleSignInOptions gso = new GoogleSignInOptions.Builder(GoogleSignInOptions.DEFAULT_SIGN_IN)
+                    .requestIdToken(getString(R.string.default_web_client_id))
+                    .requestEmail()
+                    .build();
+            googleSignInClient = GoogleSignIn.getClient(this, gso);
+        }
+        return googleSignInClient;
+    }
+
     private void handleSignInResult(Intent data) {
         try {
             Task<GoogleSignInAccount> task = GoogleSignIn.getSignedInAccountFromIntent(data);
             GoogleSignInAccount account = task.getResult(ApiException.class);
             if (account != null) {
                 firebaseAuthWithGoogle(account);
+            } else {
+                cancelSignIn();
             }
         } catch (ApiException e) {
+            cancelSignIn();
             Log.e(TAG, "Google sign-in failed", e);
             Toast.makeText(this, R.string.sign_in_failed, Toast.LENGTH_SHORT).show();
         }
@@ -116,14 +154,21 @@ public class LoginActivity extends AppCompatActivity {
 
     private void firebaseAuthWithGoogle(GoogleSignInAccount account) {
         AuthCredential credential = GoogleAuthProvider.getCredential(account.getIdToken(), null);
+        if (signInStart != 0) {
+            stageStart = FIREBASE_AUTH_TIMER.startAsync(TRACE_COOKIE);
+        }
         mAuth.signInWithCredential(credential)
                 .addOnCompleteListener(this, task -> {
+                    endStage(FIREBASE_AUTH_TIMER);
                     if (task.isSuccessful()) {
                         FirebaseUser user = mAuth.getCurrentUser();
                         if (user != null) {
                             saveUserToFirestore(user);
+                        } else {
+                            cancelSignIn();
                         }
                     } else {
+                        cancelSignIn();
                         Log.e(TAG, "Firebase authentication failed", task.getException());
                         Toast.makeText(this, R.string.auth_failed, Toast.LENGTH_SHORT).show();
                     }
@@ -136,53 +181,98 @@ public class LoginActivity extends AppCompatActivity {
         String profilePic = (user.getPhotoUrl() != null) ? user.getPhotoUrl().toString() : "";
 
         if (email == null) {
+            cancelSignIn();
             Toast.makeText(this, R.string.email_not_found, Toast.LENGTH_SHORT).show();
             return;
         }
 
-        DocumentReference userRef = db.collection("users").document(email);
-
-        userRef.get().addOnCompleteListener(task -> {
-            if (task.isSuccessful()) {
-                DocumentSnapshot document = task.getResult();
-                Map<String, Object> userData = new HashMap<>();
-                userData.put("name", name);
-                userData.put("email", email);
-                userData.put("profilePic", profilePic);
-
-                if (document.exists()) {
-                    userData.put("dob", document.getString("dob"));
-                    userData.put("phone", document.getString("phone"));
-                    userData.put("address", document.getString("address"));
-                }
-
-                userRef.set(userData);
-                sharedPrefManager.saveUserDetails(name, email, "", "", "", profilePic);
+        // A retained account's profile is served from the device at once; the document is read
+        // only if the cached copy is stale and written only where it lacks something
+        String uid = user.getUid();
+        ProfileSyncEngine syncEngine = ProfileSyncEngine.getInstance(this);
+        long started = signInStart;
+        signInStart = 0;
+        profileRepository.switchAccount(uid, email, () -> {
+            if (started != 0) {
+                SIGN_IN_TIMER.stopAsync(TRACE_COOKIE, started);
             }
+            syncEngine.onSignedIn(uid, name, email, profilePic);
+            prefetchAvatar(profilePic);
         });
 
         updateUI(user);
     }
 
+    /**
+     * Shows an account that was already signed in. If its stored profile was unreadable and had to
+     * be discarded, the profile is restored from the remote document as on a fresh sign-in.
+     */
+    private void showSignedIn(FirebaseUser user) {
+        UserDataStore store = SharedPrefManager.getInstance(this).getAccountStore(user.getUid());
+        if (store != null && store.getLoadStatus() == UserDataStore.LoadStatus.QUARANTINED
+                && user.getEmail() != null) {
+            Toast.makeText(this, R.string.profile_restoring, Toast.LENGTH_LONG).show();
+            String profilePic = (user.getPhotoUrl() != null) ? user.getPhotoUrl().toString() : "";
+            ProfileSyncEngine.getInstance(this).onSignedIn(user.getUid(), user.getDisplayName(), user.getEmail(),
+                    profilePic);
+        }
+        updateUI(user);
+    }
+
     private void updateUI(FirebaseUser user) {
         txtWelcome.setText(getString(R.string.welcome_message));
         txtUserName.setText(user.getDisplayName());
         txtUserEmail.setText(user.getEmail());
 
-        Glide.with(this)
-                .load(user.getPhotoUrl())
-                .placeholder(R.drawable.default_profile)
-                .into(imgUserProfile);
+        SharedPrefManager sharedPrefManager = SharedPrefManager.getInstance(this);
+        String photoUrl = user.getPhotoUrl() != null ? user.getPhotoUrl().toString() : "";
+        // Same size as on the profile screen, so both share one memory cache entry
+        AvatarImages.into(imgUserProfile, AvatarImages.modelFor(null, photoUrl),
+                sharedPrefManager.getProfilePicSizePx());
 
         btnSignIn.setVisibility(View.GONE);
         btnLogout.setVisibility(View.VISIBLE);
         btnEditProfile.setVisibility(View.VISIBLE);
     }
 
+    /**
+     * Decodes the avatar ProfileActivity will show into memory while the user is still here, so it
+     * opens without a download or decode.
+     */
+    private void prefetchAvatar(String photoUrl) {
+        SharedPrefManager sharedPrefManager = SharedPrefManager.getInstance(this);
+        AvatarImages.prefetch(this,
+                AvatarImages.modelFor(sharedPrefManager.getUserProfilePicFile(), photoUrl),
+                sharedPrefManager.getProfilePicSizePx());
+    }
+
+    /**
+     * Ends the trace section of the current sign-in stage, if this screen started one.
+     */
+    private void endStage(Timer stage) {
+        if (stageStart != 0) {
+            stage.stopAsync(TRACE_COOKIE, stageStart);
+            stageStart = 0;
+        }
+    }
+
+    /**
+     * Ends the trace section of a sign-in that will not complete, without counting its duration.
+     */
+    private void cancelSignIn() {
+        if (signInStart != 0) {
+            SIGN_IN_TIMER.cancelAsync(TRACE_COOKIE);
+            signInStart = 0;
+        }
+    }
+
     private void signOut() {
-        googleSignInClient.signOut().addOnCompleteListener(this, task -> {
+        getGoogleSignInClient().signOut().addOnCompleteListener(this, task -> {
             mAuth.signOut();
-            sharedPrefManager.clearUserData();
+            // Readings from here on would not belong to anyone
+            BleHeartRateMonitor.getInstance(this).stop();
+            // The account's data stays on the device for its next sign-in
+            profileRepository.switchAccount(AccountStore.NO_ACCOUNT, "", null);
             showSignInButton();
         });
     }
@@ -3,11 +3,9 @@ package com.example.healthmonitoringapp.ui;
 import android.app.DatePickerDialog;
 import android.content.Intent;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.net.Uri;
 import android.os.Bundle;
 import android.provider.MediaStore;
-import android.util.Base64;
 import android.view.View;
 import android.widget.Button;
 import android.widget.DatePicker;
@@ -18,14 +16,15 @@ import android.widget.Toast;
 import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
 
-import com.bumptech.glide.Glide;
 import com.example.healthmonitoringapp.R;
+import com.example.healthmonitoringapp.image.AvatarImages;
+import com.example.healthmonitoringapp.utils.ImageDecodePipeline;
+import com.example.healthmonitoringapp.utils.ProfileRepository;
 import com.example.healthmonitoringapp.utils.SharedPrefManager;
+import com.example.healthmonitoringapp.utils.UserProfile;
 import com.google.android.gms.auth.api.signin.GoogleSignIn;
 import com.google.android.gms.auth.api.signin.GoogleSignInAccount;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.util.Calendar;
 
 public class ProfileActivity extends AppCompatActivity {
@@ -35,6 +34,8 @@ public class ProfileActivity extends AppCompatActivity {
     private EditText dobEditText, phoneEditText, addressEditText;
     private Button btnChangePhoto, saveProfileButton;
     private SharedPrefManager sharedPrefManager;
+    private ProfileRepository profileRepository;
+    private ImageDecodePipeline.Session decodeSession;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -49,9 +50,17 @@ public class ProfileActivity extends AppCompatActivity {
         saveProfileButton = findViewById(R.id.saveProfileButton);
 
         sharedPrefManager = SharedPrefManager.getInstance(this);
+        profileRepository = ProfileRepository.getInstance(this);
+        decodeSession = ImageDecodePipeline.getInstance().newSession(this);
 
-        loadUserData();
-        fetchGoogleSignInDetails();
+        // Render once the profile has been read in the background
+        profileRepository.whenReady(() -> {
+            if (isDestroyed()) {
+                return;
+            }
+            loadUserData();
+            fetchGoogleSignInDetails();
+        });
 
         btnChangePhoto.setOnClickListener(view -> selectProfileImage());
         dobEditText.setOnClickListener(view -> showDatePicker());
@@ -64,20 +73,17 @@ public class ProfileActivity extends AppCompatActivity {
     private void fetchGoogleSignInDetails() {
         GoogleSignInAccount account = GoogleSignIn.getLastSignedInAccount(this);
         if (account != null) {
-            if (sharedPrefManager.getUserName().isEmpty()) {
-                sharedPrefManager.saveUserDetails(
-                        account.getDisplayName(),
-                        account.getEmail(),
-                        account.getPhotoUrl() != null ? account.getPhotoUrl().toString() : "",
-                        sharedPrefManager.getUserDOB(),
-                        sharedPrefManager.getUserPhone(),
-                        sharedPrefManager.getUserAddress()
-                );
+            String photoUrl = account.getPhotoUrl() != null ? account.getPhotoUrl().toString() : "";
+            UserProfile profile = profileRepository.get();
+            if (profile.getName().isEmpty()) {
+                profileRepository.update(current -> current
+                        .withName(account.getDisplayName())
+                        .withEmail(account.getEmail())
+                        .withProfilePicUrl(photoUrl));
             }
-            if (sharedPrefManager.getUserProfilePic().isEmpty() && account.getPhotoUrl() != null) {
-                Glide.with(this)
-                        .load(account.getPhotoUrl().toString())
-                        .into(imgUserProfile);
+            if (!sharedPrefManager.hasUserProfilePicture()
+                    && profile.getProfilePicUrl().isEmpty() && account.getPhotoUrl() != null) {
+                AvatarImages.into(imgUserProfile, photoUrl, sharedPrefManager.getProfilePicSizePx());
             }
         }
     }
@@ -95,34 +101,27 @@ public class ProfileActivity extends AppCompatActivity {
         super.onActivityResult(requestCode, resultCode, data);
         if (requestCode == PICK_IMAGE && resultCode == RESULT_OK && data != null) {
             Uri imageUri = data.getData();
-            try {
-                Bitmap bitmap = MediaStore.Images.Media.getBitmap(getContentResolver(), imageUri);
-                imgUserProfile.setImageBitmap(bitmap);
-                saveImageToPreferences(bitmap);
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+            decodeSession.decode(getContentResolver(), imageUri, sharedPrefManager.getProfilePicSizePx(),
+                    new ImageDecodePipeline.Callback() {
+                        @Override
+                        public void onDecoded(Bitmap bitmap) {
+                            imgUserProfile.setImageBitmap(bitmap);
+                            saveImageToPreferences(bitmap);
+                        }
+
+                        @Override
+                        public void onError(Exception e) {
+                            Toast.makeText(ProfileActivity.this, "Unable to load image", Toast.LENGTH_SHORT).show();
+                        }
+                    });
         }
     }
 
     /**
-     * Saves the selected profile image in SharedPreferences.
+     * Saves the selected profile image as a downsampled avatar file.
      */
     private void saveImageToPreferences(Bitmap bitmap) {
-        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-        bitmap.compress(Bitmap.CompressFormat.PNG, 100, byteArrayOutputStream);
-        String encodedImage = Base64.encodeToString(byteArrayOutputStream.toByteArray(), Base64.DEFAULT);
-
-        sharedPrefManager.saveUserDetails(
-                sharedPrefManager.getUserName(),
-                sharedPrefManager.getUserEmail(),
-                encodedImage, // Save Base64 image
-                sharedPrefManager.getUserDOB(),
-                sharedPrefManager.getUserPhone(),
-                sharedPrefManager.getUserAddress()
-        );
-
-        loadUserData();
+        sharedPrefManager.saveUserProfilePicture(bitmap);
     }
 
     /**
@@ -150,14 +149,10 @@ public class ProfileActivity extends AppCompatActivity {
             return;
         }
 
-        sharedPrefManager.saveUserDetails(
-                sharedPrefManager.getUserName(),
-                sharedPrefManager.getUserEmail(),
-                sharedPrefManager.getUserProfilePic(),
-                dob,
-                phone,
-                address
-        );
+        profileRepository.update(profile -> profile
+                .withDob(dob)
+                .withPhone(phone)
+                .withAddress(address));
 
         Toast.makeText(this, "Data Saved Successfully", Toast.LENGTH_SHORT).show();
 
@@ -169,26 +164,18 @@ public class ProfileActivity extends AppCompatActivity {
     }
 
     /**
-     * Loads user data from SharedPreferences and updates the UI.
+     * Loads user data from the profile snapshot and updates the UI.
      */
     private void loadUserData() {
-        dobEditText.setText(sharedPrefManager.getUserDOB());
-        phoneEditText.setText(sharedPrefManager.getUserPhone());
-        addressEditText.setText(sharedPrefManager.getUserAddress());
-
-        String encodedImage = sharedPrefManager.getUserProfilePic();
-        if (encodedImage != null && !encodedImage.isEmpty()) {
-            if (encodedImage.startsWith("http")) {
-                Glide.with(this).load(encodedImage).into(imgUserProfile);
-            } else {
-                try {
-                    byte[] decodedBytes = Base64.decode(encodedImage, Base64.DEFAULT);
-                    Bitmap bitmap = BitmapFactory.decodeByteArray(decodedBytes, 0, decodedBytes.length);
-                    imgUserProfile.setImageBitmap(bitmap);
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
-            }
+        UserProfile profile = profileRepository.get();
+        dobEditText.setText(profile.getDob());
+        phoneEditText.setText(profile.getPhone());
+        addressEditText.setText(profile.getAddress());
+
+        // Usually a memory cache hit, prefetched at sign-in
+        Object avatar = AvatarImages.modelFor(sharedPrefManager.getUserProfilePicFile(), profile.getProfilePicUrl());
+        if (avatar != null) {
+            AvatarImages.into(imgUserProfile, avatar, sharedPrefManager.getProfilePicSizePx());
         }
     }
 }
@@ -0,0 +1,163 @@
+package com.example.healthmonitoringapp.utils;
+
+import com.example.healthmonitoringapp.security.CipherProvider;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Keeps one {@link UserDataStore} per account, keyed by Firebase UID, so switching between
+ * accounts on a shared device reads a warm local copy instead of starting over.
+ *
+ * <p>Up to {@code maxAccounts} accounts are retained; selecting one more deletes the files of the
+ * account used longest ago. The stores of all retained accounts start loading in the background
+ * as soon as the account list is first read, so selecting one of them never waits for the disk.
+ * The list and the selected account are kept in the device-wide store.</p>
+ */
+public class AccountStore {
+    public static final String NO_ACCOUNT = "";
+    static final int DEFAULT_MAX_ACCOUNTS = 4;
+
+    private static final String KEY_ACCOUNTS = "accounts"; // Retained account ids, least recently used first
+    private static final String KEY_SELECTED_ACCOUNT = "selected_account";
+    private static final String STORE_FILE = "user_data.bin";
+
+    private final File directory;
+    private final UserDataStore deviceStore;
+    private final int maxAccounts;
+    private final CipherProvider cipherProvider;
+    private final ExecutorService ioExecutor;
+    private final Executor callbackExecutor;
+    // Least recently selected first
+    private final LinkedHashMap<String, UserDataStore> accounts = new LinkedHashMap<>();
+    private String selected;
+
+    /**
+     * @param directory   Directory holding one subdirectory per retained account.
+     * @param deviceStore Store for the account list; shares its I/O executor with the account stores.
+     */
+    public AccountStore(File directory, UserDataStore deviceStore, int maxAccounts, CipherProvider cipherProvider,
+                        ExecutorService ioExecutor, Executor callbackExecutor) {
+        if (maxAccounts < 1) {
+            throw new IllegalArgumentException("maxAccounts must be positive");
+        }
+        this.directory = directory;
+        this.deviceStore = deviceStore;
+        this.maxAccounts = maxAccounts;
+        this.cipherProvider = cipherProvider;
+        this.ioExecutor = ioExecutor;
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    /**
+     * Returns the selected account's id, or {@link #NO_ACCOUNT}.
+     */
+    public synchronized String getSelectedAccount() {
+        ensureOpen();
+        return selected;
+    }
+
+    /**
+     * Returns the selected account's store, or null if no account is selected.
+     */
+    public synchronized UserDataStore getSelected() {
+        ensureOpen();
+        return accounts.get(selected);
+    }
+
+    /**
+     * Returns the store of a retained account without changing the eviction order, or null.
+     */
+    public synchronized UserDataStore get(String accountId) {
+        ensureOpen();
+        return accounts.get(accountId);
+    }
+
+    /**
+     * Returns the retained account ids, least recently selected first.
+     */
+    public synchronized List<String> getAccounts() {
+        ensureOpen();
+        return new ArrayList<>(accounts.keySet());
+    }
+
+    /**
+     * Selects an account, opening a new store for it if it is not retained and evicting the least
+     * recently selected account if that exceeds the limit. {@link #NO_ACCOUNT} deselects without
+     * dropping anything.
+     *
+     * @param migration Imports data into a new account's store, or null.
+     * @return The account's store, or null for {@link #NO_ACCOUNT}.
+     */
+    public synchronized UserDataStore select(String accountId, UserDataStore.Migration migration) {
+        ensureOpen();
+        UserDataStore store = null;
+        if (!accountId.equals(NO_ACCOUNT)) {
+            store = accounts.remove(accountId);
+            if (store == null) {
+                store = open(accountId, migration);
+            }
+            accounts.put(accountId, store);
+            while (accounts.size() > maxAccounts) {
+                evict(accounts.keySet().iterator().next());
+            }
+        }
+        selected = accountId;
+        String order = String.join("\n", accounts.keySet());
+        deviceStore.edit(data -> {
+            data.put(KEY_ACCOUNTS, order);
+            data.put(KEY_SELECTED_ACCOUNT, accountId);
+        });
+        return store;
+    }
+
+    /**
+     * Returns the directory holding an account's files, e.g. its avatar.
+     */
+    public File getDirectory(String accountId) {
+        // UIDs are alphanumeric, but legacy ids are email addresses
+        return new File(directory, Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(accountId.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private void ensureOpen() {
+        if (selected != null) {
+            return;
+        }
+        for (String accountId : deviceStore.getString(KEY_ACCOUNTS, "").split("\n")) {
+            if (!accountId.isEmpty()) {
+                accounts.put(accountId, open(accountId, null));
+            }
+        }
+        String stored = deviceStore.getString(KEY_SELECTED_ACCOUNT, NO_ACCOUNT);
+        selected = accounts.containsKey(stored) ? stored : NO_ACCOUNT;
+    }
+
+    private UserDataStore open(String accountId, UserDataStore.Migration migration) {
+        return new UserDataStore(new File(getDirectory(accountId), STORE_FILE), migration, cipherProvider,
+                ioExecutor, callbackExecutor);
+    }
+
+    private void evict(String accountId) {
+        accounts.remove(accountId);
+        File accountDirectory = getDirectory(accountId);
+        // Queued behind the evicted store's pending writes, which share the executor
+        ioExecutor.execute(() -> deleteRecursively(accountDirectory));
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.healthmonitoringapp.utils;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Build;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * Stores the user's profile picture as a downsampled, compressed file in app-private storage.
+ * Only the content hash is kept in SharedPreferences; the file name is derived from it.
+ */
+public class AvatarStore {
+    /** Size of the profile ImageView in activity_profile.xml. */
+    public static final int AVATAR_SIZE_DP = 120;
+
+    private static final String AVATAR_DIR = "avatars";
+    private static final String FILE_PREFIX = "avatar_";
+    private static final int QUALITY = 85;
+
+    private final File directory;
+    private final int targetSizePx;
+
+    public AvatarStore(Context context) {
+        this(new File(context.getFilesDir(), AVATAR_DIR),
+                Math.round(AVATAR_SIZE_DP * context.getResources().getDisplayMetrics().density));
+    }
+
+    AvatarStore(File directory, int targetSizePx) {
+        this.directory = directory;
+        this.targetSizePx = targetSizePx;
+    }
+
+    public int getTargetSizePx() {
+        return targetSizePx;
+    }
+
+    /**
+     * Downsamples and compresses the bitmap, then writes it to disk.
+     *
+     * @return Hash identifying the stored avatar.
+     */
+    public String save(Bitmap bitmap) throws IOException {
+        return writeEncoded(encode(scaleToTarget(bitmap)));
+    }
+
+    /**
+     * Converts a legacy Base64 PNG (as previously stored in preferences) into an avatar file.
+     *
+     * @return Hash identifying the stored avatar.
+     */
+    public String migrateLegacy(String base64) throws IOException {
+        return writeEncoded(transcode(decodeLegacy(base64)));
+    }
+
+    /**
+     * Returns the file holding the avatar with the given hash.
+     */
+    public File getFile(String hash) {
+        return new File(directory, FILE_PREFIX + hash);
+    }
+
+    /**
+     * Decodes the stored avatar, or returns null when it is missing.
+     */
+    public Bitmap load(String hash) {
+        if (hash == null || hash.isEmpty()) {
+            return null;
+        }
+        File file = getFile(hash);
+        return file.exists() ? BitmapFactory.decodeFile(file.getAbsolutePath()) : null;
+    }
+
+    /**
+     * Removes every stored avatar file.
+     */
+    public void clear() {
+        deleteAllExcept(null);
+    }
+
+    /**
+     * Writes already-encoded image bytes to a file named after their hash and removes older avatars.
+     * The write goes through a temporary file so a crash never leaves a truncated avatar behind.
+     */
+    String writeEncoded(byte[] encoded) throws IOException {
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Unable to create " + directory);
+        }
+        String hash = hash(encoded);
+        File target = getFile(hash);
+        if (!target.exists()) {
+            File tmp = new File(directory, target.getName() + ".tmp");
+            try (FileOutputStream out = new FileOutputStream(tmp)) {
+                out.write(encoded);
+                out.getFD().sync();
+            }
+            if (!tmp.renameTo(target)) {
+                tmp.delete();
+                throw new IOException("Unable to write " + target);
+            }
+        }
+        deleteAllExcept(target.getName());
+        return hash;
+    }
+
+    /**
+     * Decodes an arbitrary encoded image, downsamples it and re-encodes it at avatar size.
+     */
+    byte[] transcode(byte[] source) throws IOException {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(source, 0, source.length, options);
+        options.inSampleSize = calculateInSampleSize(options.outWidth, options.outHeight, targetSizePx);
+        options.inJustDecodeBounds = false;
+
+        Bitmap bitmap = BitmapFactory.decodeByteArray(source, 0, source.length, options);
+        if (bitmap == null) {
+            throw new IOException("Unable to decode legacy profile picture");
+        }
+        return encode(scaleToTarget(bitmap));
+    }
+
+    /**
+     * Returns the largest power-of-two sample size that keeps the shorter side at or above the target.
+     */
+    static int calculateInSampleSize(int width, int height, int targetSizePx) {
+        int sampleSize = 1;
+        int shorterSide = Math.min(width, height);
+        while (shorterSide / (sampleSize * 2) >= targetSizePx) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    static byte[] decodeLegacy(String base64) {
+        // android.util.Base64.DEFAULT wraps lines, which the MIME decoder accepts
+        return Base64.getMimeDecoder().decode(base64);
+    }
+
+    static String hash(byte[] data) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(data);
+            StringBuilder builder = new StringBuilder();
+            for (int i = 0; i < 8; i++) {
+                builder.append(String.format("%02x", digest[i]));
+            }
+            return builder.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Bitmap scaleToTarget(Bitmap bitmap) {
+        int shorterSide = Math.min(bitmap.getWidth(), bitmap.getHeight());
+        if (shorterSide <= targetSizePx) {
+            return bitmap;
+        }
+        float scale = (float) targetSizePx / shorterSide;
+        return Bitmap.createScaledBitmap(bitmap,
+                Math.round(bitmap.getWidth() * scale),
+                Math.round(bitmap.getHeight() * scale),
+                true);
+    }
+
+    private byte[] encode(Bitmap bitmap) {
+        Bitmap.CompressFormat format = Build.VERSION.SDK_INT >= Build.VERSION_CODES.R
+                ? Bitmap.CompressFormat.WEBP_LOSSY
+                : Bitmap.CompressFormat.JPEG;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        bitmap.compress(format, QUALITY, out);
+        return out.toByteArray();
+    }
+
+    private void deleteAllExcept(String keepName) {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (!file.getName().equals(keepName)) {
+                file.delete();
+            }
+        }
+    }
+}
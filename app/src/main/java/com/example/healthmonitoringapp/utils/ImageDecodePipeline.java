@@ -0,0 +1,201 @@
+package com.example.healthmonitoringapp.utils;
+
+import android.content.ContentResolver;
+import android.graphics.Bitmap;
+import android.graphics.ImageDecoder;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.util.Size;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.DefaultLifecycleObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import com.example.healthmonitoringapp.metrics.Metrics;
+import com.example.healthmonitoringapp.metrics.Timer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decodes images off the main thread with {@link ImageDecoder}, sampled down to the size they are shown at.
+ * ImageDecoder also applies EXIF orientation, so camera photos come out upright.
+ */
+public class ImageDecodePipeline {
+    private static final String TAG = "ImageDecodePipeline";
+    private static final int THREADS = 2;
+    private static final int QUEUE_CAPACITY = 4;
+    private static final Timer DECODE_TIMER = Metrics.getInstance().timer("ImageDecodePipeline.decode");
+
+    private static volatile ImageDecodePipeline instance;
+
+    private final ThreadPoolExecutor executor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * Receives the decoded bitmap on the main thread.
+     */
+    public interface Callback {
+        void onDecoded(Bitmap bitmap);
+
+        void onError(Exception e);
+    }
+
+    private ImageDecodePipeline() {
+        executor = new ThreadPoolExecutor(THREADS, THREADS, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+                (runnable, pool) -> {
+                    // Drop the oldest queued decode; whoever asked for it has moved on
+                    Runnable oldest = pool.getQueue().poll();
+                    if (oldest instanceof Future) {
+                        ((Future<?>) oldest).cancel(false);
+                    }
+                    pool.execute(runnable);
+                });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Returns a singleton instance of ImageDecodePipeline.
+     */
+    public static ImageDecodePipeline getInstance() {
+        if (instance == null) {
+            synchronized (ImageDecodePipeline.class) {
+                if (instance == null) {
+                    instance = new ImageDecodePipeline();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Creates a session whose pending decodes are cancelled when the owner is destroyed.
+     */
+    public Session newSession(LifecycleOwner owner) {
+        Session session = new Session();
+        owner.getLifecycle().addObserver(session);
+        return session;
+    }
+
+    /**
+     * Decodes synchronously on the calling thread. Must not be called from the main thread.
+     */
+    public Bitmap decode(ImageDecoder.Source source, int targetSizePx) throws IOException {
+        long start = DECODE_TIMER.start();
+        try {
+            return ImageDecoder.decodeBitmap(source, (decoder, info, src) -> {
+                Size size = info.getSize();
+                decoder.setTargetSampleSize(
+                        AvatarStore.calculateInSampleSize(size.getWidth(), size.getHeight(), targetSizePx));
+                // Software bitmaps can be re-encoded by AvatarStore without a copy
+                decoder.setAllocator(ImageDecoder.ALLOCATOR_SOFTWARE);
+            });
+        } finally {
+            DECODE_TIMER.stop(start);
+        }
+    }
+
+    /**
+     * Tracks the decodes started by one screen.
+     */
+    public class Session implements DefaultLifecycleObserver {
+        private final Set<Future<?>> pending = new HashSet<>();
+        private boolean destroyed;
+
+        /**
+         * Decodes a content URI, such as one returned by the gallery picker.
+         */
+        public void decode(ContentResolver resolver, Uri uri, int targetSizePx, Callback callback) {
+            submit(ImageDecoder.createSource(resolver, uri), targetSizePx, callback);
+        }
+
+        /**
+         * Decodes an image file from app storage.
+         */
+        public void decode(File file, int targetSizePx, Callback callback) {
+            submit(ImageDecoder.createSource(file), targetSizePx, callback);
+        }
+
+        /**
+         * Cancels every decode that has not delivered its result yet.
+         */
+        public void cancelAll() {
+            List<Future<?>> cancelled;
+            synchronized (pending) {
+                cancelled = new ArrayList<>(pending);
+                pending.clear();
+            }
+            for (Future<?> future : cancelled) {
+                future.cancel(false);
+            }
+        }
+
+        @Override
+        public void onDestroy(@NonNull LifecycleOwner owner) {
+            synchronized (pending) {
+                destroyed = true;
+            }
+            cancelAll();
+            owner.getLifecycle().removeObserver(this);
+        }
+
+        private void submit(ImageDecoder.Source source, int targetSizePx, Callback callback) {
+            FutureTask<Bitmap> task = new FutureTask<Bitmap>(
+                    () -> ImageDecodePipeline.this.decode(source, targetSizePx)) {
+                @Override
+                protected void done() {
+                    if (isCancelled()) {
+                        // Dropped by the executor when the queue was full, or cancelled by the session
+                        synchronized (pending) {
+                            pending.remove(this);
+                        }
+                    } else {
+                        mainHandler.post(() -> deliver(this, callback));
+                    }
+                }
+            };
+            synchronized (pending) {
+                if (destroyed) {
+                    return;
+                }
+                pending.add(task);
+            }
+            executor.execute(task);
+        }
+
+        int pendingCount() {
+            synchronized (pending) {
+                return pending.size();
+            }
+        }
+
+        private void deliver(FutureTask<Bitmap> task, Callback callback) {
+            synchronized (pending) {
+                if (!pending.remove(task) || task.isCancelled()) {
+                    return;
+                }
+            }
+            try {
+                callback.onDecoded(task.get());
+            } catch (ExecutionException e) {
+                Log.e(TAG, "Image decode failed", e.getCause());
+                callback.onError(e.getCause() instanceof Exception ? (Exception) e.getCause() : e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,336 @@
+package com.example.healthmonitoringapp.utils;
+
+import android.content.Context;
+
+import com.example.healthmonitoringapp.metrics.Metrics;
+import com.example.healthmonitoringapp.metrics.Timer;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/**
+ * Serves the user profile from an in-memory snapshot and persists only changed fields.
+ * Edits made within {@link #COALESCE_DELAY_MS} of each other are written in a single commit
+ * on a background thread. The snapshot itself is loaded on that thread too; use
+ * {@link #whenReady(Runnable)} to avoid blocking the main thread on the first read.
+ * The profile is that of the account selected with {@link #switchAccount}.
+ */
+public class ProfileRepository {
+    static final long COALESCE_DELAY_MS = 200;
+    private static final Timer SWITCH_TIMER = Metrics.getInstance().timer("ProfileRepository.switchAccount");
+
+    private static volatile ProfileRepository instance;
+
+    /**
+     * Persistent backing store for the profile.
+     */
+    public interface Storage {
+        /** Returns the account selected last, or {@link AccountStore#NO_ACCOUNT}. */
+        String getSelectedAccount();
+
+        /**
+         * Makes the account's profile the one loaded and written from now on. The email address
+         * identifies a profile stored by older versions that the account should adopt.
+         */
+        void selectAccount(String accountId, String email);
+
+        UserProfile loadProfile();
+
+        /** Writes the given fields in one transaction. Called from a single background thread. */
+        void writeProfileFields(Map<UserProfile.Field, String> changes);
+
+        void clearProfile();
+    }
+
+    /**
+     * Observes stored profile changes, e.g. to sync them to a remote backend.
+     * Called on the repository's background thread.
+     */
+    public interface Listener {
+        /** Called after the given fields have been written to storage. */
+        void onFieldsStored(Set<UserProfile.Field> fields);
+
+        void onCleared();
+
+        /** Called once the profile of another account is served, after the previous one's edits were stored. */
+        void onAccountChanged(String accountId);
+    }
+
+    private final Storage storage;
+    private final ScheduledExecutorService writer;
+    private final Executor callbackExecutor;
+    private final long coalesceDelayMs;
+    private final CountDownLatch loaded = new CountDownLatch(1);
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>(new Snapshot(UserProfile.EMPTY));
+    private volatile String accountId = AccountStore.NO_ACCOUNT;
+    /** Held while the profile is swapped for another account's or cleared. */
+    private final Object switchLock = new Object();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    ProfileRepository(Storage storage, ScheduledExecutorService writer, Executor callbackExecutor,
+                      long coalesceDelayMs) {
+        this.storage = storage;
+        this.writer = writer;
+        this.callbackExecutor = callbackExecutor;
+        this.coalesceDelayMs = coalesceDelayMs;
+        writer.execute(() -> {
+            try {
+                accountId = storage.getSelectedAccount();
+                snapshot.set(new Snapshot(storage.loadProfile()));
+            } finally {
+                loaded.countDown();
+            }
+        });
+    }
+
+    /**
+     * Returns a singleton instance of ProfileRepository backed by {@link SharedPrefManager}.
+     */
+    public static ProfileRepository getInstance(Context context) {
+        if (instance == null) {
+            synchronized (ProfileRepository.class) {
+                if (instance == null) {
+                    instance = new ProfileRepository(SharedPrefManager.getInstance(context),
+                            Executors.newSingleThreadScheduledExecutor(),
+                            context.getApplicationContext().getMainExecutor(),
+                            COALESCE_DELAY_MS);
+                }
+            }
+        }
+        return instance;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Runs the callback on the callback executor once the profile has been loaded.
+     */
+    public void whenReady(Runnable callback) {
+        if (loaded.getCount() == 0) {
+            callbackExecutor.execute(callback);
+        } else {
+            writer.execute(() -> callbackExecutor.execute(callback));
+        }
+    }
+
+    /**
+     * Returns the id of the account whose profile is served, or {@link AccountStore#NO_ACCOUNT}.
+     */
+    public String getAccountId() {
+        awaitLoaded();
+        return accountId;
+    }
+
+    /**
+     * Serves another account's profile, e.g. after sign-in. Unsaved edits are first stored for the
+     * previous account. An account the device still retains is read from memory, so the switch
+     * costs no disk read; {@link AccountStore#NO_ACCOUNT} signs out and keeps the account's data
+     * for its next sign-in.
+     *
+     * @param email    Email address of the account, used to adopt a profile stored by older versions.
+     * @param callback Runs on the callback executor once {@link #get()} returns the account's
+     *                 profile, or null.
+     */
+    public void switchAccount(String accountId, String email, Runnable callback) {
+        writer.execute(() -> {
+            long start = SWITCH_TIMER.start();
+            Map<UserProfile.Field, String> unsaved;
+            synchronized (switchLock) {
+                // Freezing the snapshot makes edits from here on wait for the swap, so every edit
+                // is either stored for the previous account or applied to the next one
+                Snapshot previous;
+                do {
+                    previous = snapshot.get();
+                } while (!snapshot.compareAndSet(previous, previous.freeze()));
+                unsaved = previous.dirtyValues();
+                if (!unsaved.isEmpty()) {
+                    storage.writeProfileFields(unsaved);
+                }
+                storage.selectAccount(accountId, email);
+                this.accountId = accountId;
+                snapshot.set(new Snapshot(storage.loadProfile()));
+            }
+            if (!unsaved.isEmpty()) {
+                notifyStored(unsaved);
+            }
+            for (Listener listener : listeners) {
+                listener.onAccountChanged(accountId);
+            }
+            SWITCH_TIMER.stop(start);
+            if (callback != null) {
+                callbackExecutor.execute(callback);
+            }
+        });
+    }
+
+    /**
+     * Returns the current profile without touching storage, waiting for the initial load if needed.
+     */
+    public UserProfile get() {
+        awaitLoaded();
+        return snapshot.get().profile;
+    }
+
+    /**
+     * Atomically applies a change to the profile. The function may be called more than once
+     * if other threads update the profile concurrently, so it must not have side effects. A change
+     * made while {@link #switchAccount} swaps the profile waits for the swap and applies to the
+     * next account's profile.
+     *
+     * @return The profile after the change.
+     */
+    public UserProfile update(UnaryOperator<UserProfile> change) {
+        awaitLoaded();
+        Snapshot previous;
+        Snapshot next;
+        do {
+            previous = snapshot.get();
+            if (previous.frozen) {
+                // A switch freezes and replaces the snapshot under the lock, so this one is not frozen
+                synchronized (switchLock) {
+                    previous = snapshot.get();
+                }
+            }
+            next = previous.apply(change.apply(previous.profile));
+        } while (next != previous && !snapshot.compareAndSet(previous, next));
+
+        if (next != previous && flushScheduled.compareAndSet(false, true)) {
+            writer.schedule(this::writeDirtyFields, coalesceDelayMs, TimeUnit.MILLISECONDS);
+        }
+        return next.profile;
+    }
+
+    /**
+     * Clears the profile in memory and in storage.
+     */
+    public void clear() {
+        awaitLoaded();
+        synchronized (switchLock) {
+            snapshot.set(new Snapshot(UserProfile.EMPTY));
+        }
+        writer.execute(() -> {
+            storage.clearProfile();
+            for (Listener listener : listeners) {
+                listener.onCleared();
+            }
+        });
+    }
+
+    /**
+     * Writes pending changes now and waits until they are stored.
+     */
+    public void flush() {
+        try {
+            writer.submit(this::writeDirtyFields).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Profile write failed", e.getCause());
+        }
+    }
+
+    private void awaitLoaded() {
+        try {
+            loaded.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeDirtyFields() {
+        // Cleared before the fields are taken, so an edit made after the take schedules another write
+        flushScheduled.set(false);
+        Snapshot current;
+        do {
+            current = snapshot.get();
+            if (current.dirty.isEmpty()) {
+                return;
+            }
+        } while (!snapshot.compareAndSet(current, new Snapshot(current.profile)));
+        Map<UserProfile.Field, String> changes = current.dirtyValues();
+        storage.writeProfileFields(changes);
+        notifyStored(changes);
+    }
+
+    private void notifyStored(Map<UserProfile.Field, String> changes) {
+        Set<UserProfile.Field> stored = Collections.unmodifiableSet(EnumSet.copyOf(changes.keySet()));
+        for (Listener listener : listeners) {
+            listener.onFieldsStored(stored);
+        }
+    }
+
+    /**
+     * A profile together with the fields changed since they were last written, so that both are
+     * replaced by the same compare-and-set.
+     */
+    private static final class Snapshot {
+        private static final Set<UserProfile.Field> CLEAN = Collections.emptySet();
+
+        final UserProfile profile;
+        final Set<UserProfile.Field> dirty;
+        /** Set while an account switch stores this profile's edits and replaces it. */
+        final boolean frozen;
+
+        Snapshot(UserProfile profile) {
+            this(profile, CLEAN, false);
+        }
+
+        private Snapshot(UserProfile profile, Set<UserProfile.Field> dirty, boolean frozen) {
+            this.profile = profile;
+            this.dirty = dirty;
+            this.frozen = frozen;
+        }
+
+        /**
+         * Returns the snapshot holding the changed profile, or this one if nothing changed.
+         */
+        Snapshot apply(UserProfile next) {
+            EnumSet<UserProfile.Field> changed = EnumSet.noneOf(UserProfile.Field.class);
+            for (UserProfile.Field field : UserProfile.Field.values()) {
+                if (!profile.get(field).equals(next.get(field))) {
+                    changed.add(field);
+                }
+            }
+            if (changed.isEmpty()) {
+                return this;
+            }
+            changed.addAll(dirty);
+            return new Snapshot(next, Collections.unmodifiableSet(changed), false);
+        }
+
+        Snapshot freeze() {
+            return new Snapshot(profile, dirty, true);
+        }
+
+        /**
+         * Returns the values of the dirty fields in this profile.
+         */
+        Map<UserProfile.Field, String> dirtyValues() {
+            Map<UserProfile.Field, String> values = new EnumMap<>(UserProfile.Field.class);
+            for (UserProfile.Field field : dirty) {
+                values.put(field, profile.get(field));
+            }
+            return values;
+        }
+    }
+}
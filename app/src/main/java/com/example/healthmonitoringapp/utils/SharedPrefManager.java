@@ -3,40 +3,96 @@ package com.example.healthmonitoringapp.utils;
 import android.content.Context;
 import android.content.SharedPreferences;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
-import android.util.Base64;
+import android.util.Log;
 
-import java.io.ByteArrayOutputStream;
+import com.example.healthmonitoringapp.security.KeystoreCipherProvider;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
- * Singleton class to manage user data storage using SharedPreferences.
+ * Singleton class to manage user data storage.
+ *
+ * <p>Profile fields are read and edited through {@link ProfileRepository}, which this class
+ * stores for; it only serves the avatar and device settings directly.</p>
+ *
+ * <p>Data lives in a {@link UserDataStore} that loads on a background thread; the first
+ * {@link #getInstance} call no longer reads the disk. Getters wait for that load, so screens that
+ * open right after process start should render from {@link ProfileRepository#whenReady(Runnable)}.
+ * The store file is encrypted with a Keystore-protected key. Data from the old
+ * {@code health_monitoring_pref} SharedPreferences file is imported on first run and the plain
+ * file deleted.</p>
+ *
+ * <p>Profile and sync state belong to the account selected with {@link #selectAccount} and live in
+ * its own store, see {@link AccountStore}; device-wide settings such as ingestion cursors stay in
+ * the main store. Until an account is selected, profile data is read from the main store, where
+ * versions before per-account storage kept it. Other packages keep their own state in these
+ * stores, see {@link #getDeviceStore} and {@link #getAccountStore}.</p>
  */
-public class SharedPrefManager {
+public class SharedPrefManager implements ProfileRepository.Storage {
+    private static final String TAG = "SharedPrefManager";
     private static final String PREF_NAME = "health_monitoring_pref";
+    private static final String STORE_FILE = "user_data.bin";
+    private static final String ACCOUNT_DIR = "accounts";
+    private static final String AVATAR_DIR = "avatars";
 
     // User Details Keys
     private static final String KEY_NAME = "user_name";
     private static final String KEY_EMAIL = "user_email";
-    private static final String KEY_PROFILE_PIC = "user_profile_pic"; // Stored as Base64
+    private static final String KEY_PROFILE_PIC = "user_profile_pic"; // Remote photo URL (legacy: Base64 image)
+    private static final String KEY_AVATAR_HASH = "user_avatar_hash"; // Local avatar file, see AvatarStore
     private static final String KEY_DOB = "user_dob";
     private static final String KEY_PHONE = "user_phone";
     private static final String KEY_ADDRESS = "user_address";
 
-    private static volatile SharedPrefManager instance;
-    private final SharedPreferences sharedPreferences;
-    private final SharedPreferences.Editor editor;
+    // Sync State Keys, written by sync.StoredSyncState
+    private static final String KEY_SYNC_PENDING = "sync_pending_fields";
+    private static final String KEY_SYNC_VERSION = "sync_remote_version";
+    private static final String KEY_HEART_RATE_STRAP = "ble_heart_rate_strap"; // Bluetooth address
 
+    /** Keys stored per account; older versions kept them in the main store. */
+    private static final String[] ACCOUNT_KEYS = {KEY_NAME, KEY_EMAIL, KEY_PROFILE_PIC, KEY_AVATAR_HASH, KEY_DOB,
+            KEY_PHONE, KEY_ADDRESS, KEY_SYNC_PENDING, KEY_SYNC_VERSION};
 
-    public String getUserProfilePic() {
-        return sharedPreferences.getString(KEY_PROFILE_PIC, "");
-    }
+    private static volatile SharedPrefManager instance;
+    private final File filesDir;
+    private final UserDataStore store;
+    private final AccountStore accountStore;
+    private final int avatarSizePx;
+    private final ExecutorService ioExecutor = Executors.newSingleThreadExecutor();
+    private AvatarStore avatarStore;
+    private String avatarAccount;
 
     /**
      * Private constructor to prevent direct instantiation.
      */
     private SharedPrefManager(Context context) {
-        sharedPreferences = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
-        editor = sharedPreferences.edit();
+        filesDir = context.getFilesDir();
+        avatarSizePx = Math.round(AvatarStore.AVATAR_SIZE_DP * context.getResources().getDisplayMetrics().density);
+        KeystoreCipherProvider cipherProvider = KeystoreCipherProvider.getInstance(context);
+        // One I/O thread for the main store and every account store
+        ExecutorService storeExecutor = Executors.newSingleThreadExecutor();
+        store = new UserDataStore(new File(filesDir, STORE_FILE),
+                new SharedPreferencesMigration(context, new AvatarStore(new File(filesDir, AVATAR_DIR), avatarSizePx)),
+                cipherProvider,
+                storeExecutor,
+                context.getMainExecutor());
+        accountStore = new AccountStore(new File(filesDir, ACCOUNT_DIR), store, AccountStore.DEFAULT_MAX_ACCOUNTS,
+                cipherProvider, storeExecutor, context.getMainExecutor());
+        // Start loading the retained accounts as soon as the main store is loaded
+        storeExecutor.execute(accountStore::getAccounts);
+
+        ioExecutor.execute(() -> {
+            if (isLegacyImage(profileStore().getString(KEY_PROFILE_PIC, ""))) {
+                migrateLegacyProfilePicture();
+            }
+        });
     }
 
     /**
@@ -54,23 +110,70 @@ public class SharedPrefManager {
     }
 
     /**
-     * Saves user details in SharedPreferences.
+     * Registers a listener that is called on the main thread with the keys changed by each write
+     * to the device-wide store.
+     */
+    public void addOnChangeListener(UserDataStore.OnChangeListener listener) {
+        store.addListener(listener);
+    }
+
+    public void removeOnChangeListener(UserDataStore.OnChangeListener listener) {
+        store.removeListener(listener);
+    }
+
+    /**
+     * Returns the store for device-wide settings, which other packages may keep their state in.
+     */
+    public UserDataStore getDeviceStore() {
+        return store;
+    }
+
+    /**
+     * Returns the store of the given account, the device-wide store for
+     * {@link AccountStore#NO_ACCOUNT}, or null if the account is no longer retained.
+     */
+    public UserDataStore getAccountStore(String accountId) {
+        return accountId.equals(AccountStore.NO_ACCOUNT) ? store : accountStore.get(accountId);
+    }
+
+    @Override
+    public String getSelectedAccount() {
+        return accountStore.getSelectedAccount();
+    }
+
+    /**
+     * Serves profile data from the account's own store from now on. An account the device has not
+     * retained starts empty, except that it adopts the profile older versions stored for the same
+     * email address. {@link AccountStore#NO_ACCOUNT} signs out, keeping the account's data for
+     * its next sign-in.
      */
-    public void saveUserDetails(String name, String email, String profilePicBase64, String dob, String phone, String address) {
-        editor.putString(KEY_NAME, name);
-        editor.putString(KEY_EMAIL, email);
-        editor.putString(KEY_PROFILE_PIC, profilePicBase64);
-        editor.putString(KEY_DOB, dob);
-        editor.putString(KEY_PHONE, phone);
-        editor.putString(KEY_ADDRESS, address);
-        editor.apply();
+    @Override
+    public void selectAccount(String accountId, String email) {
+        if (accountId.equals(AccountStore.NO_ACCOUNT)) {
+            if (hasLegacyAccount()) {
+                // Signing out before the profile was adopted drops it, as signing out used to
+                clearUserData();
+            }
+            accountStore.select(accountId, null);
+        } else {
+            accountStore.select(accountId, new LegacyAccountMigration(email,
+                    new File(accountStore.getDirectory(accountId), AVATAR_DIR)));
+        }
+    }
+
+    /**
+     * Checks if a profile stored by a version without per-account storage still waits to be
+     * adopted by its account.
+     */
+    public boolean hasLegacyAccount() {
+        return accountStore.getSelected() == null && !store.getString(KEY_EMAIL, "").isEmpty();
     }
 
     /**
-     * Retrieves the stored user profile picture as a Base64 encoded string.
+     * Checks if a locally picked profile picture is stored.
      */
-    public String getUserProfilePicBase64() {
-        return sharedPreferences.getString(KEY_PROFILE_PIC, "");
+    public boolean hasUserProfilePicture() {
+        return !profileStore().getString(KEY_AVATAR_HASH, "").isEmpty();
     }
 
     /**
@@ -78,81 +181,273 @@ public class SharedPrefManager {
      * @return Bitmap of the profile picture or null if not found.
      */
     public Bitmap getUserProfilePicBitmap() {
-        String encodedImage = sharedPreferences.getString(KEY_PROFILE_PIC, "");
-        if (!encodedImage.isEmpty()) {
-            byte[] decodedBytes = Base64.decode(encodedImage, Base64.DEFAULT);
-            return BitmapFactory.decodeByteArray(decodedBytes, 0, decodedBytes.length);
-        }
-        return null;
+        return avatarStore().load(profileStore().getString(KEY_AVATAR_HASH, ""));
+    }
+
+    /**
+     * Retrieves the file holding the stored profile picture, or null if there is none.
+     */
+    public File getUserProfilePicFile() {
+        String hash = profileStore().getString(KEY_AVATAR_HASH, "");
+        return hash.isEmpty() ? null : avatarStore().getFile(hash);
     }
 
     /**
-     * Saves user profile picture as a Base64 encoded string.
+     * Returns the pixel size profile pictures are displayed and stored at.
+     */
+    public int getProfilePicSizePx() {
+        return avatarSizePx;
+    }
+
+    /**
+     * Saves user profile picture as a downsampled file and keeps only its hash in the store.
+     * Encoding and file I/O happen on a background thread.
      */
     public void saveUserProfilePicture(Bitmap bitmap) {
         if (bitmap != null) {
-            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-            bitmap.compress(Bitmap.CompressFormat.PNG, 100, byteArrayOutputStream);
-            String encodedImage = Base64.encodeToString(byteArrayOutputStream.toByteArray(), Base64.DEFAULT);
-            editor.putString(KEY_PROFILE_PIC, encodedImage);
-            editor.apply();
+            UserDataStore profile = profileStore();
+            AvatarStore avatars = avatarStore();
+            ioExecutor.execute(() -> {
+                try {
+                    String hash = avatars.save(bitmap);
+                    profile.edit(data -> data.put(KEY_AVATAR_HASH, hash));
+                } catch (IOException e) {
+                    Log.e(TAG, "Failed to save profile picture", e);
+                }
+            });
         }
     }
 
     /**
-     * Retrieves the stored user name.
+     * Reads all profile fields in one pass.
      */
-    public String getUserName() {
-        return sharedPreferences.getString(KEY_NAME, "");
+    @Override
+    public UserProfile loadProfile() {
+        UserDataStore profile = profileStore();
+        String profilePic = profile.getString(KEY_PROFILE_PIC, "");
+        return UserProfile.of(
+                profile.getString(KEY_NAME, ""),
+                profile.getString(KEY_EMAIL, ""),
+                // A legacy Base64 picture waits for migrateLegacyProfilePicture()
+                isLegacyImage(profilePic) ? "" : profilePic,
+                profile.getString(KEY_DOB, ""),
+                profile.getString(KEY_PHONE, ""),
+                profile.getString(KEY_ADDRESS, ""));
     }
 
     /**
-     * Retrieves the stored user email.
+     * Writes only the given profile fields in a single transaction and waits until they are stored.
+     * An empty value removes the field's key.
      */
-    public String getUserEmail() {
-        return sharedPreferences.getString(KEY_EMAIL, "");
+    @Override
+    public void writeProfileFields(Map<UserProfile.Field, String> changes) {
+        try {
+            profileStore().edit(data -> {
+                for (Map.Entry<UserProfile.Field, String> change : changes.entrySet()) {
+                    if (change.getValue().isEmpty()) {
+                        data.remove(keyFor(change.getKey()));
+                    } else {
+                        data.put(keyFor(change.getKey()), change.getValue());
+                    }
+                }
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            Log.e(TAG, "Failed to save profile", e.getCause());
+        }
     }
 
     /**
-     * Retrieves the stored user Date of Birth.
+     * Returns the address of the Bluetooth heart-rate strap used last, or an empty string.
      */
-    public String getUserDOB() {
-        return sharedPreferences.getString(KEY_DOB, "");
+    public String getHeartRateStrapAddress() {
+        return store.getString(KEY_HEART_RATE_STRAP, "");
+    }
+
+    public void saveHeartRateStrapAddress(String address) {
+        store.edit(data -> data.put(KEY_HEART_RATE_STRAP, address));
+    }
+
+    @Override
+    public void clearProfile() {
+        clearUserData();
     }
 
     /**
-     * Retrieves the stored user phone number.
+     * Clears the selected account's profile without affecting other stored values.
      */
-    public String getUserPhone() {
-        return sharedPreferences.getString(KEY_PHONE, "");
+    public void clearUserData() {
+        profileStore().edit(data -> {
+            data.remove(KEY_NAME);
+            data.remove(KEY_EMAIL);
+            data.remove(KEY_PROFILE_PIC);
+            data.remove(KEY_DOB);
+            data.remove(KEY_PHONE);
+            data.remove(KEY_ADDRESS);
+            data.remove(KEY_AVATAR_HASH);
+        });
+        ioExecutor.execute(avatarStore()::clear);
     }
 
     /**
-     * Retrieves the stored user address.
+     * Moves a Base64 picture written by older versions out of the store.
      */
-    public String getUserAddress() {
-        return sharedPreferences.getString(KEY_ADDRESS, "");
+    private void migrateLegacyProfilePicture() {
+        UserDataStore profile = profileStore();
+        String legacy = profile.getString(KEY_PROFILE_PIC, "");
+        String hash = null;
+        try {
+            hash = avatarStore().migrateLegacy(legacy);
+        } catch (IOException | IllegalArgumentException e) {
+            Log.e(TAG, "Dropping unreadable legacy profile picture", e);
+        }
+        String migratedHash = hash;
+        profile.edit(data -> {
+            if (legacy.equals(data.get(KEY_PROFILE_PIC))) {
+                data.remove(KEY_PROFILE_PIC);
+                data.put(KEY_AVATAR_HASH, migratedHash);
+            }
+        });
     }
 
     /**
-     * Checks if a user is logged in.
-     *
-     * @return True if user data exists, false otherwise.
+     * Returns the selected account's store, or the main store while no account is selected.
      */
-    public boolean isUserLoggedIn() {
-        return sharedPreferences.contains(KEY_EMAIL);
+    private UserDataStore profileStore() {
+        UserDataStore selected = accountStore.getSelected();
+        return selected != null ? selected : store;
     }
 
     /**
-     * Clears only user-related data without affecting other stored preferences.
+     * Returns the avatar files of the selected account.
      */
-    public void clearUserData() {
-        editor.remove(KEY_NAME);
-        editor.remove(KEY_EMAIL);
-        editor.remove(KEY_PROFILE_PIC);
-        editor.remove(KEY_DOB);
-        editor.remove(KEY_PHONE);
-        editor.remove(KEY_ADDRESS);
-        editor.apply();
+    private synchronized AvatarStore avatarStore() {
+        String accountId = accountStore.getSelectedAccount();
+        if (avatarStore == null || !accountId.equals(avatarAccount)) {
+            File directory = accountId.equals(AccountStore.NO_ACCOUNT)
+                    ? new File(filesDir, AVATAR_DIR)
+                    : new File(accountStore.getDirectory(accountId), AVATAR_DIR);
+            avatarStore = new AvatarStore(directory, avatarSizePx);
+            avatarAccount = accountId;
+        }
+        return avatarStore;
+    }
+
+    private static String keyFor(UserProfile.Field field) {
+        switch (field) {
+            case NAME:
+                return KEY_NAME;
+            case EMAIL:
+                return KEY_EMAIL;
+            case PROFILE_PIC:
+                return KEY_PROFILE_PIC;
+            case DOB:
+                return KEY_DOB;
+            case PHONE:
+                return KEY_PHONE;
+            case ADDRESS:
+                return KEY_ADDRESS;
+            default:
+                throw new IllegalArgumentException("Unknown field " + field);
+        }
+    }
+
+    /**
+     * Stores a PNG picture in the old SharedPreferences file the way versions before
+     * {@link AvatarStore} did, for building the files {@link SharedPreferencesMigration} reads.
+     */
+    static void saveLegacyProfilePicture(SharedPreferences.Editor editor, byte[] png) {
+        // Same layout as android.util.Base64.DEFAULT: 76-character lines ending in a newline
+        editor.putString(KEY_PROFILE_PIC, Base64.getMimeEncoder(76, new byte[]{'\n'}).encodeToString(png) + "\n");
+    }
+
+    private static boolean isLegacyImage(String profilePic) {
+        return !profilePic.isEmpty() && !profilePic.startsWith("http");
+    }
+
+    /**
+     * Moves the profile older versions kept in the main store into a new account's store, if it
+     * belongs to the same email address. Otherwise it is dropped, as signing in to another account
+     * used to overwrite it.
+     */
+    private class LegacyAccountMigration implements UserDataStore.Migration {
+        private final String email;
+        private final File avatarDirectory;
+
+        LegacyAccountMigration(String email, File avatarDirectory) {
+            this.email = email;
+            this.avatarDirectory = avatarDirectory;
+        }
+
+        @Override
+        public Map<String, String> readLegacyData() {
+            Map<String, String> values = new HashMap<>();
+            if (email.isEmpty() || !email.equals(store.getString(KEY_EMAIL, ""))) {
+                return values;
+            }
+            for (String key : ACCOUNT_KEYS) {
+                String value = store.getString(key, null);
+                if (value != null) {
+                    values.put(key, value);
+                }
+            }
+            File legacyAvatars = new File(filesDir, AVATAR_DIR);
+            File parent = avatarDirectory.getParentFile();
+            if (legacyAvatars.exists() && parent != null && (parent.exists() || parent.mkdirs())
+                    && !legacyAvatars.renameTo(avatarDirectory)) {
+                Log.e(TAG, "Unable to move the profile picture to " + avatarDirectory);
+            }
+            return values;
+        }
+
+        @Override
+        public void deleteLegacyData() {
+            store.edit(data -> {
+                for (String key : ACCOUNT_KEYS) {
+                    data.remove(key);
+                }
+            });
+        }
+    }
+
+    /**
+     * Imports the string values of the old SharedPreferences file, off the main thread. A Base64
+     * picture is moved into the avatar files on the way rather than copied into the store.
+     */
+    static class SharedPreferencesMigration implements UserDataStore.Migration {
+        private final Context context;
+        private final AvatarStore avatarStore;
+
+        SharedPreferencesMigration(Context context, AvatarStore avatarStore) {
+            this.context = context;
+            this.avatarStore = avatarStore;
+        }
+
+        @Override
+        public Map<String, String> readLegacyData() {
+            SharedPreferences preferences = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+            Map<String, String> values = new HashMap<>();
+            for (Map.Entry<String, ?> entry : preferences.getAll().entrySet()) {
+                if (entry.getValue() instanceof String) {
+                    values.put(entry.getKey(), (String) entry.getValue());
+                }
+            }
+            String profilePic = values.getOrDefault(KEY_PROFILE_PIC, "");
+            if (isLegacyImage(profilePic)) {
+                values.remove(KEY_PROFILE_PIC);
+                try {
+                    values.put(KEY_AVATAR_HASH, avatarStore.migrateLegacy(profilePic));
+                } catch (IOException | IllegalArgumentException e) {
+                    Log.e(TAG, "Dropping unreadable legacy profile picture", e);
+                }
+            }
+            return values;
+        }
+
+        @Override
+        public void deleteLegacyData() {
+            context.deleteSharedPreferences(PREF_NAME);
+        }
     }
 }
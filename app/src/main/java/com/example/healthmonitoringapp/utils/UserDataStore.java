@@ -0,0 +1,492 @@
+package com.example.healthmonitoringapp.utils;
+
+import android.util.Log;
+
+import com.example.healthmonitoringapp.metrics.Counter;
+import com.example.healthmonitoringapp.metrics.Metrics;
+import com.example.healthmonitoringapp.metrics.Timer;
+import com.example.healthmonitoringapp.security.CipherProvider;
+import com.example.healthmonitoringapp.security.DataCipher;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+
+/**
+ * File-backed key-value store for user data that loads in the background.
+ *
+ * <p>The file is read on a dedicated I/O thread as soon as the store is created, so constructing it
+ * never touches the disk on the caller's thread. Every {@link #edit(Transaction)} runs on the same
+ * thread, is written to a temporary file and renamed over the old one, so readers see either the
+ * previous or the new contents and never a partial write.</p>
+ *
+ * <p>With a {@link CipherProvider} the contents are stored encrypted. A plain file from an older
+ * version is read once and immediately rewritten encrypted.</p>
+ *
+ * <p>A file that fails its format, checksum or authentication check is moved aside and the store
+ * starts empty. A file that cannot be read for any other reason is left alone: the store reads as
+ * empty and refuses edits until a later attempt reads it, so a passing I/O error never replaces
+ * the stored data. {@link #getLoadStatus()} tells which of these happened.</p>
+ */
+public class UserDataStore {
+    private static final String TAG = "UserDataStore";
+    private static final int MAGIC = 0x50475531; // "PGU1"
+    private static final int VERSION = 2;
+    /** Entries in modified UTF-8, at most 64 KB each; still read, never written. */
+    private static final int UTF_VERSION = 1;
+    private static final int ENCRYPTED_MAGIC = 0x50474531; // "PGE1"
+    private static final Timer LOAD_TIMER = Metrics.getInstance().timer("UserDataStore.load");
+    private static final Timer WRITE_TIMER = Metrics.getInstance().timer("UserDataStore.write");
+    // Only the reads that found the load still running; each one blocked its caller's thread
+    private static final Timer WAIT_TIMER = Metrics.getInstance().timer("UserDataStore.wait");
+    private static final Counter QUARANTINED = Metrics.getInstance().counter("UserDataStore.quarantined");
+    private static final Counter UNREADABLE = Metrics.getInstance().counter("UserDataStore.unreadable");
+    private static final int READ_ATTEMPTS = 3;
+    private static final long RETRY_DELAY_MS = 50;
+
+    /**
+     * Outcome of reading the file when the store was opened.
+     */
+    public enum LoadStatus {
+        /** Read, or there was nothing to read. */
+        LOADED,
+        /** Failed its format, checksum or authentication check and was moved aside; the store started empty. */
+        QUARANTINED,
+        /** Could not be read and was left in place; edits fail until it can be. */
+        UNREADABLE
+    }
+
+    /**
+     * Changes a copy of the stored data. Runs on the store's I/O thread.
+     */
+    public interface Transaction {
+        void apply(Map<String, String> data);
+    }
+
+    /**
+     * Notified on the callback executor after a transaction changed the stored data.
+     */
+    public interface OnChangeListener {
+        void onChanged(Set<String> changedKeys);
+    }
+
+    /**
+     * Imports data from a previous storage backend the first time the store is opened.
+     */
+    public interface Migration {
+        Map<String, String> readLegacyData();
+
+        void deleteLegacyData();
+    }
+
+    private final File file;
+    private final CipherProvider cipherProvider;
+    private final ExecutorService ioExecutor;
+    private final Executor callbackExecutor;
+    private final CountDownLatch loaded = new CountDownLatch(1);
+    private final CopyOnWriteArrayList<OnChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile Map<String, String> data = Collections.emptyMap();
+    private volatile LoadStatus loadStatus = LoadStatus.LOADED;
+    // Kept until it has run, so a load retried after an I/O error can still apply it
+    private Migration migration;
+
+    /**
+     * @param ioExecutor       Single-threaded executor that owns all file access.
+     * @param callbackExecutor Executor for {@link #whenReady} callbacks and change listeners.
+     */
+    public UserDataStore(File file, Migration migration, ExecutorService ioExecutor, Executor callbackExecutor) {
+        this(file, migration, null, ioExecutor, callbackExecutor);
+    }
+
+    /**
+     * @param cipherProvider   Encrypts the file, or null to store it in plain.
+     * @param ioExecutor       Single-threaded executor that owns all file access.
+     * @param callbackExecutor Executor for {@link #whenReady} callbacks and change listeners.
+     */
+    public UserDataStore(File file, Migration migration, CipherProvider cipherProvider, ExecutorService ioExecutor,
+                         Executor callbackExecutor) {
+        this.file = file;
+        this.cipherProvider = cipherProvider;
+        this.ioExecutor = ioExecutor;
+        this.callbackExecutor = callbackExecutor;
+        this.migration = migration;
+        ioExecutor.execute(() -> {
+            long start = LOAD_TIMER.start();
+            try {
+                load();
+            } finally {
+                loaded.countDown();
+                LOAD_TIMER.stop(start);
+            }
+        });
+    }
+
+    /**
+     * Returns true once the initial load has finished.
+     */
+    public boolean isReady() {
+        return loaded.getCount() == 0;
+    }
+
+    /**
+     * Returns how the initial load went, waiting for it if it is still running. An unreadable file
+     * that a later edit managed to read reports {@link LoadStatus#LOADED}.
+     */
+    public LoadStatus getLoadStatus() {
+        awaitData();
+        return loadStatus;
+    }
+
+    /**
+     * Runs the callback on the callback executor once the initial load has finished.
+     */
+    public void whenReady(Runnable callback) {
+        if (isReady()) {
+            callbackExecutor.execute(callback);
+        } else {
+            // The I/O thread is single-threaded, so this runs after load()
+            ioExecutor.execute(() -> callbackExecutor.execute(callback));
+        }
+    }
+
+    /**
+     * Returns the stored value, waiting for the initial load if it is still running.
+     */
+    public String getString(String key, String defaultValue) {
+        String value = awaitData().get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    public boolean contains(String key) {
+        return awaitData().containsKey(key);
+    }
+
+    /**
+     * Returns an immutable view of all stored values.
+     */
+    public Map<String, String> getAll() {
+        return awaitData();
+    }
+
+    /**
+     * Applies the transaction to a copy of the data and writes the result atomically.
+     * If the transaction throws or the write fails, the stored data is left unchanged. If the file
+     * could not be read when the store was opened, it is read again first, and the edit fails if it
+     * still cannot be.
+     *
+     * @return Future that completes once the data is on disk.
+     */
+    public Future<?> edit(Transaction transaction) {
+        return ioExecutor.submit(() -> {
+            if (loadStatus == LoadStatus.UNREADABLE) {
+                Map<String, String> before = data;
+                load();
+                if (loadStatus == LoadStatus.UNREADABLE) {
+                    throw new UncheckedIOException(new IOException("Not overwriting unreadable " + file));
+                }
+                notifyListeners(changedKeys(before, data));
+            }
+            Map<String, String> current = data;
+            Map<String, String> updated = new HashMap<>(current);
+            transaction.apply(updated);
+            // Like SharedPreferences, storing null removes the key
+            updated.values().removeIf(Objects::isNull);
+            if (updated.equals(current)) {
+                return;
+            }
+            try {
+                write(updated);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            data = Collections.unmodifiableMap(updated);
+            notifyListeners(changedKeys(current, updated));
+        });
+    }
+
+    public void addListener(OnChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(OnChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    private Map<String, String> awaitData() {
+        if (loaded.getCount() == 0) {
+            return data;
+        }
+        long start = WAIT_TIMER.start();
+        try {
+            loaded.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            WAIT_TIMER.stop(start);
+        }
+        return data;
+    }
+
+    /**
+     * Reads the file, retrying errors that are not a problem with its contents. Runs on the I/O
+     * thread.
+     */
+    private void load() {
+        Map<String, String> stored = null;
+        for (int attempt = 1; stored == null; attempt++) {
+            try {
+                stored = file.exists() ? read() : Collections.emptyMap();
+            } catch (CorruptFileException e) {
+                Log.e(TAG, "Unreadable contents in " + file + ", moving it aside and starting empty", e);
+                File corrupt = new File(file.getPath() + ".corrupt");
+                corrupt.delete();
+                file.renameTo(corrupt);
+                QUARANTINED.increment();
+                loadStatus = LoadStatus.QUARANTINED;
+                return;
+            } catch (IOException e) {
+                if (attempt == READ_ATTEMPTS) {
+                    Log.e(TAG, "Unable to read " + file + ", leaving it in place", e);
+                    UNREADABLE.increment();
+                    loadStatus = LoadStatus.UNREADABLE;
+                    return;
+                }
+                try {
+                    Thread.sleep(RETRY_DELAY_MS * attempt);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    loadStatus = LoadStatus.UNREADABLE;
+                    return;
+                }
+            }
+        }
+        loadStatus = LoadStatus.LOADED;
+
+        try {
+            if (file.exists()) {
+                data = Collections.unmodifiableMap(stored);
+                if (cipherProvider != null && !isEncrypted()) {
+                    write(stored);
+                }
+            } else if (migration != null) {
+                Map<String, String> legacy = new HashMap<>(migration.readLegacyData());
+                write(legacy);
+                data = Collections.unmodifiableMap(legacy);
+                migration.deleteLegacyData();
+            }
+            migration = null;
+        } catch (IOException e) {
+            // The data read is served; the file is rewritten or the migration retried on the next start
+            Log.e(TAG, "Unable to update " + file, e);
+        }
+    }
+
+    private Map<String, String> read() throws IOException {
+        byte[] body;
+        int version;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            int magic = in.readInt();
+            if (magic != MAGIC && magic != ENCRYPTED_MAGIC) {
+                throw new CorruptFileException("Not a user data file");
+            }
+            version = in.readInt();
+            if (version != VERSION && version != UTF_VERSION) {
+                throw new CorruptFileException("Unsupported version " + version);
+            }
+            int length = in.readInt();
+            if (length < 0 || length > file.length()) {
+                throw new CorruptFileException("Corrupt body length " + length);
+            }
+            body = new byte[length];
+            in.readFully(body);
+            if (magic == ENCRYPTED_MAGIC) {
+                // The authentication tag replaces the checksum
+                body = decrypt(body);
+            } else {
+                CRC32 crc = new CRC32();
+                crc.update(body);
+                if (crc.getValue() != in.readLong()) {
+                    throw new CorruptFileException("Checksum mismatch");
+                }
+            }
+        } catch (EOFException e) {
+            throw new CorruptFileException("Truncated file", e);
+        }
+
+        try {
+            DataInputStream entries = new DataInputStream(new ByteArrayInputStream(body));
+            int count = entries.readInt();
+            if (count < 0 || count > body.length) {
+                throw new CorruptFileException("Corrupt entry count " + count);
+            }
+            Map<String, String> result = new HashMap<>(count * 2);
+            for (int i = 0; i < count; i++) {
+                if (version == UTF_VERSION) {
+                    result.put(entries.readUTF(), entries.readUTF());
+                } else {
+                    result.put(readString(entries), readString(entries));
+                }
+            }
+            return result;
+        } catch (CorruptFileException e) {
+            throw e;
+        } catch (IOException e) {
+            // The body is in memory, so any failure to parse it is a problem with its contents
+            throw new CorruptFileException("Corrupt entries", e);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        // The body is in memory, so available() is what is left of it
+        if (length < 0 || length > in.available()) {
+            throw new CorruptFileException("Corrupt entry length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private void write(Map<String, String> values) throws IOException {
+        long start = WRITE_TIMER.start();
+        try {
+            writeFile(values);
+        } finally {
+            WRITE_TIMER.stop(start);
+        }
+    }
+
+    private void writeFile(Map<String, String> values) throws IOException {
+        ByteArrayOutputStream bodyBytes = new ByteArrayOutputStream();
+        DataOutputStream body = new DataOutputStream(bodyBytes);
+        body.writeInt(values.size());
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            writeString(body, entry.getKey());
+            writeString(body, entry.getValue());
+        }
+        body.flush();
+        byte[] contents = bodyBytes.toByteArray();
+        byte[] sealed = cipherProvider != null ? encrypt(contents) : null;
+
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Unable to create " + parent);
+        }
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream fileOut = new FileOutputStream(tmp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut))) {
+            out.writeInt(sealed != null ? ENCRYPTED_MAGIC : MAGIC);
+            out.writeInt(VERSION);
+            if (sealed != null) {
+                out.writeInt(sealed.length);
+                out.write(sealed);
+            } else {
+                CRC32 crc = new CRC32();
+                crc.update(contents);
+                out.writeInt(contents.length);
+                out.write(contents);
+                out.writeLong(crc.getValue());
+            }
+            out.flush();
+            fileOut.getFD().sync();
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            throw new IOException("Unable to replace " + file);
+        }
+    }
+
+    private boolean isEncrypted() throws IOException {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            return in.readInt() == ENCRYPTED_MAGIC;
+        }
+    }
+
+    private byte[] encrypt(byte[] contents) throws IOException {
+        try {
+            return cipherProvider.getCipher().encrypt(contents);
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Unable to encrypt " + file, e);
+        }
+    }
+
+    private byte[] decrypt(byte[] sealed) throws IOException {
+        if (cipherProvider == null) {
+            throw new IOException("Encrypted user data without a key");
+        }
+        // Loading the key may fail for a while, e.g. before the device is first unlocked
+        DataCipher cipher = cipherProvider.getCipher();
+        try {
+            return cipher.decrypt(sealed, 0, sealed.length);
+        } catch (GeneralSecurityException e) {
+            throw new CorruptFileException("Unable to decrypt " + file, e);
+        }
+    }
+
+    private void notifyListeners(Set<String> changedKeys) {
+        if (changedKeys.isEmpty() || listeners.isEmpty()) {
+            return;
+        }
+        Set<String> keys = Collections.unmodifiableSet(changedKeys);
+        for (OnChangeListener listener : listeners) {
+            callbackExecutor.execute(() -> listener.onChanged(keys));
+        }
+    }
+
+    private static Set<String> changedKeys(Map<String, String> before, Map<String, String> after) {
+        Set<String> changed = new HashSet<>();
+        for (Map.Entry<String, String> entry : after.entrySet()) {
+            if (!Objects.equals(before.get(entry.getKey()), entry.getValue())) {
+                changed.add(entry.getKey());
+            }
+        }
+        for (String key : before.keySet()) {
+            if (!after.containsKey(key)) {
+                changed.add(key);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * The file was read but its contents are not valid; reading it again cannot help.
+     */
+    private static final class CorruptFileException extends IOException {
+        CorruptFileException(String message) {
+            super(message);
+        }
+
+        CorruptFileException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+}
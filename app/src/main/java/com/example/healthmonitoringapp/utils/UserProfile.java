@@ -0,0 +1,121 @@
+package com.example.healthmonitoringapp.utils;
+
+import java.util.Arrays;
+
+/**
+ * Immutable snapshot of the signed-in user's profile details.
+ * Use the {@code with...} methods to derive a changed copy.
+ */
+public final class UserProfile {
+
+    /**
+     * The individually stored profile fields.
+     */
+    public enum Field {
+        NAME, EMAIL, PROFILE_PIC, DOB, PHONE, ADDRESS
+    }
+
+    public static final UserProfile EMPTY = new UserProfile(new String[Field.values().length]);
+
+    private final String[] values;
+
+    private UserProfile(String[] values) {
+        this.values = values;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == null) {
+                values[i] = "";
+            }
+        }
+    }
+
+    /**
+     * Returns the value of a field, never null.
+     */
+    public String get(Field field) {
+        return values[field.ordinal()];
+    }
+
+    /**
+     * Returns a copy with one field changed, or this instance if the value is the same.
+     */
+    public UserProfile with(Field field, String value) {
+        String normalized = value != null ? value : "";
+        if (values[field.ordinal()].equals(normalized)) {
+            return this;
+        }
+        String[] copy = values.clone();
+        copy[field.ordinal()] = normalized;
+        return new UserProfile(copy);
+    }
+
+    public String getName() {
+        return get(Field.NAME);
+    }
+
+    public String getEmail() {
+        return get(Field.EMAIL);
+    }
+
+    /** Remote photo URL, e.g. from the Google account. */
+    public String getProfilePicUrl() {
+        return get(Field.PROFILE_PIC);
+    }
+
+    public String getDob() {
+        return get(Field.DOB);
+    }
+
+    public String getPhone() {
+        return get(Field.PHONE);
+    }
+
+    public String getAddress() {
+        return get(Field.ADDRESS);
+    }
+
+    public UserProfile withName(String name) {
+        return with(Field.NAME, name);
+    }
+
+    public UserProfile withEmail(String email) {
+        return with(Field.EMAIL, email);
+    }
+
+    public UserProfile withProfilePicUrl(String profilePicUrl) {
+        return with(Field.PROFILE_PIC, profilePicUrl);
+    }
+
+    public UserProfile withDob(String dob) {
+        return with(Field.DOB, dob);
+    }
+
+    public UserProfile withPhone(String phone) {
+        return with(Field.PHONE, phone);
+    }
+
+    public UserProfile withAddress(String address) {
+        return with(Field.ADDRESS, address);
+    }
+
+    /**
+     * Builds a profile from values indexed by {@link Field#ordinal()}.
+     */
+    public static UserProfile of(String... values) {
+        return new UserProfile(Arrays.copyOf(values, Field.values().length));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof UserProfile && Arrays.equals(values, ((UserProfile) o).values);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(values);
+    }
+
+    @Override
+    public String toString() {
+        return "UserProfile{name=" + getName() + ", email=" + getEmail() + "}";
+    }
+}
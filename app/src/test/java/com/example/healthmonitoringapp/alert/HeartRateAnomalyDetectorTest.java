@@ -0,0 +1,250 @@
+package com.example.healthmonitoringapp.alert;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link HeartRateAnomalyDetector}, replaying synthetic 1 Hz streams.
+ */
+public class HeartRateAnomalyDetectorTest {
+    private static final long START_MS = 1_700_000_000_000L;
+    private static final long SECOND = 1000;
+    private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    private RecordingListener listener;
+    private HeartRateAnomalyDetector detector;
+    private Random random;
+    private long now;
+
+    @Before
+    public void setUp() {
+        listener = new RecordingListener();
+        detector = new HeartRateAnomalyDetector(listener);
+        random = new Random(1);
+        now = START_MS;
+    }
+
+    @Test
+    public void tachycardia_raisedAfterSustainAndCleared() {
+        feed(70, 10 * MINUTE, SECOND);
+        long onset = now;
+        feed(140, 5 * MINUTE, SECOND);
+        long recovery = now;
+        feed(70, 5 * MINUTE, SECOND);
+
+        assertEquals(2, listener.events.size());
+        Event raised = listener.events.get(0);
+        assertTrue(raised.raised);
+        assertEquals(AlertType.TACHYCARDIA, raised.type);
+        assertLatency(onset, raised.timestampMs, HeartRateAnomalyDetector.RATE_SUSTAIN_MS);
+        assertFalse(listener.events.get(1).raised);
+        assertLatency(recovery, listener.events.get(1).timestampMs, HeartRateAnomalyDetector.RATE_SUSTAIN_MS);
+        assertFalse(detector.isActive(AlertType.TACHYCARDIA));
+    }
+
+    @Test
+    public void bradycardia_raisedAfterSustain() {
+        feed(62, 10 * MINUTE, SECOND);
+        long onset = now;
+        feed(35, 3 * MINUTE, SECOND);
+
+        assertEquals(1, listener.events.size());
+        assertEquals(AlertType.BRADYCARDIA, listener.events.get(0).type);
+        assertLatency(onset, listener.events.get(0).timestampMs, HeartRateAnomalyDetector.RATE_SUSTAIN_MS);
+        assertTrue(detector.isActive(AlertType.BRADYCARDIA));
+    }
+
+    @Test
+    public void spikesAndShortBursts_doNotAlert() {
+        for (int i = 0; i < 20; i++) {
+            feed(70, 2 * MINUTE, SECOND);
+            // Single artifacts, then a burst shorter than the sustain period
+            detector.accept(now, 220);
+            now += SECOND;
+            detector.accept(now, 30);
+            now += SECOND;
+            feed(135, 40 * SECOND, SECOND);
+        }
+        assertEquals(0, listener.events.size());
+    }
+
+    @Test
+    public void hysteresis_keepsAlertWhileNearThreshold() {
+        feed(140, 3 * MINUTE, SECOND);
+        // Drifts around the entry threshold but never below the exit threshold
+        for (int i = 0; i < 600; i++) {
+            detector.accept(now, 112 + random.nextInt(15));
+            now += SECOND;
+        }
+        assertEquals(1, listener.events.size());
+        assertTrue(detector.isActive(AlertType.TACHYCARDIA));
+    }
+
+    @Test
+    public void gap_restartsSustainPeriod() {
+        feed(140, 50 * SECOND, SECOND);
+        now += HeartRateAnomalyDetector.MAX_GAP_MS + MINUTE;
+        feed(140, 50 * SECOND, SECOND);
+        assertEquals(0, listener.events.size());
+    }
+
+    @Test
+    public void restingShift_detectedOnceBaselineIsLearned() {
+        // A resting shift right away is not reported: there is no baseline yet
+        feed(60, 2 * HOUR, 10 * SECOND);
+        feed(80, 2 * HOUR, 10 * SECOND);
+        assertTrue(Float.isNaN(detector.getRestingBaseline()));
+        feed(60, 3 * DAY, 10 * SECOND);
+        assertEquals(0, listener.events.size());
+        assertEquals(60, detector.getRestingBaseline(), 2);
+
+        long onset = now;
+        feed(78, 4 * HOUR, 10 * SECOND);
+
+        assertEquals(1, listener.events.size());
+        Event raised = listener.events.get(0);
+        assertEquals(AlertType.RESTING_HR_SHIFT, raised.type);
+        assertTrue("Took " + (raised.timestampMs - onset) / MINUTE + " min",
+                raised.timestampMs - onset < 2 * HOUR);
+        assertEquals(60, raised.baseline, 2);
+        assertTrue(raised.value > 60 + HeartRateAnomalyDetector.SHIFT_ENTER_BPM);
+    }
+
+    @Test
+    public void restoredRestingState_needsNoWarmup() {
+        assertNull(detector.getRestingState());
+        feed(60, DAY, 10 * SECOND);
+        HeartRateAnomalyDetector.RestingState saved = detector.getRestingState();
+
+        // As after the process was killed
+        detector = new HeartRateAnomalyDetector(listener);
+        detector.restoreRestingState(saved);
+        assertEquals(60, detector.getRestingBaseline(), 2);
+
+        now += HOUR;
+        feed(78, 4 * HOUR, 10 * SECOND);
+        assertEquals(1, listener.events.size());
+        assertEquals(AlertType.RESTING_HR_SHIFT, listener.events.get(0).type);
+    }
+
+    @Test
+    public void exerciseIsNotResting() {
+        feed(60, 2 * DAY, 10 * SECOND);
+        // Elevated but varying heart rate, as during a walk
+        for (long end = now + 3 * HOUR; now < end; now += 10 * SECOND) {
+            detector.accept(now, 85 + random.nextInt(20));
+        }
+        assertEquals(0, listener.events.size());
+        assertEquals(60, detector.getRestingBaseline(), 1);
+    }
+
+    @Test
+    public void olderAndInvalidSamples_areIgnored() {
+        feed(140, 30 * SECOND, SECOND);
+        long resume = now;
+        // Replayed history and sensor dropouts must not extend or break the episode
+        for (int i = 0; i < 100; i++) {
+            detector.accept(START_MS + i, 50);
+            detector.accept(now + i, Float.NaN);
+            detector.accept(now + i + 1, 0);
+        }
+        now = resume + 200;
+        feed(140, 40 * SECOND, SECOND);
+        assertEquals(1, listener.events.size());
+    }
+
+    @Test
+    public void steadyState_doesNotAllocate() {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        CountingListener counting = new CountingListener();
+        HeartRateAnomalyDetector quiet = new HeartRateAnomalyDetector(counting);
+        long[] timestamp = {START_MS};
+        // Warm up so the JIT has compiled the loop, then measure a stream that also raises alerts
+        replayEpisodes(quiet, timestamp, 200_000);
+        long before = threads.getCurrentThreadAllocatedBytes();
+        replayEpisodes(quiet, timestamp, 2_000_000);
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+        assertTrue(counting.raised > 10);
+        // Allow for the allocation counter reading itself
+        assertTrue("Allocated " + allocated + " bytes", allocated < 1024);
+    }
+
+    private static void replayEpisodes(HeartRateAnomalyDetector detector, long[] timestamp, int samples) {
+        for (int i = 0; i < samples; i++) {
+            // Ten minutes normal, five minutes fast, with a small sawtooth of noise
+            float base = (i / 60) % 15 < 10 ? 70 : 140;
+            detector.accept(timestamp[0], base + (i % 7) - 3);
+            timestamp[0] += SECOND;
+        }
+    }
+
+    private void feed(float bpm, long durationMs, long intervalMs) {
+        for (long end = now + durationMs; now < end; now += intervalMs) {
+            detector.accept(now, bpm + random.nextInt(3) - 1);
+        }
+    }
+
+    private static void assertLatency(long onsetMs, long detectedMs, long sustainMs) {
+        long latency = detectedMs - onsetMs;
+        // The median needs half a window to move, then the condition has to hold
+        long expected = sustainMs + (HeartRateAnomalyDetector.WINDOW / 2 + 1) * SECOND;
+        assertTrue("Latency " + latency + " ms", latency >= sustainMs && latency <= expected);
+    }
+
+    private static final class Event {
+        final AlertType type;
+        final boolean raised;
+        final long timestampMs;
+        final float value;
+        final float baseline;
+
+        Event(AlertType type, boolean raised, long timestampMs, float value, float baseline) {
+            this.type = type;
+            this.raised = raised;
+            this.timestampMs = timestampMs;
+            this.value = value;
+            this.baseline = baseline;
+        }
+    }
+
+    private static final class RecordingListener implements AlertListener {
+        final List<Event> events = new ArrayList<>();
+
+        @Override
+        public void onAlertRaised(AlertType type, long timestampMs, float value, float baseline) {
+            events.add(new Event(type, true, timestampMs, value, baseline));
+        }
+
+        @Override
+        public void onAlertCleared(AlertType type, long timestampMs) {
+            events.add(new Event(type, false, timestampMs, Float.NaN, Float.NaN));
+        }
+    }
+
+    private static final class CountingListener implements AlertListener {
+        int raised;
+        int cleared;
+
+        @Override
+        public void onAlertRaised(AlertType type, long timestampMs, float value, float baseline) {
+            raised++;
+        }
+
+        @Override
+        public void onAlertCleared(AlertType type, long timestampMs) {
+            cleared++;
+        }
+    }
+}
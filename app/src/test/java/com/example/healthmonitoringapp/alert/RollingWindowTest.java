@@ -0,0 +1,57 @@
+package com.example.healthmonitoringapp.alert;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link RollingWindow}.
+ */
+public class RollingWindowTest {
+
+    @Test
+    public void medianAndMad_matchBruteForce() {
+        Random random = new Random(1);
+        for (int capacity : new int[]{1, 2, 5, 15, 16}) {
+            RollingWindow window = new RollingWindow(capacity);
+            float[] recent = new float[capacity];
+            for (int i = 0; i < 500; i++) {
+                float value = 50 + random.nextInt(40) + (random.nextBoolean() ? 0.5f : 0);
+                window.add(value);
+                recent[i % capacity] = value;
+                float[] contents = Arrays.copyOf(recent, Math.min(i + 1, capacity));
+
+                float median = median(contents);
+                float[] deviations = new float[contents.length];
+                for (int j = 0; j < contents.length; j++) {
+                    deviations[j] = Math.abs(contents[j] - median);
+                }
+                assertEquals(contents.length, window.size());
+                assertEquals(median, window.median(), 1e-6);
+                assertEquals(median(deviations), window.mad(), 1e-6);
+            }
+        }
+    }
+
+    @Test
+    public void clear_emptiesWindow() {
+        RollingWindow window = new RollingWindow(3);
+        window.add(1);
+        window.add(2);
+        window.clear();
+        assertEquals(0, window.size());
+        assertTrue(Float.isNaN(window.median()));
+        window.add(7);
+        assertEquals(7, window.median(), 0);
+        assertEquals(0, window.mad(), 0);
+    }
+
+    private static float median(float[] values) {
+        float[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return (sorted[(sorted.length - 1) / 2] + sorted[sorted.length / 2]) / 2;
+    }
+}
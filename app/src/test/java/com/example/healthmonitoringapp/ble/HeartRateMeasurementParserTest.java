@@ -0,0 +1,95 @@
+package com.example.healthmonitoringapp.ble;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link HeartRateMeasurementParser}, using notification values recorded from
+ * chest straps.
+ */
+public class HeartRateMeasurementParserTest {
+    private final HeartRateMeasurement measurement = new HeartRateMeasurement();
+
+    @Test
+    public void uint8HeartRateWithContactAndRrInterval() {
+        assertTrue(HeartRateMeasurementParser.parse(frame("16 48 2C 03"), measurement));
+
+        assertEquals(72, measurement.getHeartRate());
+        assertEquals(HeartRateMeasurement.CONTACT_DETECTED, measurement.getContact());
+        assertEquals(HeartRateMeasurement.NO_ENERGY, measurement.getEnergyExpendedKj());
+        assertEquals(1, measurement.getRrCount());
+        assertEquals(812 * 1000f / 1024, measurement.getRrIntervalMs(0), 1e-3);
+        assertTrue(measurement.isHeartRateValid());
+    }
+
+    @Test
+    public void uint16HeartRate() {
+        assertTrue(HeartRateMeasurementParser.parse(frame("01 A0 00"), measurement));
+
+        assertEquals(160, measurement.getHeartRate());
+        assertEquals(HeartRateMeasurement.CONTACT_UNSUPPORTED, measurement.getContact());
+        assertEquals(0, measurement.getRrCount());
+    }
+
+    @Test
+    public void energyExpendedBeforeRrIntervals() {
+        assertTrue(HeartRateMeasurementParser.parse(frame("1E 5A 10 00 00 04"), measurement));
+
+        assertEquals(90, measurement.getHeartRate());
+        assertEquals(16, measurement.getEnergyExpendedKj());
+        assertEquals(1, measurement.getRrCount());
+        assertEquals(1000, measurement.getRrIntervalMs(0), 1e-3);
+    }
+
+    @Test
+    public void severalRrIntervals_keepTheirOrder() {
+        assertTrue(HeartRateMeasurementParser.parse(frame("10 4E 00 03 F0 02 10 03"), measurement));
+
+        assertEquals(3, measurement.getRrCount());
+        assertEquals(750, measurement.getRrIntervalMs(0), 1e-3);
+        assertEquals(734.375, measurement.getRrIntervalMs(1), 1e-3);
+        assertEquals(765.625, measurement.getRrIntervalMs(2), 1e-3);
+    }
+
+    @Test
+    public void lostContact_marksHeartRateInvalid() {
+        assertTrue(HeartRateMeasurementParser.parse(frame("04 00"), measurement));
+
+        assertEquals(HeartRateMeasurement.CONTACT_LOST, measurement.getContact());
+        assertFalse(measurement.isHeartRateValid());
+    }
+
+    @Test
+    public void trailingPadding_isIgnored() {
+        assertTrue(HeartRateMeasurementParser.parse(frame("10 48 00 04 05"), measurement));
+        assertEquals(1, measurement.getRrCount());
+    }
+
+    @Test
+    public void reusedMeasurement_isReset() {
+        HeartRateMeasurementParser.parse(frame("1E 5A 10 00 00 04"), measurement);
+        HeartRateMeasurementParser.parse(frame("00 40"), measurement);
+
+        assertEquals(64, measurement.getHeartRate());
+        assertEquals(HeartRateMeasurement.NO_ENERGY, measurement.getEnergyExpendedKj());
+        assertEquals(0, measurement.getRrCount());
+    }
+
+    @Test
+    public void truncatedFrames_areRejected() {
+        assertFalse(HeartRateMeasurementParser.parse(null, measurement));
+        assertFalse(HeartRateMeasurementParser.parse(frame("00"), measurement));
+        assertFalse(HeartRateMeasurementParser.parse(frame("01 48"), measurement));
+        assertFalse(HeartRateMeasurementParser.parse(frame("08 48 01"), measurement));
+    }
+
+    static byte[] frame(String hex) {
+        String[] parts = hex.split(" ");
+        byte[] bytes = new byte[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(parts[i], 16);
+        }
+        return bytes;
+    }
+}
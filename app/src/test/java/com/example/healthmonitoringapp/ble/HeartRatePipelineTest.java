@@ -0,0 +1,199 @@
+package com.example.healthmonitoringapp.ble;
+
+import com.example.healthmonitoringapp.data.SampleBatch;
+import com.example.healthmonitoringapp.data.SampleSink;
+import com.example.healthmonitoringapp.data.VitalType;
+import com.example.healthmonitoringapp.sampling.AdaptiveSamplingController;
+import com.example.healthmonitoringapp.sampling.DeviceConditions;
+import com.example.healthmonitoringapp.sampling.SamplingPolicy;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.example.healthmonitoringapp.ble.HeartRateMeasurementParserTest.frame;
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link HeartRatePipeline}, replaying a recorded strap session.
+ */
+public class HeartRatePipelineTest {
+    private static final long START_MS = 1_700_000_000_000L;
+
+    // One second of notifications each, recorded from a strap while the wearer sat down
+    private static final String[] SESSION = {
+            "16 48 2C 03",
+            "16 49 20 03",
+            "16 4A 18 03 10 03",
+            "04 00",
+            "16 4B 08 03",
+            "16 4A 10 03",
+    };
+
+    private RecordingSink sink;
+    private RecordingListener listener;
+    private HeartRatePipeline pipeline;
+
+    @Before
+    public void setUp() {
+        sink = new RecordingSink();
+        listener = new RecordingListener();
+        pipeline = new HeartRatePipeline(sink);
+        pipeline.setListener(listener);
+    }
+
+    @Test
+    public void session_reachesStoreAndListener() throws IOException {
+        for (int i = 0; i < SESSION.length; i++) {
+            assertTrue(pipeline.onNotification(frame(SESSION[i]), START_MS + i * 1000L));
+        }
+        assertEquals(11, pipeline.drain());
+
+        // The frame without skin contact carries no heart rate
+        assertEquals(1, sink.batches);
+        assertArrayEquals(new float[]{72, 73, 74, 75, 74}, sink.values(), 0);
+        assertEquals(5, listener.heartRates.size());
+        assertEquals(6, listener.rrIntervals.size());
+        assertEquals(0, pipeline.drain());
+    }
+
+    @Test
+    public void rrIntervals_areDatedBackFromArrival() throws IOException {
+        pipeline.onNotification(frame("10 4E 00 03 F0 02 10 03"), START_MS);
+        pipeline.drain();
+
+        assertEquals(3, listener.rrIntervals.size());
+        // The newest beat arrived with the notification, earlier ones one interval apart
+        assertEquals(START_MS, listener.rrIntervals.get(2)[0], 0);
+        assertEquals(START_MS - 766, listener.rrIntervals.get(1)[0], 0);
+        assertEquals(START_MS - 766 - 734, listener.rrIntervals.get(0)[0], 0);
+        assertEquals(750, listener.rrIntervals.get(0)[1], 1e-3);
+    }
+
+    @Test
+    public void heartRateInterval_thinsStoreButNotListener() throws IOException {
+        pipeline.setHeartRateIntervalMs(5_000);
+        for (int i = 0; i < 12; i++) {
+            // A little late or early, as notifications are
+            pipeline.onNotification(frame("00 48"), START_MS + i * 1000L + (i % 2 == 0 ? 40 : -40));
+        }
+        pipeline.drain();
+
+        // Seconds 0, 5 and 10 despite the jitter
+        assertEquals(3, sink.values.size());
+        assertEquals(12, listener.heartRates.size());
+
+        pipeline.setHeartRateIntervalMs(0);
+        for (int i = 12; i < 15; i++) {
+            pipeline.onNotification(frame("00 48"), START_MS + i * 1000L);
+        }
+        pipeline.drain();
+        assertEquals(6, sink.values.size());
+    }
+
+    @Test
+    public void samplingController_keepsAbnormalOnsetWithinOneDrain() throws IOException {
+        AdaptiveSamplingController sampling = new AdaptiveSamplingController(new RestingConditions());
+        pipeline.setSampling(sampling);
+        long t = START_MS;
+        // Five minutes at rest, drained every 30 s as the resting policy does
+        for (int i = 0; i < 300; i++, t += 1000) {
+            pipeline.onNotification(frame("00 42"), t);
+            if (i % 30 == 29) {
+                pipeline.drain();
+            }
+        }
+        assertEquals(SamplingPolicy.RESTING, sampling.getPolicy());
+        int restingStored = sink.values.size();
+        assertTrue(restingStored <= 300 / 15 + 1);
+
+        // The rate jumps five seconds into the next drain; nothing reaches the controller before it runs
+        for (int i = 0; i < 30; i++, t += 1000) {
+            pipeline.onNotification(frame(i < 5 ? "00 42" : "00 8C"), t);
+        }
+        pipeline.drain();
+
+        assertEquals(SamplingPolicy.BURST, sampling.getPolicy());
+        List<Float> drained = sink.values.subList(restingStored, sink.values.size());
+        assertEquals(25, drained.stream().filter(bpm -> bpm == 140).count());
+        assertEquals(330, listener.heartRates.size());
+    }
+
+    @Test
+    public void malformedFrames_areCountedAndSkipped() throws IOException {
+        assertFalse(pipeline.onNotification(frame("01 48"), START_MS));
+        assertFalse(pipeline.onNotification(new byte[0], START_MS));
+
+        assertEquals(2, pipeline.getMalformed());
+        assertEquals(0, pipeline.drain());
+        assertEquals(0, sink.batches);
+    }
+
+    @Test
+    public void slowConsumer_dropsInsteadOfBlockingProducer() throws IOException {
+        HeartRatePipeline small = new HeartRatePipeline(sink, 4);
+        for (int i = 0; i < 10; i++) {
+            small.onNotification(frame("00 48"), START_MS + i);
+        }
+
+        assertEquals(6, small.getDropped());
+        assertEquals(4, small.drain());
+    }
+
+    private static class RecordingSink implements SampleSink {
+        final List<Float> values = new ArrayList<>();
+        int batches;
+
+        @Override
+        public void append(VitalType type, SampleBatch batch) {
+            assertEquals(VitalType.STRAP_HEART_RATE, type);
+            batches++;
+            for (int i = 0; i < batch.size(); i++) {
+                values.add(batch.valueAt(i));
+            }
+        }
+
+        float[] values() {
+            float[] result = new float[values.size()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = values.get(i);
+            }
+            return result;
+        }
+    }
+
+    private static class RestingConditions implements DeviceConditions {
+        @Override
+        public int getBatteryPercent() {
+            return 80;
+        }
+
+        @Override
+        public boolean isCharging() {
+            return false;
+        }
+
+        @Override
+        public Activity getActivity(long nowMs) {
+            return Activity.RESTING;
+        }
+    }
+
+    private static class RecordingListener implements HeartRatePipeline.Listener {
+        final List<long[]> heartRates = new ArrayList<>();
+        final List<double[]> rrIntervals = new ArrayList<>();
+
+        @Override
+        public void onHeartRate(long timestampMs, int bpm) {
+            heartRates.add(new long[]{timestampMs, bpm});
+        }
+
+        @Override
+        public void onRrInterval(long timestampMs, float rrMs) {
+            rrIntervals.add(new double[]{timestampMs, rrMs});
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.healthmonitoringapp.ble;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link SpscSampleRing}.
+ */
+public class SpscSampleRingTest {
+
+    @Test
+    public void capacity_isRoundedToPowerOfTwo() {
+        assertEquals(1, new SpscSampleRing(1).capacity());
+        assertEquals(8, new SpscSampleRing(5).capacity());
+        assertEquals(1024, new SpscSampleRing(1024).capacity());
+    }
+
+    @Test
+    public void fullRing_dropsNewSamplesUntilDrained() {
+        SpscSampleRing ring = new SpscSampleRing(4);
+        for (int i = 0; i < 6; i++) {
+            assertEquals(i < 4, ring.offer(1, i, i));
+        }
+        assertEquals(2, ring.getDropped());
+        assertEquals(4, ring.size());
+
+        long[] seen = new long[8];
+        int[] count = {0};
+        assertEquals(4, ring.drain((kind, timestampMs, value) -> seen[count[0]++] = timestampMs));
+        assertArrayEquals(new long[]{0, 1, 2, 3}, Arrays.copyOf(seen, 4));
+        assertEquals(0, ring.drain((kind, timestampMs, value) -> fail()));
+
+        // Wraps around the end of the arrays
+        assertTrue(ring.offer(2, 10, 10.5f));
+        ring.drain((kind, timestampMs, value) -> {
+            assertEquals(2, kind);
+            assertEquals(10, timestampMs);
+            assertEquals(10.5f, value, 0);
+        });
+    }
+
+    @Test
+    public void concurrentProducerAndConsumer_deliverEverySampleInOrder() throws InterruptedException {
+        SpscSampleRing ring = new SpscSampleRing(256);
+        int samples = 1_000_000;
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < samples; i++) {
+                while (!ring.offer(i & 1, i, i * 0.5f)) {
+                    Thread.yield();
+                }
+            }
+        });
+
+        long[] next = {0};
+        producer.start();
+        while (next[0] < samples && failure.get() == null) {
+            int drained = ring.drain((kind, timestampMs, value) -> {
+                long expected = next[0]++;
+                if (timestampMs != expected || kind != (expected & 1) || value != expected * 0.5f) {
+                    failure.compareAndSet(null, new AssertionError("Sample " + expected + " was " + timestampMs));
+                }
+            });
+            if (drained == 0) {
+                Thread.yield();
+            }
+        }
+        producer.join();
+
+        assertNull(failure.get());
+        assertEquals(samples, next[0]);
+    }
+}
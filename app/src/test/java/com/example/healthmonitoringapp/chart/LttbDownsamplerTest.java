@@ -0,0 +1,90 @@
+package com.example.healthmonitoringapp.chart;
+
+import com.example.healthmonitoringapp.data.SampleBatch;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link LttbDownsampler}.
+ */
+public class LttbDownsamplerTest {
+    private static final long START_MS = 1_700_000_000_000L;
+
+    @Test
+    public void shortRange_isCopied() {
+        SampleBatch input = series(10, new Random(1));
+        long[] timestamps = new long[20];
+        float[] values = new float[20];
+
+        assertEquals(8, LttbDownsampler.downsample(input, 1, 9, 20, timestamps, values));
+        for (int i = 0; i < 8; i++) {
+            assertEquals(input.timestampAt(i + 1), timestamps[i]);
+            assertEquals(input.valueAt(i + 1), values[i], 0);
+        }
+    }
+
+    @Test
+    public void keepsEndpointsAndTimeOrder() {
+        SampleBatch input = series(100_000, new Random(2));
+        long[] timestamps = new long[500];
+        float[] values = new float[500];
+
+        assertEquals(500, LttbDownsampler.downsample(input, 0, input.size(), 500, timestamps, values));
+        assertEquals(input.timestampAt(0), timestamps[0]);
+        assertEquals(input.timestampAt(input.size() - 1), timestamps[499]);
+        for (int i = 1; i < 500; i++) {
+            assertTrue(timestamps[i] > timestamps[i - 1]);
+        }
+    }
+
+    @Test
+    public void singleSpike_survives() {
+        SampleBatch input = new SampleBatch(10_000);
+        for (int i = 0; i < 10_000; i++) {
+            input.add(START_MS + i * 1000L, i == 6_543 ? 180 : 70);
+        }
+        long[] timestamps = new long[100];
+        float[] values = new float[100];
+
+        int count = LttbDownsampler.downsample(input, 0, input.size(), 100, timestamps, values);
+        float max = 0;
+        for (int i = 0; i < count; i++) {
+            max = Math.max(max, values[i]);
+        }
+        assertEquals(180, max, 0);
+    }
+
+    @Test
+    public void everyBucketContributesOnePoint() {
+        SampleBatch input = series(1_000, new Random(3));
+        long[] timestamps = new long[10];
+        float[] values = new float[10];
+
+        LttbDownsampler.downsample(input, 0, input.size(), 10, timestamps, values);
+        // Eight buckets of 124 or 125 points between the endpoints
+        for (int bucket = 0; bucket < 8; bucket++) {
+            long start = input.timestampAt(1 + bucket * 998 / 8);
+            long end = input.timestampAt(1 + (bucket + 1) * 998 / 8);
+            assertTrue(timestamps[bucket + 1] >= start && timestamps[bucket + 1] < end);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void tooFewPoints_areRejected() {
+        LttbDownsampler.downsample(series(10, new Random(4)), 0, 10, 2, new long[2], new float[2]);
+    }
+
+    private static SampleBatch series(int size, Random random) {
+        SampleBatch batch = new SampleBatch(size);
+        float value = 70;
+        for (int i = 0; i < size; i++) {
+            value = Math.max(40, Math.min(180, value + random.nextInt(3) - 1));
+            batch.add(START_MS + i * 1000L, value);
+        }
+        return batch;
+    }
+}
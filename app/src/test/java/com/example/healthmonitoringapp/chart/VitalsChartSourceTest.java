@@ -0,0 +1,28 @@
+package com.example.healthmonitoringapp.chart;
+
+import com.example.healthmonitoringapp.data.Resolution;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the resolution {@link VitalsChartSource} loads a range at.
+ */
+public class VitalsChartSourceTest {
+
+    @Test
+    public void resolution_keepsRangesUnderMaxPoints() {
+        assertEquals(Resolution.MINUTE, VitalsChartSource.resolutionFor(TimeUnit.DAYS.toMillis(3), true));
+        assertEquals(Resolution.HOUR, VitalsChartSource.resolutionFor(TimeUnit.DAYS.toMillis(30), true));
+        assertEquals(Resolution.HOUR, VitalsChartSource.resolutionFor(TimeUnit.DAYS.toMillis(730), true));
+        assertEquals(Resolution.DAY, VitalsChartSource.resolutionFor(TimeUnit.DAYS.toMillis(1000), true));
+    }
+
+    @Test
+    public void expiredMinutes_fallBackToHours() {
+        assertEquals(Resolution.HOUR, VitalsChartSource.resolutionFor(TimeUnit.DAYS.toMillis(3), false));
+    }
+}
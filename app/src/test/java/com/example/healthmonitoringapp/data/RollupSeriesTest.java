@@ -0,0 +1,185 @@
+package com.example.healthmonitoringapp.data;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link RollupSeries} and its {@link QuantileSketch}.
+ */
+public class RollupSeriesTest {
+    private static final long START_MS = 1_700_000_000_000L;
+    private static final long ZONE_OFFSET_MS = TimeUnit.HOURS.toMillis(2);
+    private static final long MINUTE = Resolution.MINUTE.millis();
+    private static final long HOUR = Resolution.HOUR.millis();
+    private static final long DAY = Resolution.DAY.millis();
+
+    @Test
+    public void summarize_matchesExactAggregates() {
+        SampleBatch samples = heartRate(3 * DAY, 5_000, new Random(1));
+        RollupSeries rollups = rollUp(samples);
+
+        Random random = new Random(2);
+        for (int i = 0; i < 200; i++) {
+            long from = START_MS + random.nextInt((int) (2 * DAY / MINUTE)) * MINUTE;
+            long to = from + (1 + random.nextInt((int) (DAY / MINUTE))) * MINUTE;
+            Summary summary = rollups.summarize(from, to);
+            assertSameAggregates(samples, summary.getStartMs(), summary.getEndMs(), summary);
+            assertTrue(summary.getStartMs() <= from && summary.getEndMs() >= to);
+            assertTrue(summary.getEndMs() - summary.getStartMs() < to - from + 2 * MINUTE);
+        }
+    }
+
+    @Test
+    public void expiredMinutes_widenRangeToHours() {
+        SampleBatch samples = heartRate(20 * DAY, 60_000, new Random(3));
+        RollupSeries rollups = rollUp(samples);
+
+        long from = START_MS + 2 * DAY + 17 * MINUTE + 5_000;
+        long to = from + 5 * HOUR;
+        Summary summary = rollups.summarize(from, to);
+
+        assertEquals(0, Math.floorMod(summary.getStartMs() + ZONE_OFFSET_MS, HOUR));
+        assertEquals(0, Math.floorMod(summary.getEndMs() + ZONE_OFFSET_MS, HOUR));
+        assertSameAggregates(samples, summary.getStartMs(), summary.getEndMs(), summary);
+
+        // Recent ranges still resolve to minutes
+        long recent = samples.timestampAt(samples.size() - 1) - 3 * HOUR + 7 * MINUTE + 1;
+        Summary recentSummary = rollups.summarize(recent, recent + 90 * MINUTE);
+        assertEquals(0, Math.floorMod(recentSummary.getStartMs() + ZONE_OFFSET_MS, MINUTE));
+        assertNotEquals(0, Math.floorMod(recentSummary.getStartMs() + ZONE_OFFSET_MS, HOUR));
+        assertSameAggregates(samples, recentSummary.getStartMs(), recentSummary.getEndMs(), recentSummary);
+    }
+
+    @Test
+    public void percentiles_areWithinRelativeAccuracy() {
+        SampleBatch samples = heartRate(2 * DAY, 1_000, new Random(4));
+        RollupSeries rollups = rollUp(samples);
+        Summary summary = rollups.summarize(START_MS, START_MS + 2 * DAY);
+
+        float[] sorted = new float[samples.size()];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = samples.valueAt(i);
+        }
+        Arrays.sort(sorted);
+        for (double percentile : new double[]{1, 25, 50, 90, 99}) {
+            double exact = sorted[(int) Math.floor(percentile / 100 * (sorted.length - 1))];
+            double estimate = summary.getPercentile(percentile);
+            assertEquals("p" + percentile, exact, estimate, exact * QuantileSketch.RELATIVE_ACCURACY);
+        }
+    }
+
+    @Test
+    public void sketch_countsZerosAndIgnoresNaN() {
+        QuantileSketch sketch = new QuantileSketch();
+        sketch.add(0);
+        sketch.add(0);
+        sketch.add(Float.NaN);
+        sketch.add(100);
+        assertEquals(3, sketch.count());
+        assertEquals(0, sketch.quantile(0.5), 0);
+        assertEquals(100, sketch.quantile(1), 100 * QuantileSketch.RELATIVE_ACCURACY);
+        assertTrue(Double.isNaN(new QuantileSketch().quantile(0.5)));
+    }
+
+    @Test
+    public void series_returnsOneSummaryPerBucket() {
+        SampleBatch samples = heartRate(DAY, 10_000, new Random(5));
+        RollupSeries rollups = rollUp(samples);
+
+        long dayStart = Math.floorDiv(START_MS + ZONE_OFFSET_MS, DAY) * DAY - ZONE_OFFSET_MS + DAY;
+        List<Summary> hours = rollups.series(Resolution.HOUR, dayStart, dayStart + 6 * HOUR);
+
+        assertTrue(hours.size() <= 6);
+        for (Summary hour : hours) {
+            assertEquals(HOUR, hour.getEndMs() - hour.getStartMs());
+            assertSameAggregates(samples, hour.getStartMs(), hour.getEndMs(), hour);
+        }
+    }
+
+    @Test
+    public void serialization_roundTrips() throws IOException {
+        SampleBatch samples = heartRate(10 * DAY, 30_000, new Random(6));
+        RollupSeries rollups = rollUp(samples);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        rollups.writeTo(new DataOutputStream(bytes));
+        RollupSeries restored = RollupSeries.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertEquals(rollups.lastTimestamp(), restored.lastTimestamp());
+        Random random = new Random(7);
+        for (int i = 0; i < 50; i++) {
+            long from = START_MS + (long) (random.nextDouble() * 9 * DAY);
+            long to = from + (long) (random.nextDouble() * DAY);
+            Summary expected = rollups.summarize(from, to);
+            Summary actual = restored.summarize(from, to);
+            assertEquals(expected.getStartMs(), actual.getStartMs());
+            assertEquals(expected.getCount(), actual.getCount());
+            assertEquals(expected.getMean(), actual.getMean(), 0);
+            assertEquals(expected.getPercentile(90), actual.getPercentile(90), 0);
+        }
+    }
+
+    @Test
+    public void olderSamples_areIgnored() {
+        RollupSeries rollups = new RollupSeries(0);
+        rollups.add(START_MS, 70);
+        rollups.add(START_MS, 200);
+        rollups.add(START_MS - 1, 200);
+        rollups.add(START_MS + 1, Float.NaN);
+
+        Summary summary = rollups.summarize(START_MS - DAY, START_MS + DAY);
+        assertEquals(1, summary.getCount());
+        assertEquals(70, summary.getMax(), 0);
+    }
+
+    static SampleBatch heartRate(long durationMs, int intervalMs, Random random) {
+        SampleBatch samples = new SampleBatch((int) (durationMs / intervalMs));
+        float value = 70;
+        for (long t = START_MS; t < START_MS + durationMs; t += intervalMs + random.nextInt(10)) {
+            value = Math.max(40, Math.min(180, value + random.nextInt(5) - 2));
+            samples.add(t, value);
+        }
+        return samples;
+    }
+
+    private static RollupSeries rollUp(SampleBatch samples) {
+        RollupSeries rollups = new RollupSeries(ZONE_OFFSET_MS);
+        for (int i = 0; i < samples.size(); i++) {
+            rollups.add(samples.timestampAt(i), samples.valueAt(i));
+        }
+        return rollups;
+    }
+
+    private static void assertSameAggregates(SampleBatch samples, long from, long to, Summary summary) {
+        long count = 0;
+        float min = Float.POSITIVE_INFINITY;
+        float max = Float.NEGATIVE_INFINITY;
+        double sum = 0;
+        for (int i = 0; i < samples.size(); i++) {
+            long t = samples.timestampAt(i);
+            if (t >= from && t < to) {
+                count++;
+                min = Math.min(min, samples.valueAt(i));
+                max = Math.max(max, samples.valueAt(i));
+                sum += samples.valueAt(i);
+            }
+        }
+        assertEquals(count, summary.getCount());
+        if (count > 0) {
+            assertEquals(min, summary.getMin(), 0);
+            assertEquals(max, summary.getMax(), 0);
+            assertEquals(sum / count, summary.getMean(), 1e-9);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.healthmonitoringapp.data;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link SampleCodec}.
+ */
+public class SampleCodecTest {
+    @Test
+    public void varintsZigzagsAndValues_roundTrip() throws IOException {
+        long[] deltas = {0, 1, -1, 63, -64, 64, 1_000, -1_000, Long.MAX_VALUE, Long.MIN_VALUE};
+        float[] values = {72, 72.5f, 72, -0f, Float.NaN, Float.POSITIVE_INFINITY, Float.MIN_VALUE, 250.125f};
+        ByteBuffer buffer = ByteBuffer.allocate(
+                deltas.length * SampleCodec.MAX_VARINT_BYTES + values.length * SampleCodec.MAX_VALUE_BYTES);
+        for (long delta : deltas) {
+            SampleCodec.putVarint(buffer, SampleCodec.zigzag(delta));
+        }
+        int previousBits = 0;
+        for (float value : values) {
+            int bits = Float.floatToRawIntBits(value);
+            SampleCodec.putValue(buffer, bits, previousBits);
+            previousBits = bits;
+        }
+        buffer.flip();
+
+        for (long delta : deltas) {
+            assertEquals(delta, SampleCodec.unzigzag(SampleCodec.getVarint(buffer)));
+        }
+        previousBits = 0;
+        for (float value : values) {
+            previousBits = SampleCodec.getValue(buffer, previousBits);
+            assertEquals(Float.floatToRawIntBits(value), previousBits);
+        }
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    public void steadyRateAndRepeatedValue_takeOneByteEach() {
+        ByteBuffer buffer = ByteBuffer.allocate(16);
+        SampleCodec.putVarint(buffer, SampleCodec.zigzag(0));
+        SampleCodec.putValue(buffer, Float.floatToRawIntBits(73), Float.floatToRawIntBits(73));
+        SampleCodec.putVarint(buffer, SampleCodec.zigzag(-3));
+        assertEquals(3, buffer.position());
+    }
+
+    @Test
+    public void truncatedOrOverlongVarint_isRejected() {
+        for (byte[] bytes : new byte[][]{{(byte) 0x80}, {}, filled(11, (byte) 0xFF)}) {
+            try {
+                SampleCodec.getVarint(ByteBuffer.wrap(bytes));
+                fail();
+            } catch (IOException expected) {
+                // Expected
+            }
+        }
+    }
+
+    private static byte[] filled(int length, byte value) {
+        byte[] bytes = new byte[length];
+        Arrays.fill(bytes, value);
+        return bytes;
+    }
+}
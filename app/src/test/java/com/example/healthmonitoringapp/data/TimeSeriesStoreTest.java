@@ -0,0 +1,405 @@
+package com.example.healthmonitoringapp.data;
+
+import com.example.healthmonitoringapp.metrics.Counter;
+import com.example.healthmonitoringapp.metrics.Metrics;
+import com.example.healthmonitoringapp.security.DataCipher;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Random;
+
+import javax.crypto.spec.SecretKeySpec;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link TimeSeriesStore}.
+ */
+public class TimeSeriesStoreTest {
+    private static final long START_MS = 1_700_000_000_000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+    private TimeSeriesStore store;
+
+    @Before
+    public void setUp() throws IOException {
+        file = new File(folder.getRoot(), "heart_rate.ts");
+        store = TimeSeriesStore.open(file);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        store.close();
+    }
+
+    @Test
+    public void irregularSamples_roundTripExactly() throws IOException {
+        SampleBatch written = randomSamples(50_000, new Random(1));
+        assertEquals(written.size(), store.append(written));
+
+        SampleBatch read = new SampleBatch(written.size());
+        store.query(Long.MIN_VALUE, Long.MAX_VALUE, read);
+
+        assertEquals(written.size(), read.size());
+        assertSameSamples(written, 0, written.size(), read);
+        assertTrue("Expected several blocks", store.sizeOnDisk() > 4 * Block.SIZE);
+    }
+
+    @Test
+    public void jitteredHeartRate_takesUnderTwoBytesPerSample() throws IOException {
+        Random random = new Random(3);
+        SampleBatch batch = new SampleBatch(500_000);
+        float value = 70;
+        long timestamp = START_MS;
+        for (int i = 0; i < 500_000; i++) {
+            // Sensor clocks jitter by a few milliseconds around 1 Hz
+            timestamp += 1000 + random.nextInt(9) - 4;
+            value = Math.max(40, Math.min(180, value + random.nextInt(3) - 1));
+            batch.add(timestamp, value);
+        }
+        store.append(batch);
+
+        double bytesPerSample = (double) store.sizeOnDisk() / store.size();
+        assertTrue("Expected under 2 bytes per sample, got " + bytesPerSample, bytesPerSample < 2);
+    }
+
+    @Test
+    public void specialValuesAndLargeGaps_roundTrip() throws IOException {
+        float[] values = {Float.NaN, -0f, 0f, Float.MAX_VALUE, -Float.MIN_VALUE, 72.5f, Float.NEGATIVE_INFINITY};
+        long[] timestamps = {0, 1, 2, 1_000_000_000_000L, 1_000_000_000_001L, 4_000_000_000_000L, Long.MAX_VALUE / 2};
+        SampleBatch written = new SampleBatch(values.length);
+        for (int i = 0; i < values.length; i++) {
+            written.add(timestamps[i], values[i]);
+        }
+        store.append(written);
+
+        SampleBatch read = new SampleBatch(values.length);
+        store.query(Long.MIN_VALUE, Long.MAX_VALUE, read);
+        assertEquals(written.size(), read.size());
+        assertSameSamples(written, 0, written.size(), read);
+    }
+
+    @Test
+    public void rangeQuery_returnsHalfOpenRange() throws IOException {
+        SampleBatch written = steadySamples(20_000);
+        store.append(written);
+
+        long from = written.timestampAt(5_000);
+        long to = written.timestampAt(12_345);
+        SampleBatch read = new SampleBatch(16);
+        assertEquals(12_345 - 5_000, store.query(from, to, read));
+        assertEquals(12_345 - 5_000, read.size());
+        assertSameSamples(written, 5_000, 12_345, read);
+
+        SampleBatch empty = new SampleBatch(16);
+        assertEquals(0, store.query(written.timestampAt(19_999) + 1, Long.MAX_VALUE, empty));
+    }
+
+    @Test
+    public void olderSamples_areDroppedAndCounted() throws IOException {
+        Counter late = Metrics.getInstance().counter("TimeSeriesStore.lateSamples");
+        long lateBefore = late.get();
+        assertTrue(store.append(START_MS, 70));
+        assertFalse(store.append(START_MS, 71));
+        assertFalse(store.append(START_MS - 1, 72));
+        assertTrue(store.append(START_MS + 1000, 73));
+        assertEquals(2, store.size());
+        assertEquals(2, late.get() - lateBefore);
+    }
+
+    @Test
+    public void shuffledBatch_isSortedStablyBeforeAppend() throws IOException {
+        SampleBatch batch = new SampleBatch(16);
+        Random random = new Random(3);
+        for (int i = 0; i < 20_000; i++) {
+            // Every timestamp twice, the first copy with the even value
+            long second = random.nextInt(10_000);
+            batch.add(START_MS + second * 1000, second * 2);
+        }
+        for (int i = 0; i < 20_000; i++) {
+            batch.add(batch.timestampAt(i), batch.valueAt(i) + 1);
+        }
+        batch.sortByTime();
+
+        for (int i = 1; i < batch.size(); i++) {
+            assertTrue(batch.timestampAt(i - 1) <= batch.timestampAt(i));
+            if (batch.timestampAt(i - 1) == batch.timestampAt(i)) {
+                assertTrue(batch.valueAt(i - 1) <= batch.valueAt(i));
+            }
+        }
+        store.append(batch);
+        SampleBatch read = new SampleBatch(batch.size());
+        store.query(Long.MIN_VALUE, Long.MAX_VALUE, read);
+        for (int i = 0; i < read.size(); i++) {
+            // The first copy of each timestamp is kept
+            assertEquals(0, read.valueAt(i) % 2, 0);
+        }
+    }
+
+    @Test
+    public void reopen_keepsSamplesAndContinuesAppending() throws IOException {
+        SampleBatch written = steadySamples(10_000);
+        store.append(written);
+        store.close();
+
+        store = TimeSeriesStore.open(file);
+        assertEquals(written.size(), store.size());
+        assertEquals(written.timestampAt(written.size() - 1), store.lastTimestamp());
+        long next = store.lastTimestamp() + 1000;
+        assertTrue(store.append(next, 80));
+
+        SampleBatch read = new SampleBatch(16);
+        store.query(Long.MIN_VALUE, Long.MAX_VALUE, read);
+        assertEquals(written.size() + 1, read.size());
+        assertSameSamples(written, 0, written.size(), read);
+        assertEquals(next, read.timestampAt(written.size()));
+    }
+
+    @Test
+    public void tornTailWrite_keepsPreviousVersion() throws IOException {
+        SampleBatch written = steadySamples(10_000);
+        store.append(written);
+        long sealed = file.length();
+        store.close();
+        store = TimeSeriesStore.open(file);
+        // The batch went to the first tail slot, these two to the second and the first again
+        long next = written.timestampAt(written.size() - 1) + 1000;
+        assertTrue(store.append(next, 80));
+        assertTrue(store.append(next + 1000, 81));
+        store.close();
+        corruptByte(TimeSeriesStore.tailFile(file), Block.HEADER_SIZE + 10);
+
+        store = TimeSeriesStore.open(file);
+
+        assertEquals(sealed, file.length());
+        assertEquals(written.size() + 1, store.size());
+        assertEquals(next, store.lastTimestamp());
+        SampleBatch read = new SampleBatch(16);
+        store.query(Long.MIN_VALUE, Long.MAX_VALUE, read);
+        assertSameSamples(written, 0, written.size(), read);
+        // Appending goes on over the torn slot
+        assertTrue(store.append(next + 2000, 82));
+        store.close();
+        store = TimeSeriesStore.open(file);
+        assertEquals(written.size() + 2, store.size());
+    }
+
+    @Test
+    public void corruptSealedBlocks_areSkipped() throws IOException {
+        SampleBatch written = steadySamples(20_000);
+        store.append(written);
+        store.close();
+        // Break the header of the first block and the payload of the second
+        corruptByte(file, 0);
+        corruptByte(file, Block.SIZE + Block.HEADER_SIZE + 10);
+        Counter corrupt = Metrics.getInstance().counter("TimeSeriesStore.corruptBlocks");
+        long corruptBefore = corrupt.get();
+
+        store = TimeSeriesStore.open(file);
+        SampleBatch read = new SampleBatch(16);
+        store.query(Long.MIN_VALUE, Long.MAX_VALUE, read);
+
+        assertEquals(2, corrupt.get() - corruptBefore);
+        assertTrue(read.size() > 0 && read.size() < written.size());
+        int skipped = written.size() - read.size();
+        assertEquals(written.timestampAt(skipped), read.timestampAt(0));
+        assertSameSamples(written, skipped, written.size(), read);
+    }
+
+    @Test
+    public void tailInFile_isMovedToTailFile() throws IOException {
+        SampleBatch written = steadySamples(10_000);
+        store.append(written);
+        store.close();
+        // Lay the file out as versions before the tail file did, with the tail as the last block
+        File tailFile = TimeSeriesStore.tailFile(file);
+        byte[] tailBlock = Files.readAllBytes(tailFile.toPath());
+        long sealed = file.length();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(sealed);
+            raf.write(tailBlock, 0, Block.SIZE);
+        }
+        assertTrue(tailFile.delete());
+
+        store = TimeSeriesStore.open(file);
+
+        assertEquals(sealed, file.length());
+        assertTrue(tailFile.exists());
+        assertEquals(written.size(), store.size());
+        SampleBatch read = new SampleBatch(written.size());
+        store.query(Long.MIN_VALUE, Long.MAX_VALUE, read);
+        assertSameSamples(written, 0, written.size(), read);
+    }
+
+    @Test
+    public void encrypted_roundTripsAcrossReopen() throws IOException {
+        DataCipher cipher = newCipher(1);
+        store.close();
+        store = TimeSeriesStore.open(file, cipher);
+        SampleBatch written = randomSamples(50_000, new Random(2));
+        store.append(written);
+        store.close();
+
+        store = TimeSeriesStore.open(file, cipher);
+        SampleBatch read = new SampleBatch(written.size());
+        store.query(Long.MIN_VALUE, Long.MAX_VALUE, read);
+
+        assertEquals(written.size(), read.size());
+        assertSameSamples(written, 0, written.size(), read);
+        assertEquals(0, store.sizeOnDisk() % EncryptedBlock.SIZE);
+        assertEquals(EncryptedBlock.MAGIC, readInt(0));
+    }
+
+    @Test
+    public void encrypted_rangeQueryReadsOnlyItsBlocks() throws IOException {
+        DataCipher cipher = newCipher(1);
+        store.close();
+        store = TimeSeriesStore.open(file, cipher);
+        SampleBatch written = steadySamples(50_000);
+        store.append(written);
+        store.close();
+        // Break the first block; ranges in later blocks must still read
+        corruptByte(file, EncryptedBlock.HEADER_SIZE + DataCipher.IV_SIZE + 100);
+
+        store = TimeSeriesStore.open(file, cipher);
+        SampleBatch read = new SampleBatch(16);
+        store.query(written.timestampAt(40_000), written.timestampAt(40_010), read);
+        assertSameSamples(written, 40_000, 40_010, read);
+        // The tag no longer matches, so the block is skipped
+        assertEquals(0, store.query(START_MS, START_MS + 1000, read));
+    }
+
+    @Test
+    public void plainFile_isEncryptedWhenOpenedWithCipher() throws IOException {
+        SampleBatch written = steadySamples(10_000);
+        store.append(written);
+        store.close();
+        assertEquals(Block.MAGIC, readInt(0));
+
+        store = TimeSeriesStore.open(file, newCipher(1));
+
+        assertEquals(EncryptedBlock.MAGIC, readInt(0));
+        SampleBatch read = new SampleBatch(written.size());
+        store.query(Long.MIN_VALUE, Long.MAX_VALUE, read);
+        assertEquals(written.size(), read.size());
+        assertSameSamples(written, 0, written.size(), read);
+    }
+
+    @Test
+    public void encryptionInterruptedBetweenRenames_isFinishedOnOpen() throws IOException {
+        SampleBatch written = steadySamples(10_000);
+        DataCipher cipher = newCipher(1);
+        Counter corrupt = Metrics.getInstance().counter("TimeSeriesStore.corruptBlocks");
+        store.close();
+        for (boolean tailReplaced : new boolean[]{true, false}) {
+            file = new File(folder.getRoot(), "crash_" + tailReplaced + ".ts");
+            try (TimeSeriesStore plain = TimeSeriesStore.open(file)) {
+                plain.append(written);
+            }
+            // What encryption leaves once the copy is complete and marked, before a crash stops the renames
+            File copy = TimeSeriesStore.encryptionCopy(file);
+            try (TimeSeriesStore encrypted = TimeSeriesStore.open(copy, cipher)) {
+                encrypted.append(written);
+            }
+            assertTrue(TimeSeriesStore.encryptingMarker(file).createNewFile());
+            File replaced = tailReplaced ? TimeSeriesStore.tailFile(copy) : copy;
+            assertTrue(replaced.renameTo(tailReplaced ? TimeSeriesStore.tailFile(file) : file));
+            long corruptBefore = corrupt.get();
+
+            store = TimeSeriesStore.open(file, cipher);
+
+            SampleBatch read = new SampleBatch(written.size());
+            store.query(Long.MIN_VALUE, Long.MAX_VALUE, read);
+            assertEquals(written.size(), read.size());
+            assertSameSamples(written, 0, written.size(), read);
+            assertEquals(corruptBefore, corrupt.get());
+            assertEquals(EncryptedBlock.MAGIC, readInt(0));
+            assertFalse(TimeSeriesStore.encryptingMarker(file).exists());
+            assertFalse(copy.exists());
+            assertFalse(TimeSeriesStore.tailFile(copy).exists());
+            store.close();
+        }
+        store = TimeSeriesStore.open(file, cipher);
+    }
+
+    @Test
+    public void encrypted_otherKeyCannotReadValues() throws IOException {
+        store.close();
+        store = TimeSeriesStore.open(file, newCipher(1));
+        store.append(steadySamples(10_000));
+        store.close();
+
+        store = TimeSeriesStore.open(file, newCipher(2));
+
+        // Time bounds stay readable, but the tail fails authentication
+        assertTrue(store.size() < 10_000);
+        // Values need the original key; blocks failing authentication are skipped
+        assertEquals(0, store.query(Long.MIN_VALUE, Long.MAX_VALUE, new SampleBatch(16)));
+    }
+
+    private int readInt(long position) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            raf.seek(position);
+            return raf.readInt();
+        }
+    }
+
+    private static void corruptByte(File file, long position) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(position);
+            int value = raf.read();
+            raf.seek(position);
+            raf.write(value ^ 0x5A);
+        }
+    }
+
+    private static DataCipher newCipher(long seed) {
+        byte[] key = new byte[32];
+        new Random(seed).nextBytes(key);
+        return new DataCipher(new SecretKeySpec(key, "AES"));
+    }
+
+    private static SampleBatch steadySamples(int count) {
+        SampleBatch batch = new SampleBatch(count);
+        Random random = new Random(7);
+        float value = 70;
+        for (int i = 0; i < count; i++) {
+            value = Math.max(40, Math.min(180, value + random.nextInt(3) - 1));
+            batch.add(START_MS + i * 1000L, value);
+        }
+        return batch;
+    }
+
+    private static SampleBatch randomSamples(int count, Random random) {
+        SampleBatch batch = new SampleBatch(count);
+        long timestamp = START_MS;
+        for (int i = 0; i < count; i++) {
+            timestamp += 1 + (random.nextInt(10) == 0 ? random.nextInt(10_000_000) : random.nextInt(2_000));
+            batch.add(timestamp, random.nextBoolean() ? random.nextInt(200) : random.nextFloat() * 1000);
+        }
+        return batch;
+    }
+
+    /**
+     * Asserts that the first {@code to - from} samples of {@code actual} equal {@code expected[from, to)}.
+     */
+    private static void assertSameSamples(SampleBatch expected, int from, int to, SampleBatch actual) {
+        assertTrue(actual.size() >= to - from);
+        for (int i = from; i < to; i++) {
+            assertEquals(expected.timestampAt(i), actual.timestampAt(i - from));
+            assertEquals(Float.floatToRawIntBits(expected.valueAt(i)),
+                    Float.floatToRawIntBits(actual.valueAt(i - from)));
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.healthmonitoringapp.data;
+
+import com.example.healthmonitoringapp.security.CipherProvider;
+import com.example.healthmonitoringapp.security.DataCipher;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.spec.SecretKeySpec;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link VitalsStore}.
+ */
+public class VitalsStoreTest {
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void reopen_restoresRollupsFromSnapshotAndCatchesUp() throws IOException {
+        File directory = folder.getRoot();
+        SampleBatch samples = RollupSeriesTest.heartRate(4 * DAY, 10_000, new Random(1));
+        SampleBatch first = slice(samples, 0, samples.size() / 2);
+        SampleBatch second = slice(samples, samples.size() / 2, samples.size());
+
+        VitalsStore store = new VitalsStore(directory, 0);
+        store.append(VitalType.HEART_RATE, first);
+        store.checkpoint();
+        store.append(VitalType.HEART_RATE, second);
+        Summary expected = store.getRollups(VitalType.HEART_RATE).summarize(Long.MIN_VALUE / 2, Long.MAX_VALUE / 2);
+        store.get(VitalType.HEART_RATE).close();
+
+        assertTrue(new File(directory, "heart_rate.rollup").exists());
+        VitalsStore reopened = new VitalsStore(directory, 0);
+        RollupSeries rollups = reopened.getRollups(VitalType.HEART_RATE);
+
+        assertEquals(samples.timestampAt(samples.size() - 1), rollups.lastTimestamp());
+        Summary actual = rollups.summarize(Long.MIN_VALUE / 2, Long.MAX_VALUE / 2);
+        assertEquals(samples.size(), actual.getCount());
+        assertEquals(expected.getMean(), actual.getMean(), 1e-9);
+        reopened.get(VitalType.HEART_RATE).close();
+    }
+
+    @Test
+    public void otherTimeZone_rebuildsRollups() throws IOException {
+        File directory = folder.getRoot();
+        SampleBatch samples = RollupSeriesTest.heartRate(2 * DAY, 10_000, new Random(2));
+        VitalsStore store = new VitalsStore(directory, 0);
+        store.append(VitalType.HEART_RATE, samples);
+        store.checkpoint();
+        store.get(VitalType.HEART_RATE).close();
+
+        long offset = TimeUnit.HOURS.toMillis(-5);
+        VitalsStore moved = new VitalsStore(directory, offset);
+        RollupSeries rollups = moved.getRollups(VitalType.HEART_RATE);
+
+        assertEquals(offset, rollups.getZoneOffsetMs());
+        assertEquals(samples.size(), rollups.summarize(Long.MIN_VALUE / 2, Long.MAX_VALUE / 2).getCount());
+        moved.get(VitalType.HEART_RATE).close();
+    }
+
+    @Test
+    public void lateFitHeartRate_isKeptBesideLiveStrapReadings() throws IOException {
+        long hour = TimeUnit.HOURS.toMillis(1);
+        VitalsStore store = new VitalsStore(folder.getRoot(), 0);
+        SampleBatch live = new SampleBatch(600);
+        for (int i = 0; i < 600; i++) {
+            live.add(hour + i * 1000L, 70);
+        }
+        store.append(VitalType.STRAP_HEART_RATE, live);
+
+        // The hour before, synced from Fit while the strap was already recording
+        SampleBatch fit = new SampleBatch(60);
+        for (int i = 0; i < 60; i++) {
+            fit.add(i * 60_000L, 64);
+        }
+        store.append(VitalType.HEART_RATE, fit);
+
+        assertEquals(600, store.get(VitalType.STRAP_HEART_RATE).size());
+        assertEquals(60, store.get(VitalType.HEART_RATE).size());
+        store.get(VitalType.STRAP_HEART_RATE).close();
+        store.get(VitalType.HEART_RATE).close();
+    }
+
+    @Test
+    public void withCipher_samplesAndSnapshotsAreEncrypted() throws IOException {
+        File directory = folder.getRoot();
+        byte[] key = new byte[32];
+        new Random(3).nextBytes(key);
+        DataCipher cipher = new DataCipher(new SecretKeySpec(key, "AES"));
+        CipherProvider provider = () -> cipher;
+        SampleBatch samples = RollupSeriesTest.heartRate(2 * DAY, 10_000, new Random(3));
+
+        VitalsStore store = new VitalsStore(directory, 0, provider);
+        store.append(VitalType.HEART_RATE, samples);
+        store.checkpoint();
+        store.get(VitalType.HEART_RATE).close();
+
+        assertEquals(EncryptedBlock.MAGIC, firstInt(new File(directory, "heart_rate.ts")));
+        assertEquals(0x524F4531, firstInt(new File(directory, "heart_rate.rollup")));
+        VitalsStore reopened = new VitalsStore(directory, 0, provider);
+        RollupSeries rollups = reopened.getRollups(VitalType.HEART_RATE);
+        assertEquals(samples.timestampAt(samples.size() - 1), rollups.lastTimestamp());
+        assertEquals(samples.size(), rollups.summarize(Long.MIN_VALUE / 2, Long.MAX_VALUE / 2).getCount());
+        assertEquals(samples.size(), reopened.get(VitalType.HEART_RATE).size());
+        reopened.get(VitalType.HEART_RATE).close();
+    }
+
+    @Test
+    public void changedKey_movesOldFilesAside() throws IOException {
+        File directory = folder.newFolder("vitals");
+        byte[] key = new byte[32];
+        new Random(3).nextBytes(key);
+        DataCipher oldCipher = new DataCipher(new SecretKeySpec(key, "AES"));
+        key[0] ^= 1;
+        DataCipher newCipher = new DataCipher(new SecretKeySpec(key, "AES"));
+        SampleBatch samples = RollupSeriesTest.heartRate(DAY, 10_000, new Random(3));
+
+        VitalsStore store = new VitalsStore(directory, 0, () -> oldCipher);
+        store.append(VitalType.HEART_RATE, samples);
+        store.checkpoint();
+        store.get(VitalType.HEART_RATE).close();
+
+        // As after the Keystore lost the wrapping key
+        VitalsStore reopened = new VitalsStore(directory, 0, () -> newCipher);
+        assertEquals(0, reopened.get(VitalType.HEART_RATE).size());
+        assertEquals(Long.MIN_VALUE, reopened.getRollups(VitalType.HEART_RATE).lastTimestamp());
+        reopened.append(VitalType.HEART_RATE, slice(samples, 0, 10));
+        reopened.get(VitalType.HEART_RATE).close();
+
+        File[] aside = folder.getRoot().listFiles((dir, name) -> name.startsWith("vitals-"));
+        assertEquals(1, aside.length);
+        assertTrue(new File(aside[0], "heart_rate.ts").exists());
+        VitalsStore again = new VitalsStore(directory, 0, () -> newCipher);
+        assertEquals(10, again.get(VitalType.HEART_RATE).size());
+        again.get(VitalType.HEART_RATE).close();
+    }
+
+    private static int firstInt(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            return in.readInt();
+        }
+    }
+
+    private static SampleBatch slice(SampleBatch batch, int from, int to) {
+        SampleBatch slice = new SampleBatch(to - from);
+        for (int i = from; i < to; i++) {
+            slice.add(batch.timestampAt(i), batch.valueAt(i));
+        }
+        return slice;
+    }
+}
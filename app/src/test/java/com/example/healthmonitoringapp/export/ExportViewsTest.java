@@ -0,0 +1,119 @@
+package com.example.healthmonitoringapp.export;
+
+import com.example.healthmonitoringapp.data.SampleBatch;
+import com.example.healthmonitoringapp.data.VitalType;
+import com.example.healthmonitoringapp.utils.UserProfile;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link CsvExportWriter} and {@link FhirExportWriter}.
+ */
+public class ExportViewsTest {
+    private static final long START_MS = 1_700_000_000_000L; // 2023-11-14T22:13:20Z
+    private static final UserProfile PROFILE = UserProfile.of(
+            "Jane \"JD\" Doe", "jane@example.com", "", "4/7/1985", "", "1 Main St\nLondon");
+
+    @Test
+    public void csv_hasOneRowPerSampleAndNoProfile() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ExportSink csv = new CsvExportWriter(Channels.newChannel(bytes));
+        write(csv);
+
+        String text = bytes.toString(StandardCharsets.UTF_8.name());
+        assertEquals("timestamp,type,value\n"
+                + "2023-11-14T22:13:20Z,HEART_RATE,72\n"
+                + "2023-11-14T22:13:21.500Z,HEART_RATE,73.5\n"
+                + "2023-11-14T22:13:20Z,OXYGEN_SATURATION,97\n", text);
+        assertFalse(text.contains("Jane"));
+    }
+
+    @Test
+    public void fhir_hasPatientAndCodedObservations() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ExportSink fhir = new FhirExportWriter(Channels.newChannel(bytes), START_MS);
+        write(fhir);
+
+        String json = bytes.toString(StandardCharsets.UTF_8.name());
+        assertTrue(json.startsWith("{\"resourceType\":\"Bundle\",\"type\":\"collection\""));
+        assertTrue(json.contains("\"resourceType\":\"Patient\",\"name\":[{\"text\":\"Jane \\\"JD\\\" Doe\"}]"));
+        assertTrue(json.contains("\"telecom\":[{\"system\":\"email\",\"value\":\"jane@example.com\"}]"));
+        assertTrue(json.contains("\"birthDate\":\"1985-07-04\""));
+        assertTrue(json.contains("\"address\":[{\"text\":\"1 Main St\\nLondon\"}]"));
+        assertEquals(3, count(json, "\"resourceType\":\"Observation\""));
+        assertEquals(2, count(json, "\"code\":\"8867-4\""));
+        assertEquals(1, count(json, "\"code\":\"59408-5\""));
+        assertTrue(json.contains("\"effectiveDateTime\":\"2023-11-14T22:13:21.500Z\",\"valueQuantity\":{\"value\":73.5,"
+                + "\"system\":\"http://unitsofmeasure.org\",\"code\":\"/min\"}"));
+        assertEquals(count(json, "{"), count(json, "}"));
+        assertEquals(count(json, "["), count(json, "]"));
+        assertFalse(json.contains("[,"));
+        assertTrue(json.trim().endsWith("]}"));
+    }
+
+    @Test
+    public void fhir_nonFiniteSamplesHaveNoValue() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SampleBatch batch = new SampleBatch(4);
+        batch.add(START_MS, 72);
+        batch.add(START_MS + 1_000, Float.NaN);
+        batch.add(START_MS + 2_000, Float.POSITIVE_INFINITY);
+        batch.add(START_MS + 3_000, 74);
+        try (ExportSink fhir = new FhirExportWriter(Channels.newChannel(bytes), START_MS)) {
+            fhir.writeProfile(PROFILE);
+            fhir.writeSamples(VitalType.HEART_RATE, batch);
+        }
+
+        String json = bytes.toString(StandardCharsets.UTF_8.name());
+        assertFalse(json.contains("NaN"));
+        assertFalse(json.contains("Infinity"));
+        assertEquals(4, count(json, "\"resourceType\":\"Observation\""));
+        assertEquals(2, count(json, "\"valueQuantity\""));
+        assertTrue(json.contains("\"effectiveDateTime\":\"2023-11-14T22:13:21Z\","
+                + "\"dataAbsentReason\":{\"coding\":[{\"system\":"
+                + "\"http://terminology.hl7.org/CodeSystem/data-absent-reason\",\"code\":\"not-a-number\"}]}}}"));
+        assertEquals(1, count(json, "\"code\":\"positive-infinity\""));
+        assertEquals(count(json, "{"), count(json, "}"));
+        assertEquals(count(json, "["), count(json, "]"));
+    }
+
+    @Test
+    public void fhirDate_convertsProfileDateOfBirth() {
+        assertEquals("1985-07-04", FhirExportWriter.toFhirDate("4/7/1985"));
+        assertEquals("2001-12-31", FhirExportWriter.toFhirDate("31/12/2001"));
+        assertNull(FhirExportWriter.toFhirDate(""));
+        assertNull(FhirExportWriter.toFhirDate("1985-07-04"));
+        assertNull(FhirExportWriter.toFhirDate("4/13/1985"));
+        assertNull(FhirExportWriter.toFhirDate("31/2/1990"));
+        assertNull(FhirExportWriter.toFhirDate("29/2/1990"));
+        assertEquals("1992-02-29", FhirExportWriter.toFhirDate("29/2/1992"));
+    }
+
+    private static void write(ExportSink sink) throws IOException {
+        SampleBatch batch = new SampleBatch(2);
+        try (ExportSink out = sink) {
+            out.writeProfile(PROFILE);
+            batch.add(START_MS, 72);
+            batch.add(START_MS + 1_500, 73.5f);
+            out.writeSamples(VitalType.HEART_RATE, batch);
+            batch.clear();
+            batch.add(START_MS, 97);
+            out.writeSamples(VitalType.OXYGEN_SATURATION, batch);
+        }
+    }
+
+    private static int count(String text, String part) {
+        int count = 0;
+        for (int i = text.indexOf(part); i >= 0; i = text.indexOf(part, i + part.length())) {
+            count++;
+        }
+        return count;
+    }
+}
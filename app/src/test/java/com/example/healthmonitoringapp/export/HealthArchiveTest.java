@@ -0,0 +1,403 @@
+package com.example.healthmonitoringapp.export;
+
+import com.example.healthmonitoringapp.data.SampleBatch;
+import com.example.healthmonitoringapp.data.TimeSeriesStore;
+import com.example.healthmonitoringapp.data.VitalType;
+import com.example.healthmonitoringapp.utils.UserProfile;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.CRC32;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link HealthArchiveWriter}, {@link HealthArchiveReader} and
+ * {@link HealthArchives}.
+ */
+public class HealthArchiveTest {
+    private static final long START_MS = 1_700_000_000_000L;
+    private static final int BATCH = 10_000;
+    /** Heap either direction of a large round trip may hold on top of what was in use before it. */
+    private static final long HEAP_BUDGET = 16L << 20;
+    private static final UserProfile PROFILE = UserProfile.of(
+            "Jane Doe", "jane@example.com", "", "4/7/1985", "+44 20 7946 0000", "1 Main St\nLondon");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Map<VitalType, TimeSeriesStore> stores = new EnumMap<>(VitalType.class);
+    private File archive;
+
+    @Before
+    public void setUp() throws IOException {
+        for (VitalType type : VitalType.values()) {
+            stores.put(type, TimeSeriesStore.open(folder.newFile(type.name() + ".ts")));
+        }
+        archive = new File(folder.getRoot(), "export.pgx");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        for (TimeSeriesStore store : stores.values()) {
+            store.close();
+        }
+    }
+
+    @Test
+    public void storesAndProfile_roundTrip() throws IOException {
+        fill(VitalType.HEART_RATE, 20_000, 1_000);
+        fill(VitalType.STEPS, 300, 60_000);
+        fill(VitalType.OXYGEN_SATURATION, 5_000, 10_000);
+        fill(VitalType.STRAP_HEART_RATE, 2_000, 1_000);
+
+        for (boolean compress : new boolean[]{false, true}) {
+            long written = export(compress);
+            assertEquals(27_300, written);
+
+            Map<VitalType, SampleBatch> imported = new EnumMap<>(VitalType.class);
+            UserProfile profile = HealthArchives.importArchive(archive, (type, batch) -> {
+                SampleBatch all = imported.computeIfAbsent(type, t -> new SampleBatch(1024));
+                for (int i = 0; i < batch.size(); i++) {
+                    all.add(batch.timestampAt(i), batch.valueAt(i));
+                }
+            });
+
+            assertEquals(PROFILE, profile);
+            for (VitalType type : VitalType.values()) {
+                SampleBatch expected = new SampleBatch(1024);
+                stores.get(type).query(Long.MIN_VALUE, Long.MAX_VALUE, expected);
+                assertSameSamples(expected, imported.get(type));
+            }
+        }
+    }
+
+    @Test
+    public void export_onlyIncludesRequestedRange() throws IOException {
+        fill(VitalType.HEART_RATE, 10_000, 1_000);
+        // Both bounds fall on samples without the extra 37 ms
+        long from = START_MS + 2_001_000;
+        long to = START_MS + 5_002_000;
+
+        HealthArchives.export(stores::get, PROFILE, from, to, newWriter(false));
+
+        List<Long> timestamps = new ArrayList<>();
+        HealthArchives.importArchive(archive, (type, batch) -> {
+            for (int i = 0; i < batch.size(); i++) {
+                timestamps.add(batch.timestampAt(i));
+            }
+        });
+        assertEquals(3_001, timestamps.size());
+        assertEquals(from, (long) timestamps.get(0));
+        assertEquals(to - 1_000, (long) timestamps.get(timestamps.size() - 1));
+    }
+
+    @Test
+    public void compressedArchive_isSmallerThanRawSamples() throws IOException {
+        fill(VitalType.HEART_RATE, 100_000, 1_000);
+
+        export(true);
+
+        // 12 bytes per sample as a long and a float
+        assertTrue("Archive is " + archive.length() + " bytes", archive.length() < 100_000 * 12 / 10);
+    }
+
+    @Test
+    public void oversizedProfile_isRejectedBeforeWriting() throws IOException {
+        fill(VitalType.HEART_RATE, 1_000, 1_000);
+        char[] address = new char[ArchiveFormat.MAX_PAYLOAD / 2];
+        Arrays.fill(address, 'a');
+        // Each value fits its length field, but not all of them together
+        UserProfile large = PROFILE.with(UserProfile.Field.ADDRESS, new String(address))
+                .with(UserProfile.Field.PHONE, new String(address));
+
+        try {
+            HealthArchives.export(stores::get, large, Long.MIN_VALUE, Long.MAX_VALUE, newWriter(false));
+            fail("Expected the profile to be rejected");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains("more than"));
+        }
+        try (HealthArchiveWriter writer = newWriter(false)) {
+            // Two bytes per character in UTF-8
+            writer.writeProfile(PROFILE.with(UserProfile.Field.ADDRESS, "\u00e9".repeat(0x8000)));
+            fail("Expected the field to be rejected");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains("ADDRESS"));
+        }
+    }
+
+    @Test
+    public void corruptedByte_failsChecksumAndImportsNothing() throws IOException {
+        fill(VitalType.HEART_RATE, 20_000, 1_000);
+        export(false);
+        try (RandomAccessFile file = new RandomAccessFile(archive, "rw")) {
+            // Inside the last chunk, so every earlier chunk would read fine
+            long position = file.length() - 100;
+            file.seek(position);
+            int b = file.read();
+            file.seek(position);
+            file.write(b ^ 0x10);
+        }
+
+        int[] imported = {0};
+        try {
+            HealthArchives.importArchive(archive, (type, batch) -> imported[0] += batch.size());
+            fail("Expected a checksum failure");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains("Checksum"));
+        }
+        assertEquals(0, imported[0]);
+    }
+
+    @Test
+    public void truncatedArchive_isRejected() throws IOException {
+        fill(VitalType.HEART_RATE, 20_000, 1_000);
+        for (boolean compress : new boolean[]{false, true}) {
+            export(compress);
+            // Cut right after a section, so only the missing end marker gives it away
+            long length = archive.length();
+            try (FileChannel channel = FileChannel.open(archive.toPath(), StandardOpenOption.WRITE)) {
+                channel.truncate(compress ? length / 2 : length - (4 + 8 + ArchiveFormat.SECTION_HEADER_SIZE + 4));
+            }
+
+            try {
+                HealthArchives.importArchive(archive, (type, batch) -> { });
+                fail("Expected a truncated archive to be rejected");
+            } catch (IOException expected) {
+                // Expected
+            }
+        }
+    }
+
+    @Test
+    public void unknownSections_areSkipped() throws IOException {
+        try (FileChannel channel = FileChannel.open(archive.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            HealthArchiveWriter writer = new HealthArchiveWriter(channel, false, START_MS);
+            SampleBatch batch = new SampleBatch(2);
+            batch.add(START_MS, 72);
+            batch.add(START_MS + 1_000, 73.5f);
+            writer.writeSamples(VitalType.HEART_RATE, batch);
+            writer.close();
+        }
+        // Replace the end marker with a section from a later version and a new end marker
+        byte[] written = Files.readAllBytes(archive.toPath());
+        int endSize = ArchiveFormat.SECTION_HEADER_SIZE + 4 + 8 + 4;
+        ByteBuffer rewritten = ByteBuffer.allocate(written.length + 64);
+        rewritten.put(written, 0, written.length - endSize);
+        putSection(rewritten, 99, "from the future".getBytes(StandardCharsets.UTF_8));
+        putSection(rewritten, ArchiveFormat.SECTION_END, ByteBuffer.allocate(12).putInt(2).putLong(2).array());
+        Files.write(archive.toPath(), Arrays.copyOf(rewritten.array(), rewritten.position()));
+
+        HealthArchiveReader reader;
+        List<Float> values = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(archive.toPath(), StandardOpenOption.READ)) {
+            reader = new HealthArchiveReader(channel);
+            reader.read(new HealthArchiveReader.Handler() {
+                @Override
+                public void onProfile(UserProfile profile) {
+                    fail("No profile was written");
+                }
+
+                @Override
+                public void onSamples(VitalType type, SampleBatch read) {
+                    for (int i = 0; i < read.size(); i++) {
+                        values.add(read.valueAt(i));
+                    }
+                }
+            });
+        }
+        assertEquals(START_MS, reader.getCreatedAtMs());
+        assertEquals(List.of(72f, 73.5f), values);
+    }
+
+    @Test
+    public void notAnArchive_isRejected() throws IOException {
+        Files.write(archive.toPath(), "timestamp,type,value\n".getBytes());
+        try {
+            HealthArchives.importArchive(archive, (type, batch) -> { });
+            fail("Expected a CSV file to be rejected");
+        } catch (IOException expected) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void largeArchive_roundTripsInBoundedHeap() throws IOException {
+        // Five weeks of 1 Hz heart rate plus steps and SpO2, streamed in so the test holds none of it
+        Random random = new Random(5);
+        SampleBatch batch = new SampleBatch(BATCH);
+        fillStreamed(VitalType.HEART_RATE, 2_400_000, 1_000, 40, 180, random, batch);
+        fillStreamed(VitalType.STEPS, 300_000, 60_000, 0, 150, random, batch);
+        fillStreamed(VitalType.OXYGEN_SATURATION, 300_000, 10_000, 88, 100, random, batch);
+        Map<VitalType, TimeSeriesStore> restored = new EnumMap<>(VitalType.class);
+        try {
+            for (VitalType type : VitalType.values()) {
+                restored.put(type, TimeSeriesStore.open(new File(folder.getRoot(), type.name() + ".restored")));
+            }
+            HeapProbe probe = new HeapProbe();
+            HealthArchiveWriter writer = newWriter(true);
+            long written = HealthArchives.export(stores::get, PROFILE, Long.MIN_VALUE, Long.MAX_VALUE,
+                    new ExportSink() {
+                        @Override
+                        public void writeProfile(UserProfile profile) throws IOException {
+                            writer.writeProfile(profile);
+                        }
+
+                        @Override
+                        public void writeSamples(VitalType type, SampleBatch samples) throws IOException {
+                            writer.writeSamples(type, samples);
+                            probe.samples(samples.size());
+                        }
+
+                        @Override
+                        public void close() throws IOException {
+                            writer.close();
+                        }
+                    });
+            long exportPeak = probe.peakAboveBaseline;
+            assertEquals(3_000_000, written);
+
+            probe.reset();
+            HealthArchives.importArchive(archive, (type, samples) -> {
+                restored.get(type).append(samples);
+                probe.samples(samples.size());
+            });
+            long importPeak = probe.peakAboveBaseline;
+
+            for (VitalType type : VitalType.values()) {
+                assertSameSeries(stores.get(type), restored.get(type));
+            }
+            assertTrue("Export held " + exportPeak + " bytes", exportPeak < HEAP_BUDGET);
+            assertTrue("Import held " + importPeak + " bytes", importPeak < HEAP_BUDGET);
+        } finally {
+            for (TimeSeriesStore store : restored.values()) {
+                store.close();
+            }
+        }
+    }
+
+    private long export(boolean compress) throws IOException {
+        return HealthArchives.export(stores::get, PROFILE, Long.MIN_VALUE, Long.MAX_VALUE, newWriter(compress));
+    }
+
+    private HealthArchiveWriter newWriter(boolean compress) throws IOException {
+        FileChannel channel = FileChannel.open(archive.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        return new HealthArchiveWriter(channel, compress, START_MS);
+    }
+
+    private void fill(VitalType type, int count, long intervalMs) throws IOException {
+        SampleBatch batch = new SampleBatch(count);
+        for (int i = 0; i < count; i++) {
+            // Uneven gaps and fractional values, as devices report them
+            batch.add(START_MS + i * intervalMs + (i % 5 == 0 ? 37 : 0), 60 + (i * 7919 % 400) / 8f);
+        }
+        stores.get(type).append(batch);
+    }
+
+    private void fillStreamed(VitalType type, int count, long intervalMs, int min, int max,
+                              Random random, SampleBatch batch) throws IOException {
+        TimeSeriesStore store = stores.get(type);
+        long timestamp = START_MS;
+        float value = (min + max) / 2f;
+        batch.clear();
+        for (int i = 0; i < count; i++) {
+            // Sensor clocks jitter by a few milliseconds
+            timestamp += intervalMs + random.nextInt(9) - 4;
+            value = Math.max(min, Math.min(max, value + random.nextInt(3) - 1));
+            batch.add(timestamp, value);
+            if (batch.size() == BATCH) {
+                store.append(batch);
+                batch.clear();
+            }
+        }
+        store.append(batch);
+    }
+
+    private static void putSection(ByteBuffer out, int type, byte[] payload) {
+        int start = out.position();
+        out.put((byte) type).putInt(payload.length).put(payload);
+        CRC32 crc = new CRC32();
+        crc.update(out.array(), start, out.position() - start);
+        out.putInt((int) crc.getValue());
+    }
+
+    private static void assertSameSamples(SampleBatch expected, SampleBatch actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.timestampAt(i), actual.timestampAt(i));
+            assertEquals(Float.floatToRawIntBits(expected.valueAt(i)), Float.floatToRawIntBits(actual.valueAt(i)));
+        }
+    }
+
+    private static void assertSameSeries(TimeSeriesStore expected, TimeSeriesStore actual) throws IOException {
+        assertEquals(expected.size(), actual.size());
+        if (expected.size() == 0) {
+            return;
+        }
+        SampleBatch expectedBatch = new SampleBatch(1024);
+        SampleBatch actualBatch = new SampleBatch(1024);
+        long end = expected.lastTimestamp() + 1;
+        for (long from = expected.firstTimestamp(); from < end; from += HealthArchives.WINDOW_MS) {
+            expectedBatch.clear();
+            actualBatch.clear();
+            expected.query(from, from + HealthArchives.WINDOW_MS, expectedBatch);
+            actual.query(from, from + HealthArchives.WINDOW_MS, actualBatch);
+            assertSameSamples(expectedBatch, actualBatch);
+        }
+    }
+
+    /**
+     * Measures the live heap after a full collection every 500,000 samples.
+     */
+    private static final class HeapProbe {
+        private static final int CHECKPOINT = 500_000;
+
+        private long baseline;
+        private long sinceCheckpoint;
+        long peakAboveBaseline;
+
+        HeapProbe() {
+            reset();
+        }
+
+        void reset() {
+            baseline = usedHeap();
+            sinceCheckpoint = 0;
+            peakAboveBaseline = 0;
+        }
+
+        void samples(int count) {
+            sinceCheckpoint += count;
+            if (sinceCheckpoint >= CHECKPOINT) {
+                sinceCheckpoint = 0;
+                peakAboveBaseline = Math.max(peakAboveBaseline, usedHeap() - baseline);
+            }
+        }
+
+        private static long usedHeap() {
+            Runtime runtime = Runtime.getRuntime();
+            System.gc();
+            return runtime.totalMemory() - runtime.freeMemory();
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package com.example.healthmonitoringapp.feed;
+
+import androidx.recyclerview.widget.ListUpdateCallback;
+
+import com.example.healthmonitoringapp.data.SampleBatch;
+import com.example.healthmonitoringapp.data.TimeSeriesStore;
+import com.example.healthmonitoringapp.data.VitalType;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link ReadingPager}. Loads and updates are queued and run by
+ * {@link #drain()}, standing in for the loader thread and the main thread.
+ */
+public class ReadingPagerTest {
+    private static final long START_MS = 1_700_000_000_000L;
+    /** Rows a screen shows at once. */
+    private static final int SCREEN = 20;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Map<VitalType, TimeSeriesStore> stores = new EnumMap<>(VitalType.class);
+    private final ArrayDeque<Runnable> queue = new ArrayDeque<>();
+    private final Executor queued = queue::add;
+    private final List<String> updates = new ArrayList<>();
+    // Off where the log itself would grow with every page
+    private boolean logUpdates = true;
+    private final Reading reading = new Reading();
+    private ReadingPager pager;
+    // Row count as a RecyclerView following the updates would see it
+    private int shownCount;
+
+    @Before
+    public void setUp() throws IOException {
+        for (VitalType type : VitalType.values()) {
+            stores.put(type, TimeSeriesStore.open(folder.newFile(type.name() + ".ts")));
+        }
+        pager = new ReadingPager(new VitalsReadingSource(stores::get), queued, queued);
+        pager.setUpdateCallback(new ListUpdateCallback() {
+            @Override
+            public void onInserted(int position, int count) {
+                log("inserted", position, count);
+                shownCount += count;
+            }
+
+            @Override
+            public void onRemoved(int position, int count) {
+                log("removed", position, count);
+                shownCount -= count;
+            }
+
+            @Override
+            public void onMoved(int fromPosition, int toPosition) {
+                fail("Rows never move");
+            }
+
+            @Override
+            public void onChanged(int position, int count, Object payload) {
+                assertTrue("Changed rows past the end", position + count <= shownCount);
+                log("changed", position, count);
+            }
+        });
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        for (TimeSeriesStore store : stores.values()) {
+            store.close();
+        }
+    }
+
+    @Test
+    public void millionRows_scrollWithPrefetchAndConstantMemory() throws IOException {
+        // 1 Hz heart rate with SpO2 and steps every 8 s, partly on the same timestamps
+        fill(VitalType.HEART_RATE, 800_000, 1_000, 0);
+        fill(VitalType.OXYGEN_SATURATION, 100_000, 8_000, 0);
+        fill(VitalType.STEPS, 100_000, 8_000, 4_000);
+        int rows = 1_000_000;
+        logUpdates = false;
+
+        pager.refresh();
+        drain();
+        assertEquals(rows, pager.getCount());
+        assertEquals(rows, shownCount);
+
+        long baseline = usedHeap();
+        long peak = 0;
+        int placeholders = 0;
+        long previousTimestamp = Long.MAX_VALUE;
+        int previousType = Integer.MAX_VALUE;
+        for (int position = 0; position < rows; position++) {
+            // The row entering at the bottom of the screen, one frame per few rows
+            if (!pager.get(position, reading)) {
+                placeholders++;
+                drain();
+                assertTrue("Row " + position + " not loaded", pager.get(position, reading));
+            }
+            assertTrue("Row " + position + " out of order",
+                    reading.getTimestampMs() < previousTimestamp
+                            || reading.getTimestampMs() == previousTimestamp
+                            && reading.getType().ordinal() < previousType);
+            previousTimestamp = reading.getTimestampMs();
+            previousType = reading.getType().ordinal();
+            if (position % 4 == 0) {
+                drain();
+            }
+            assertTrue(pager.pagesHeld() <= ReadingPager.MAX_PAGES);
+            if (position % 100_000 == 0) {
+                peak = Math.max(peak, usedHeap() - baseline);
+            }
+        }
+
+        assertEquals(START_MS, previousTimestamp);
+        // Prefetch keeps ahead of scrolling, so no row is ever shown blank
+        assertEquals(0, placeholders);
+        assertTrue("Heap grew by " + peak + " bytes", peak < 1L << 20);
+    }
+
+    @Test
+    public void scrollingBackUp_reloadsNewerPages() throws IOException {
+        fill(VitalType.HEART_RATE, 5_000, 1_000, 0);
+        pager.refresh();
+        drain();
+        for (int position = 0; position < 5_000; position++) {
+            pager.get(position, reading);
+            drain();
+        }
+
+        long previousTimestamp = Long.MIN_VALUE;
+        for (int position = 4_999; position >= 0; position--) {
+            if (!pager.get(position, reading)) {
+                drain();
+                assertTrue(pager.get(position, reading));
+            }
+            assertTrue(reading.getTimestampMs() > previousTimestamp);
+            previousTimestamp = reading.getTimestampMs();
+            drain();
+        }
+        assertEquals(START_MS + 4_999_000L, previousTimestamp);
+    }
+
+    @Test
+    public void liveSample_isInsertedAtTopWithoutRebindingOtherRows() throws IOException {
+        fill(VitalType.HEART_RATE, 1_000, 1_000, 0);
+        pager.refresh();
+        drain();
+        for (int position = 0; position < SCREEN; position++) {
+            pager.get(position, reading);
+        }
+        drain();
+        updates.clear();
+
+        SampleBatch live = new SampleBatch(1);
+        live.add(START_MS + 1_000_000L, 120);
+        stores.get(VitalType.HEART_RATE).append(live);
+        pager.refresh();
+        drain();
+        // Bound again by the RecyclerView after the insert
+        pager.get(0, reading);
+        drain();
+
+        assertEquals(List.of("inserted 0+1", "changed 0+1"), updates);
+        assertEquals(1_001, pager.getCount());
+        assertTrue(pager.get(0, reading));
+        assertEquals(START_MS + 1_000_000L, reading.getTimestampMs());
+        assertEquals(120, reading.getValue(), 0);
+        assertTrue(pager.get(1, reading));
+        assertEquals(START_MS + 999_000L, reading.getTimestampMs());
+    }
+
+    @Test
+    public void emptyStore_showsReadingsOnceStored() throws IOException {
+        pager.refresh();
+        drain();
+        assertEquals(0, pager.getCount());
+
+        fill(VitalType.STEPS, 3, 60_000, 0);
+        pager.refresh();
+        drain();
+
+        assertEquals(List.of("inserted 0+3", "changed 0+3"), updates);
+        assertTrue(pager.get(2, reading));
+        assertEquals(VitalType.STEPS, reading.getType());
+        assertEquals(START_MS, reading.getTimestampMs());
+    }
+
+    @Test
+    public void refreshWhileLoading_runsAfterTheLoad() throws IOException {
+        fill(VitalType.HEART_RATE, 1_000, 1_000, 0);
+        pager.refresh();
+        pager.refresh();
+        drain();
+
+        assertEquals(1_000, pager.getCount());
+        assertEquals(1_000, shownCount);
+    }
+
+    @Test
+    public void close_dropsLoadsInFlightAndStopsLoading() throws IOException {
+        fill(VitalType.HEART_RATE, 1_000, 1_000, 0);
+        pager.refresh();
+        pager.close();
+        drain();
+
+        assertEquals(0, pager.getCount());
+        assertTrue(updates.isEmpty());
+        pager.refresh();
+        assertFalse(pager.get(0, reading));
+        assertTrue(queue.isEmpty());
+    }
+
+    private void fill(VitalType type, int count, long intervalMs, long offsetMs) throws IOException {
+        SampleBatch batch = new SampleBatch(10_000);
+        for (int i = 0; i < count; i++) {
+            batch.add(START_MS + offsetMs + i * intervalMs, 60 + i % 50);
+            if (batch.size() == 10_000) {
+                stores.get(type).append(batch);
+                batch.clear();
+            }
+        }
+        stores.get(type).append(batch);
+    }
+
+    private void log(String update, int position, int count) {
+        if (logUpdates) {
+            updates.add(update + " " + position + "+" + count);
+        }
+    }
+
+    private void drain() {
+        Runnable task;
+        while ((task = queue.poll()) != null) {
+            task.run();
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
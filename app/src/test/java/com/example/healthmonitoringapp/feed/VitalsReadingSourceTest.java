@@ -0,0 +1,159 @@
+package com.example.healthmonitoringapp.feed;
+
+import com.example.healthmonitoringapp.data.SampleBatch;
+import com.example.healthmonitoringapp.data.TimeSeriesStore;
+import com.example.healthmonitoringapp.data.VitalType;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link VitalsReadingSource}.
+ */
+public class VitalsReadingSourceTest {
+    private static final long START_MS = 1_700_000_000_000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Map<VitalType, TimeSeriesStore> stores = new EnumMap<>(VitalType.class);
+    private VitalsReadingSource source;
+
+    @Before
+    public void setUp() throws IOException {
+        for (VitalType type : VitalType.values()) {
+            stores.put(type, TimeSeriesStore.open(folder.newFile(type.name() + ".ts")));
+        }
+        source = new VitalsReadingSource(stores::get);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        for (TimeSeriesStore store : stores.values()) {
+            store.close();
+        }
+    }
+
+    @Test
+    public void readingsOfAllTypes_mergeNewestFirst_tiesByType() throws IOException {
+        append(VitalType.HEART_RATE, 0, 70, 1_000, 71, 2_000, 72);
+        append(VitalType.OXYGEN_SATURATION, 1_000, 97, 3_000, 98);
+        append(VitalType.STEPS, 2_000, 12);
+
+        ReadingPage page = new ReadingPage(10);
+        source.loadOlder(Long.MAX_VALUE, Integer.MAX_VALUE, page);
+
+        assertEquals("3000 OXYGEN_SATURATION 98.0, 2000 STEPS 12.0, 2000 HEART_RATE 72.0, "
+                + "1000 OXYGEN_SATURATION 97.0, 1000 HEART_RATE 71.0, 0 HEART_RATE 70.0", describe(page));
+    }
+
+    @Test
+    public void pagingOlderAndNewer_visitsEveryReadingOnce() throws IOException {
+        // Dense 1 Hz heart rate, a long gap, then more; sparse SpO2 sharing some timestamps
+        SampleBatch heartRate = new SampleBatch(3_000);
+        for (int i = 0; i < 3_000; i++) {
+            long gapMs = i < 1_500 ? 0 : 86_400_000L * 30;
+            heartRate.add(START_MS + gapMs + i * 1_000L, 60 + i % 40);
+        }
+        stores.get(VitalType.HEART_RATE).append(heartRate);
+        SampleBatch oxygen = new SampleBatch(100);
+        for (int i = 0; i < 100; i++) {
+            oxygen.add(START_MS + i * 60_000L, 95 + i % 4);
+        }
+        stores.get(VitalType.OXYGEN_SATURATION).append(oxygen);
+
+        // Newest first, in pages of 7 keyed by the last reading of the previous page
+        List<String> older = new ArrayList<>();
+        ReadingPage page = new ReadingPage(7);
+        source.loadOlder(Long.MAX_VALUE, Integer.MAX_VALUE, page);
+        while (page.size() > 0) {
+            for (int i = 0; i < page.size(); i++) {
+                older.add(key(page, i));
+            }
+            int last = page.size() - 1;
+            source.loadOlder(page.timestampAt(last), page.typeAt(last).ordinal(), page);
+        }
+        assertEquals(3_100, older.size());
+        assertStrictlyDescending(older);
+
+        // And back up, each page going right above the one before
+        List<String> newer = new ArrayList<>();
+        source.loadNewer(Long.MIN_VALUE, -1, page);
+        while (page.size() > 0) {
+            for (int i = page.size() - 1; i >= 0; i--) {
+                newer.add(0, key(page, i));
+            }
+            source.loadNewer(page.timestampAt(0), page.typeAt(0).ordinal(), page);
+        }
+        assertEquals(older, newer);
+    }
+
+    @Test
+    public void countBetween_countsKeysAboveAfterUpToInclusive() throws IOException {
+        append(VitalType.HEART_RATE, 0, 70, 1_000, 71, 2_000, 72);
+        append(VitalType.OXYGEN_SATURATION, 1_000, 97, 3_000, 98);
+
+        int heartRate = VitalType.HEART_RATE.ordinal();
+        int oxygen = VitalType.OXYGEN_SATURATION.ordinal();
+        assertEquals(5, source.countBetween(Long.MIN_VALUE, -1, 3_000, oxygen));
+        assertEquals(4, source.countBetween(Long.MIN_VALUE, -1, 2_000, heartRate));
+        assertEquals(3, source.countBetween(1_000, heartRate, 3_000, oxygen));
+        assertEquals(0, source.countBetween(3_000, oxygen, Long.MAX_VALUE, Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void emptyStores_loadNothing() throws IOException {
+        ReadingPage page = new ReadingPage(10);
+        source.loadOlder(Long.MAX_VALUE, Integer.MAX_VALUE, page);
+        assertEquals(0, page.size());
+        source.loadNewer(Long.MIN_VALUE, -1, page);
+        assertEquals(0, page.size());
+        assertEquals(0, source.countBetween(Long.MIN_VALUE, -1, Long.MAX_VALUE, Integer.MAX_VALUE));
+    }
+
+    private void append(VitalType type, float... timestampsAndValues) throws IOException {
+        SampleBatch batch = new SampleBatch(timestampsAndValues.length / 2);
+        for (int i = 0; i < timestampsAndValues.length; i += 2) {
+            batch.add((long) timestampsAndValues[i], timestampsAndValues[i + 1]);
+        }
+        stores.get(type).append(batch);
+    }
+
+    private static String describe(ReadingPage page) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < page.size(); i++) {
+            if (i > 0) {
+                text.append(", ");
+            }
+            text.append(page.timestampAt(i)).append(' ').append(page.typeAt(i)).append(' ').append(page.valueAt(i));
+        }
+        return text.toString();
+    }
+
+    private static String key(ReadingPage page, int index) {
+        return page.timestampAt(index) + "/" + page.typeAt(index).ordinal();
+    }
+
+    private static void assertStrictlyDescending(List<String> keys) {
+        for (int i = 1; i < keys.size(); i++) {
+            String[] previous = keys.get(i - 1).split("/");
+            String[] current = keys.get(i).split("/");
+            int order = Long.compare(Long.parseLong(previous[0]), Long.parseLong(current[0]));
+            if (order == 0) {
+                order = Integer.compare(Integer.parseInt(previous[1]), Integer.parseInt(current[1]));
+            }
+            assertTrue(keys.get(i - 1) + " before " + keys.get(i), order > 0);
+        }
+    }
+}
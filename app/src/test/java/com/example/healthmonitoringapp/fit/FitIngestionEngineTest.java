@@ -0,0 +1,289 @@
+package com.example.healthmonitoringapp.fit;
+
+import com.example.healthmonitoringapp.data.SampleBatch;
+import com.example.healthmonitoringapp.data.SampleSink;
+import com.example.healthmonitoringapp.data.VitalType;
+import com.example.healthmonitoringapp.sync.AdaptiveBatchSizer;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link FitIngestionEngine}, replaying three months of recorded-style data.
+ */
+public class FitIngestionEngineTest {
+    private static final long DAY_MS = TimeUnit.DAYS.toMillis(1);
+    private static final long FIXTURE_START_MS = 1_700_000_000_000L;
+    private static final long FIXTURE_END_MS = FIXTURE_START_MS + 90 * DAY_MS;
+
+    private FixtureHistorySource source;
+    private RecordingSink sink;
+    private MemoryCursorStore cursors;
+    private FitIngestionEngine engine;
+
+    @Before
+    public void setUp() {
+        source = new FixtureHistorySource(FIXTURE_START_MS, FIXTURE_END_MS);
+        sink = new RecordingSink();
+        cursors = new MemoryCursorStore();
+        engine = new FitIngestionEngine(source, sink, cursors);
+    }
+
+    @Test
+    public void firstSync_readsOnlyTheInitialLookback() throws IOException {
+        engine.ingest(FIXTURE_END_MS);
+
+        long from = FIXTURE_END_MS - FitIngestionEngine.INITIAL_LOOKBACK_MS;
+        long until = FIXTURE_END_MS - FitIngestionEngine.SETTLE_DELAY_MS;
+        for (VitalType type : VitalType.values()) {
+            if (type.isFromFit()) {
+                assertEquals(source.count(type, from, until), sink.size(type));
+                assertEquals(until, cursors.loadCursor(type));
+            }
+        }
+        // Strap readings are recorded live, never read from Fit
+        for (long[] request : source.requests) {
+            assertNotEquals(VitalType.STRAP_HEART_RATE.ordinal(), request[2]);
+        }
+    }
+
+    @Test
+    public void requests_areChunked() throws IOException {
+        engine.ingest(FIXTURE_END_MS);
+
+        for (long[] request : source.requests) {
+            assertTrue(request[1] - request[0] <= FitIngestionEngine.CHUNK_MS);
+        }
+        // Requests for each type tile the window without gaps
+        long previousEnd = -1;
+        for (long[] request : source.requests) {
+            if (request[2] == VitalType.HEART_RATE.ordinal()) {
+                assertTrue(previousEnd == -1 || previousEnd == request[0]);
+                previousEnd = request[1];
+            }
+        }
+    }
+
+    @Test
+    public void laterSync_readsOnlyTheNewWindow() throws IOException {
+        long firstRun = FIXTURE_END_MS - 10 * DAY_MS;
+        engine.ingest(firstRun);
+        source.requests.clear();
+
+        engine.ingest(firstRun + TimeUnit.HOURS.toMillis(1));
+
+        assertEquals(VitalType.values().length - 1, source.requests.size());
+        for (long[] request : source.requests) {
+            assertEquals(firstRun - FitIngestionEngine.SETTLE_DELAY_MS, request[0]);
+        }
+    }
+
+    @Test
+    public void replayedMonths_areStoredInOrderWithoutDuplicates() throws IOException {
+        for (long now = FIXTURE_START_MS + DAY_MS; now <= FIXTURE_END_MS; now += DAY_MS / 3) {
+            engine.ingest(now);
+        }
+
+        for (VitalType type : VitalType.values()) {
+            if (!type.isFromFit()) {
+                continue;
+            }
+            long[] timestamps = sink.timestamps(type);
+            for (int i = 1; i < timestamps.length; i++) {
+                assertTrue(timestamps[i] > timestamps[i - 1]);
+            }
+            long until = FIXTURE_END_MS - FitIngestionEngine.SETTLE_DELAY_MS;
+            assertEquals(source.count(type, FIXTURE_START_MS, until), timestamps.length);
+        }
+    }
+
+    @Test
+    public void failedRead_resumesFromLastStoredChunk() throws IOException {
+        source.failAfterRequests = 5;
+        try {
+            engine.ingest(FIXTURE_END_MS);
+            fail("Expected the read to fail");
+        } catch (IOException expected) {
+            // The first chunks were stored before the failure
+        }
+        long cursor = cursors.loadCursor(VitalType.HEART_RATE);
+        assertEquals(FIXTURE_END_MS - FitIngestionEngine.INITIAL_LOOKBACK_MS + 5 * FitIngestionEngine.CHUNK_MS,
+                cursor);
+
+        source.failAfterRequests = Integer.MAX_VALUE;
+        source.requests.clear();
+        engine.ingest(FIXTURE_END_MS);
+
+        assertEquals(cursor, source.requests.get(0)[0]);
+        long from = FIXTURE_END_MS - FitIngestionEngine.INITIAL_LOOKBACK_MS;
+        assertEquals(source.count(VitalType.HEART_RATE, from, FIXTURE_END_MS - FitIngestionEngine.SETTLE_DELAY_MS),
+                sink.size(VitalType.HEART_RATE));
+    }
+
+    @Test
+    public void unorderedPoints_areSortedBeforeStoring() throws IOException {
+        source.shuffle = true;
+        engine.ingest(FIXTURE_START_MS + 2 * DAY_MS);
+
+        long[] timestamps = sink.timestamps(VitalType.HEART_RATE);
+        assertTrue(timestamps.length > 0);
+        for (int i = 1; i < timestamps.length; i++) {
+            assertTrue(timestamps[i] > timestamps[i - 1]);
+        }
+    }
+
+    @Test
+    public void slowReads_shrinkChunksTowardsTargetTime() throws IOException {
+        // Each hour of data takes two seconds to read, so a 6 h chunk takes 12 s
+        source.readMsPerHour = 2_000;
+        engine = new FitIngestionEngine(source, sink, cursors,
+                new AdaptiveBatchSizer(FitIngestionEngine.CHUNK_MS, FitIngestionEngine.MIN_CHUNK_MS,
+                        FitIngestionEngine.CHUNK_MS, FitIngestionEngine.TARGET_CHUNK_TIME_MS),
+                () -> source.elapsedMs);
+
+        engine.ingest(FIXTURE_END_MS);
+
+        long[] last = source.requests.get(source.requests.size() - 2);
+        long lastSpan = last[1] - last[0];
+        assertTrue(lastSpan < FitIngestionEngine.CHUNK_MS);
+        assertEquals(FitIngestionEngine.TARGET_CHUNK_TIME_MS, lastSpan / TimeUnit.HOURS.toMillis(1) * 2_000, 2_000);
+        // Smaller chunks still tile the whole window
+        long from = FIXTURE_END_MS - FitIngestionEngine.INITIAL_LOOKBACK_MS;
+        assertEquals(source.count(VitalType.HEART_RATE, from, FIXTURE_END_MS - FitIngestionEngine.SETTLE_DELAY_MS),
+                sink.size(VitalType.HEART_RATE));
+    }
+
+    @Test
+    public void stopRequest_endsRunBetweenChunksAndResumes() throws IOException {
+        engine.ingest(FIXTURE_END_MS, () -> source.requests.size() >= 3);
+
+        assertEquals(3, source.requests.size());
+        long cursor = cursors.loadCursor(VitalType.HEART_RATE);
+        assertEquals(FIXTURE_END_MS - FitIngestionEngine.INITIAL_LOOKBACK_MS + 3 * FitIngestionEngine.CHUNK_MS,
+                cursor);
+
+        source.requests.clear();
+        engine.ingest(FIXTURE_END_MS);
+        assertEquals(cursor, source.requests.get(0)[0]);
+    }
+
+    /**
+     * Replays a fixed, seeded data set: heart rate every minute, step counts every 15 minutes and
+     * oxygen saturation every hour.
+     */
+    static class FixtureHistorySource implements HealthHistorySource {
+        final Map<VitalType, long[]> timestamps = new EnumMap<>(VitalType.class);
+        final Map<VitalType, float[]> values = new EnumMap<>(VitalType.class);
+        final List<long[]> requests = new ArrayList<>();
+        int failAfterRequests = Integer.MAX_VALUE;
+        boolean shuffle;
+        long readMsPerHour;
+        long elapsedMs;
+
+        FixtureHistorySource(long startMs, long endMs) {
+            Random random = new Random(42);
+            record(VitalType.HEART_RATE, startMs, endMs, TimeUnit.MINUTES.toMillis(1),
+                    () -> 60 + random.nextInt(60));
+            record(VitalType.STEPS, startMs, endMs, TimeUnit.MINUTES.toMillis(15), () -> random.nextInt(1500));
+            record(VitalType.OXYGEN_SATURATION, startMs, endMs, TimeUnit.HOURS.toMillis(1),
+                    () -> 94 + random.nextInt(6));
+        }
+
+        private void record(VitalType type, long startMs, long endMs, long intervalMs, ValueSource valueSource) {
+            int count = (int) ((endMs - startMs) / intervalMs);
+            long[] times = new long[count];
+            float[] samples = new float[count];
+            for (int i = 0; i < count; i++) {
+                times[i] = startMs + i * intervalMs;
+                samples[i] = valueSource.next();
+            }
+            timestamps.put(type, times);
+            values.put(type, samples);
+        }
+
+        @Override
+        public void read(VitalType type, long startMs, long endMs, SampleBatch out) throws IOException {
+            if (requests.size() >= failAfterRequests) {
+                throw new IOException("Simulated network failure");
+            }
+            requests.add(new long[]{startMs, endMs, type.ordinal()});
+            elapsedMs += (endMs - startMs) * readMsPerHour / TimeUnit.HOURS.toMillis(1);
+            long[] times = timestamps.get(type);
+            int from = lowerBound(times, startMs);
+            int to = lowerBound(times, endMs);
+            if (shuffle) {
+                for (int i = to - 1; i >= from; i--) {
+                    out.add(times[i], values.get(type)[i]);
+                }
+            } else {
+                for (int i = from; i < to; i++) {
+                    out.add(times[i], values.get(type)[i]);
+                }
+            }
+        }
+
+        int count(VitalType type, long startMs, long endMs) {
+            long[] times = timestamps.get(type);
+            return lowerBound(times, endMs) - lowerBound(times, startMs);
+        }
+
+        private static int lowerBound(long[] times, long timestamp) {
+            int index = Arrays.binarySearch(times, timestamp);
+            return index >= 0 ? index : -index - 1;
+        }
+
+        private interface ValueSource {
+            float next();
+        }
+    }
+
+    private static class RecordingSink implements SampleSink {
+        private final Map<VitalType, SampleBatch> stored = new EnumMap<>(VitalType.class);
+
+        @Override
+        public void append(VitalType type, SampleBatch batch) {
+            SampleBatch target = stored.computeIfAbsent(type, t -> new SampleBatch(1024));
+            for (int i = 0; i < batch.size(); i++) {
+                target.add(batch.timestampAt(i), batch.valueAt(i));
+            }
+        }
+
+        int size(VitalType type) {
+            SampleBatch batch = stored.get(type);
+            return batch != null ? batch.size() : 0;
+        }
+
+        long[] timestamps(VitalType type) {
+            long[] result = new long[size(type)];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = stored.get(type).timestampAt(i);
+            }
+            return result;
+        }
+    }
+
+    private static class MemoryCursorStore implements IngestionCursorStore {
+        private final Map<VitalType, Long> cursors = new EnumMap<>(VitalType.class);
+
+        @Override
+        public long loadCursor(VitalType type) {
+            return cursors.getOrDefault(type, 0L);
+        }
+
+        @Override
+        public void saveCursor(VitalType type, long syncedUntilMs) {
+            cursors.put(type, syncedUntilMs);
+        }
+    }
+}
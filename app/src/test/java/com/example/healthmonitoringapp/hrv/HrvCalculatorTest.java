@@ -0,0 +1,230 @@
+package com.example.healthmonitoringapp.hrv;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link HrvCalculator}.
+ */
+public class HrvCalculatorTest {
+    private static final long START_MS = 1_700_000_000_000L;
+
+    private HrvCalculator calculator;
+    private long now;
+
+    @Before
+    public void setUp() {
+        calculator = new HrvCalculator();
+        now = START_MS;
+    }
+
+    @Test
+    public void shortSeries_matchesHandComputedValues() {
+        feed(800, 810, 790, 860, 800);
+
+        assertEquals(5, calculator.getBeats());
+        assertEquals(812, calculator.getMeanRrMs(), 1e-9);
+        // Deviations -12, -2, -22, 48, -12
+        assertEquals(Math.sqrt(3080 / 4.0), calculator.getSdnnMs(), 1e-9);
+        // Differences 10, -20, 70, -60
+        assertEquals(Math.sqrt(9000 / 4.0), calculator.getRmssdMs(), 1e-9);
+        assertEquals(50, calculator.getPnn50(), 1e-9);
+    }
+
+    @Test
+    public void emptyWindow_hasNoMetrics() {
+        assertTrue(Double.isNaN(calculator.getMeanRrMs()));
+        assertTrue(Double.isNaN(calculator.getSdnnMs()));
+        assertTrue(Double.isNaN(calculator.getRmssdMs()));
+        assertTrue(Double.isNaN(calculator.getPnn50()));
+        assertFalse(calculator.isReady());
+    }
+
+    @Test
+    public void implausibleIntervals_areRejected() {
+        feed(800, 810);
+        assertFalse(accept(250));
+        assertFalse(accept(2500));
+        assertFalse(accept(Double.NaN));
+
+        assertEquals(2, calculator.getBeats());
+        assertEquals(3, calculator.getArtifacts());
+    }
+
+    @Test
+    public void ectopicBeat_isRejectedWithItsCompensatoryPause() {
+        feed(800, 810, 790, 800, 805);
+        double rmssd = calculator.getRmssdMs();
+
+        // Premature beat, then the pause that makes up for it
+        assertFalse(accept(520));
+        assertFalse(accept(1090));
+        // The next beat is normal, but its difference would span the removed beats
+        assertTrue(accept(800));
+
+        assertEquals(2, calculator.getArtifacts());
+        assertEquals(6, calculator.getBeats());
+        assertEquals(rmssd, calculator.getRmssdMs(), 1e-9);
+    }
+
+    @Test
+    public void rateStep_isFollowedAfterConsecutiveRejects() {
+        for (int i = 0; i < 60; i++) {
+            assertTrue(accept(1000));
+        }
+        for (int i = 0; i < HrvCalculator.MAX_CONSECUTIVE_REJECTS; i++) {
+            assertFalse(accept(600));
+        }
+        assertTrue(accept(600));
+        assertTrue(accept(610));
+    }
+
+    @Test
+    public void rateStep_isFollowedWhateverTheReferencePosition() {
+        // Not a multiple of the reference size, so the reference restarts mid-buffer
+        for (int i = 0; i < 61; i++) {
+            assertTrue(accept(1000));
+        }
+        for (int i = 0; i < HrvCalculator.MAX_CONSECUTIVE_REJECTS; i++) {
+            assertFalse(accept(600));
+        }
+        assertTrue(accept(600));
+        assertTrue(accept(610));
+    }
+
+    @Test
+    public void gapInStream_doesNotCountAsSuccessiveDifference() {
+        feed(800, 810);
+        now += 10_000;
+        assertTrue(accept(900));
+
+        assertEquals(3, calculator.getBeats());
+        // Only 800 -> 810
+        assertEquals(10, calculator.getRmssdMs(), 1e-9);
+    }
+
+    @Test
+    public void oldBeats_leaveTheWindow() {
+        for (int i = 0; i < 1000; i++) {
+            accept(i % 2 == 0 ? 1000 : 1040);
+        }
+        assertEquals(HrvCalculator.DEFAULT_WINDOW_MS / 1020, calculator.getBeats(), 1);
+        assertEquals(40, calculator.getRmssdMs(), 1e-9);
+        assertEquals(1020, calculator.getMeanRrMs(), 1);
+
+        // A long pause empties the window
+        now += HrvCalculator.DEFAULT_WINDOW_MS;
+        assertTrue(accept(1000));
+        assertEquals(1, calculator.getBeats());
+        assertTrue(Double.isNaN(calculator.getRmssdMs()));
+    }
+
+    @Test
+    public void slidingWindow_matchesNaiveRecomputation() {
+        Random random = new Random(5);
+        List<long[]> timestamps = new ArrayList<>();
+        List<double[]> beats = new ArrayList<>();
+        boolean previousNormal = false;
+        long previousTimestamp = Long.MIN_VALUE;
+        double rr = 850;
+
+        for (int i = 0; i < 20_000; i++) {
+            rr = Math.max(450, Math.min(1400, rr + random.nextGaussian() * 25));
+            double value = rr;
+            if (random.nextInt(100) == 0) {
+                value = rr * 0.6;
+            } else if (random.nextInt(500) == 0) {
+                now += 5000;
+            }
+            now += Math.round(value);
+            boolean normal = calculator.accept(now, value);
+            if (normal) {
+                boolean adjacent = previousNormal && now - previousTimestamp <= value * 1.5;
+                timestamps.add(new long[]{now});
+                beats.add(new double[]{value, adjacent ? 1 : 0});
+            }
+            previousNormal = normal;
+            previousTimestamp = now;
+
+            if (i % 97 == 0) {
+                assertMatchesNaive(timestamps, beats);
+            }
+        }
+        assertTrue(calculator.getArtifacts() > 100);
+    }
+
+    @Test
+    public void accept_doesNotAllocate() {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        // Warm up so the JIT has compiled the loop, then measure a stream with artifacts
+        replay(200_000);
+        long before = threads.getCurrentThreadAllocatedBytes();
+        replay(2_000_000);
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+        assertTrue(calculator.getArtifacts() > 1000);
+        // Allow for the allocation counter reading itself
+        assertTrue("Allocated " + allocated + " bytes", allocated < 1024);
+    }
+
+    private void replay(int beats) {
+        for (int i = 0; i < beats; i++) {
+            accept(i % 300 == 0 ? 450 : 800 + (i % 9) * 5);
+        }
+    }
+
+    private void assertMatchesNaive(List<long[]> timestamps, List<double[]> beats) {
+        int first = timestamps.size();
+        while (first > 0 && timestamps.get(first - 1)[0] > now - HrvCalculator.DEFAULT_WINDOW_MS) {
+            first--;
+        }
+        int count = timestamps.size() - first;
+        assertEquals(count, calculator.getBeats());
+        if (count < 2) {
+            return;
+        }
+        double sum = 0;
+        for (int i = first; i < timestamps.size(); i++) {
+            sum += beats.get(i)[0];
+        }
+        double mean = sum / count;
+        double squares = 0;
+        double differenceSquares = 0;
+        int differences = 0;
+        int nn50 = 0;
+        for (int i = first; i < timestamps.size(); i++) {
+            squares += (beats.get(i)[0] - mean) * (beats.get(i)[0] - mean);
+            if (i > first && beats.get(i)[1] == 1) {
+                double difference = beats.get(i)[0] - beats.get(i - 1)[0];
+                differenceSquares += difference * difference;
+                differences++;
+                nn50 += Math.abs(difference) > HrvCalculator.NN50_MS ? 1 : 0;
+            }
+        }
+        assertEquals(mean, calculator.getMeanRrMs(), 1e-6);
+        assertEquals(Math.sqrt(squares / (count - 1)), calculator.getSdnnMs(), 1e-6);
+        if (differences > 0) {
+            assertEquals(Math.sqrt(differenceSquares / differences), calculator.getRmssdMs(), 1e-6);
+            assertEquals(100.0 * nn50 / differences, calculator.getPnn50(), 1e-9);
+        }
+    }
+
+    private void feed(double... intervals) {
+        for (double rr : intervals) {
+            assertTrue(accept(rr));
+        }
+    }
+
+    private boolean accept(double rrMs) {
+        now += Double.isNaN(rrMs) ? 1000 : Math.round(rrMs);
+        return calculator.accept(now, rrMs);
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.healthmonitoringapp.image;
+
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link StoredAvatar}.
+ */
+public class StoredAvatarTest {
+
+    @Test
+    public void sameContentHash_sharesCacheKey() {
+        // The same picture stored for two accounts
+        StoredAvatar first = new StoredAvatar(new File("/data/accounts/a/avatars/avatar_1f2e"));
+        StoredAvatar second = new StoredAvatar(new File("/data/accounts/b/avatars/avatar_1f2e"));
+
+        assertEquals(first, second);
+        assertEquals(first.hashCode(), second.hashCode());
+        assertEquals(first.getCacheKey(), second.getCacheKey());
+    }
+
+    @Test
+    public void newPicture_getsNewCacheKey() {
+        StoredAvatar old = new StoredAvatar(new File("/data/avatars/avatar_1f2e"));
+        StoredAvatar replaced = new StoredAvatar(new File("/data/avatars/avatar_9c0b"));
+
+        assertNotEquals(old, replaced);
+        assertNotEquals(old.getCacheKey(), replaced.getCacheKey());
+    }
+}
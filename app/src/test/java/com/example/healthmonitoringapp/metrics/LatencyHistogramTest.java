@@ -0,0 +1,100 @@
+package com.example.healthmonitoringapp.metrics;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link LatencyHistogram}.
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void buckets_coverEveryValueOnce() {
+        long previousHighest = -1;
+        for (int i = 0; i < LatencyHistogram.BUCKETS; i++) {
+            long lowest = LatencyHistogram.lowestValueIn(i);
+            assertEquals("Gap before bucket " + i, previousHighest + 1, lowest);
+            assertEquals(i, LatencyHistogram.indexOf(lowest));
+            previousHighest = LatencyHistogram.highestValueIn(i);
+            assertEquals(i, LatencyHistogram.indexOf(previousHighest));
+        }
+        assertEquals(LatencyHistogram.MAX_MICROS, previousHighest);
+    }
+
+    @Test
+    public void percentiles_areWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Random random = new Random(19);
+        long[] values = new long[100_000];
+        for (int i = 0; i < values.length; i++) {
+            // Log-normal, like real latencies: mostly a few ms with a long tail
+            values[i] = Math.round(Math.exp(8 + random.nextGaussian() * 1.5));
+            histogram.recordMicros(values[i]);
+        }
+        Arrays.sort(values);
+
+        assertEquals(values.length, histogram.getCount());
+        assertEquals(values[values.length - 1], histogram.getMaxMicros());
+        for (double percentile : new double[]{50, 90, 99, 99.9}) {
+            long exact = values[(int) Math.ceil(percentile / 100 * values.length) - 1];
+            long reported = histogram.getPercentileMicros(percentile);
+            assertTrue("p" + percentile + " " + reported + " below " + exact, reported >= exact);
+            assertTrue("p" + percentile + " " + reported + " vs " + exact, reported <= exact + exact / 32 + 1);
+        }
+        assertEquals(Arrays.stream(values).average().getAsDouble(), histogram.getMeanMicros(), 1e-6);
+    }
+
+    @Test
+    public void outOfRangeValues_areClamped() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.recordNanos(-5);
+        histogram.recordMicros(Long.MAX_VALUE);
+
+        assertEquals(2, histogram.getCount());
+        assertEquals(0, histogram.getPercentileMicros(50));
+        assertEquals(LatencyHistogram.MAX_MICROS, histogram.getMaxMicros());
+    }
+
+    @Test
+    public void empty_reportsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentileMicros(99));
+        assertEquals(0, histogram.getMeanMicros(), 0);
+    }
+
+    @Test
+    public void concurrentRecords_areAllCounted() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        int threads = 4;
+        int perThread = 250_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            Future<?>[] futures = new Future<?>[threads];
+            for (int t = 0; t < threads; t++) {
+                int offset = t;
+                futures[t] = executor.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        histogram.recordMicros(offset * 1000 + i % 100);
+                    }
+                });
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals((long) threads * perThread, histogram.getCount());
+        assertEquals(3099, histogram.getMaxMicros());
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.healthmonitoringapp.metrics;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link Metrics}.
+ */
+public class MetricsTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Metrics metrics = new Metrics();
+
+    @Test
+    public void sameName_returnsSameMetric() {
+        assertSame(metrics.timer("UserDataStore.load"), metrics.timer("UserDataStore.load"));
+        assertSame(metrics.counter("Firestore.failures"), metrics.counter("Firestore.failures"));
+    }
+
+    @Test
+    public void dump_listsEveryMetricSortedByName() {
+        Timer load = metrics.timer("UserDataStore.load");
+        load.record(TimeUnit.MILLISECONDS.toNanos(12));
+        load.stop(load.start());
+        metrics.counter("AvatarImages.memoryCacheHits").add(7);
+        metrics.gauge("ProfileSyncEngine.remoteReads", () -> 3);
+
+        String dump = dump();
+
+        assertTrue(dump, dump.matches("(?s).*UserDataStore\\.load +2 .* 12\\.\\d\\d\\n.*"));
+        assertTrue(dump, dump.matches("(?s).*AvatarImages\\.memoryCacheHits +7\\n.*"));
+        assertTrue(dump, dump.indexOf("AvatarImages") < dump.indexOf("ProfileSyncEngine.remoteReads"));
+    }
+
+    @Test
+    public void dumpToFile_writesTheDump() throws Exception {
+        metrics.counter("Firestore.failures").increment();
+        File file = folder.newFile("metrics.txt");
+
+        metrics.dumpToFile(file);
+
+        assertEquals(dump(), new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void recording_allocatesNothing() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+            return;
+        }
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        Timer timer = metrics.timer("Test.section");
+        Counter counter = metrics.counter("Test.count");
+        Runnable work = () -> {
+            for (int i = 0; i < 100_000; i++) {
+                timer.stop(timer.start());
+                timer.record(i);
+                counter.increment();
+            }
+        };
+        // Warm up, so the JIT has compiled the loop and LongAdder has settled
+        work.run();
+
+        long threadId = Thread.currentThread().getId();
+        long before = allocations.getThreadAllocatedBytes(threadId);
+        work.run();
+        long allocated = allocations.getThreadAllocatedBytes(threadId) - before;
+
+        // A few bytes of slack for the measurement itself, far below one byte per record
+        assertTrue("Allocated " + allocated + " bytes", allocated < 1_000);
+    }
+
+    private String dump() {
+        StringWriter text = new StringWriter();
+        metrics.dump(new PrintWriter(text));
+        return text.toString();
+    }
+}
@@ -0,0 +1,260 @@
+package com.example.healthmonitoringapp.sampling;
+
+import com.example.healthmonitoringapp.ble.HeartRatePipeline;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link AdaptiveSamplingController}, including a simulated day of 1 Hz
+ * readings through a {@link HeartRatePipeline}, comparing the work done against a fixed rate.
+ */
+public class AdaptiveSamplingControllerTest {
+    private static final long START_MS = 1_700_000_000_000L;
+    private static final long SECOND_MS = 1000;
+
+    private FakeConditions conditions;
+    private AdaptiveSamplingController controller;
+    private List<SamplingPolicy> changes;
+
+    @Before
+    public void setUp() {
+        conditions = new FakeConditions();
+        controller = new AdaptiveSamplingController(conditions);
+        changes = new ArrayList<>();
+        controller.addListener(changes::add);
+    }
+
+    @Test
+    public void abnormalReading_burstsForHoldThenDecays() {
+        conditions.activity = DeviceConditions.Activity.RESTING;
+        long t = feed(START_MS, 120, 66);
+        assertEquals(SamplingPolicy.RESTING, controller.getPolicy());
+
+        assertEquals(SamplingPolicy.BURST, controller.onHeartRate(t, 140));
+        // A normal reading right after does not end the burst
+        t = feed(t + SECOND_MS, 60, 66);
+        assertEquals(SamplingPolicy.BURST, controller.getPolicy());
+
+        t = feed(t, AdaptiveSamplingController.BURST_HOLD_MS / SECOND_MS, 66);
+        assertEquals(SamplingPolicy.RESTING, controller.getPolicy());
+        assertEquals(List.of(SamplingPolicy.RESTING, SamplingPolicy.BURST, SamplingPolicy.RESTING), changes);
+    }
+
+    @Test
+    public void lowReading_bursts() {
+        conditions.activity = DeviceConditions.Activity.ASLEEP;
+        long t = feed(START_MS, 60, 50);
+        assertEquals(SamplingPolicy.SLEEP, controller.getPolicy());
+
+        assertEquals(SamplingPolicy.BURST, controller.onHeartRate(t, 38));
+    }
+
+    @Test
+    public void fastChangeWithinNormalRange_bursts() {
+        conditions.activity = DeviceConditions.Activity.RESTING;
+        long t = feed(START_MS, 300, 62);
+        assertEquals(SamplingPolicy.RESTING, controller.getPolicy());
+
+        // 62 to 90 within a minute never leaves the normal range
+        for (int i = 0; i < 60 && controller.getPolicy() != SamplingPolicy.BURST; i++) {
+            controller.onHeartRate(t, 62 + i * 28 / 59f);
+            t += SECOND_MS;
+        }
+        assertEquals(SamplingPolicy.BURST, controller.getPolicy());
+    }
+
+    @Test
+    public void slowDrift_doesNotBurst() {
+        conditions.activity = DeviceConditions.Activity.RESTING;
+        long t = START_MS;
+        // 60 to 100 over an hour
+        for (int i = 0; i < 3600; i++) {
+            controller.onHeartRate(t, 60 + i * 40 / 3599f);
+            t += SECOND_MS;
+        }
+        assertFalse(changes.contains(SamplingPolicy.BURST));
+    }
+
+    @Test
+    public void lowBattery_winsOverActivityUntilCharging() {
+        conditions.batteryPercent = AdaptiveSamplingController.LOW_BATTERY_PERCENT;
+        assertEquals(SamplingPolicy.LOW_BATTERY, controller.evaluate(START_MS));
+
+        conditions.charging = true;
+        // Conditions are cached for a while
+        assertEquals(SamplingPolicy.LOW_BATTERY, controller.evaluate(START_MS + SECOND_MS));
+        assertEquals(SamplingPolicy.ACTIVE,
+                controller.evaluate(START_MS + AdaptiveSamplingController.CONDITIONS_INTERVAL_MS));
+    }
+
+    @Test
+    public void lowBattery_stillBursts() {
+        conditions.batteryPercent = AdaptiveSamplingController.LOW_BATTERY_PERCENT;
+        assertEquals(SamplingPolicy.BURST, controller.onHeartRate(START_MS, 150));
+    }
+
+    @Test
+    public void criticalBattery_suppressesBurstUnlessCharging() {
+        conditions.batteryPercent = AdaptiveSamplingController.CRITICAL_BATTERY_PERCENT;
+        assertEquals(SamplingPolicy.LOW_BATTERY, controller.onHeartRate(START_MS, 150));
+
+        conditions.charging = true;
+        assertEquals(SamplingPolicy.BURST,
+                controller.onHeartRate(START_MS + AdaptiveSamplingController.CONDITIONS_INTERVAL_MS, 150));
+    }
+
+    @Test
+    public void staleReadings_areIgnored() {
+        controller.onHeartRate(START_MS, 70);
+        assertEquals(SamplingPolicy.ACTIVE, controller.onHeartRate(START_MS - SECOND_MS, 160));
+        assertTrue(changes.isEmpty());
+    }
+
+    @Test
+    public void listeners_areToldOnlyAboutChanges() {
+        long t = feed(START_MS, 600, 70);
+        assertTrue(changes.isEmpty());
+
+        List<SamplingPolicy> removed = new ArrayList<>();
+        AdaptiveSamplingController.Listener listener = removed::add;
+        controller.addListener(listener);
+        controller.removeListener(listener);
+        conditions.activity = DeviceConditions.Activity.ASLEEP;
+        controller.evaluate(t);
+        controller.evaluate(t + TimeUnit.HOURS.toMillis(1));
+        assertEquals(List.of(SamplingPolicy.SLEEP), changes);
+        assertTrue(removed.isEmpty());
+    }
+
+    @Test
+    public void simulatedDay_savesWorkAndStoresEveryAbnormalReading() throws IOException {
+        // Fixed rate before: every 1 Hz reading stored, a drain every second, Fit polled hourly
+        long fixedStored = TimeUnit.DAYS.toSeconds(1);
+        long fixedDrains = TimeUnit.DAYS.toSeconds(1);
+        long fixedPolls = 24;
+
+        // Wired as BleHeartRateMonitor does: the pipeline asks the controller about each reading
+        Set<Long> stored = new HashSet<>();
+        HeartRatePipeline pipeline = new HeartRatePipeline((type, batch) -> {
+            for (int i = 0; i < batch.size(); i++) {
+                stored.add(batch.timestampAt(i));
+            }
+        });
+        pipeline.setSampling(controller);
+        Set<Long> critical = new HashSet<>();
+        Map<SamplingPolicy, Long> seconds = new EnumMap<>(SamplingPolicy.class);
+        pipeline.setListener(new HeartRatePipeline.Listener() {
+            @Override
+            public void onHeartRate(long timestampMs, int bpm) {
+                seconds.merge(controller.getPolicy(), 1L, Long::sum);
+            }
+
+            @Override
+            public void onRrInterval(long timestampMs, float rrMs) {
+            }
+        });
+
+        Random noise = new Random(42);
+        long nextDrainMs = START_MS;
+        long nextPollMs = START_MS;
+        long drains = 0;
+        long polls = 0;
+        for (long s = 0; s < TimeUnit.DAYS.toSeconds(1); s++) {
+            long t = START_MS + s * SECOND_MS;
+            double hour = s / 3600.0;
+            conditions.activity = hour < 7 || hour >= 22 ? DeviceConditions.Activity.ASLEEP
+                    : hour >= 12 && hour < 18 ? DeviceConditions.Activity.ACTIVE
+                    : DeviceConditions.Activity.RESTING;
+            // Drained from a full charge, plugged in for the night at 22:00
+            conditions.batteryPercent = (int) Math.max(6, 100 - hour * 4.4);
+            conditions.charging = hour >= 22;
+
+            float bpm;
+            if (hour < 7 || hour >= 22) {
+                bpm = 54;
+            } else if (hour >= 10 && hour < 10 + 10 / 60.0) {
+                // Ten minutes of tachycardia at rest
+                bpm = 138;
+            } else if (hour >= 17 && hour < 18) {
+                // A workout, warming up over five minutes
+                bpm = (float) Math.min(150, 85 + (hour - 17) * 60 * 13);
+            } else if (conditions.activity == DeviceConditions.Activity.ACTIVE) {
+                bpm = 82;
+            } else {
+                bpm = 66;
+            }
+            int reported = Math.round(bpm + (float) noise.nextGaussian() * 2);
+            if (reported > AdaptiveSamplingController.HIGH_BPM) {
+                critical.add(t);
+            }
+            pipeline.onNotification(new byte[]{0x00, (byte) reported}, t);
+
+            if (t >= nextDrainMs) {
+                pipeline.drain();
+                drains++;
+                nextDrainMs = t + controller.getPolicy().getDrainIntervalMs();
+            }
+            if (t >= nextPollMs) {
+                polls++;
+                nextPollMs = t + controller.getPolicy().getSyncIntervalMs();
+            }
+        }
+        pipeline.drain();
+
+        // Every reading of the tachycardia and the hard part of the workout is stored, including
+        // those that arrived in the same drain as the first one
+        assertFalse(critical.isEmpty());
+        assertTrue(stored.containsAll(critical));
+        assertTrue(seconds.get(SamplingPolicy.SLEEP) > 8 * 3600);
+        assertTrue(seconds.containsKey(SamplingPolicy.LOW_BATTERY));
+        assertTrue(stored.size() < fixedStored / 4);
+        assertTrue(drains < fixedDrains / 5);
+        assertTrue(polls < fixedPolls);
+    }
+
+    /**
+     * Feeds a steady heart rate once a second; returns the time of the next reading.
+     */
+    private long feed(long startMs, long count, float bpm) {
+        long t = startMs;
+        for (int i = 0; i < count; i++) {
+            controller.onHeartRate(t, bpm);
+            t += SECOND_MS;
+        }
+        return t;
+    }
+
+    private static class FakeConditions implements DeviceConditions {
+        int batteryPercent = 80;
+        boolean charging;
+        Activity activity = Activity.ACTIVE;
+
+        @Override
+        public int getBatteryPercent() {
+            return batteryPercent;
+        }
+
+        @Override
+        public boolean isCharging() {
+            return charging;
+        }
+
+        @Override
+        public Activity getActivity(long nowMs) {
+            return activity;
+        }
+    }
+}
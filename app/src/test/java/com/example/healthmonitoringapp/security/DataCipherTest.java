@@ -0,0 +1,90 @@
+package com.example.healthmonitoringapp.security;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.Random;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.spec.SecretKeySpec;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link DataCipher}.
+ */
+public class DataCipherTest {
+    private final DataCipher cipher = newCipher(1);
+
+    @Test
+    public void record_roundTrips() throws GeneralSecurityException {
+        byte[] plaintext = "phone=+1 555 0100".getBytes(StandardCharsets.UTF_8);
+
+        byte[] sealed = cipher.encrypt(plaintext);
+
+        assertEquals(plaintext.length + DataCipher.OVERHEAD, sealed.length);
+        assertArrayEquals(plaintext, cipher.decrypt(sealed, 0, sealed.length));
+    }
+
+    @Test
+    public void sameRecordTwice_sealsDifferently() throws GeneralSecurityException {
+        byte[] plaintext = new byte[64];
+
+        assertFalse(Arrays.equals(cipher.encrypt(plaintext), cipher.encrypt(plaintext)));
+    }
+
+    @Test
+    public void associatedData_isAuthenticated() throws GeneralSecurityException {
+        byte[] header = {1, 2, 3, 4};
+        byte[] plaintext = new byte[100];
+        new Random(2).nextBytes(plaintext);
+        byte[] sealed = new byte[plaintext.length + DataCipher.OVERHEAD];
+        cipher.encrypt(header, header.length, plaintext, 0, plaintext.length, sealed, 0);
+
+        byte[] opened = new byte[plaintext.length];
+        assertEquals(plaintext.length, cipher.decrypt(header, header.length, sealed, 0, sealed.length, opened, 0));
+        assertArrayEquals(plaintext, opened);
+
+        header[3] = 5;
+        assertRejected(() -> cipher.decrypt(header, header.length, sealed, 0, sealed.length, opened, 0));
+    }
+
+    @Test
+    public void tamperedOrForeignRecords_areRejected() throws GeneralSecurityException {
+        byte[] sealed = cipher.encrypt(new byte[32]);
+
+        byte[] flipped = sealed.clone();
+        flipped[DataCipher.IV_SIZE + 3] ^= 1;
+        assertRejected(() -> cipher.decrypt(flipped, 0, flipped.length));
+        assertRejected(() -> newCipher(2).decrypt(sealed, 0, sealed.length));
+        assertRejected(() -> cipher.decrypt(sealed, 0, DataCipher.OVERHEAD - 1));
+    }
+
+    @Test
+    public void keyId_dependsOnlyOnTheKey() throws GeneralSecurityException {
+        assertEquals(newCipher(1).keyId(), newCipher(1).keyId());
+        assertNotEquals(newCipher(1).keyId(), newCipher(2).keyId());
+        assertEquals(16, cipher.keyId().length());
+    }
+
+    static DataCipher newCipher(long seed) {
+        byte[] key = new byte[32];
+        new Random(seed).nextBytes(key);
+        return new DataCipher(new SecretKeySpec(key, "AES"));
+    }
+
+    private interface Decryption {
+        void run() throws GeneralSecurityException;
+    }
+
+    private static void assertRejected(Decryption decryption) throws GeneralSecurityException {
+        try {
+            decryption.run();
+            fail("Expected AEADBadTagException");
+        } catch (AEADBadTagException expected) {
+            // Authentication failed as it should
+        }
+    }
+}
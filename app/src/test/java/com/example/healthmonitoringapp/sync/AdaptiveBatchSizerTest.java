@@ -0,0 +1,52 @@
+package com.example.healthmonitoringapp.sync;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link AdaptiveBatchSizer}.
+ */
+public class AdaptiveBatchSizerTest {
+
+    @Test
+    public void size_convergesOnTargetTime() {
+        AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(1_000, 10, 100_000, 2_000);
+        // Work that costs 5 ms per item should settle at 400 items per batch
+        for (int i = 0; i < 20; i++) {
+            long size = sizer.size();
+            sizer.record(size, size * 5);
+        }
+        assertEquals(400, sizer.size());
+    }
+
+    @Test
+    public void step_isLimitedToFactorOfTwo() {
+        AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(1_000, 10, 100_000, 2_000);
+        sizer.record(1_000, 1_000_000);
+        assertEquals(500, sizer.size());
+        sizer.record(500, 0);
+        assertEquals(1_000, sizer.size());
+    }
+
+    @Test
+    public void size_staysWithinBounds() {
+        AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(50, 40, 60, 1_000);
+        sizer.record(50, 10_000);
+        assertEquals(40, sizer.size());
+        sizer.record(40, 1);
+        sizer.record(60, 1);
+        assertEquals(60, sizer.size());
+    }
+
+    @Test
+    public void shortBatch_doesNotShrinkFastSize() {
+        AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(1_000, 10, 100_000, 2_000);
+        // The tail of a window is small and quick; it says nothing against the current size
+        sizer.record(20, 100);
+        assertEquals(1_000, sizer.size());
+        // A small batch that was slow still shrinks it
+        sizer.record(20, 4_000);
+        assertEquals(10, sizer.size());
+    }
+}
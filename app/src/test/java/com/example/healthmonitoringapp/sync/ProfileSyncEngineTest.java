@@ -0,0 +1,553 @@
+package com.example.healthmonitoringapp.sync;
+
+import com.example.healthmonitoringapp.utils.UserProfile;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link ProfileSyncEngine} against an in-memory backend and a manual clock.
+ */
+public class ProfileSyncEngineTest {
+    private static final String ACCOUNT = "jane-uid";
+    private static final String OTHER_ACCOUNT = "john-uid";
+
+    private FakeBackend backend;
+    private ManualScheduler scheduler;
+    private FakeStateStore stateStore;
+    private FakeLocalProfile local;
+    private UserProfile profile;
+    private ProfileSyncEngine engine;
+
+    @Before
+    public void setUp() {
+        backend = new FakeBackend();
+        scheduler = new ManualScheduler();
+        stateStore = new FakeStateStore();
+        local = new FakeLocalProfile();
+        profile = UserProfile.EMPTY.withEmail("jane@example.com").withName("Jane");
+        engine = newEngine(scheduler);
+        engine.start();
+    }
+
+    @Test
+    public void edits_areMergedAsOneDeltaWrite() {
+        edit(profile.withPhone("5550100"), UserProfile.Field.PHONE);
+        scheduler.advance(500);
+        edit(profile.withAddress("221B Baker Street"), UserProfile.Field.ADDRESS);
+        edit(profile.withPhone("5550199"), UserProfile.Field.PHONE);
+        scheduler.advance(ProfileSyncEngine.BATCH_DELAY_MS);
+
+        assertEquals(1, backend.writes.size());
+        Map<String, Object> delta = backend.writes.get(0);
+        assertEquals(3, delta.size()); // Both fields and updatedAt
+        assertEquals("5550199", delta.get("phone"));
+        assertEquals("221B Baker Street", delta.get("address"));
+        assertEquals("5550199", backend.document(ACCOUNT).get("phone"));
+        assertFalse(engine.hasPendingChanges());
+        assertTrue(stateStore.pending(ACCOUNT).isEmpty());
+    }
+
+    @Test
+    public void offlineWrites_areQueuedAndRetriedWithBackoff() {
+        backend.online = false;
+        edit(profile.withDob("1/1/1990"), UserProfile.Field.DOB);
+        scheduler.advance(ProfileSyncEngine.BATCH_DELAY_MS);
+        assertEquals(1, backend.attempts);
+        assertEquals(EnumSet.of(UserProfile.Field.DOB), stateStore.pending(ACCOUNT));
+
+        // First retry after MIN_BACKOFF_MS, second after twice that
+        scheduler.advance(ProfileSyncEngine.MIN_BACKOFF_MS);
+        assertEquals(2, backend.attempts);
+        scheduler.advance(ProfileSyncEngine.MIN_BACKOFF_MS);
+        assertEquals(2, backend.attempts);
+        scheduler.advance(ProfileSyncEngine.MIN_BACKOFF_MS);
+        assertEquals(3, backend.attempts);
+
+        backend.online = true;
+        scheduler.advance(4 * ProfileSyncEngine.MIN_BACKOFF_MS);
+        assertEquals("1/1/1990", backend.document(ACCOUNT).get("dob"));
+        assertFalse(engine.hasPendingChanges());
+    }
+
+    @Test
+    public void networkAvailable_retriesImmediately() {
+        backend.online = false;
+        edit(profile.withPhone("5550100"), UserProfile.Field.PHONE);
+        scheduler.advance(ProfileSyncEngine.BATCH_DELAY_MS);
+
+        backend.online = true;
+        engine.onNetworkAvailable();
+
+        assertEquals("5550100", backend.document(ACCOUNT).get("phone"));
+    }
+
+    @Test
+    public void unacknowledgedWrite_isRetriedAfterTimeout() {
+        backend.respond = false;
+        edit(profile.withPhone("5550100"), UserProfile.Field.PHONE);
+        scheduler.advance(ProfileSyncEngine.BATCH_DELAY_MS);
+        assertTrue(engine.hasPendingChanges());
+
+        backend.respond = true;
+        scheduler.advance(ProfileSyncEngine.ACK_TIMEOUT_MS + ProfileSyncEngine.MIN_BACKOFF_MS);
+
+        assertEquals(2, backend.attempts);
+        assertFalse(engine.hasPendingChanges());
+    }
+
+    @Test
+    public void editDuringInFlightWrite_isSentAfterwards() {
+        backend.respond = false;
+        edit(profile.withPhone("5550100"), UserProfile.Field.PHONE);
+        scheduler.advance(ProfileSyncEngine.BATCH_DELAY_MS);
+
+        edit(profile.withAddress("Elm Street"), UserProfile.Field.ADDRESS);
+        backend.respond = true;
+        backend.completeLast();
+        scheduler.advance(ProfileSyncEngine.BATCH_DELAY_MS);
+
+        assertEquals(2, backend.attempts);
+        assertEquals(2, backend.writes.get(1).size()); // Address and updatedAt
+        assertEquals("Elm Street", backend.document(ACCOUNT).get("address"));
+    }
+
+    @Test
+    public void flushAndWait_sendsWithoutBatchDelay() throws InterruptedException {
+        edit(profile.withPhone("5550100"), UserProfile.Field.PHONE);
+
+        assertTrue(engine.flushAndWait(1_000));
+        assertEquals("5550100", backend.document(ACCOUNT).get("phone"));
+        assertFalse(engine.hasPendingChanges());
+    }
+
+    @Test
+    public void flushAndWait_returnsOnAcknowledgementFromAnotherThread() throws InterruptedException {
+        backend.respond = false;
+        edit(profile.withPhone("5550100"), UserProfile.Field.PHONE);
+        Thread acknowledger = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                return;
+            }
+            backend.completeLast();
+        });
+        acknowledger.start();
+
+        assertTrue(engine.flushAndWait(10_000));
+        acknowledger.join();
+        assertEquals(1, backend.attempts);
+    }
+
+    @Test
+    public void flushAndWait_timesOutWhileOffline() throws InterruptedException {
+        backend.online = false;
+        edit(profile.withPhone("5550100"), UserProfile.Field.PHONE);
+
+        assertFalse(engine.flushAndWait(20));
+        assertTrue(engine.hasPendingChanges());
+    }
+
+    @Test
+    public void pendingFields_surviveRestart() {
+        backend.online = false;
+        edit(profile.withPhone("5550100"), UserProfile.Field.PHONE);
+        scheduler.advance(ProfileSyncEngine.BATCH_DELAY_MS);
+
+        backend.online = true;
+        ManualScheduler restartedScheduler = new ManualScheduler();
+        ProfileSyncEngine restarted = newEngine(restartedScheduler);
+        restarted.start();
+        restartedScheduler.advance(0);
+
+        assertEquals("5550100", backend.document(ACCOUNT).get("phone"));
+        assertTrue(stateStore.pending(ACCOUNT).isEmpty());
+    }
+
+    @Test
+    public void clear_dropsPendingEdits() {
+        backend.online = false;
+        edit(profile.withPhone("5550100"), UserProfile.Field.PHONE);
+        scheduler.advance(ProfileSyncEngine.BATCH_DELAY_MS);
+
+        engine.onCleared();
+        backend.online = true;
+        scheduler.advance(ProfileSyncEngine.MAX_BACKOFF_MS);
+
+        assertEquals(1, backend.attempts);
+        assertFalse(engine.hasPendingChanges());
+    }
+
+    @Test
+    public void backoff_isCapped() {
+        assertEquals(ProfileSyncEngine.MIN_BACKOFF_MS, ProfileSyncEngine.backoffDelayMs(1));
+        assertEquals(2 * ProfileSyncEngine.MIN_BACKOFF_MS, ProfileSyncEngine.backoffDelayMs(2));
+        assertEquals(ProfileSyncEngine.MAX_BACKOFF_MS, ProfileSyncEngine.backoffDelayMs(40));
+    }
+
+    @Test
+    public void firstSignIn_readsDocumentAndAdoptsItsFields() {
+        backend.documents.put(ACCOUNT, remoteDocument());
+        profile = UserProfile.EMPTY;
+
+        engine.onSignedIn(ACCOUNT, "Jane", "jane@example.com", "https://example.com/jane.png");
+        scheduler.advance(ProfileSyncEngine.BATCH_DELAY_MS);
+
+        assertEquals("1/1/1990", profile.getDob());
+        assertEquals("5550100", profile.getPhone());
+        assertEquals(1, engine.getRemoteReads());
+        // The document already holds the identity and the adopted fields
+        assertEquals(0, backend.attempts);
+        assertTrue(engine.getRemoteWritesAvoided() > 0);
+        assertFalse(engine.hasPendingChanges());
+    }
+
+    @Test
+    public void signInAgain_restoresFromCacheWithoutReadOrWrite() {
+        backend.documents.put(ACCOUNT, remoteDocument());
+        profile = UserProfile.EMPTY;
+        engine.onSignedIn(ACCOUNT, "Jane", "jane@example.com", "https://example.com/jane.png");
+        scheduler.advance(ProfileSyncEngine.BATCH_DELAY_MS);
+
+        switchAccount("", UserProfile.EMPTY);
+        scheduler.advance(60_000);
+        switchAccount(ACCOUNT, UserProfile.EMPTY);
+        engine.onSignedIn(ACCOUNT, "Jane", "jane@example.com", "https://example.com/jane.png");
+        scheduler.advance(ProfileSyncEngine.BATCH_DELAY_MS);
+
+        assertEquals("1/1/1990", profile.getDob());
+        assertEquals(1, engine.getRemoteReads());
+        assertEquals(1, engine.getRemoteReadsAvoided());
+        assertEquals(0, backend.attempts);
+    }
+
+    @Test
+    public void signIn_afterCacheExpired_readsAgain() {
+        backend.documents.put(ACCOUNT, remoteDocument());
+        engine.onSignedIn(ACCOUNT, "Jane", "jane@example.com", "https://example.com/jane.png");
+        scheduler.advance(ProfileSyncEngine.FETCH_FRESHNESS_MS);
+
+        engine.onSignedIn(ACCOUNT, "Jane", "jane@example.com", "https://example.com/jane.png");
+        scheduler.advance(0);
+
+        assertEquals(2, engine.getRemoteReads());
+        assertEquals(0, engine.getRemoteReadsAvoided());
+    }
+
+    @Test
+    public void signIn_keepsUnsentLocalEdits() {
+        backend.documents.put(ACCOUNT, remoteDocument());
+        backend.online = false;
+        edit(profile.withPhone("5550199"), UserProfile.Field.PHONE);
+        scheduler.advance(ProfileSyncEngine.BATCH_DELAY_MS);
+
+        backend.online = true;
+        engine.onSignedIn(ACCOUNT, "Jane", "jane@example.com", "https://example.com/jane.png");
+        scheduler.advance(ProfileSyncEngine.MIN_BACKOFF_MS);
+
+        assertEquals("5550199", profile.getPhone());
+        assertEquals("1/1/1990", profile.getDob());
+        assertEquals("5550199", backend.document(ACCOUNT).get("phone"));
+    }
+
+    @Test
+    public void unchangedValues_areNotWrittenAgain() {
+        edit(profile.withPhone("5550100"), UserProfile.Field.PHONE);
+        scheduler.advance(ProfileSyncEngine.BATCH_DELAY_MS);
+        edit(profile.withPhone("5550199"), UserProfile.Field.PHONE);
+        edit(profile.withPhone("5550100"), UserProfile.Field.PHONE);
+        scheduler.advance(ProfileSyncEngine.BATCH_DELAY_MS);
+
+        assertEquals(1, backend.attempts);
+        assertEquals(1, engine.getRemoteWrites());
+        assertEquals(1, engine.getRemoteWritesAvoided());
+    }
+
+    @Test
+    public void writes_carryUpdatedAt() {
+        scheduler.advance(1_000);
+        edit(profile.withPhone("5550100"), UserProfile.Field.PHONE);
+        scheduler.advance(ProfileSyncEngine.BATCH_DELAY_MS);
+
+        assertEquals(1_000 + ProfileSyncEngine.BATCH_DELAY_MS,
+                backend.document(ACCOUNT).get(ProfileSyncEngine.FIELD_UPDATED_AT));
+    }
+
+    @Test
+    public void syncedVersion_survivesRestart() {
+        edit(profile.withAddress("221B Baker Street\nLondon"), UserProfile.Field.ADDRESS);
+        scheduler.advance(ProfileSyncEngine.BATCH_DELAY_MS);
+
+        ManualScheduler restartedScheduler = new ManualScheduler();
+        ProfileSyncEngine restarted = newEngine(restartedScheduler);
+        restarted.start();
+        restarted.onFieldsStored(EnumSet.of(UserProfile.Field.ADDRESS));
+        restartedScheduler.advance(ProfileSyncEngine.BATCH_DELAY_MS);
+
+        assertEquals(1, backend.attempts);
+        assertEquals(1, restarted.getRemoteWritesAvoided());
+    }
+
+    @Test
+    public void firstSignInAfterUpgrade_movesEmailKeyedDocumentToUid() {
+        backend.documents.put("jane@example.com", remoteDocument());
+        profile = UserProfile.EMPTY;
+
+        engine.onSignedIn(ACCOUNT, "Jane", "jane@example.com", "https://example.com/jane.png");
+        scheduler.advance(ProfileSyncEngine.BATCH_DELAY_MS);
+
+        assertEquals("5550100", backend.document(ACCOUNT).get("phone"));
+        assertFalse(backend.documents.containsKey("jane@example.com"));
+        assertEquals("1/1/1990", profile.getDob());
+        assertEquals(1, engine.getDocumentsMigrated());
+        assertEquals(2, engine.getRemoteReads());
+        // Only the copy; the identity already matches it
+        assertEquals(1, backend.attempts);
+    }
+
+    @Test
+    public void failedMigration_isRetriedOnNextSignIn() {
+        backend.documents.put("jane@example.com", remoteDocument());
+        backend.failWrites = true;
+        engine.onSignedIn(ACCOUNT, "Jane", "jane@example.com", "https://example.com/jane.png");
+        scheduler.advance(0);
+        assertTrue(backend.documents.containsKey("jane@example.com"));
+
+        backend.failWrites = false;
+        engine.onSignedIn(ACCOUNT, "Jane", "jane@example.com", "https://example.com/jane.png");
+        scheduler.advance(ProfileSyncEngine.BATCH_DELAY_MS);
+
+        assertEquals("1/1/1990", backend.document(ACCOUNT).get("dob"));
+        assertFalse(backend.documents.containsKey("jane@example.com"));
+        assertEquals(1, engine.getDocumentsMigrated());
+    }
+
+    @Test
+    public void accountSwitch_keepsEachAccountsUnsentEdits() {
+        backend.online = false;
+        edit(profile.withPhone("5550100"), UserProfile.Field.PHONE);
+        scheduler.advance(ProfileSyncEngine.BATCH_DELAY_MS);
+
+        UserProfile john = UserProfile.EMPTY.withEmail("john@example.com").withName("John");
+        switchAccount(OTHER_ACCOUNT, john);
+        backend.online = true;
+        edit(profile.withAddress("Elm Street"), UserProfile.Field.ADDRESS);
+        scheduler.advance(ProfileSyncEngine.MAX_BACKOFF_MS);
+
+        assertEquals("Elm Street", backend.document(OTHER_ACCOUNT).get("address"));
+        assertNull(backend.document(OTHER_ACCOUNT).get("phone"));
+        assertNull(backend.document(ACCOUNT).get("phone"));
+        assertEquals(EnumSet.of(UserProfile.Field.PHONE), stateStore.pending(ACCOUNT));
+
+        switchAccount(ACCOUNT, UserProfile.EMPTY.withEmail("jane@example.com").withName("Jane").withPhone("5550100"));
+        scheduler.advance(0);
+
+        assertEquals("5550100", backend.document(ACCOUNT).get("phone"));
+        assertNull(backend.document(ACCOUNT).get("address"));
+        assertTrue(stateStore.pending(ACCOUNT).isEmpty());
+    }
+
+    @Test
+    public void staleSignIn_forAnotherAccountIsIgnored() {
+        backend.documents.put(ACCOUNT, remoteDocument());
+        engine.onSignedIn(OTHER_ACCOUNT, "John", "john@example.com", "");
+        scheduler.advance(ProfileSyncEngine.BATCH_DELAY_MS);
+
+        assertEquals("Jane", profile.getName());
+        assertEquals(0, engine.getRemoteReads());
+    }
+
+    private void switchAccount(String accountId, UserProfile accountProfile) {
+        local.accountId = accountId;
+        profile = accountProfile;
+        engine.onAccountChanged(accountId);
+    }
+
+    private ProfileSyncEngine newEngine(ManualScheduler scheduler) {
+        ProfileSyncEngine created = new ProfileSyncEngine(backend, local, stateStore, scheduler, () -> scheduler.now);
+        local.engine = created;
+        return created;
+    }
+
+    private void edit(UserProfile updated, UserProfile.Field field) {
+        profile = updated;
+        engine.onFieldsStored(EnumSet.of(field));
+    }
+
+    private static Map<String, Object> remoteDocument() {
+        Map<String, Object> document = new HashMap<>();
+        document.put("name", "Jane");
+        document.put("email", "jane@example.com");
+        document.put("profilePic", "https://example.com/jane.png");
+        document.put("dob", "1/1/1990");
+        document.put("phone", "5550100");
+        document.put(ProfileSyncEngine.FIELD_UPDATED_AT, 1L);
+        return document;
+    }
+
+    /**
+     * Stands in for ProfileRepository, reporting stored fields to the engine like its listener.
+     */
+    private class FakeLocalProfile implements LocalProfile {
+        ProfileSyncEngine engine;
+        String accountId = ACCOUNT;
+
+        @Override
+        public String getAccountId() {
+            return accountId;
+        }
+
+        @Override
+        public UserProfile get() {
+            return profile;
+        }
+
+        @Override
+        public UserProfile update(UnaryOperator<UserProfile> change) {
+            UserProfile previous = profile;
+            profile = change.apply(previous);
+            EnumSet<UserProfile.Field> changed = EnumSet.noneOf(UserProfile.Field.class);
+            for (UserProfile.Field field : UserProfile.Field.values()) {
+                if (!previous.get(field).equals(profile.get(field))) {
+                    changed.add(field);
+                }
+            }
+            if (!changed.isEmpty()) {
+                engine.onFieldsStored(changed);
+            }
+            return profile;
+        }
+    }
+
+    /**
+     * In-memory stand-in for the Firestore users collection.
+     */
+    static class FakeBackend implements RemoteProfileBackend {
+        final Map<String, Map<String, Object>> documents = new HashMap<>();
+        final List<Map<String, Object>> writes = new ArrayList<>();
+        boolean online = true;
+        boolean respond = true;
+        boolean failWrites;
+        int attempts;
+        private Runnable lastCompletion;
+
+        @Override
+        public void fetch(String documentId, FetchCallback callback) {
+            if (!online) {
+                callback.onFailure(new IllegalStateException("offline"));
+                return;
+            }
+            Map<String, Object> document = documents.get(documentId);
+            callback.onFetched(document != null ? new HashMap<>(document) : null);
+        }
+
+        @Override
+        public void mergeFields(String documentId, Map<String, Object> fields, Callback callback) {
+            attempts++;
+            if (!online || failWrites) {
+                callback.onFailure(new IllegalStateException(online ? "denied" : "offline"));
+                return;
+            }
+            lastCompletion = () -> {
+                writes.add(new HashMap<>(fields));
+                documents.computeIfAbsent(documentId, id -> new HashMap<>()).putAll(fields);
+                callback.onSuccess();
+            };
+            if (respond) {
+                completeLast();
+            }
+        }
+
+        @Override
+        public void delete(String documentId, Callback callback) {
+            if (!online) {
+                callback.onFailure(new IllegalStateException("offline"));
+                return;
+            }
+            documents.remove(documentId);
+            callback.onSuccess();
+        }
+
+        void completeLast() {
+            Runnable completion = lastCompletion;
+            lastCompletion = null;
+            if (completion != null) {
+                completion.run();
+            }
+        }
+
+        Map<String, Object> document(String id) {
+            return documents.getOrDefault(id, new HashMap<>());
+        }
+    }
+
+    /**
+     * Runs scheduled tasks when the test advances its clock.
+     */
+    static class ManualScheduler implements TaskScheduler {
+        private final PriorityQueue<long[]> order = new PriorityQueue<>((a, b) ->
+                a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+        private final Map<Long, Runnable> tasks = new HashMap<>();
+        long now;
+        private long sequence;
+
+        @Override
+        public void schedule(Runnable task, long delayMs) {
+            long id = sequence++;
+            tasks.put(id, task);
+            order.add(new long[]{now + delayMs, id});
+        }
+
+        void advance(long millis) {
+            long until = now + millis;
+            while (!order.isEmpty() && order.peek()[0] <= until) {
+                long[] next = order.poll();
+                now = next[0];
+                tasks.remove(next[1]).run();
+            }
+            now = until;
+        }
+    }
+
+    private static class FakeStateStore implements ProfileSyncEngine.SyncStateStore {
+        final Map<String, EnumSet<UserProfile.Field>> fields = new HashMap<>();
+        final Map<String, String> syncedVersions = new HashMap<>();
+
+        EnumSet<UserProfile.Field> pending(String accountId) {
+            return fields.computeIfAbsent(accountId, id -> EnumSet.noneOf(UserProfile.Field.class));
+        }
+
+        @Override
+        public Set<UserProfile.Field> loadPendingFields(String accountId) {
+            return EnumSet.copyOf(pending(accountId));
+        }
+
+        @Override
+        public void savePendingFields(String accountId, Set<UserProfile.Field> fields) {
+            pending(accountId).clear();
+            pending(accountId).addAll(fields);
+        }
+
+        @Override
+        public String loadSyncedVersion(String accountId) {
+            return syncedVersions.getOrDefault(accountId, "");
+        }
+
+        @Override
+        public void saveSyncedVersion(String accountId, String encoded) {
+            syncedVersions.put(accountId, encoded);
+        }
+    }
+}
@@ -0,0 +1,384 @@
+package com.example.healthmonitoringapp.sync;
+
+import com.example.healthmonitoringapp.data.SampleBatch;
+import com.example.healthmonitoringapp.data.TimeSeriesStore;
+import com.example.healthmonitoringapp.data.VitalType;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link VitalsUploader} against an in-memory backend.
+ */
+public class VitalsUploaderTest {
+    private static final String ACCOUNT = "jane-uid";
+    /** Midnight UTC. */
+    private static final long DAY0_MS = 1_700_006_400_000L;
+    private static final long HOUR_MS = VitalsDayWrite.HOUR_MS;
+    private static final long DAY_MS = VitalsDayWrite.DAY_MS;
+    private static final int WEEK_OF_1HZ = 7 * 86_400;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Map<VitalType, TimeSeriesStore> stores = new EnumMap<>(VitalType.class);
+    private final FakeBackend backend = new FakeBackend();
+    private final FakeStateStore state = new FakeStateStore();
+    private String account = ACCOUNT;
+    private VitalsUploader uploader;
+
+    @Before
+    public void setUp() throws IOException {
+        for (VitalType type : VitalType.values()) {
+            stores.put(type, TimeSeriesStore.open(folder.newFile(type.name() + ".ts")));
+        }
+        uploader = new VitalsUploader(stores::get, backend, state, () -> account);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        for (TimeSeriesStore store : stores.values()) {
+            store.close();
+        }
+    }
+
+    @Test
+    public void weekOfBacklog_isOneBatchWithOneWritePerDay() throws IOException {
+        appendHeartRate(0, WEEK_OF_1HZ);
+
+        int written = uploader.upload(DAY0_MS + 7 * DAY_MS);
+
+        // Instead of one write per sample
+        assertEquals(7, written);
+        assertEquals(List.of(7), backend.commits);
+        assertEquals(7, backend.documents.size());
+        int maxBytes = 0;
+        for (Map<String, byte[]> hours : backend.documents.values()) {
+            assertEquals(24, hours.size());
+            maxBytes = Math.max(maxBytes, bytes(hours));
+        }
+        assertEquals(WEEK_OF_1HZ, backend.samples().size());
+        assertEquals(DAY0_MS + (WEEK_OF_1HZ - 1) * 1_000L, state.get(VitalType.HEART_RATE));
+        // Firestore documents hold at most 1 MiB
+        assertTrue(maxBytes < 1 << 20);
+    }
+
+    @Test
+    public void weekOfLiveSamples_isOneWritePerHour() throws IOException {
+        for (int hour = 0; hour < 7 * 24; hour++) {
+            appendHeartRate(hour * 3_600, 3_600);
+            uploader.upload(DAY0_MS + (hour + 1) * HOUR_MS);
+        }
+
+        assertEquals(7 * 24, backend.writes);
+        assertEquals(7, backend.documents.size());
+        List<Long> uploaded = backend.samples();
+        assertEquals(WEEK_OF_1HZ, uploaded.size());
+        for (int i = 0; i < uploaded.size(); i++) {
+            assertEquals(DAY0_MS + i * 1_000L, (long) uploaded.get(i));
+        }
+    }
+
+    @Test
+    public void fewSamples_waitForTheDelay() throws IOException {
+        appendHeartRate(0, 100);
+        long lastMs = DAY0_MS + 99_000;
+
+        assertEquals(0, uploader.upload(lastMs + 1));
+        assertEquals(0, uploader.upload(DAY0_MS + VitalsUploader.FLUSH_DELAY_MS - 1));
+        assertEquals(1, uploader.upload(DAY0_MS + VitalsUploader.FLUSH_DELAY_MS));
+        assertEquals(100, backend.samples().size());
+        // Nothing pending any more
+        assertEquals(0, uploader.upload(DAY0_MS + 10 * VitalsUploader.FLUSH_DELAY_MS));
+        assertEquals(1, backend.writes);
+    }
+
+    @Test
+    public void partialHour_isCompletedByTheNextUpload() throws IOException {
+        appendHeartRate(0, 1_800);
+        assertEquals(1, uploader.upload(DAY0_MS + HOUR_MS, true));
+        appendHeartRate(1_800, 1_800);
+        assertEquals(1, uploader.upload(DAY0_MS + HOUR_MS, true));
+
+        assertEquals(1, backend.documents.size());
+        assertEquals(3_600, backend.samples().size());
+    }
+
+    @Test
+    public void failedOrUnacknowledgedCommits_areRetriedWithoutDuplicates() throws IOException {
+        appendHeartRate(0, 2 * 86_400);
+        backend.fail = true;
+        try {
+            uploader.upload(DAY0_MS + 2 * DAY_MS);
+            fail("Upload succeeded while the backend is failing");
+        } catch (IOException expected) {
+        }
+        assertTrue(backend.documents.isEmpty());
+        assertEquals(VitalsUploader.NOTHING_UPLOADED, state.get(VitalType.HEART_RATE));
+
+        // Applied, but the acknowledgement is lost
+        backend.fail = false;
+        backend.dropAcknowledgement = true;
+        try {
+            uploader.upload(DAY0_MS + 2 * DAY_MS);
+            fail("Upload succeeded without an acknowledgement");
+        } catch (IOException expected) {
+        }
+        assertEquals(2 * 86_400, backend.samples().size());
+        assertEquals(VitalsUploader.NOTHING_UPLOADED, state.get(VitalType.HEART_RATE));
+
+        backend.dropAcknowledgement = false;
+        appendHeartRate(2 * 86_400, 600);
+        assertEquals(3, uploader.upload(DAY0_MS + 3 * DAY_MS));
+        assertEquals(2 * 86_400 + 600, backend.samples().size());
+        assertEquals(DAY0_MS + (2 * 86_400 + 599) * 1_000L, state.get(VitalType.HEART_RATE));
+    }
+
+    @Test
+    public void lostCursors_rewriteTheSameBytes() throws IOException {
+        appendHeartRate(0, 86_400);
+        uploader.upload(DAY0_MS + DAY_MS);
+        Map<String, Map<String, byte[]>> before = backend.copyDocuments();
+
+        uploader = new VitalsUploader(stores::get, backend, new FakeStateStore(), () -> account);
+        uploader.upload(DAY0_MS + DAY_MS);
+
+        assertEquals(2, backend.writes);
+        assertEquals(before.keySet(), backend.documents.keySet());
+        for (Map.Entry<String, Map<String, byte[]>> document : before.entrySet()) {
+            Map<String, byte[]> hours = backend.documents.get(document.getKey());
+            for (Map.Entry<String, byte[]> hour : document.getValue().entrySet()) {
+                assertArrayEquals(hour.getValue(), hours.get(hour.getKey()));
+            }
+        }
+    }
+
+    @Test
+    public void manyDocuments_areSplitIntoBatchesOfAtMost500() throws IOException {
+        // One sample a day of every type for 200 days: 800 documents
+        for (VitalType type : VitalType.values()) {
+            SampleBatch batch = new SampleBatch(200);
+            for (int day = 0; day < 200; day++) {
+                batch.add(DAY0_MS + day * DAY_MS + 12 * HOUR_MS, 60 + day % 7);
+            }
+            stores.get(type).append(batch);
+        }
+
+        assertEquals(800, uploader.upload(DAY0_MS + 200 * DAY_MS, true));
+        assertEquals(List.of(RemoteVitalsBackend.MAX_BATCH_WRITES, 300), backend.commits);
+        assertEquals(800, backend.documents.size());
+        assertTrue(backend.documents.containsKey(ACCOUNT + "/OXYGEN_SATURATION_2023-11-15"));
+    }
+
+    @Test
+    public void signedOut_uploadsNothing() throws IOException {
+        appendHeartRate(0, WEEK_OF_1HZ);
+        account = "";
+
+        assertEquals(0, uploader.upload(DAY0_MS + 7 * DAY_MS, true));
+        assertEquals(0, backend.writes);
+    }
+
+    @Test
+    public void newAccount_uploadsNothingThePreviousOneRecorded() throws IOException {
+        appendHeartRate(0, 5_400);
+        uploader.upload(DAY0_MS + 2 * HOUR_MS, true);
+        // Recorded by the first account after its last upload, halfway through an hour
+        appendHeartRate(5_400, 900);
+
+        account = "john-uid";
+        uploader.onAccountSelected(account);
+        appendHeartRate(6_300, 2_700);
+        uploader.upload(DAY0_MS + 3 * HOUR_MS, true);
+
+        SampleBatch hour = new SampleBatch(4096);
+        int uploaded = 0;
+        for (Map.Entry<String, Map<String, byte[]>> document : backend.documents.entrySet()) {
+            if (!document.getKey().startsWith("john-uid/")) {
+                continue;
+            }
+            for (Map.Entry<String, byte[]> packed : document.getValue().entrySet()) {
+                hour.clear();
+                PackedSamples.unpack(packed.getValue(), backend.dayStarts.get(document.getKey())
+                        + Integer.parseInt(packed.getKey()) * HOUR_MS, hour);
+                for (int i = 0; i < hour.size(); i++) {
+                    assertTrue(hour.timestampAt(i) >= DAY0_MS + 6_300_000L);
+                }
+                uploaded += hour.size();
+            }
+        }
+        assertEquals(2_700, uploaded);
+
+        // Back to the first account, which does not pick up the second one's samples either
+        account = ACCOUNT;
+        uploader.onAccountSelected(account);
+        int writesBefore = backend.writes;
+        assertEquals(0, uploader.upload(DAY0_MS + 4 * HOUR_MS, true));
+        assertEquals(writesBefore, backend.writes);
+    }
+
+    @Test
+    public void firstAccount_ownsTheSamplesStoredBeforeIt() throws IOException {
+        appendHeartRate(0, 3_600);
+
+        uploader.onAccountSelected(ACCOUNT);
+
+        assertEquals(1, uploader.upload(DAY0_MS + HOUR_MS, true));
+        assertEquals(3_600, backend.samples().size());
+    }
+
+    @Test
+    public void packedHour_roundTripsAndDropsRepeatedTimestamps() throws IOException {
+        long hourStart = DAY0_MS + 5 * HOUR_MS;
+        SampleBatch samples = new SampleBatch(8);
+        samples.add(hourStart + 17, 72.5f);
+        samples.add(hourStart + 1_017, 73f);
+        samples.add(hourStart + 1_017, 99f);
+        samples.add(hourStart + 2_010, 73f);
+        samples.add(hourStart + 3_599_999, -1.25f);
+
+        byte[] packed = PackedSamples.pack(samples, 0, samples.size(), hourStart);
+        SampleBatch unpacked = new SampleBatch(8);
+        assertEquals(4, PackedSamples.unpack(packed, hourStart, unpacked));
+
+        long[] timestamps = {hourStart + 17, hourStart + 1_017, hourStart + 2_010, hourStart + 3_599_999};
+        float[] values = {72.5f, 73f, 73f, -1.25f};
+        for (int i = 0; i < timestamps.length; i++) {
+            assertEquals(timestamps[i], unpacked.timestampAt(i));
+            assertEquals(values[i], unpacked.valueAt(i), 0);
+        }
+    }
+
+    private void appendHeartRate(int fromSecond, int seconds) throws IOException {
+        SampleBatch batch = new SampleBatch(4096);
+        for (int i = fromSecond; i < fromSecond + seconds; i++) {
+            batch.add(DAY0_MS + i * 1_000L, 60 + (i / 7) % 40);
+            if (batch.size() == 4096) {
+                stores.get(VitalType.HEART_RATE).append(batch);
+                batch.clear();
+            }
+        }
+        stores.get(VitalType.HEART_RATE).append(batch);
+    }
+
+    private static int bytes(Map<String, byte[]> hours) {
+        int total = 0;
+        for (byte[] packed : hours.values()) {
+            total += packed.length;
+        }
+        return total;
+    }
+
+    /**
+     * In-memory stand-in for the Firestore vitals subcollections.
+     */
+    static class FakeBackend implements RemoteVitalsBackend {
+        /** Hours by document path, merged like Firestore merges the hours map. */
+        final Map<String, Map<String, byte[]>> documents = new TreeMap<>();
+        final Map<String, Long> dayStarts = new HashMap<>();
+        final List<Integer> commits = new ArrayList<>();
+        int writes;
+        boolean fail;
+        boolean dropAcknowledgement;
+
+        @Override
+        public void commit(String accountId, List<VitalsDayWrite> batch) throws IOException {
+            assertTrue(batch.size() <= MAX_BATCH_WRITES);
+            if (fail) {
+                throw new IOException("offline");
+            }
+            for (VitalsDayWrite write : batch) {
+                String path = accountId + "/" + write.getDocumentId();
+                documents.computeIfAbsent(path, p -> new TreeMap<>()).putAll(write.getHours());
+                dayStarts.put(path, write.getDayStartMs());
+            }
+            if (dropAcknowledgement) {
+                throw new IOException("Deadline exceeded");
+            }
+            commits.add(batch.size());
+            writes += batch.size();
+        }
+
+        /** Returns the timestamps of all stored heart-rate samples in order, checking there are no duplicates. */
+        List<Long> samples() throws IOException {
+            List<Long> timestamps = new ArrayList<>();
+            SampleBatch hour = new SampleBatch(4096);
+            for (Map.Entry<String, Map<String, byte[]>> document : documents.entrySet()) {
+                long dayStart = dayStarts.get(document.getKey());
+                for (Map.Entry<String, byte[]> packed : document.getValue().entrySet()) {
+                    hour.clear();
+                    PackedSamples.unpack(packed.getValue(), dayStart + Integer.parseInt(packed.getKey()) * HOUR_MS,
+                            hour);
+                    for (int i = 0; i < hour.size(); i++) {
+                        if (!timestamps.isEmpty()) {
+                            assertTrue("Duplicate or out of order", hour.timestampAt(i) > timestamps.get(timestamps.size() - 1));
+                        }
+                        timestamps.add(hour.timestampAt(i));
+                    }
+                }
+            }
+            return timestamps;
+        }
+
+        Map<String, Map<String, byte[]>> copyDocuments() {
+            Map<String, Map<String, byte[]>> copy = new TreeMap<>();
+            for (Map.Entry<String, Map<String, byte[]>> document : documents.entrySet()) {
+                copy.put(document.getKey(), new TreeMap<>(document.getValue()));
+            }
+            return copy;
+        }
+    }
+
+    static class FakeStateStore implements VitalsUploader.UploadStateStore {
+        private final Map<String, Long> cursors = new HashMap<>();
+        private final Map<String, Long> floors = new HashMap<>();
+        private String owner = "";
+
+        @Override
+        public long loadUploadedUntil(String accountId, VitalType type) {
+            return cursors.getOrDefault(accountId + "/" + type, VitalsUploader.NOTHING_UPLOADED);
+        }
+
+        @Override
+        public void saveUploadedUntil(String accountId, VitalType type, long timestampMs) {
+            cursors.put(accountId + "/" + type, timestampMs);
+        }
+
+        @Override
+        public long loadUploadFloor(String accountId, VitalType type) {
+            return floors.getOrDefault(accountId + "/" + type, Long.MIN_VALUE);
+        }
+
+        @Override
+        public void saveUploadFloor(String accountId, VitalType type, long timestampMs) {
+            floors.put(accountId + "/" + type, timestampMs);
+        }
+
+        @Override
+        public String loadVitalsOwner() {
+            return owner;
+        }
+
+        @Override
+        public void saveVitalsOwner(String accountId) {
+            owner = accountId;
+        }
+
+        long get(VitalType type) {
+            return loadUploadedUntil(ACCOUNT, type);
+        }
+    }
+}
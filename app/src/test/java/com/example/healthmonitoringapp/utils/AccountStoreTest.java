@@ -0,0 +1,195 @@
+package com.example.healthmonitoringapp.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link AccountStore}.
+ */
+public class AccountStoreTest {
+    private static final int MAX_ACCOUNTS = 3;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ExecutorService ioExecutor;
+    private AccountStore accounts;
+
+    @Before
+    public void setUp() {
+        accounts = reopen();
+    }
+
+    @After
+    public void tearDown() {
+        ioExecutor.shutdownNow();
+    }
+
+    @Test
+    public void select_keepsAccountsApart() throws Exception {
+        accounts.select("jane-uid", null).edit(data -> data.put("user_name", "Jane")).get();
+        accounts.select("john-uid", null).edit(data -> data.put("user_name", "John")).get();
+
+        assertEquals("John", accounts.getSelected().getString("user_name", ""));
+        assertEquals("Jane", accounts.select("jane-uid", null).getString("user_name", ""));
+        assertEquals("jane-uid", accounts.getSelectedAccount());
+    }
+
+    @Test
+    public void selectionAndOrder_surviveRestart() throws Exception {
+        accounts.select("jane-uid", null).edit(data -> data.put("user_name", "Jane")).get();
+        accounts.select("john-uid", null);
+        accounts.select("jane-uid", null);
+        awaitIdle();
+
+        accounts = reopen();
+
+        assertEquals("jane-uid", accounts.getSelectedAccount());
+        assertEquals(Arrays.asList("john-uid", "jane-uid"), accounts.getAccounts());
+        assertEquals("Jane", accounts.getSelected().getString("user_name", ""));
+    }
+
+    @Test
+    public void noAccount_deselectsButKeepsData() throws Exception {
+        accounts.select("jane-uid", null).edit(data -> data.put("user_name", "Jane")).get();
+
+        assertNull(accounts.select(AccountStore.NO_ACCOUNT, null));
+        assertNull(accounts.getSelected());
+        assertEquals("Jane", accounts.select("jane-uid", null).getString("user_name", ""));
+    }
+
+    @Test
+    public void eviction_dropsLeastRecentlySelectedAccount() throws Exception {
+        for (String id : new String[]{"a", "b", "c"}) {
+            accounts.select(id, null).edit(data -> data.put("user_name", id)).get();
+        }
+        // Selecting "a" again makes "b" the least recently used
+        accounts.select("a", null);
+        accounts.select("d", null).edit(data -> data.put("user_name", "d")).get();
+
+        assertEquals(Arrays.asList("c", "a", "d"), accounts.getAccounts());
+        assertFalse(accounts.getDirectory("b").exists());
+        assertTrue(accounts.getDirectory("a").exists());
+        assertNull(accounts.get("b"));
+
+        // An evicted account starts over
+        assertEquals("", accounts.select("b", null).getString("user_name", ""));
+        assertEquals(Arrays.asList("a", "d", "b"), accounts.getAccounts());
+        awaitIdle();
+        assertFalse(accounts.getDirectory("c").exists());
+    }
+
+    @Test
+    public void eviction_runsAfterTheEvictedAccountsWrites() throws Exception {
+        accounts = reopen(1);
+        accounts.select("a", null).edit(data -> data.put("user_name", "a"));
+        accounts.select("b", null);
+        awaitIdle();
+
+        assertFalse(accounts.getDirectory("a").exists());
+    }
+
+    @Test
+    public void migration_runsOnlyForNewAccounts() throws Exception {
+        Map<String, String> legacy = Collections.singletonMap("user_name", "Jane");
+        AtomicInteger reads = new AtomicInteger();
+        UserDataStore.Migration migration = new UserDataStore.Migration() {
+            @Override
+            public Map<String, String> readLegacyData() {
+                reads.incrementAndGet();
+                return legacy;
+            }
+
+            @Override
+            public void deleteLegacyData() {
+            }
+        };
+
+        assertEquals("Jane", accounts.select("jane-uid", migration).getString("user_name", ""));
+        accounts.select("john-uid", null);
+        assertEquals("Jane", accounts.select("jane-uid", migration).getString("user_name", ""));
+        assertEquals(1, reads.get());
+    }
+
+    @Test
+    public void switching_betweenRetainedAccountsNeverWaitsForTheDisk() throws Exception {
+        for (int i = 0; i < MAX_ACCOUNTS; i++) {
+            String name = "user" + i;
+            accounts.select("uid" + i, null).edit(data -> data.put("user_name", name)).get();
+        }
+        accounts = reopen();
+        // Loading starts with the first read of the account list
+        accounts.getSelectedAccount();
+        awaitIdle();
+
+        // Hold the I/O thread, so any switch that needs it would time out
+        CountDownLatch release = new CountDownLatch(1);
+        ioExecutor.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        ExecutorService switcher = Executors.newSingleThreadExecutor();
+        try {
+            // Any switch that queued work behind the held I/O thread would never finish
+            Future<?> switches = switcher.submit(() -> {
+                for (int i = 0; i < 3 * MAX_ACCOUNTS; i++) {
+                    String id = "uid" + (i % MAX_ACCOUNTS);
+                    assertEquals("user" + (i % MAX_ACCOUNTS), accounts.select(id, null).getString("user_name", ""));
+                }
+                return null;
+            });
+            switches.get(5, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            fail("Switching waited for the I/O thread");
+        } finally {
+            switcher.shutdownNow();
+            release.countDown();
+        }
+    }
+
+    private AccountStore reopen() {
+        return reopen(MAX_ACCOUNTS);
+    }
+
+    private AccountStore reopen(int maxAccounts) {
+        if (ioExecutor != null) {
+            awaitIdle();
+            ioExecutor.shutdownNow();
+        }
+        ioExecutor = Executors.newSingleThreadExecutor();
+        File root = folder.getRoot();
+        UserDataStore deviceStore = new UserDataStore(new File(root, "user_data.bin"), null, ioExecutor, Runnable::run);
+        return new AccountStore(new File(root, "accounts"), deviceStore, maxAccounts, null, ioExecutor, Runnable::run);
+    }
+
+    /**
+     * Waits for every queued load, write and deletion.
+     */
+    private void awaitIdle() {
+        try {
+            ioExecutor.submit(() -> { }).get();
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package com.example.healthmonitoringapp.utils;
+
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.content.SharedPreferences;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link AvatarStore} and the preferences migration it enables.
+ */
+public class AvatarStoreTest {
+
+    /** Size of a 480px WebP avatar, which is what transcode() produces on a device. */
+    private static final int AVATAR_BYTES = 30 * 1024;
+    /** Size of a full-resolution PNG as previously written by saveImageToPreferences(). */
+    private static final int LEGACY_PNG_BYTES = 3 * 1024 * 1024;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private AvatarStore avatarStore;
+
+    @Before
+    public void setUp() {
+        avatarStore = new AvatarStore(new File(folder.getRoot(), "avatars"), 480) {
+            @Override
+            byte[] transcode(byte[] source) {
+                // Bitmap codecs are not available on the JVM; emulate the downsampled output
+                byte[] avatar = new byte[AVATAR_BYTES];
+                System.arraycopy(source, 0, avatar, 0, Math.min(source.length, avatar.length));
+                return avatar;
+            }
+        };
+    }
+
+    @Test
+    public void calculateInSampleSize_keepsShorterSideAboveTarget() {
+        assertEquals(1, AvatarStore.calculateInSampleSize(400, 300, 480));
+        assertEquals(1, AvatarStore.calculateInSampleSize(960, 959, 480));
+        assertEquals(2, AvatarStore.calculateInSampleSize(1920, 960, 480));
+        assertEquals(8, AvatarStore.calculateInSampleSize(8000, 6000, 480));
+    }
+
+    @Test
+    public void writeEncoded_replacesPreviousAvatar() throws IOException {
+        String first = avatarStore.writeEncoded(new byte[]{1, 2, 3});
+        String second = avatarStore.writeEncoded(new byte[]{4, 5, 6});
+
+        assertNotEquals(first, second);
+        assertFalse(avatarStore.getFile(first).exists());
+        assertTrue(avatarStore.getFile(second).exists());
+        assertEquals(1, avatarStore.getFile(second).getParentFile().listFiles().length);
+    }
+
+    @Test
+    public void migrateLegacy_acceptsLineWrappedBase64() throws IOException {
+        byte[] png = randomBytes(4096);
+        String wrapped = Base64.getMimeEncoder().encodeToString(png);
+
+        String hash = avatarStore.migrateLegacy(wrapped);
+
+        assertEquals(AVATAR_BYTES, avatarStore.getFile(hash).length());
+    }
+
+    @Test
+    public void migration_leavesOnlySmallPreferences() throws Exception {
+        FakeSharedPreferences legacy = new FakeSharedPreferences();
+        SharedPreferences.Editor editor = legacy.edit()
+                .putString("user_name", "Test User")
+                .putString("user_email", "test@example.com")
+                .putString("user_dob", "1/1/1990")
+                .putString("user_phone", "5551234567")
+                .putString("user_address", "221B Baker Street");
+        SharedPrefManager.saveLegacyProfilePicture(editor, randomBytes(LEGACY_PNG_BYTES));
+        editor.apply();
+        int legacyPictureChars = legacy.getString("user_profile_pic", "").length();
+        Context context = new ContextWrapper(null) {
+            @Override
+            public SharedPreferences getSharedPreferences(String name, int mode) {
+                return legacy;
+            }
+
+            @Override
+            public boolean deleteSharedPreferences(String name) {
+                legacy.edit().clear().apply();
+                return true;
+            }
+        };
+        File file = new File(folder.getRoot(), "user_data.bin");
+        ExecutorService ioExecutor = Executors.newSingleThreadExecutor();
+        try {
+            UserDataStore store = new UserDataStore(file,
+                    new SharedPrefManager.SharedPreferencesMigration(context, avatarStore), ioExecutor, Runnable::run);
+
+            assertTrue(legacyPictureChars > LEGACY_PNG_BYTES);
+            assertEquals("", store.getString("user_profile_pic", ""));
+            assertEquals("Test User", store.getString("user_name", ""));
+            String hash = store.getString("user_avatar_hash", "");
+            assertEquals(AVATAR_BYTES, avatarStore.getFile(hash).length());
+            assertTrue(legacy.getAll().isEmpty());
+            assertTrue(file.exists() && file.length() < 1024);
+        } finally {
+            ioExecutor.shutdownNow();
+        }
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(42).nextBytes(bytes);
+        return bytes;
+    }
+
+    /**
+     * In-memory SharedPreferences that applies edits immediately.
+     */
+    private static class FakeSharedPreferences implements SharedPreferences {
+        private final Map<String, Object> values = new HashMap<>();
+
+        @Override
+        public Map<String, ?> getAll() {
+            return new HashMap<>(values);
+        }
+
+        @Override
+        public String getString(String key, String defValue) {
+            return (String) values.getOrDefault(key, defValue);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Set<String> getStringSet(String key, Set<String> defValues) {
+            return (Set<String>) values.getOrDefault(key, defValues);
+        }
+
+        @Override
+        public int getInt(String key, int defValue) {
+            return (Integer) values.getOrDefault(key, defValue);
+        }
+
+        @Override
+        public long getLong(String key, long defValue) {
+            return (Long) values.getOrDefault(key, defValue);
+        }
+
+        @Override
+        public float getFloat(String key, float defValue) {
+            return (Float) values.getOrDefault(key, defValue);
+        }
+
+        @Override
+        public boolean getBoolean(String key, boolean defValue) {
+            return (Boolean) values.getOrDefault(key, defValue);
+        }
+
+        @Override
+        public boolean contains(String key) {
+            return values.containsKey(key);
+        }
+
+        @Override
+        public Editor edit() {
+            return new FakeEditor();
+        }
+
+        @Override
+        public void registerOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+        }
+
+        @Override
+        public void unregisterOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+        }
+
+        private class FakeEditor implements Editor {
+            private final Map<String, Object> changes = new HashMap<>();
+            private boolean clear;
+
+            @Override
+            public Editor putString(String key, String value) {
+                changes.put(key, value);
+                return this;
+            }
+
+            @Override
+            public Editor putStringSet(String key, Set<String> values) {
+                changes.put(key, values);
+                return this;
+            }
+
+            @Override
+            public Editor putInt(String key, int value) {
+                changes.put(key, value);
+                return this;
+            }
+
+            @Override
+            public Editor putLong(String key, long value) {
+                changes.put(key, value);
+                return this;
+            }
+
+            @Override
+            public Editor putFloat(String key, float value) {
+                changes.put(key, value);
+                return this;
+            }
+
+            @Override
+            public Editor putBoolean(String key, boolean value) {
+                changes.put(key, value);
+                return this;
+            }
+
+            @Override
+            public Editor remove(String key) {
+                changes.put(key, null);
+                return this;
+            }
+
+            @Override
+            public Editor clear() {
+                clear = true;
+                return this;
+            }
+
+            @Override
+            public boolean commit() {
+                if (clear) {
+                    values.clear();
+                }
+                for (Map.Entry<String, Object> change : changes.entrySet()) {
+                    if (change.getValue() == null) {
+                        values.remove(change.getKey());
+                    } else {
+                        values.put(change.getKey(), change.getValue());
+                    }
+                }
+                return true;
+            }
+
+            @Override
+            public void apply() {
+                commit();
+            }
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package com.example.healthmonitoringapp.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link ProfileRepository}, including a multithreaded stress test.
+ */
+public class ProfileRepositoryTest {
+
+    private InMemoryStorage storage;
+    private ScheduledExecutorService writer;
+    private ProfileRepository repository;
+
+    @Before
+    public void setUp() {
+        storage = new InMemoryStorage();
+        writer = Executors.newSingleThreadScheduledExecutor();
+        repository = new ProfileRepository(storage, writer, Runnable::run, 50);
+    }
+
+    @After
+    public void tearDown() {
+        writer.shutdownNow();
+    }
+
+    @Test
+    public void update_writesOnlyChangedFields() {
+        storage.values.put(UserProfile.Field.NAME, "Jane");
+        repository = new ProfileRepository(storage, writer, Runnable::run, 50);
+
+        repository.update(profile -> profile.withName("Jane").withPhone("5550100"));
+        repository.flush();
+
+        assertEquals(1, storage.commits.size());
+        assertEquals(1, storage.commits.get(0).size());
+        assertEquals("5550100", storage.commits.get(0).get(UserProfile.Field.PHONE));
+    }
+
+    @Test
+    public void update_withoutChangeDoesNotWrite() {
+        repository.update(profile -> profile.withName(""));
+        repository.flush();
+
+        assertTrue(storage.commits.isEmpty());
+    }
+
+    @Test
+    public void rapidEdits_areCoalescedIntoOneCommit() throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            String phone = String.valueOf(i);
+            repository.update(profile -> profile.withPhone(phone).withDob("1/1/2000"));
+        }
+        Thread.sleep(200);
+
+        assertEquals(1, storage.commits.size());
+        assertEquals("99", storage.values.get(UserProfile.Field.PHONE));
+        assertEquals("99", repository.get().getPhone());
+    }
+
+    @Test
+    public void clear_resetsSnapshotAndStorage() {
+        repository.update(profile -> profile.withEmail("jane@example.com"));
+        repository.flush();
+
+        repository.clear();
+        repository.flush();
+
+        assertEquals(UserProfile.EMPTY, repository.get());
+        assertTrue(storage.values.isEmpty());
+    }
+
+    @Test
+    public void switchAccount_storesUnsavedEditsForPreviousAccount() throws InterruptedException {
+        List<String> events = new CopyOnWriteArrayList<>();
+        repository.addListener(new RecordingListener(events));
+        storage.accounts.computeIfAbsent("john-uid", id -> new EnumMap<>(UserProfile.Field.class))
+                .put(UserProfile.Field.NAME, "John");
+        repository.update(profile -> profile.withName("Jane").withPhone("5550100"));
+
+        CountDownLatch switched = new CountDownLatch(1);
+        repository.switchAccount("john-uid", "john@example.com", switched::countDown);
+        switched.await();
+
+        assertEquals("john-uid", repository.getAccountId());
+        assertEquals("John", repository.get().getName());
+        assertEquals("5550100", storage.accounts.get("").get(UserProfile.Field.PHONE));
+        assertEquals("john@example.com", storage.lastEmail);
+        // The previous account's edits are reported before the switch
+        assertEquals(List.of("stored [NAME, PHONE]", "account john-uid"), events);
+
+        repository.update(profile -> profile.withPhone("5550199"));
+        repository.flush();
+        assertEquals("5550199", storage.accounts.get("john-uid").get(UserProfile.Field.PHONE));
+        assertEquals("5550100", storage.accounts.get("").get(UserProfile.Field.PHONE));
+    }
+
+    @Test
+    public void editDuringAccountSwitch_isStoredForTheAccountItAppliesTo() throws Exception {
+        CountDownLatch selecting = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        storage = new InMemoryStorage() {
+            @Override
+            public void selectAccount(String accountId, String email) {
+                selecting.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.selectAccount(accountId, email);
+            }
+        };
+        storage.values.put(UserProfile.Field.NAME, "Jane");
+        storage.accounts.computeIfAbsent("john-uid", id -> new EnumMap<>(UserProfile.Field.class))
+                .put(UserProfile.Field.NAME, "John");
+        repository = new ProfileRepository(storage, writer, Runnable::run, 50);
+        repository.get();
+
+        CountDownLatch switched = new CountDownLatch(1);
+        repository.switchAccount("john-uid", "john@example.com", switched::countDown);
+        selecting.await();
+        AtomicReference<UserProfile> edited = new AtomicReference<>();
+        // The name tells which account's profile the edit was applied to
+        Thread editor = new Thread(() -> edited.set(
+                repository.update(profile -> profile.withAddress(profile.getName() + "'s address"))));
+        editor.start();
+        while (editor.getState() != Thread.State.BLOCKED && editor.isAlive()) {
+            Thread.yield();
+        }
+        release.countDown();
+        editor.join();
+        switched.await();
+        repository.flush();
+
+        assertEquals("John", edited.get().getName());
+        assertEquals("John's address", storage.accounts.get("john-uid").get(UserProfile.Field.ADDRESS));
+        assertNull(storage.accounts.get("").get(UserProfile.Field.ADDRESS));
+    }
+
+    @Test
+    public void concurrentWriters_doNotLoseUpdates() throws InterruptedException {
+        final int threads = 8;
+        final int incrementsPerThread = 2_000;
+        repository.update(profile -> profile.withPhone("0"));
+
+        UserProfile.Field[] otherFields = {
+                UserProfile.Field.NAME, UserProfile.Field.EMAIL, UserProfile.Field.DOB, UserProfile.Field.ADDRESS};
+        List<Thread> workers = new ArrayList<>();
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < threads; t++) {
+            final UserProfile.Field ownField = otherFields[t % otherFields.length];
+            final String prefix = "t" + t + "-";
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < incrementsPerThread; i++) {
+                    // Contended read-modify-write on the same field from every thread
+                    repository.update(profile -> profile.withPhone(
+                            String.valueOf(Long.parseLong(profile.getPhone()) + 1)));
+                    String value = prefix + i;
+                    repository.update(profile -> profile.with(ownField, value));
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        repository.flush();
+
+        String expected = String.valueOf(threads * incrementsPerThread);
+        assertEquals(expected, repository.get().getPhone());
+        assertEquals(expected, storage.values.get(UserProfile.Field.PHONE));
+        for (UserProfile.Field field : UserProfile.Field.values()) {
+            assertEquals(field.name(), repository.get().get(field), storage.load().get(field));
+        }
+        assertTrue("commits: " + storage.commits.size(),
+                storage.commits.size() < threads * incrementsPerThread / 10);
+    }
+
+    private static class RecordingListener implements ProfileRepository.Listener {
+        private final List<String> events;
+
+        RecordingListener(List<String> events) {
+            this.events = events;
+        }
+
+        @Override
+        public void onFieldsStored(Set<UserProfile.Field> fields) {
+            events.add("stored " + fields);
+        }
+
+        @Override
+        public void onCleared() {
+            events.add("cleared");
+        }
+
+        @Override
+        public void onAccountChanged(String accountId) {
+            events.add("account " + accountId);
+        }
+    }
+
+    private static class InMemoryStorage implements ProfileRepository.Storage {
+        final Map<String, Map<UserProfile.Field, String>> accounts = new HashMap<>();
+        Map<UserProfile.Field, String> values = new EnumMap<>(UserProfile.Field.class);
+        final List<Map<UserProfile.Field, String>> commits = new ArrayList<>();
+        String selected = AccountStore.NO_ACCOUNT;
+        String lastEmail;
+
+        InMemoryStorage() {
+            accounts.put(selected, values);
+        }
+
+        @Override
+        public synchronized String getSelectedAccount() {
+            return selected;
+        }
+
+        @Override
+        public synchronized void selectAccount(String accountId, String email) {
+            selected = accountId;
+            lastEmail = email;
+            values = accounts.computeIfAbsent(accountId, id -> new EnumMap<>(UserProfile.Field.class));
+        }
+
+        @Override
+        public synchronized UserProfile loadProfile() {
+            return load();
+        }
+
+        synchronized UserProfile load() {
+            String[] fields = new String[UserProfile.Field.values().length];
+            for (Map.Entry<UserProfile.Field, String> entry : values.entrySet()) {
+                fields[entry.getKey().ordinal()] = entry.getValue();
+            }
+            return UserProfile.of(fields);
+        }
+
+        @Override
+        public synchronized void writeProfileFields(Map<UserProfile.Field, String> changes) {
+            commits.add(new EnumMap<>(changes));
+            values.putAll(changes);
+        }
+
+        @Override
+        public synchronized void clearProfile() {
+            values.clear();
+        }
+    }
+}
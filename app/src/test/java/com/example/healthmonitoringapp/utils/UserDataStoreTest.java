@@ -0,0 +1,317 @@
+package com.example.healthmonitoringapp.utils;
+
+import com.example.healthmonitoringapp.security.CipherProvider;
+import com.example.healthmonitoringapp.security.DataCipher;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import javax.crypto.spec.SecretKeySpec;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link UserDataStore}.
+ */
+public class UserDataStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<ExecutorService> executors = new ArrayList<>();
+    private File file;
+
+    @Before
+    public void setUp() {
+        file = new File(folder.getRoot(), "user_data.bin");
+    }
+
+    @After
+    public void tearDown() {
+        for (ExecutorService executor : executors) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void constructor_doesNotWaitForLoad() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        FakeMigration migration = new FakeMigration(Collections.singletonMap("user_name", "Jane")) {
+            @Override
+            public Map<String, String> readLegacyData() {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.readLegacyData();
+            }
+        };
+
+        UserDataStore store = open(migration);
+        CountDownLatch ready = new CountDownLatch(1);
+        store.whenReady(ready::countDown);
+
+        assertFalse(store.isReady());
+        release.countDown();
+        assertTrue(ready.await(5, TimeUnit.SECONDS));
+        assertEquals("Jane", store.getString("user_name", ""));
+    }
+
+    @Test
+    public void migration_runsOnlyOnFirstOpen() {
+        FakeMigration migration = new FakeMigration(Collections.singletonMap("user_email", "jane@example.com"));
+
+        assertEquals("jane@example.com", open(migration).getString("user_email", ""));
+        assertTrue(migration.deleted);
+
+        FakeMigration second = new FakeMigration(Collections.singletonMap("user_email", "other@example.com"));
+        assertEquals("jane@example.com", open(second).getString("user_email", ""));
+        assertFalse(second.deleted);
+    }
+
+    @Test
+    public void migration_keepsValuesLargerThan64Kb() {
+        // Older versions kept the profile picture in the preferences as Base64
+        char[] large = new char[3 * 65_536];
+        Arrays.fill(large, 'A');
+        Map<String, String> legacy = new HashMap<>();
+        legacy.put("user_email", "jane@example.com");
+        legacy.put("user_profile_pic", new String(large));
+        FakeMigration migration = new FakeMigration(legacy);
+
+        assertEquals(large.length, open(migration).getString("user_profile_pic", "").length());
+        assertTrue(migration.deleted);
+        assertFalse(new File(file.getPath() + ".corrupt").exists());
+
+        UserDataStore reopened = open(null);
+        assertEquals(new String(large), reopened.getString("user_profile_pic", ""));
+        assertEquals("jane@example.com", reopened.getString("user_email", ""));
+    }
+
+    @Test
+    public void version1File_isStillRead() throws IOException {
+        ByteArrayOutputStream bodyBytes = new ByteArrayOutputStream();
+        DataOutputStream body = new DataOutputStream(bodyBytes);
+        body.writeInt(1);
+        body.writeUTF("user_name");
+        body.writeUTF("J\u00e4ne");
+        byte[] contents = bodyBytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(contents);
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+            out.writeInt(0x50475531);
+            out.writeInt(1);
+            out.writeInt(contents.length);
+            out.write(contents);
+            out.writeLong(crc.getValue());
+        }
+
+        assertEquals("J\u00e4ne", open(null).getString("user_name", ""));
+    }
+
+    @Test
+    public void edit_persistsAcrossReopen() throws Exception {
+        UserDataStore store = open(null);
+        store.edit(data -> {
+            data.put("user_phone", "5550100");
+            data.put("user_address", "221B Baker Street");
+        }).get();
+
+        UserDataStore reopened = open(null);
+        assertEquals("5550100", reopened.getString("user_phone", ""));
+        assertEquals("221B Baker Street", reopened.getString("user_address", ""));
+    }
+
+    @Test
+    public void failedTransaction_leavesDataUnchanged() throws Exception {
+        UserDataStore store = open(null);
+        store.edit(data -> data.put("user_phone", "5550100")).get();
+
+        try {
+            store.edit(data -> {
+                data.put("user_phone", "0000000");
+                throw new IllegalStateException("abort");
+            }).get();
+            fail("Transaction should have failed");
+        } catch (ExecutionException expected) {
+            assertTrue(expected.getCause() instanceof IllegalStateException);
+        }
+
+        assertEquals("5550100", store.getString("user_phone", ""));
+        assertEquals("5550100", open(null).getString("user_phone", ""));
+    }
+
+    @Test
+    public void listeners_receiveChangedKeysOnly() throws Exception {
+        UserDataStore store = open(null);
+        store.edit(data -> data.put("user_name", "Jane")).get();
+        List<Set<String>> notifications = Collections.synchronizedList(new ArrayList<>());
+        store.addListener(notifications::add);
+
+        store.edit(data -> {
+            data.put("user_name", "Jane");
+            data.put("user_dob", "1/1/1990");
+        }).get();
+        store.edit(data -> data.remove("user_name")).get();
+        store.edit(data -> data.put("user_dob", "1/1/1990")).get();
+
+        assertEquals(2, notifications.size());
+        assertEquals(Collections.singleton("user_dob"), notifications.get(0));
+        assertEquals(Collections.singleton("user_name"), notifications.get(1));
+    }
+
+    @Test
+    public void corruptFile_startsEmpty() throws IOException {
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9});
+        }
+
+        UserDataStore store = open(null);
+
+        assertTrue(store.getAll().isEmpty());
+        assertEquals(UserDataStore.LoadStatus.QUARANTINED, store.getLoadStatus());
+        assertTrue(new File(file.getPath() + ".corrupt").exists());
+    }
+
+    @Test
+    public void transientReadError_isRetried() throws Exception {
+        CipherProvider cipher = newCipherProvider();
+        open(null, cipher).edit(data -> data.put("user_name", "Jane")).get();
+
+        // The key is unavailable for the first read only, as before the device is first unlocked
+        int[] calls = new int[1];
+        UserDataStore store = open(null, () -> {
+            if (calls[0]++ == 0) {
+                throw new IOException("Keystore not ready");
+            }
+            return cipher.getCipher();
+        });
+
+        assertEquals("Jane", store.getString("user_name", ""));
+        assertEquals(UserDataStore.LoadStatus.LOADED, store.getLoadStatus());
+    }
+
+    @Test
+    public void unreadableFile_isKeptAndNotOverwritten() throws Exception {
+        CipherProvider cipher = newCipherProvider();
+        open(null, cipher).edit(data -> data.put("user_name", "Jane")).get();
+        byte[] stored = Files.readAllBytes(file.toPath());
+
+        boolean[] keyAvailable = new boolean[1];
+        UserDataStore store = open(null, () -> {
+            if (!keyAvailable[0]) {
+                throw new IOException("Keystore not ready");
+            }
+            return cipher.getCipher();
+        });
+        assertEquals(UserDataStore.LoadStatus.UNREADABLE, store.getLoadStatus());
+        assertTrue(store.getAll().isEmpty());
+        try {
+            store.edit(data -> data.put("user_phone", "5550100")).get();
+            fail();
+        } catch (ExecutionException expected) {
+            // Expected
+        }
+        assertArrayEquals(stored, Files.readAllBytes(file.toPath()));
+        assertFalse(new File(file.getPath() + ".corrupt").exists());
+
+        // Once the file can be read, the next edit applies on top of its contents
+        keyAvailable[0] = true;
+        store.edit(data -> data.put("user_phone", "5550100")).get();
+        assertEquals(UserDataStore.LoadStatus.LOADED, store.getLoadStatus());
+        assertEquals("Jane", open(null, cipher).getString("user_name", ""));
+        assertEquals("5550100", open(null, cipher).getString("user_phone", ""));
+    }
+
+    @Test
+    public void withCipher_fileHoldsNoPlaintext() throws Exception {
+        CipherProvider cipher = newCipherProvider();
+        UserDataStore store = open(null, cipher);
+        store.edit(data -> data.put("user_address", "221B Baker Street")).get();
+
+        assertFalse(fileContains("Baker Street"));
+        assertEquals("221B Baker Street", open(null, cipher).getString("user_address", ""));
+        // Without the key the file cannot be read
+        assertTrue(open(null).getAll().isEmpty());
+    }
+
+    @Test
+    public void plainFile_isEncryptedOnFirstLoad() throws Exception {
+        open(null).edit(data -> data.put("user_phone", "5550100")).get();
+        assertTrue(fileContains("5550100"));
+
+        CipherProvider cipher = newCipherProvider();
+        UserDataStore store = open(null, cipher);
+        // The plain file is rewritten before the load completes
+        assertEquals("5550100", store.getString("user_phone", ""));
+
+        assertFalse(fileContains("5550100"));
+        assertEquals("5550100", open(null, cipher).getString("user_phone", ""));
+    }
+
+    private boolean fileContains(String text) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.ISO_8859_1).contains(text);
+    }
+
+    private static CipherProvider newCipherProvider() {
+        byte[] key = new byte[32];
+        new Random(4).nextBytes(key);
+        DataCipher cipher = new DataCipher(new SecretKeySpec(key, "AES"));
+        return () -> cipher;
+    }
+
+    private UserDataStore open(UserDataStore.Migration migration) {
+        return open(migration, null);
+    }
+
+    private UserDataStore open(UserDataStore.Migration migration, CipherProvider cipherProvider) {
+        ExecutorService io = Executors.newSingleThreadExecutor();
+        executors.add(io);
+        return new UserDataStore(file, migration, cipherProvider, io, Runnable::run);
+    }
+
+    private static class FakeMigration implements UserDataStore.Migration {
+        private final Map<String, String> legacy;
+        boolean deleted;
+
+        FakeMigration(Map<String, String> legacy) {
+            this.legacy = new HashMap<>(legacy);
+        }
+
+        @Override
+        public Map<String, String> readLegacyData() {
+            return legacy;
+        }
+
+        @Override
+        public void deleteLegacyData() {
+            deleted = true;
+        }
+    }
+}
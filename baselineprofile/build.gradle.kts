@@ -0,0 +1,33 @@
+plugins {
+    id("com.android.test")
+    id("androidx.baselineprofile") // Runs the generator against a non-minified release build of :app
+}
+
+android {
+    namespace = "com.example.healthmonitoringapp.baselineprofile"
+    compileSdk = 35
+
+    defaultConfig {
+        minSdk = 29
+        targetSdk = 35
+        testInstrumentationRunner = "androidx.test.runner.AndroidJUnitRunner"
+    }
+
+    targetProjectPath = ":app"
+
+    compileOptions {
+        sourceCompatibility = JavaVersion.VERSION_17
+        targetCompatibility = JavaVersion.VERSION_17
+    }
+}
+
+baselineProfile {
+    // A connected device or emulator; Gradle managed devices would need a system image here
+    useConnectedDevices = true
+}
+
+dependencies {
+    implementation("androidx.test.ext:junit:1.2.1")
+    implementation("androidx.test.uiautomator:uiautomator:2.3.0")
+    implementation("androidx.benchmark:benchmark-macro-junit4:1.2.4")
+}
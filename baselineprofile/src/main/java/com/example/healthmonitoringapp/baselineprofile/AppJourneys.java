@@ -0,0 +1,42 @@
+package com.example.healthmonitoringapp.baselineprofile;
+
+import androidx.benchmark.macro.MacrobenchmarkScope;
+import androidx.test.uiautomator.By;
+import androidx.test.uiautomator.UiDevice;
+import androidx.test.uiautomator.UiObject2;
+import androidx.test.uiautomator.Until;
+
+/**
+ * User journeys shared by the profile generator and the startup benchmark.
+ */
+final class AppJourneys {
+    static final String PACKAGE_NAME = "com.example.healthmonitoringapp";
+    private static final long TIMEOUT_MS = 5_000;
+
+    private AppJourneys() {
+    }
+
+    /**
+     * Cold start, then intro to login and, if the device's test account is signed in there, on to the
+     * profile editor. Signing in itself needs a Google account picker and cannot be scripted, so a
+     * signed-out device covers intro and login only.
+     */
+    static void introToProfile(MacrobenchmarkScope scope) {
+        scope.pressHome();
+        scope.startActivityAndWait();
+        UiDevice device = scope.getDevice();
+        UiObject2 next = device.wait(Until.findObject(By.res(PACKAGE_NAME, "btnGoogleSignIn")), TIMEOUT_MS);
+        if (next == null) {
+            // Signed in; the intro went straight to the dashboard
+            return;
+        }
+        next.click();
+        UiObject2 editProfile = device.wait(Until.findObject(By.res(PACKAGE_NAME, "btnEditProfile")), TIMEOUT_MS);
+        if (editProfile == null) {
+            device.wait(Until.hasObject(By.res(PACKAGE_NAME, "btnSignIn")), TIMEOUT_MS);
+            return;
+        }
+        editProfile.click();
+        device.wait(Until.hasObject(By.res(PACKAGE_NAME, "saveProfileButton")), TIMEOUT_MS);
+    }
+}
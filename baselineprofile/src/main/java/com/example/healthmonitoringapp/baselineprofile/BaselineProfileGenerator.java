@@ -0,0 +1,39 @@
+package com.example.healthmonitoringapp.baselineprofile;
+
+import androidx.benchmark.macro.junit4.BaselineProfileRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import kotlin.Unit;
+
+/**
+ * Records the code run from launch through intro and login to the profile editor. The rules are
+ * shipped as the app's Baseline Profile, so that code is compiled ahead of time on install, and as
+ * its startup profile, so its classes are laid out first in the dex.
+ *
+ * <p>Run with {@code ./gradlew :app:generateReleaseBaselineProfile}; needs a device or emulator
+ * with API 33+, or a rooted one with API 28+.</p>
+ */
+@RunWith(AndroidJUnit4.class)
+public class BaselineProfileGenerator {
+    @Rule
+    public BaselineProfileRule baselineProfileRule = new BaselineProfileRule();
+
+    @Test
+    public void introToProfile() {
+        baselineProfileRule.collect(AppJourneys.PACKAGE_NAME,
+                15, // Max iterations
+                3, // Stable iterations
+                null, // Output file prefix
+                true, // Also write the startup profile
+                false, // Strict stability
+                rule -> true, // Keep every rule
+                scope -> {
+                    AppJourneys.introToProfile(scope);
+                    return Unit.INSTANCE;
+                });
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.healthmonitoringapp.baselineprofile;
+
+import androidx.benchmark.macro.BaselineProfileMode;
+import androidx.benchmark.macro.CompilationMode;
+import androidx.benchmark.macro.StartupMode;
+import androidx.benchmark.macro.StartupTimingMetric;
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Collections;
+
+import kotlin.Unit;
+
+/**
+ * Cold startup of the release build, interpreted as before the Baseline Profile and compiled with
+ * it, to the intro's first frame. Compare timeToInitialDisplayMs between the two tests.
+ *
+ * <p>Run with {@code ./gradlew :baselineprofile:connectedBenchmarkReleaseAndroidTest}; results are
+ * written to build/outputs/connected_android_test_additional_output/.</p>
+ */
+@RunWith(AndroidJUnit4.class)
+public class StartupBenchmark {
+    private static final int ITERATIONS = 10;
+
+    @Rule
+    public MacrobenchmarkRule benchmarkRule = new MacrobenchmarkRule();
+
+    @Test
+    public void startupWithoutProfile() {
+        startup(new CompilationMode.None());
+    }
+
+    @Test
+    public void startupWithBaselineProfile() {
+        startup(new CompilationMode.Partial(BaselineProfileMode.Require, 0));
+    }
+
+    private void startup(CompilationMode compilationMode) {
+        benchmarkRule.measureRepeated(AppJourneys.PACKAGE_NAME,
+                Collections.singletonList(new StartupTimingMetric()),
+                compilationMode,
+                StartupMode.COLD,
+                ITERATIONS,
+                scope -> {
+                    scope.pressHome();
+                    return Unit.INSTANCE;
+                },
+                scope -> {
+                    scope.startActivityAndWait();
+                    return Unit.INSTANCE;
+                });
+    }
+}
@@ -0,0 +1,49 @@
+plugins {
+    java
+    id("me.champeau.jmh") // JMH for JVM benchmarks
+}
+
+// The app is an application module and cannot be depended on, so its Android-free sources are
+// compiled here directly. The few android.* calls they make (Log, Trace) go to no-op stand-ins in
+// src/main/java. Benchmarks live in src/jmh/java.
+sourceSets {
+    main {
+        java {
+            srcDir("../app/src/main/java")
+            include(
+                "android/**",
+                "com/example/healthmonitoringapp/ble/HeartRateMeasurement*.java",
+                "com/example/healthmonitoringapp/chart/LttbDownsampler.java",
+                "com/example/healthmonitoringapp/data/**",
+                "com/example/healthmonitoringapp/export/**",
+                "com/example/healthmonitoringapp/hrv/**",
+                "com/example/healthmonitoringapp/metrics/Counter.java",
+                "com/example/healthmonitoringapp/metrics/LatencyHistogram.java",
+                "com/example/healthmonitoringapp/metrics/Metrics.java",
+                "com/example/healthmonitoringapp/metrics/Timer.java",
+                "com/example/healthmonitoringapp/security/CipherProvider.java",
+                "com/example/healthmonitoringapp/security/DataCipher.java",
+                "com/example/healthmonitoringapp/utils/AccountStore.java",
+                "com/example/healthmonitoringapp/utils/UserDataStore.java",
+                "com/example/healthmonitoringapp/utils/UserProfile.java"
+            )
+            exclude("com/example/healthmonitoringapp/data/VitalsStore.java") // Needs a Context
+        }
+    }
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_17
+    targetCompatibility = JavaVersion.VERSION_17
+}
+
+// ./gradlew :benchmark-jvm:jmh [-Pjmh.includes=TimeSeries]
+// Results go to build/results/jmh/results.json; compare two runs with any JMH JSON viewer.
+jmh {
+    jmhVersion.set("1.37")
+    resultFormat.set("JSON")
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    project.findProperty("jmh.includes")?.let { includes.set(listOf(it.toString())) }
+}
@@ -0,0 +1,73 @@
+package com.example.healthmonitoringapp.benchmark;
+
+import com.example.healthmonitoringapp.utils.AccountStore;
+import com.example.healthmonitoringapp.utils.UserDataStore;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Switches between the accounts {@link AccountStore} keeps loaded and reads a field of the newly
+ * selected one, as the account picker does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AccountStoreBenchmark {
+    private static final int ACCOUNTS = 3;
+
+    private File directory;
+    private ExecutorService ioExecutor;
+    private AccountStore accounts;
+    private int next;
+
+    @Setup
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("accounts-bench").toFile();
+        ioExecutor = Executors.newSingleThreadExecutor();
+        UserDataStore deviceStore = new UserDataStore(new File(directory, "user_data.bin"), null, ioExecutor,
+                Runnable::run);
+        accounts = new AccountStore(new File(directory, "accounts"), deviceStore, ACCOUNTS, null, ioExecutor,
+                Runnable::run);
+        for (int i = 0; i < ACCOUNTS; i++) {
+            String name = "user" + i;
+            accounts.select("uid" + i, null).edit(data -> data.put("user_name", name)).get();
+        }
+        ioExecutor.submit(() -> { }).get();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        ioExecutor.submit(() -> { }).get();
+        ioExecutor.shutdownNow();
+        deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public String switchAccount() {
+        next = (next + 1) % ACCOUNTS;
+        return accounts.select("uid" + next, null).getString("user_name", "");
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
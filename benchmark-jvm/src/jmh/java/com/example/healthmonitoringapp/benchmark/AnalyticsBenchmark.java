@@ -0,0 +1,93 @@
+package com.example.healthmonitoringapp.benchmark;
+
+import com.example.healthmonitoringapp.ble.HeartRateMeasurement;
+import com.example.healthmonitoringapp.ble.HeartRateMeasurementParser;
+import com.example.healthmonitoringapp.chart.LttbDownsampler;
+import com.example.healthmonitoringapp.data.QuantileSketch;
+import com.example.healthmonitoringapp.data.RollupSeries;
+import com.example.healthmonitoringapp.data.SampleBatch;
+import com.example.healthmonitoringapp.hrv.HrvCalculator;
+import com.example.healthmonitoringapp.metrics.LatencyHistogram;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-sample costs of the code every live reading goes through, plus the chart's downsampling of a
+ * day of samples.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AnalyticsBenchmark {
+    private static final long START_MS = 1_700_000_000_000L;
+    private static final int CHART_POINTS = 1_000;
+
+    private final HrvCalculator hrv = new HrvCalculator();
+    private final QuantileSketch sketch = new QuantileSketch();
+    private final RollupSeries rollups = new RollupSeries(0);
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private final HeartRateMeasurement measurement = new HeartRateMeasurement();
+    // Flags: 8-bit rate, contact detected, two RR intervals in 1/1024 s
+    private final byte[] notification = {0x16, 72, (byte) 0x52, 0x03, (byte) 0x60, 0x03};
+    private final long[] chartTimestamps = new long[CHART_POINTS];
+    private final float[] chartValues = new float[CHART_POINTS];
+    private final Random random = new Random(5);
+    private SampleBatch day;
+    private long beatAt = START_MS;
+    private long sampleAt = START_MS;
+
+    @Setup
+    public void setUp() {
+        day = new SampleBatch(90_000);
+        float value = 70;
+        for (long t = START_MS; t < START_MS + TimeUnit.DAYS.toMillis(1); t += 1000) {
+            value = Math.max(40, Math.min(180, value + random.nextInt(3) - 1));
+            day.add(t, value);
+        }
+    }
+
+    @Benchmark
+    public double hrvAccept() {
+        double rr = 800 + random.nextGaussian() * 40;
+        beatAt += (long) rr;
+        hrv.accept(beatAt, rr);
+        return hrv.getRmssdMs();
+    }
+
+    @Benchmark
+    public void quantileSketchAdd() {
+        sketch.add(60 + random.nextInt(100));
+    }
+
+    @Benchmark
+    public void rollupAdd() {
+        sampleAt += 1000;
+        rollups.add(sampleAt, 60 + random.nextInt(100));
+    }
+
+    @Benchmark
+    public void latencyHistogramRecord() {
+        histogram.recordNanos(random.nextInt(50_000_000));
+    }
+
+    @Benchmark
+    public int parseHeartRateNotification() {
+        HeartRateMeasurementParser.parse(notification, measurement);
+        return measurement.getHeartRate();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int downsampleDay() {
+        return LttbDownsampler.downsample(day, 0, day.size(), CHART_POINTS, chartTimestamps, chartValues);
+    }
+}
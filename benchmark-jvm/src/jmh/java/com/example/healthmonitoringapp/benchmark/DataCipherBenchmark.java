@@ -0,0 +1,57 @@
+package com.example.healthmonitoringapp.benchmark;
+
+import com.example.healthmonitoringapp.security.DataCipher;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.security.GeneralSecurityException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * AES-GCM sealing and opening of one time-series block and of a small profile file.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DataCipherBenchmark {
+    @Param({"512", "4096"})
+    public int size;
+
+    private DataCipher cipher;
+    private byte[] plaintext;
+    private byte[] sealed;
+    private byte[] opened;
+
+    @Setup
+    public void setUp() throws GeneralSecurityException {
+        Random random = new Random(9);
+        byte[] key = new byte[32];
+        random.nextBytes(key);
+        cipher = new DataCipher(new SecretKeySpec(key, "AES"));
+        plaintext = new byte[size];
+        random.nextBytes(plaintext);
+        sealed = new byte[size + DataCipher.OVERHEAD];
+        cipher.encrypt(null, 0, plaintext, 0, size, sealed, 0);
+        opened = new byte[size];
+    }
+
+    @Benchmark
+    public int encrypt() throws GeneralSecurityException {
+        return cipher.encrypt(null, 0, plaintext, 0, size, sealed, 0);
+    }
+
+    @Benchmark
+    public int decrypt() throws GeneralSecurityException {
+        return cipher.decrypt(null, 0, sealed, 0, sealed.length, opened, 0);
+    }
+}
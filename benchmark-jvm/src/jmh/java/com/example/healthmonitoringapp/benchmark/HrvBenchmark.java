@@ -0,0 +1,65 @@
+package com.example.healthmonitoringapp.benchmark;
+
+import com.example.healthmonitoringapp.hrv.HrvCalculator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Feeds a synthetic 24-hour RR stream (about 100k intervals, with ectopic beats) through
+ * {@link HrvCalculator}, reading the metrics after every beat as a live display would.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class HrvBenchmark {
+    private static final long START_MS = 1_700_000_000_000L;
+    private static final long DAY_MS = TimeUnit.DAYS.toMillis(1);
+
+    private long[] timestamps;
+    private double[] intervals;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(3);
+        timestamps = new long[150_000];
+        intervals = new double[timestamps.length];
+        int count = 0;
+        long now = START_MS;
+        double rr = 860;
+        while (now < START_MS + DAY_MS) {
+            // Slow drift between day and night rates, beat-to-beat noise and occasional ectopic beats
+            double circadian = 860 + 140 * Math.sin(2 * Math.PI * (now - START_MS) / DAY_MS);
+            rr += (circadian - rr) * 0.01 + random.nextGaussian() * 20;
+            double value = random.nextInt(400) == 0 ? rr * 0.6 : rr;
+            now += Math.round(value);
+            timestamps[count] = now;
+            intervals[count] = value;
+            count++;
+        }
+        timestamps = Arrays.copyOf(timestamps, count);
+        intervals = Arrays.copyOf(intervals, count);
+    }
+
+    @Benchmark
+    public double dayOfRrIntervals() {
+        HrvCalculator calculator = new HrvCalculator();
+        double checksum = 0;
+        for (int i = 0; i < timestamps.length; i++) {
+            calculator.accept(timestamps[i], intervals[i]);
+            if (calculator.isReady()) {
+                checksum += calculator.getRmssdMs() + calculator.getSdnnMs() + calculator.getPnn50();
+            }
+        }
+        return checksum;
+    }
+}
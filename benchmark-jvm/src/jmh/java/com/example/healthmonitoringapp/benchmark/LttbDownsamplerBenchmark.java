@@ -0,0 +1,51 @@
+package com.example.healthmonitoringapp.benchmark;
+
+import com.example.healthmonitoringapp.chart.LttbDownsampler;
+import com.example.healthmonitoringapp.data.SampleBatch;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The work the chart view does per frame: the loaded points in view reduced to one point per pixel
+ * of a 1080 px wide chart. 20,000 is the most points the chart source ever loads.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LttbDownsamplerBenchmark {
+    private static final long START_MS = 1_700_000_000_000L;
+    private static final int WIDTH_PX = 1080;
+
+    @Param({"7000", "20000", "1000000"})
+    public int size;
+
+    private final long[] timestamps = new long[WIDTH_PX];
+    private final float[] values = new float[WIDTH_PX];
+    private SampleBatch input;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(size);
+        input = new SampleBatch(size);
+        float value = 70;
+        for (int i = 0; i < size; i++) {
+            value = Math.max(40, Math.min(180, value + random.nextInt(3) - 1));
+            input.add(START_MS + i * 1000L, value);
+        }
+    }
+
+    @Benchmark
+    public int downsampleToScreenWidth() {
+        return LttbDownsampler.downsample(input, 0, size, WIDTH_PX, timestamps, values);
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.healthmonitoringapp.benchmark;
+
+import com.example.healthmonitoringapp.metrics.Counter;
+import com.example.healthmonitoringapp.metrics.LatencyHistogram;
+import com.example.healthmonitoringapp.metrics.Metrics;
+import com.example.healthmonitoringapp.metrics.Timer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What recording a metric costs on the thread doing the work: a timed section, a bare histogram
+ * record and a counter increment, alone and with four threads recording into the same histogram.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MetricsBenchmark {
+    private final Metrics metrics = Metrics.getInstance();
+    private final Timer timer = metrics.timer("Benchmark.section");
+    private final LatencyHistogram histogram = metrics.timer("Benchmark.record").getHistogram();
+    private final Counter counter = metrics.counter("Benchmark.count");
+    private int next;
+
+    @Benchmark
+    public void timedSection() {
+        timer.stop(timer.start());
+    }
+
+    @Benchmark
+    public void histogramRecord() {
+        histogram.recordNanos(next++ & 0xFFFFF);
+    }
+
+    @Benchmark
+    public void counterIncrement() {
+        counter.increment();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void contendedHistogramRecord(Shared shared) {
+        // Same bucket on every thread, the worst case
+        shared.histogram.recordNanos(250_000);
+    }
+
+    @State(Scope.Benchmark)
+    public static class Shared {
+        final LatencyHistogram histogram = Metrics.getInstance().timer("Benchmark.contended").getHistogram();
+    }
+}
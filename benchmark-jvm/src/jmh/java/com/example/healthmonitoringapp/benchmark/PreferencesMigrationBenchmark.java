@@ -0,0 +1,138 @@
+package com.example.healthmonitoringapp.benchmark;
+
+import com.example.healthmonitoringapp.security.DataCipher;
+import com.example.healthmonitoringapp.utils.UserDataStore;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.spec.SecretKeySpec;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+
+/**
+ * The first read of the user's profile at process start, before and after the profile picture
+ * migration: the old preferences file with a Base64 PNG in it, parsed in full as
+ * SharedPreferencesImpl does, against the encrypted store the migration leaves with only the
+ * avatar hash. SharedPreferences needs a device, so the old file is written in its XML layout here.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PreferencesMigrationBenchmark {
+    /** A full-resolution PNG as versions before AvatarStore stored it. */
+    private static final int LEGACY_PNG_BYTES = 3 * 1024 * 1024;
+
+    private File directory;
+    private File legacyFile;
+    private File storeFile;
+    private SAXParser parser;
+    private DataCipher cipher;
+    private ExecutorService ioExecutor;
+
+    @Setup
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("prefs-bench").toFile();
+        legacyFile = new File(directory, "health_monitoring_pref.xml");
+        storeFile = new File(directory, "user_data.bin");
+        parser = SAXParserFactory.newInstance().newSAXParser();
+        Random random = new Random(1);
+        byte[] key = new byte[32];
+        random.nextBytes(key);
+        cipher = new DataCipher(new SecretKeySpec(key, "AES"));
+        ioExecutor = Executors.newSingleThreadExecutor();
+
+        Map<String, String> profile = new LinkedHashMap<>();
+        profile.put("user_name", "Jane Doe");
+        profile.put("user_email", "jane.doe@example.com");
+        profile.put("user_dob", "12/4/1990");
+        profile.put("user_phone", "5550100");
+        profile.put("user_address", "1 Main Street, Springfield");
+
+        byte[] png = new byte[LEGACY_PNG_BYTES];
+        random.nextBytes(png);
+        // As SharedPrefManager.saveLegacyProfilePicture() writes it
+        String picture = Base64.getMimeEncoder(76, new byte[]{'\n'}).encodeToString(png) + "\n";
+        try (Writer writer = new FileWriter(legacyFile)) {
+            writer.write("<?xml version='1.0' encoding='utf-8' standalone='yes' ?>\n<map>\n");
+            for (Map.Entry<String, String> entry : profile.entrySet()) {
+                writeString(writer, entry.getKey(), entry.getValue());
+            }
+            writeString(writer, "user_profile_pic", picture);
+            writer.write("</map>\n");
+        }
+
+        profile.put("user_avatar_hash", "3f786850e387550f");
+        new UserDataStore(storeFile, null, () -> cipher, ioExecutor, Runnable::run)
+                .edit(data -> data.putAll(profile)).get();
+    }
+
+    @TearDown
+    public void tearDown() {
+        ioExecutor.shutdownNow();
+        for (File child : directory.listFiles()) {
+            child.delete();
+        }
+        directory.delete();
+    }
+
+    @Benchmark
+    public String loadLegacyPreferences() throws Exception {
+        Map<String, String> loaded = new HashMap<>();
+        parser.parse(legacyFile, new DefaultHandler() {
+            private final StringBuilder text = new StringBuilder();
+            private String name;
+
+            @Override
+            public void startElement(String uri, String localName, String qName, Attributes attributes) {
+                name = attributes.getValue("name");
+                text.setLength(0);
+            }
+
+            @Override
+            public void characters(char[] ch, int start, int length) {
+                text.append(ch, start, length);
+            }
+
+            @Override
+            public void endElement(String uri, String localName, String qName) {
+                if (name != null) {
+                    loaded.put(name, text.toString());
+                    name = null;
+                }
+            }
+        });
+        return loaded.get("user_name");
+    }
+
+    @Benchmark
+    public String loadMigratedStore() {
+        return new UserDataStore(storeFile, null, () -> cipher, ioExecutor, Runnable::run)
+                .getString("user_name", "");
+    }
+
+    private static void writeString(Writer writer, String name, String value) throws Exception {
+        writer.write("    <string name=\"" + name + "\">" + value + "</string>\n");
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.healthmonitoringapp.benchmark;
+
+import com.example.healthmonitoringapp.data.RollupSeries;
+import com.example.healthmonitoringapp.data.SampleBatch;
+import com.example.healthmonitoringapp.data.Summary;
+import com.example.healthmonitoringapp.data.TimeSeriesStore;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Answers a dashboard query over the last day, week, month or year of a year of heart rate sampled
+ * every 5 seconds (about 6.3M samples), from {@link RollupSeries} and, for comparison, by scanning
+ * the raw samples in {@link TimeSeriesStore} for the same count, mean and exact median.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RollupBenchmark {
+    private static final long START_MS = 1_700_000_000_000L;
+    private static final long DAY_MS = TimeUnit.DAYS.toMillis(1);
+    private static final int INTERVAL_MS = 5_000;
+    private static final int BATCH = 10_000;
+
+    @Param({"1", "7", "30", "365"})
+    public int days;
+
+    private File directory;
+    private TimeSeriesStore store;
+    private RollupSeries rollups;
+    private long fromMs;
+    private long toMs;
+    private float[] values = new float[1024];
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("rollup-bench").toFile();
+        store = TimeSeriesStore.open(new File(directory, "heart_rate.ts"));
+        rollups = new RollupSeries(TimeUnit.HOURS.toMillis(1));
+        Random random = new Random(11);
+        SampleBatch batch = new SampleBatch(BATCH);
+        float value = 70;
+        for (long t = START_MS; t < START_MS + 365 * DAY_MS; t += INTERVAL_MS) {
+            value = Math.max(40, Math.min(180, value + random.nextInt(3) - 1));
+            batch.add(t, value);
+            rollups.add(t, value);
+            if (batch.size() == BATCH) {
+                store.append(batch);
+                batch.clear();
+            }
+        }
+        store.append(batch);
+        // Ending at the newest sample, widened to the buckets the rollups answer with
+        Summary range = rollups.summarize(store.lastTimestamp() + 1 - days * DAY_MS, store.lastTimestamp() + 1);
+        fromMs = range.getStartMs();
+        toMs = range.getEndMs();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        store.close();
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    @Benchmark
+    public Summary fromRollups() {
+        return rollups.summarize(fromMs, toMs);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public double fromRawSamples() throws IOException {
+        int[] count = new int[1];
+        double[] sum = new double[1];
+        store.scan(fromMs, toMs, (timestampMs, value) -> {
+            if (count[0] == values.length) {
+                values = Arrays.copyOf(values, count[0] * 2);
+            }
+            values[count[0]++] = value;
+            sum[0] += value;
+        });
+        Arrays.sort(values, 0, count[0]);
+        return sum[0] / count[0] + values[count[0] / 2];
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.healthmonitoringapp.benchmark;
+
+import com.example.healthmonitoringapp.data.SampleBatch;
+import com.example.healthmonitoringapp.data.TimeSeriesStore;
+import com.example.healthmonitoringapp.security.DataCipher;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Encodes a day of heart rate sampled every second into {@link TimeSeriesStore} and reads back an
+ * hour and the whole day, plain and encrypted, and appends single live samples as the strap does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TimeSeriesStoreBenchmark {
+    private static final long START_MS = 1_700_000_000_000L;
+    private static final long HOUR_MS = TimeUnit.HOURS.toMillis(1);
+    private static final long DAY_MS = TimeUnit.DAYS.toMillis(1);
+
+    @Param({"false", "true"})
+    public boolean encrypted;
+
+    private File directory;
+    private DataCipher cipher;
+    private SampleBatch day;
+    private TimeSeriesStore stored;
+    private File appendFile;
+    private TimeSeriesStore live;
+    private long liveAtMs = START_MS;
+    private final SampleBatch out = new SampleBatch(90_000);
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("ts-bench").toFile();
+        byte[] key = new byte[32];
+        new Random(1).nextBytes(key);
+        cipher = encrypted ? new DataCipher(new SecretKeySpec(key, "AES")) : null;
+
+        Random random = new Random(20);
+        day = new SampleBatch(90_000);
+        float value = 70;
+        for (long t = START_MS; t < START_MS + DAY_MS; t += 1000) {
+            value = Math.max(40, Math.min(180, value + random.nextInt(3) - 1));
+            day.add(t, value);
+        }
+        stored = TimeSeriesStore.open(new File(directory, "stored.ts"), cipher);
+        stored.append(day);
+        appendFile = new File(directory, "append.ts");
+        live = TimeSeriesStore.open(new File(directory, "live.ts"), cipher);
+    }
+
+    @Setup(Level.Invocation)
+    public void deleteAppendFile() {
+        appendFile.delete();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        stored.close();
+        live.close();
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    @Benchmark
+    public long appendDay() throws IOException {
+        try (TimeSeriesStore store = TimeSeriesStore.open(appendFile, cipher)) {
+            store.append(day);
+            return store.sizeOnDisk();
+        }
+    }
+
+    @Benchmark
+    public boolean appendSecond() throws IOException {
+        liveAtMs += 1000;
+        return live.append(liveAtMs, 70 + (int) (liveAtMs / 1000 % 5));
+    }
+
+    @Benchmark
+    public int queryHour() throws IOException {
+        out.clear();
+        return stored.query(START_MS + 12 * HOUR_MS, START_MS + 13 * HOUR_MS, out);
+    }
+
+    @Benchmark
+    public int queryDay() throws IOException {
+        out.clear();
+        return stored.query(START_MS, START_MS + DAY_MS, out);
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.healthmonitoringapp.benchmark;
+
+import com.example.healthmonitoringapp.security.CipherProvider;
+import com.example.healthmonitoringapp.security.DataCipher;
+import com.example.healthmonitoringapp.utils.UserDataStore;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Serializes a profile the size SharedPrefManager keeps per account through {@link UserDataStore}:
+ * a cold load as at process start and one edited field written back. Writes include the fsync,
+ * so they depend on the disk as much as on the encoding.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UserDataStoreBenchmark {
+    @Param({"false", "true"})
+    public boolean encrypted;
+
+    private File directory;
+    private File file;
+    private CipherProvider cipherProvider;
+    private ExecutorService ioExecutor;
+    private UserDataStore store;
+    private int edits;
+
+    @Setup
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("store-bench").toFile();
+        file = new File(directory, "user_data.bin");
+        byte[] key = new byte[32];
+        new Random(1).nextBytes(key);
+        DataCipher cipher = new DataCipher(new SecretKeySpec(key, "AES"));
+        cipherProvider = encrypted ? () -> cipher : null;
+        ioExecutor = Executors.newSingleThreadExecutor();
+
+        store = new UserDataStore(file, null, cipherProvider, ioExecutor, Runnable::run);
+        store.edit(data -> {
+            data.put("user_name", "Jane Doe");
+            data.put("user_email", "jane.doe@example.com");
+            data.put("user_profile_pic", "https://lh3.googleusercontent.com/a/ACg8ocJ3xkZ1example=s96-c");
+            data.put("user_avatar_hash", "3f786850e387550fdab836ed7e6dc881de23001b");
+            data.put("user_dob", "1990-04-12");
+            data.put("user_phone", "+1 555 0100");
+            data.put("user_address", "1 Main Street, Springfield");
+            data.put("sync_pending_fields", "");
+            data.put("sync_remote_version", "AAABjX8nY2A=");
+        }).get();
+    }
+
+    @TearDown
+    public void tearDown() {
+        ioExecutor.shutdownNow();
+        for (File child : directory.listFiles()) {
+            child.delete();
+        }
+        directory.delete();
+    }
+
+    @Benchmark
+    public String load() {
+        return new UserDataStore(file, null, cipherProvider, ioExecutor, Runnable::run).getString("user_name", "");
+    }
+
+    @Benchmark
+    public void editField() throws Exception {
+        String phone = "+1 555 " + (edits++ % 10_000);
+        store.edit(data -> data.put("user_phone", phone)).get();
+    }
+}
@@ -0,0 +1,25 @@
+package android.os;
+
+/**
+ * Stand-in for the platform class so {@code metrics.Timer} runs on the JVM. Traces nothing.
+ */
+public final class Trace {
+    private Trace() {
+    }
+
+    public static boolean isEnabled() {
+        return false;
+    }
+
+    public static void beginSection(String sectionName) {
+    }
+
+    public static void endSection() {
+    }
+
+    public static void beginAsyncSection(String methodName, int cookie) {
+    }
+
+    public static void endAsyncSection(String methodName, int cookie) {
+    }
+}
@@ -1,9 +1,13 @@
 // Top-level build file where you can add configuration options common to all sub-projects/modules.
 plugins {
-    id("com.android.application") version "8.1.1" apply false
-    id("com.android.library") version "8.1.1" apply false
+    id("com.android.application") version "8.2.2" apply false
+    id("com.android.library") version "8.2.2" apply false
+    id("com.android.test") version "8.2.2" apply false
     id("com.google.gms.google-services") version "4.4.0" apply false // Google Services Plugin for Firebase & Google Sign-In
     id("org.jetbrains.kotlin.android") version "1.9.22" apply false
+    id("androidx.benchmark") version "1.2.4" apply false // Microbenchmark runner and device locking
+    id("androidx.baselineprofile") version "1.2.4" apply false // Baseline and startup profile generation
+    id("me.champeau.jmh") version "0.7.2" apply false // JMH for JVM benchmarks
 }
 
 tasks.register<Delete>("clean") {
@@ -0,0 +1,65 @@
+plugins {
+    id("com.android.library")
+    id("androidx.benchmark") // Microbenchmark runner and device locking
+}
+
+// The app is an application module and cannot be depended on, so the storage and image classes
+// under test are copied from its sources and compiled here.
+val appSources = tasks.register<Sync>("syncAppSources") {
+    from("../app/src/main/java") {
+        include(
+            "com/example/healthmonitoringapp/metrics/Counter.java",
+            "com/example/healthmonitoringapp/metrics/LatencyHistogram.java",
+            "com/example/healthmonitoringapp/metrics/Metrics.java",
+            "com/example/healthmonitoringapp/metrics/Timer.java",
+            "com/example/healthmonitoringapp/security/**",
+            "com/example/healthmonitoringapp/utils/AccountStore.java",
+            "com/example/healthmonitoringapp/utils/AvatarStore.java",
+            "com/example/healthmonitoringapp/utils/ImageDecodePipeline.java",
+            "com/example/healthmonitoringapp/utils/UserDataStore.java"
+        )
+    }
+    into(layout.buildDirectory.dir("generated/appSources"))
+}
+
+android {
+    namespace = "com.example.healthmonitoringapp.benchmark"
+    compileSdk = 35
+
+    defaultConfig {
+        minSdk = 29
+        testInstrumentationRunner = "androidx.benchmark.junit4.AndroidBenchmarkRunner"
+    }
+
+    // Benchmarks run against release code; a debuggable build is several times slower
+    testBuildType = "release"
+    buildTypes {
+        release {
+            isDefault = true
+        }
+    }
+
+    sourceSets["main"].java.srcDir(appSources.map { it.destinationDir })
+
+    compileOptions {
+        sourceCompatibility = JavaVersion.VERSION_17
+        targetCompatibility = JavaVersion.VERSION_17
+    }
+}
+
+tasks.named("preBuild") {
+    dependsOn(appSources)
+}
+
+// ./gradlew :microbenchmark:connectedReleaseAndroidTest
+// Each run writes <device>-benchmarkData.json under
+// build/outputs/connected_android_test_additional_output/; compare runs from those files.
+dependencies {
+    implementation("androidx.annotation:annotation:1.9.1")
+    implementation("androidx.lifecycle:lifecycle-common:2.8.7") // ImageDecodePipeline sessions
+
+    androidTestImplementation("androidx.benchmark:benchmark-junit4:1.2.4")
+    androidTestImplementation("androidx.test:runner:1.6.2")
+    androidTestImplementation("androidx.test.ext:junit:1.2.1")
+    androidTestImplementation("junit:junit:4.13.2")
+}
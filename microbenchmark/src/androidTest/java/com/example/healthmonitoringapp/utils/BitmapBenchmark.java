@@ -0,0 +1,126 @@
+package com.example.healthmonitoringapp.utils;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.ImageDecoder;
+import android.graphics.Paint;
+import android.util.Base64;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Encodes and decodes avatars with {@link AvatarStore} and samples a camera photo down to avatar
+ * size with {@link ImageDecodePipeline}, the way a picked picture reaches the profile screen.
+ */
+@RunWith(AndroidJUnit4.class)
+public class BitmapBenchmark {
+    private static final int TARGET_SIZE_PX = 480;
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    private static File directory;
+    private static File photo;
+    private static Bitmap picked;
+    private static String legacyBase64;
+    private static AvatarStore avatarStore;
+
+    @BeforeClass
+    public static void createImages() throws IOException {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        directory = new File(context.getCacheDir(), "bitmap_bench");
+        directory.mkdirs();
+        avatarStore = new AvatarStore(new File(directory, "avatars"), TARGET_SIZE_PX);
+
+        photo = new File(directory, "photo_12mp.jpg");
+        Bitmap image = drawStripes(4000, 3000);
+        try (FileOutputStream out = new FileOutputStream(photo)) {
+            image.compress(Bitmap.CompressFormat.JPEG, 90, out);
+        }
+        image.recycle();
+
+        picked = drawStripes(1080, 1080);
+        // Older versions stored the picture as a Base64 PNG in preferences
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        picked.compress(Bitmap.CompressFormat.PNG, 100, png);
+        legacyBase64 = Base64.encodeToString(png.toByteArray(), Base64.DEFAULT);
+    }
+
+    @AfterClass
+    public static void deleteImages() {
+        picked.recycle();
+        avatarStore.clear();
+        photo.delete();
+        new File(directory, "avatars").delete();
+        directory.delete();
+    }
+
+    @Test
+    public void decodePhotoToAvatarSize() throws IOException {
+        ImageDecodePipeline pipeline = ImageDecodePipeline.getInstance();
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            Bitmap bitmap = pipeline.decode(ImageDecoder.createSource(photo), TARGET_SIZE_PX);
+            state.pauseTiming();
+            bitmap.recycle();
+            state.resumeTiming();
+        }
+    }
+
+    @Test
+    public void saveAvatar() throws IOException {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            // Scales and encodes every time; the file is written only on the first run
+            avatarStore.save(picked);
+        }
+    }
+
+    @Test
+    public void loadAvatar() throws IOException {
+        String hash = avatarStore.save(picked);
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            Bitmap bitmap = avatarStore.load(hash);
+            state.pauseTiming();
+            bitmap.recycle();
+            state.resumeTiming();
+        }
+    }
+
+    @Test
+    public void migrateLegacyAvatar() throws IOException {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            avatarStore.migrateLegacy(legacyBase64);
+        }
+    }
+
+    private static Bitmap drawStripes(int width, int height) {
+        int stripHeight = height / 10;
+        Bitmap image = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(image);
+        Paint paint = new Paint();
+        for (int i = 0; i < 10; i++) {
+            paint.setColor(Color.HSVToColor(new float[]{i * 36f, 0.6f, 0.9f}));
+            canvas.drawRect(0, i * stripHeight, width, (i + 1) * stripHeight, paint);
+        }
+        return image;
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.healthmonitoringapp.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.healthmonitoringapp.security.CipherProvider;
+import com.example.healthmonitoringapp.security.KeystoreCipherProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Reads and writes a profile the way SharedPrefManager does: through an encrypted
+ * {@link UserDataStore} per account, selected with {@link AccountStore}. The platform
+ * SharedPreferences, which older versions used, are measured alongside as a baseline.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ProfileStorageBenchmark {
+    private static final String PREF_NAME = "storage_bench";
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    private final Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+    private final CipherProvider cipherProvider = KeystoreCipherProvider.getInstance(context);
+    private File directory;
+    private ExecutorService ioExecutor;
+    private UserDataStore store;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = new File(context.getCacheDir(), "storage_bench");
+        deleteRecursively(directory);
+        ioExecutor = Executors.newSingleThreadExecutor();
+        store = new UserDataStore(new File(directory, "user_data.bin"), null, cipherProvider, ioExecutor,
+                Runnable::run);
+        store.edit(ProfileStorageBenchmark::putProfile).get();
+    }
+
+    @After
+    public void tearDown() {
+        ioExecutor.shutdownNow();
+        deleteRecursively(directory);
+        context.deleteSharedPreferences(PREF_NAME);
+    }
+
+    @Test
+    public void readField() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            store.getString("user_name", "");
+        }
+    }
+
+    @Test
+    public void writeField() throws Exception {
+        BenchmarkState state = benchmarkRule.getState();
+        int edits = 0;
+        while (state.keepRunning()) {
+            String phone = "+1 555 " + edits++;
+            store.edit(data -> data.put("user_phone", phone)).get();
+        }
+    }
+
+    @Test
+    public void coldLoad() {
+        File file = new File(directory, "user_data.bin");
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            new UserDataStore(file, null, cipherProvider, ioExecutor, Runnable::run).getString("user_name", "");
+        }
+    }
+
+    @Test
+    public void switchAccount() throws Exception {
+        UserDataStore deviceStore = new UserDataStore(new File(directory, "device.bin"), null, cipherProvider,
+                ioExecutor, Runnable::run);
+        AccountStore accounts = new AccountStore(new File(directory, "accounts"), deviceStore,
+                AccountStore.DEFAULT_MAX_ACCOUNTS, cipherProvider, ioExecutor, Runnable::run);
+        accounts.select("jane-uid", null).edit(ProfileStorageBenchmark::putProfile).get();
+        accounts.select("john-uid", null).edit(ProfileStorageBenchmark::putProfile).get();
+        BenchmarkState state = benchmarkRule.getState();
+        int switches = 0;
+        while (state.keepRunning()) {
+            accounts.select(switches++ % 2 == 0 ? "jane-uid" : "john-uid", null).getString("user_name", "");
+        }
+    }
+
+    @Test
+    public void sharedPreferencesRead() {
+        SharedPreferences prefs = seededPreferences();
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            prefs.getString("user_name", "");
+        }
+    }
+
+    @Test
+    public void sharedPreferencesCommit() {
+        SharedPreferences prefs = seededPreferences();
+        BenchmarkState state = benchmarkRule.getState();
+        int edits = 0;
+        while (state.keepRunning()) {
+            prefs.edit().putString("user_phone", "+1 555 " + edits++).commit();
+        }
+    }
+
+    private SharedPreferences seededPreferences() {
+        SharedPreferences prefs = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+        SharedPreferences.Editor editor = prefs.edit();
+        for (Map.Entry<String, String> entry : store.getAll().entrySet()) {
+            editor.putString(entry.getKey(), entry.getValue());
+        }
+        editor.commit();
+        return prefs;
+    }
+
+    private static void putProfile(Map<String, String> data) {
+        data.put("user_name", "Jane Doe");
+        data.put("user_email", "jane.doe@example.com");
+        data.put("user_profile_pic", "https://lh3.googleusercontent.com/a/ACg8ocJ3xkZ1example=s96-c");
+        data.put("user_avatar_hash", "3f786850e387550fdab836ed7e6dc881de23001b");
+        data.put("user_dob", "1990-04-12");
+        data.put("user_phone", "+1 555 0100");
+        data.put("user_address", "1 Main Street, Springfield");
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -21,4 +21,7 @@ dependencyResolutionManagement {
 
 rootProject.name = "Healthmonitoring"
 include(":app")
+include(":benchmark-jvm") // JMH benchmarks for the pure-Java code
+include(":microbenchmark") // AndroidX Microbenchmark for storage and bitmaps on a device
+include(":baselineprofile") // Generates the app's Baseline Profile and measures startup
  
\ No newline at end of file